@@ -51,7 +51,6 @@ import java.util.List;
 
 import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
 import static de.rwth.idsg.steve.config.WebSocketConfiguration.IDLE_TIMEOUT;
-import static de.rwth.idsg.steve.config.WebSocketConfiguration.MAX_MSG_SIZE;
 
 /**
  * @author Sevket Goekay <sevketgokay@gmail.com>
@@ -80,7 +79,7 @@ public class SteveAppContext {
      */
     public void configureWebSocket() {
         JettyWebSocketServerContainer container = JettyWebSocketServerContainer.getContainer(webAppContext.getServletContext());
-        container.setMaxTextMessageSize(MAX_MSG_SIZE);
+        container.setMaxTextMessageSize(CONFIG.getWsMemory().getMaxTextMessageBytes());
         container.setIdleTimeout(IDLE_TIMEOUT);
     }
 
@@ -108,6 +107,8 @@ public class SteveAppContext {
         ctx.setInitParameter("org.eclipse.jetty.servlet.Default.dirAllowed", "false");
 
         ServletHolder web = new ServletHolder("spring-dispatcher", new DispatcherServlet(springContext));
+        // for the requests that wait for charge points without holding a thread (DeferredResult, SseEmitter)
+        web.setAsyncSupported(true);
         ServletHolder cxf = new ServletHolder("cxf", new CXFServlet());
 
         ctx.addEventListener(new ContextLoaderListener(springContext));
@@ -116,12 +117,13 @@ public class SteveAppContext {
 
         if (CONFIG.getProfile().isProd()) {
             // If PROD, add security filter
-            ctx.addFilter(
-                // The bean name is not arbitrary, but is as expected by Spring
-                new FilterHolder(new DelegatingFilterProxy(AbstractSecurityWebApplicationInitializer.DEFAULT_FILTER_NAME)),
-                CONFIG.getSpringMapping() + "*",
-                EnumSet.allOf(DispatcherType.class)
+            // The bean name is not arbitrary, but is as expected by Spring
+            FilterHolder securityFilter = new FilterHolder(
+                new DelegatingFilterProxy(AbstractSecurityWebApplicationInitializer.DEFAULT_FILTER_NAME)
             );
+            securityFilter.setAsyncSupported(true);
+
+            ctx.addFilter(securityFilter, CONFIG.getSpringMapping() + "*", EnumSet.allOf(DispatcherType.class));
         }
 
         initJSP(ctx);
@@ -18,6 +18,7 @@
  */
 package de.rwth.idsg.steve;
 
+import de.rwth.idsg.steve.myconfig.journal.JournalOverflowPolicy;
 import de.rwth.idsg.steve.ocpp.ws.custom.WsSessionSelectStrategy;
 import de.rwth.idsg.steve.ocpp.ws.custom.WsSessionSelectStrategyEnum;
 import de.rwth.idsg.steve.utils.PropertiesFileLoader;
@@ -26,6 +27,12 @@ import lombok.Getter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 19.08.2014
@@ -60,6 +67,17 @@ public enum SteveConfiguration {
     private final WebApi webApi;
     private final DB db;
     private final Jetty jetty;
+    private final Journal journal;
+    private final Dispatcher dispatcher;
+    private final Hooks hooks;
+    private final RateLimit rateLimit;
+    private final FanOut fanOut;
+    private final Tasks tasks;
+    private final Keepalive keepalive;
+    private final CommandQueue commandQueue;
+    private final WsMemory wsMemory;
+    private final MeterValues meterValues;
+    private final Retention retention;
 
     SteveConfiguration() {
         PropertiesFileLoader p = new PropertiesFileLoader("main.properties");
@@ -107,6 +125,104 @@ public enum SteveConfiguration {
                 .chargeBoxIdValidationRegex(p.getOptionalString("charge-box-id.validation.regex"))
                 .wsSessionSelectStrategy(
                         WsSessionSelectStrategyEnum.fromName(p.getString("ws.session.select.strategy")))
+                .heartbeatFlushIntervalSeconds(useFallbackIfNotSet(p.getOptionalInt("heartbeat.flush.interval.sec"), 30))
+                .callTimeoutSeconds(useFallbackIfNotSet(p.getOptionalInt("ocpp.call.timeout.sec"), 60))
+                .callTimeoutSecondsPerAction(parseActionValues(p.getStringList("ocpp.call.timeout.per.action"), "seconds"))
+                .outgoingQueueCapacity(useFallbackIfNotSet(p.getOptionalInt("ocpp.outgoing.queue.capacity"), 100))
+                .duplicateCacheSize(useFallbackIfNotSet(p.getOptionalInt("ocpp.duplicate.cache.size"), 16))
+                .duplicateCacheTtlSeconds(useFallbackIfNotSet(p.getOptionalInt("ocpp.duplicate.cache.ttl.sec"), 600))
+                .build();
+
+        journal = Journal.builder()
+                .queueCapacity(useFallbackIfNotSet(p.getOptionalInt("journal.queue.capacity"), 50_000))
+                .batchSize(useFallbackIfNotSet(p.getOptionalInt("journal.batch.size"), 500))
+                .flushIntervalMillis(useFallbackIfNotSet(p.getOptionalInt("journal.flush.interval.ms"), 1_000))
+                .overflowPolicy(JournalOverflowPolicy.fromName(p.getOptionalString("journal.overflow.policy")))
+                .sampleRate(useFallbackIfNotSet(p.getOptionalInt("journal.overflow.sample.rate"), 10))
+                .maxAttempts(useFallbackIfNotSet(p.getOptionalInt("journal.max.attempts"), 3))
+                .build();
+
+        dispatcher = Dispatcher.builder()
+                .workerThreads(useFallbackIfNotSet(p.getOptionalInt("ocpp.dispatcher.worker.threads"),
+                        Math.max(4, 2 * Runtime.getRuntime().availableProcessors())))
+                .laneQueueCapacity(useFallbackIfNotSet(p.getOptionalInt("ocpp.dispatcher.lane.queue.capacity"), 1_000))
+                .build();
+
+        hooks = Hooks.builder()
+                .threads(useFallbackIfNotSet(p.getOptionalInt("ocpp.hooks.threads"), 4))
+                .queueCapacity(useFallbackIfNotSet(p.getOptionalInt("ocpp.hooks.queue.capacity"), 10_000))
+                .build();
+
+        rateLimit = RateLimit.builder()
+                .enabled(p.getOptionalBoolean("ocpp.ratelimit.enabled"))
+                .meterValuesPerMinute(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.meter.values.per.min"), 120))
+                .meterValuesBurst(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.meter.values.burst"), 30))
+                .transactionalPerMinute(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.transactional.per.min"), 120))
+                .transactionalBurst(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.transactional.burst"), 30))
+                .otherPerMinute(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.other.per.min"), 300))
+                .otherBurst(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.other.burst"), 60))
+                .globalPerSecond(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.global.per.sec"), 0))
+                .globalBurst(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.global.burst"), 0))
+                .closeAfterRejections(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.close.after.rejections"), 200))
+                .closeWindowSeconds(useFallbackIfNotSet(p.getOptionalInt("ocpp.ratelimit.close.window.sec"), 60))
+                .build();
+
+        fanOut = FanOut.builder()
+                .parallelism(useFallbackIfNotSet(p.getOptionalInt("ocpp.fanout.parallelism"), 32))
+                .coordinators(useFallbackIfNotSet(p.getOptionalInt("ocpp.fanout.coordinators"), 8))
+                .soapConcurrency(useFallbackIfNotSet(p.getOptionalInt("ocpp.fanout.soap.concurrency"), 16))
+                .jsonConcurrency(useFallbackIfNotSet(p.getOptionalInt("ocpp.fanout.json.concurrency"), 64))
+                .stationTimeoutSeconds(useFallbackIfNotSet(p.getOptionalInt("ocpp.fanout.station.timeout.sec"), 30))
+                .pacingPerSecond(useFallbackIfNotSet(p.getOptionalInt("ocpp.fanout.pacing.per.sec"), 0))
+                .build();
+
+        tasks = Tasks.builder()
+                .maxSize(useFallbackIfNotSet(p.getOptionalInt("task.store.max.size"), 1_000))
+                .finishedTtlMinutes(useFallbackIfNotSet(p.getOptionalInt("task.store.finished.ttl.min"), 60))
+                .maxAgeHours(useFallbackIfNotSet(p.getOptionalInt("task.store.max.age.hours"), 24))
+                .persistSummaries(p.getOptionalBoolean("task.store.persist.summaries"))
+                .build();
+
+        keepalive = Keepalive.builder()
+                .pingIntervalSeconds(useFallbackIfNotSet(p.getOptionalInt("ws.ping.interval.sec"), 900))
+                .maxMissedPongs(useFallbackIfNotSet(p.getOptionalInt("ws.ping.max.missed"), 3))
+                .build();
+
+        commandQueue = CommandQueue.builder()
+                .defaultTtlMinutes(useFallbackIfNotSet(p.getOptionalInt("command.queue.default.ttl.min"), 1_440))
+                .maxAttempts(useFallbackIfNotSet(p.getOptionalInt("command.queue.max.attempts"), 3))
+                .build();
+
+        wsMemory = WsMemory.builder()
+                .sendBufferBudgetMb(useFallbackIfNotSet(p.getOptionalInt("ws.send.buffer.budget.mb"), 256))
+                .sessionMaxBufferKb(useFallbackIfNotSet(p.getOptionalInt("ws.send.buffer.session.max.kb"), 1_024))
+                .sessionMinBufferKb(useFallbackIfNotSet(p.getOptionalInt("ws.send.buffer.session.min.kb"), 64))
+                .sendTimeLimitSeconds(useFallbackIfNotSet(p.getOptionalInt("ws.send.time.limit.sec"), 10))
+                .maxTextMessageKb(useFallbackIfNotSet(p.getOptionalInt("ws.max.text.message.kb"), 8_192))
+                .inboundMaxKbPerAction(parseActionValues(p.getStringList("ocpp.inbound.max.kb.per.action"), "KB"))
+                .build();
+
+        meterValues = MeterValues.builder()
+                .queueCapacity(useFallbackIfNotSet(p.getOptionalInt("meter.values.queue.capacity"), 100_000))
+                .batchSize(useFallbackIfNotSet(p.getOptionalInt("meter.values.batch.size"), 1_000))
+                .flushIntervalMillis(useFallbackIfNotSet(p.getOptionalInt("meter.values.flush.interval.ms"), 500))
+                .spillDirectory(useFallbackIfNotSet(p.getOptionalString("meter.values.spill.dir"),
+                        Paths.get(System.getProperty("java.io.tmpdir"), "steve-meter-values").toString()))
+                .spillRetrySeconds(useFallbackIfNotSet(p.getOptionalInt("meter.values.spill.retry.sec"), 10))
+                .billingThreads(useFallbackIfNotSet(p.getOptionalInt("meter.values.billing.threads"), 4))
+                .rollupBackfillHorizonHours(useFallbackIfNotSet(
+                        p.getOptionalInt("meter.values.rollup.backfill.horizon.hours"), 24))
+                .build();
+
+        retention = Retention.builder()
+                .maintenanceIntervalMinutes(useFallbackIfNotSet(p.getOptionalInt("retention.interval.min"), 60))
+                .precreateMonths(useFallbackIfNotSet(p.getOptionalInt("retention.precreate.months"), 3))
+                .meterValueMonths(useFallbackIfNotSet(p.getOptionalInt("retention.meter.values.months"), 0))
+                .meterValueArchive(p.getOptionalBoolean("retention.meter.values.archive"))
+                .connectorStatusMonths(useFallbackIfNotSet(p.getOptionalInt("retention.connector.status.months"), 0))
+                .connectorStatusArchive(p.getOptionalBoolean("retention.connector.status.archive"))
+                .appLogMonths(useFallbackIfNotSet(p.getOptionalInt("retention.app.log.months"), 0))
+                .appLogArchive(p.getOptionalBoolean("retention.app.log.archive"))
                 .build();
 
         validate();
@@ -124,6 +240,25 @@ public enum SteveConfiguration {
         }
     }
 
+    private static int useFallbackIfNotSet(Integer value, int fallback) {
+        return value == null ? fallback : value;
+    }
+
+    /**
+     * Format of each item: Action:seconds (e.g. GetDiagnostics:300)
+     */
+    private static Map<String, Integer> parseActionValues(List<String> items, String unit) {
+        Map<String, Integer> map = new HashMap<>();
+        for (String item : items) {
+            int index = item.indexOf(':');
+            if (index <= 0) {
+                throw new IllegalArgumentException("Invalid value '" + item + "', expected Action:" + unit);
+            }
+            map.put(item.substring(0, index).trim(), Integer.parseInt(item.substring(index + 1).trim()));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
     public String getSteveCompositeVersion() {
         if (gitDescribe == null) {
             return steveVersion;
@@ -149,6 +284,11 @@ public enum SteveConfiguration {
             throw new IllegalArgumentException(
                     "HTTP and HTTPS are both disabled. Well, how do you want to access the server, then?");
         }
+
+        if (wsMemory.sessionMinBufferKb > wsMemory.sessionMaxBufferKb) {
+            throw new IllegalArgumentException(
+                    "ws.send.buffer.session.min.kb must not be greater than ws.send.buffer.session.max.kb");
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -208,6 +348,154 @@ public enum SteveConfiguration {
         private final boolean autoRegisterUnknownStations;
         private final String chargeBoxIdValidationRegex;
         private final WsSessionSelectStrategy wsSessionSelectStrategy;
+        private final int heartbeatFlushIntervalSeconds;
+        private final int callTimeoutSeconds;
+        private final Map<String, Integer> callTimeoutSecondsPerAction;
+        private final int outgoingQueueCapacity;
+        private final int duplicateCacheSize; // per charge point. 0: disabled
+        private final int duplicateCacheTtlSeconds;
+
+        /**
+         * How long to wait for the response of a CALL we sent, before failing its task
+         */
+        public int getCallTimeoutSeconds(String action) {
+            return callTimeoutSecondsPerAction.getOrDefault(action, callTimeoutSeconds);
+        }
+    }
+
+    // Asynchronous journal of the OCPP frames (app_log)
+    @Builder
+    @Getter
+    public static class Journal {
+        private final int queueCapacity;
+        private final int batchSize;
+        private final int flushIntervalMillis;
+        private final JournalOverflowPolicy overflowPolicy;
+        private final int sampleRate;
+        private final int maxAttempts;
+    }
+
+    // Execution of incoming OCPP-J messages: ordered per charge point, decoupled from the Jetty threads
+    @Builder
+    @Getter
+    public static class Dispatcher {
+        private final int workerThreads;
+        private final int laneQueueCapacity;
+    }
+
+    // Post-processing hooks that run after an incoming OCPP-J CALL was answered
+    @Builder
+    @Getter
+    public static class Hooks {
+        private final int threads;
+        private final int queueCapacity;
+    }
+
+    // Admission control of incoming OCPP-J CALLs: token buckets per charge point and action class, and a global one
+    @Builder
+    @Getter
+    public static class RateLimit {
+        private final boolean enabled;
+        private final int meterValuesPerMinute;
+        private final int meterValuesBurst;
+        private final int transactionalPerMinute;
+        private final int transactionalBurst;
+        private final int otherPerMinute;
+        private final int otherBurst;
+        private final int globalPerSecond; // 0 = no global budget
+        private final int globalBurst;
+        private final int closeAfterRejections; // 0 = never close
+        private final int closeWindowSeconds;
+    }
+
+    // Sending the requests of a task (e.g. a fleet-wide Reset) to its charge points
+    @Builder
+    @Getter
+    public static class FanOut {
+        private final int parallelism;
+        private final int coordinators; // tasks that are fanned out at the same time
+        private final int soapConcurrency;
+        private final int jsonConcurrency;
+        private final int stationTimeoutSeconds;
+        private final int pacingPerSecond; // 0 = no pacing
+    }
+
+    // In-memory store of the tasks (requests sent to charge points) and their results
+    @Builder
+    @Getter
+    public static class Tasks {
+        private final int maxSize;
+        private final int finishedTtlMinutes;
+        private final int maxAgeHours; // also for unfinished tasks
+        private final boolean persistSummaries;
+    }
+
+    // WebSocket pings to keep the connections alive and to detect dead ones
+    @Builder
+    @Getter
+    public static class Keepalive {
+        private final int pingIntervalSeconds;
+        private final int maxMissedPongs;
+    }
+
+    // Store-and-forward queue for commands to offline charge points
+    @Builder
+    @Getter
+    public static class CommandQueue {
+        private final int defaultTtlMinutes; // 0: commands do not expire, unless a TTL is given
+        private final int maxAttempts;
+    }
+
+    // Memory of the WebSocket connections: what we buffer for sending, and how large incoming frames may be
+    @Builder
+    @Getter
+    public static class WsMemory {
+        private final int sendBufferBudgetMb; // shared by all sessions
+        private final int sessionMaxBufferKb;
+        private final int sessionMinBufferKb;
+        private final int sendTimeLimitSeconds;
+        private final int maxTextMessageKb;
+        private final Map<String, Integer> inboundMaxKbPerAction;
+
+        public int getMaxTextMessageBytes() {
+            return maxTextMessageKb * 1024;
+        }
+
+        /**
+         * How large an incoming CALL of the action may be
+         */
+        public int getInboundMaxBytes(String action) {
+            Integer kb = inboundMaxKbPerAction.get(action);
+            return (kb == null) ? getMaxTextMessageBytes() : kb * 1024;
+        }
+    }
+
+    // Write-behind of connector_meter_value: rows are acknowledged before they reach the database
+    @Builder
+    @Getter
+    public static class MeterValues {
+        private final int queueCapacity; // rows. when full, the rows are spilled to disk
+        private final int batchSize;
+        private final int flushIntervalMillis;
+        private final String spillDirectory;
+        private final int spillRetrySeconds; // after a failed write, before the spilled rows are written again
+        private final int billingThreads; // for the tariff processing after the rows are written
+        private final int rollupBackfillHorizonHours; // the recent hours are left to the incremental rollup
+    }
+
+    // Monthly partitions of connector_meter_value, connector_status and app_log. Months = 0 keeps everything.
+    // Expired partitions are dropped, or moved into a table of their own if archive is set.
+    @Builder
+    @Getter
+    public static class Retention {
+        private final int maintenanceIntervalMinutes;
+        private final int precreateMonths;
+        private final int meterValueMonths;
+        private final boolean meterValueArchive;
+        private final int connectorStatusMonths;
+        private final boolean connectorStatusArchive;
+        private final int appLogMonths;
+        private final boolean appLogArchive;
     }
 
 }
@@ -32,7 +32,6 @@ import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author Sevket Goekay <sevketgokay@gmail.com>
@@ -50,9 +49,7 @@ public class WebSocketConfiguration implements WebSocketConfigurer {
     @Autowired private Ocpp16WebSocketEndpoint ocpp16WebSocketEndpoint;
 
     public static final String PATH_INFIX = "/websocket/CentralSystemService/";
-    public static final long PING_INTERVAL = TimeUnit.MINUTES.toMinutes(15);
     public static final Duration IDLE_TIMEOUT = Duration.ofHours(2);
-    public static final int MAX_MSG_SIZE = 8_388_608; // 8 MB for max message size
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
@@ -33,16 +33,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Service
 public class ChargingSessionManager {
 
+    private static final String ACCEPTED = "Accepted";
+
     @Autowired
     private ChargePointService16_InvokerImpl cpsImpl;
     @Autowired
     private ScheduledChargingServiceup chargingServiceup;
     @Autowired
     private ChargePointHelperService chargePointHelperService;
+    @Autowired
+    private ScheduledExecutorService executorService;
 
     public void startSession(String chargeBoxId, int connectorId, String idTag) {
         Optional<RegistrationStatus> statusOpt = chargePointHelperService.getRegistrationStatus(chargeBoxId);
@@ -54,15 +59,27 @@ public class ChargingSessionManager {
 
             if (status == ocpp.cs._2015._10.RegistrationStatus.ACCEPTED && isOnline) {
 
+                ChargePointSelect cp = new ChargePointSelect(OcppTransport.JSON, chargeBoxId);
+
                 RemoteStartTransactionParams params = new RemoteStartTransactionParams();
                 params.setIdTag(idTag);
                 params.setConnectorId(connectorId);
+                params.setChargePointSelectList(Collections.singletonList(cp));
 
-                ChargePointSelect cp = new ChargePointSelect(OcppTransport.JSON, chargeBoxId);
                 RemoteStartTransactionTask task = new RemoteStartTransactionTask(OcppVersion.V_16, params);
 
                 cpsImpl.remoteStartTransaction(cp, task);
-                chargingServiceup.sendUserAlert(idTag, new Contents("Charging session started successfully."));
+
+                // alert the user only when the station has answered. sending the alert is blocking, so do not use
+                // the thread that delivers the response.
+                task.getFuture(chargeBoxId).whenCompleteAsync((result, e) -> {
+                    if (e == null && ACCEPTED.equals(result.getResponse())) {
+                        chargingServiceup.sendUserAlert(idTag, new Contents("Charging session started successfully."));
+                    } else {
+                        chargingServiceup.sendUserAlert(idTag,
+                                new Contents("Cannot start charging. The device did not accept the request"));
+                    }
+                }, executorService);
             } else {
                 chargingServiceup.sendUserAlert(idTag,
                         new Contents("Cannot start charging. The device is offline"));
@@ -89,6 +106,14 @@ public class ChargingSessionManager {
             }
         };
         cpsImpl.remoteStopTransaction(cps, task);
-        chargingServiceup.sendUserAlert(idtag, new Contents("Schedule completed successfully."));
+
+        task.getFuture(chargeBoxId).whenCompleteAsync((result, e) -> {
+            if (e == null && ACCEPTED.equals(result.getResponse())) {
+                chargingServiceup.sendUserAlert(idtag, new Contents("Schedule completed successfully."));
+            } else {
+                chargingServiceup.sendUserAlert(idtag,
+                        new Contents("Could not stop the scheduled charging session. The device did not accept the request"));
+            }
+        }, executorService);
     }
 }
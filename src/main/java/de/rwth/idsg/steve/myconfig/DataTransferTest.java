@@ -46,7 +46,7 @@ public class DataTransferTest {
             String testChargeBoxId = "ChargePoint502";
 
             // 3. Call the method under test
-            dataTransferHandler.handleDataTransfer(payload, testChargeBoxId);
+            dataTransferHandler.handleDataTransfer(payload.get("data").asText(), testChargeBoxId);
 
             // 4. Verify the MAC address was inserted in the database
             Integer count = dsl.selectCount()
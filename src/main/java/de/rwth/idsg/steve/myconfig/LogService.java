@@ -37,159 +37,152 @@
 package de.rwth.idsg.steve.myconfig;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.rwth.idsg.steve.myconfig.journal.AppLogJournal;
+import de.rwth.idsg.steve.myconfig.journal.JournalEntry;
+import de.rwth.idsg.steve.ocpp.ws.JsonObjectMapper;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonError;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 import org.joda.time.DateTime;
-import org.jooq.DSLContext;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import static jooq.steve.db.tables.AppLog.APP_LOG;
-
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class LogService {
 
-    @Autowired
-    private static DSLContext ctx;
+    private static final ObjectMapper MAPPER = JsonObjectMapper.INSTANCE.getMapper();
+
+    private final AppLogJournal journal;
+
+    public void saveSent(String chargeBoxId, String sessionId, String msg, OcppJsonEnvelope envelope) {
+        saveToDatabase(chargeBoxId, sessionId, msg, envelope, "Sending" + chargeBoxId);
+    }
 
-    public LogService(DSLContext ctx){
-        this.ctx = ctx;
+    /**
+     * @param envelope is null, if the frame could not even be parsed up to its message type and id
+     */
+    public void saveReceived(String chargeBoxId, String sessionId, String msg, @Nullable OcppJsonEnvelope envelope) {
+        saveToDatabase(chargeBoxId, sessionId, msg, envelope, "Received by Server from " + chargeBoxId);
     }
 
-    public static void saveToDatabase(String chargeBoxId, String sessionId, String msg, String direction) {
+    /**
+     * @param envelope the frame as it was read/written once by the pipeline. Null if the frame could not be parsed.
+     */
+    private void saveToDatabase(String chargeBoxId, String sessionId, String msg,
+                                @Nullable OcppJsonEnvelope envelope, String direction) {
         if (chargeBoxId == null || sessionId == null || chargeBoxId.isEmpty() || sessionId.isEmpty()) {
-            System.err.println("Invalid chargeBoxId or sessionId");
+            log.warn("Invalid chargeBoxId '{}' or sessionId '{}', not saving the message to the app log",
+                     chargeBoxId, sessionId);
             return;
         }
 
         DateTime timestampStr = new DateTime();
-        String event = null;
-        String payload = null;
+        String event;
+        String payload;
         Integer transactionId = null;
         String messageId = null;
 
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(msg);
-
-            if (root.isArray() && root.size() >= 3) {
-                int messageTypeCode = root.get(0).asInt();
-                messageId = root.get(1).asText();
-
-                switch (messageTypeCode) {
-
-                    case 2: // CALL
-                        event = root.get(2).asText();
-
-                        // Skip Heartbeat entirely
-                        if ("Heartbeat".equalsIgnoreCase(event)) {
-                            return;
-                        }
-
-                        JsonNode payloadNode = root.get(3);
-
-                        // Skip MeterValues or StatusNotification if payload is empty
-                        if (("MeterValues".equalsIgnoreCase(event) || "StatusNotification".equalsIgnoreCase(event))) {
-                            if (payloadNode == null || payloadNode.isNull() ||
-                                    (payloadNode.isObject() && !payloadNode.fieldNames().hasNext())) {
-                                log.info("Skipping {} event due to empty payload", event);
-                                return;
-                            }
-                        }
-
-                        payload = payloadNode.toString();
-
-                        // Save messageId → event for matching later CALL_RESULT
-                        OcppMessageTracker.put(messageId, event);
-
-                        if (payloadNode.has("transactionId")) {
-                            transactionId = payloadNode.get("transactionId").asInt();
-                        }
-                        break;
-
-                    case 3: // CALL_RESULT
-                        // Try to fetch original method from tracker
-                        int retry = 3;
-                        while (retry-- > 0) {
-                            event = OcppMessageTracker.get(messageId);
-                            if (event != null) break;
-                            try {
-                                Thread.sleep(30);
-                            } catch (InterruptedException ignored) {}
-                        }
-
-                        if ("Heartbeat".equalsIgnoreCase(event)) {
-                            return;
-                        }
-
-                        JsonNode responseNode = root.get(2);
-
-                        // Skip MeterValues or StatusNotification if response is empty
-                        if (("MeterValues".equalsIgnoreCase(event) || "StatusNotification".equalsIgnoreCase(event))) {
-                            if (responseNode == null || responseNode.isNull() ||
-                                    (responseNode.isObject() && !responseNode.fieldNames().hasNext())) {
-                                log.info("Skipping CALL_RESULT of {} due to empty payload", event);
-                                return;
-                            }
-                        }
-
-                        payload = responseNode.toString();
-                        OcppMessageTracker.remove(messageId);
-
-                        if (responseNode.has("transactionId")) {
-                            transactionId = responseNode.get("transactionId").asInt();
-                        }
-                        break;
-
-                    case 4: // CALL_ERROR
-                        event = "CALL_ERROR";
-                        ObjectNode errorObj = mapper.createObjectNode();
-                        errorObj.put("errorCode", root.get(2).asText());
-                        errorObj.put("errorDescription", root.get(3).asText());
-                        if (root.size() > 4) {
-                            JsonNode details = root.get(4);
-                            if (details.isObject()) {
-                                errorObj.set("errorDetails", details);
-                            } else {
-                                errorObj.put("errorDetails", details.toString());
-                            }
-                        }
-                        payload = errorObj.toString();
-                        break;
-
-                    default:
-                        event = "UNKNOWN_TYPE_" + messageTypeCode;
-                        payload = msg;
-                        break;
-                }
+        if (envelope == null) {
+            event = "JSON_PARSE_ERROR";
+            payload = msg;
+
+        } else {
+            messageId = envelope.getMessageId();
 
-            } else {
-                event = "INVALID_STRUCTURE";
-                payload = msg;
+            switch (envelope.getMessageType()) {
+
+                case CALL:
+                case CALL_RESULT:
+                    event = envelope.getAction();
+
+                    // Skip Heartbeat entirely
+                    if ("Heartbeat".equalsIgnoreCase(event)) {
+                        return;
+                    }
+
+                    // Skip MeterValues or StatusNotification if payload is empty
+                    if (("MeterValues".equalsIgnoreCase(event) || "StatusNotification".equalsIgnoreCase(event))
+                            && envelope.isEmptyPayload()) {
+                        log.info("Skipping {} of {} due to empty payload", envelope.getMessageType(), event);
+                        return;
+                    }
+
+                    payload = envelope.getRawPayload() != null ? envelope.getRawPayload() : msg;
+                    transactionId = getTransactionId(envelope.getRawPayload());
+                    break;
+
+                case CALL_ERROR:
+                    event = "CALL_ERROR";
+                    payload = toErrorPayload(envelope.getPayload(), msg);
+                    break;
+
+                default:
+                    event = "UNKNOWN_TYPE_" + envelope.getMessageType();
+                    payload = msg;
+                    break;
             }
+        }
 
-        } catch (Exception e) {
-            event = "JSON_PARSE_ERROR";
-            payload = msg;
-            e.printStackTrace();
+        journal.add(JournalEntry.builder()
+                                .timestamp(timestampStr)
+                                .chargeBoxId(chargeBoxId)
+                                .sessionId(sessionId)
+                                .transactionId(transactionId)
+                                .event(event)
+                                .payload(payload)
+                                .messageId(messageId)
+                                .direction(direction)
+                                .build());
+    }
+
+    /**
+     * Only looks at the top-level fields of the payload. Most payloads do not have a transactionId at all, and we do
+     * not want to tokenize these.
+     */
+    @Nullable
+    private static Integer getTransactionId(@Nullable String rawPayload) {
+        if (rawPayload == null || !rawPayload.contains("\"transactionId\"")) {
+            return null;
         }
 
-        try {
-            ctx.insertInto(APP_LOG)
-                    .set(APP_LOG.TIMESTAMP_STR, timestampStr)
-                    .set(APP_LOG.CHARGE_BOX_ID, chargeBoxId)
-                    .set(APP_LOG.SESSION_ID, sessionId)
-                    .set(APP_LOG.TRANSACTION_ID, transactionId)
-                    .set(APP_LOG.EVENT, event)
-                    .set(APP_LOG.PAYLOAD, payload)
-                    .set(APP_LOG.MESSAGE_ID, messageId)
-                    .set(APP_LOG.DIRECTION, direction)
-                    .execute();
+        try (JsonParser parser = MAPPER.getFactory().createParser(rawPayload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                parser.nextToken();
+                if ("transactionId".equals(fieldName)) {
+                    return parser.getValueAsInt();
+                }
+                parser.skipChildren();
+            }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("Could not read transactionId from payload", e);
+        }
+        return null;
+    }
+
+    private static String toErrorPayload(@Nullable Object error, String msg) {
+        if (!(error instanceof OcppJsonError)) {
+            return msg;
+        }
+
+        OcppJsonError jsonError = (OcppJsonError) error;
+
+        ObjectNode errorObj = MAPPER.createObjectNode();
+        errorObj.put("errorCode", jsonError.getErrorCode().name());
+        errorObj.put("errorDescription", jsonError.isSetDescription() ? jsonError.getErrorDescription() : "");
+        if (jsonError.isSetDetails()) {
+            errorObj.put("errorDetails", jsonError.getErrorDetails());
         }
+        return errorObj.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.myconfig;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.service.dto.TariffProcessingStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * Runs the tariff processing of transactions after their meter values are written, on threads of its own: it makes
+ * blocking HTTP calls and must not hold up the shared scheduler.
+ *
+ * The runs of a transaction are serialized, since each one reads what was billed so far and appends to it. A run that
+ * is requested while another one of the same transaction is waiting replaces it: every run bills all meter values
+ * since the last billed one, i.e. the waiting run would not find more. Therefore, the queue holds at most one run per
+ * active transaction.
+ */
+@Slf4j
+@Component
+public class TariffProcessingQueue {
+
+    // (transactionId, the run that waits). a transaction is in the map as long as one of its runs waits or runs.
+    private final ConcurrentHashMap<Integer, Slot> slots = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public TariffProcessingQueue() {
+        this(CONFIG.getMeterValues().getBillingThreads(), CONFIG.getMeterValues().getQueueCapacity());
+    }
+
+    TariffProcessingQueue(int threads, int capacity) {
+        int n = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(
+                n, n,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacity)),
+                new ThreadFactoryBuilder().setNameFormat("SteVe-Tariff-%d").setDaemon(true).build()
+        );
+    }
+
+    public void submit(int transactionId, Runnable run) {
+        submitted.increment();
+
+        boolean[] schedule = new boolean[1];
+        slots.compute(transactionId, (key, slot) -> {
+            if (slot == null) {
+                schedule[0] = true;
+                return new Slot(run);
+            }
+            if (slot.next != null) {
+                coalesced.increment();
+            }
+            slot.next = run;
+            return slot;
+        });
+
+        if (!schedule[0]) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> drain(transactionId));
+        } catch (RejectedExecutionException e) {
+            slots.remove(transactionId);
+            rejected.increment();
+            log.warn("Skipping the tariff processing of transaction {}, the queue is full or shut down", transactionId);
+        }
+    }
+
+    public TariffProcessingStats getStats() {
+        return TariffProcessingStats.builder()
+                                    .threads(executor.getCorePoolSize())
+                                    .activeThreads(executor.getActiveCount())
+                                    .transactions(slots.size())
+                                    .submitted(submitted.sum())
+                                    .coalesced(coalesced.sum())
+                                    .completed(completed.sum())
+                                    .failed(failed.sum())
+                                    .rejected(rejected.sum())
+                                    .build();
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Killing non-finished tariff processing tasks");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the waiting runs of the transaction, until there is none. Only one thread drains a transaction at a time.
+     */
+    private void drain(int transactionId) {
+        while (true) {
+            Runnable[] next = new Runnable[1];
+            slots.computeIfPresent(transactionId, (key, slot) -> {
+                next[0] = slot.next;
+                slot.next = null;
+                return next[0] == null ? null : slot;
+            });
+
+            if (next[0] == null) {
+                return;
+            }
+
+            try {
+                next[0].run();
+                completed.increment();
+            } catch (Exception e) {
+                failed.increment();
+                log.error("Exception occurred in the tariff processing of transaction {}", transactionId, e);
+            }
+        }
+    }
+
+    private static final class Slot {
+        private Runnable next;
+
+        private Slot(Runnable next) {
+            this.next = next;
+        }
+    }
+}
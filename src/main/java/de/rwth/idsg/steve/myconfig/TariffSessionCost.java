@@ -190,6 +190,19 @@ public class TariffSessionCost {
         }
     }
 
+    private Record2<DateTime, BigDecimal> fetchPreviousMeterValue(Integer connectorPk, Condition timestampCondition) {
+        return ctx.select(
+                        CONNECTOR_METER_VALUE.VALUE_TIMESTAMP,
+                        CONNECTOR_METER_VALUE.VALUE.cast(BigDecimal.class))
+                .from(CONNECTOR_METER_VALUE)
+                .where(CONNECTOR_METER_VALUE.CONNECTOR_PK.eq(connectorPk)
+                        .and(CONNECTOR_METER_VALUE.MEASURAND.eq("Energy.Active.Import.Register"))
+                        .and(timestampCondition))
+                .orderBy(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP.desc())
+                .limit(1)
+                .fetchOne();
+    }
+
     public BigDecimal calculatePartialCost(Integer connectorPk, Integer transactionId, List<Tariff> tariffList, String boxId) {
         DateTime txnStartTime = ctx.select(TRANSACTION_START.EVENT_TIMESTAMP)
                 .from(TRANSACTION_START)
@@ -205,17 +218,14 @@ public class TariffSessionCost {
         DateTime fromTime = (lastBilledTime != null) ? lastBilledTime : txnStartTime;
         DateTime now = DateTime.now();
 
-        // Get previous meter value just before fromTime
-        Record2<DateTime, BigDecimal> prevMeter = ctx.select(
-                        CONNECTOR_METER_VALUE.VALUE_TIMESTAMP,
-                        CONNECTOR_METER_VALUE.VALUE.cast(BigDecimal.class))
-                .from(CONNECTOR_METER_VALUE)
-                .where(CONNECTOR_METER_VALUE.CONNECTOR_PK.eq(connectorPk)
-                        .and(CONNECTOR_METER_VALUE.MEASURAND.eq("Energy.Active.Import.Register"))
-                        .and(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP.lessOrEqual(fromTime)))
-                .orderBy(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP.desc())
-                .limit(1)
-                .fetchOne();
+        // Get previous meter value just before fromTime. Look into the last day first, such that only the latest
+        // partition(s) of connector_meter_value are scanned in the usual case.
+        Record2<DateTime, BigDecimal> prevMeter = fetchPreviousMeterValue(connectorPk,
+                CONNECTOR_METER_VALUE.VALUE_TIMESTAMP.between(fromTime.minusDays(1), fromTime));
+        if (prevMeter == null) {
+            prevMeter = fetchPreviousMeterValue(connectorPk,
+                    CONNECTOR_METER_VALUE.VALUE_TIMESTAMP.lessOrEqual(fromTime));
+        }
 
         if (prevMeter == null) {
             System.out.println("No previous meter value for connectorPk: " + connectorPk);
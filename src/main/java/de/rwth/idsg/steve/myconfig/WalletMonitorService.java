@@ -24,7 +24,9 @@ import de.rwth.idsg.steve.ocpp.OcppVersion;
 import de.rwth.idsg.steve.ocpp.task.RemoteStopTransactionTask;
 import de.rwth.idsg.steve.repository.TaskStore;
 import de.rwth.idsg.steve.repository.dto.ChargePointSelect;
+import de.rwth.idsg.steve.repository.impl.ConnectorPkCache;
 import de.rwth.idsg.steve.web.dto.ocpp.RemoteStopTransactionParams;
+import lombok.extern.slf4j.Slf4j;
 import ocpp.cs._2015._10.MeterValue;
 import ocpp.cs._2015._10.SampledValue;
 import org.hibernate.validator.internal.util.stereotypes.Lazy;
@@ -39,10 +41,10 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static jooq.steve.db.Tables.*;
-import static jooq.steve.db.tables.Connector.CONNECTOR;
 import static jooq.steve.db.tables.TransactionStart.TRANSACTION_START;
 
 
+@Slf4j
 @Service
 public class WalletMonitorService {
     @Autowired
@@ -59,6 +61,8 @@ public class WalletMonitorService {
 
     @Autowired
     private CustomStopReasonStore customStopReasonStore;
+    @Autowired
+    private ConnectorPkCache connectorPkCache;
 
     private final Map<Integer, Double> lastEnergyMap = new ConcurrentHashMap<>();
 
@@ -66,10 +70,7 @@ public class WalletMonitorService {
 
     public void checkAndStopIfLowBalance(List<MeterValue> list, Integer transactionId, int connectorPk) {
 
-        String chargeBoxId = ctx.select(CONNECTOR.CHARGE_BOX_ID)
-                .from(CONNECTOR)
-                .where(CONNECTOR.CONNECTOR_PK.eq(connectorPk))
-                .fetchOne(CONNECTOR.CHARGE_BOX_ID);
+        String chargeBoxId = connectorPkCache.getChargeBoxId(connectorPk);
 
         String idTag = ctx.select(TRANSACTION_START.ID_TAG)
                 .from(TRANSACTION_START)
@@ -187,6 +188,7 @@ public class WalletMonitorService {
 
                 cpsImpl.remoteStopTransaction(cps, task);
                 taskStore.add(task);
+                logOutcome(task, chargeBoxId, transactionId);
 
             } else {
                 System.out.println("Continue to charging");
@@ -236,7 +238,19 @@ public class WalletMonitorService {
 
         cpsImpl.remoteStopTransaction(cps, task);
         taskStore.add(task);
+        logOutcome(task, chargeBoxId, transactionId);
+    }
 
+    private static void logOutcome(RemoteStopTransactionTask task, String chargeBoxId, int transactionId) {
+        task.getFuture(chargeBoxId).whenComplete((result, e) -> {
+            if (e != null) {
+                log.warn("[chargeBoxId={}, transactionId={}] Remote stop could not be delivered: {}",
+                        chargeBoxId, transactionId, e.getMessage());
+            } else if (!"Accepted".equals(result.getResponse())) {
+                log.warn("[chargeBoxId={}, transactionId={}] Remote stop was not accepted: {}",
+                        chargeBoxId, transactionId, result.getResponse());
+            }
+        });
     }
 }
 
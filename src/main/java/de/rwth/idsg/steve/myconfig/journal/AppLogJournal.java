@@ -0,0 +1,320 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.myconfig.journal;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.SteveConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+import static jooq.steve.db.tables.AppLog.APP_LOG;
+
+/**
+ * Decouples the logging of OCPP frames (app_log) from the WebSocket threads. Entries are put into a bounded queue and
+ * written by a single thread in multi-row inserts, which is flushed either when the batch is full or when the flush
+ * interval since the first entry of the batch has passed. What happens when the queue is full is decided by the
+ * {@link JournalOverflowPolicy}.
+ *
+ * A batch that cannot be written is tried again, up to
+ * {@link de.rwth.idsg.steve.SteveConfiguration.Journal#getMaxAttempts()} times with a growing pause. The queue keeps
+ * filling up in the meantime (and overflows as configured), so a database outage does not block the WebSocket
+ * threads. After the last attempt, the batch is dropped and counted as failed.
+ */
+@Slf4j
+@Component
+public class AppLogJournal {
+
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+
+    private final DSLContext ctx;
+
+    private final BlockingQueue<JournalEntry> queue;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final JournalOverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final int maxAttempts;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder failedEntries = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder totalFlushMillis = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    @Autowired
+    public AppLogJournal(DSLContext ctx) {
+        this(ctx, CONFIG.getJournal());
+    }
+
+    AppLogJournal(DSLContext ctx, SteveConfiguration.Journal config) {
+        this.ctx = ctx;
+        this.queueCapacity = config.getQueueCapacity();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getFlushIntervalMillis()));
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.sampleRate = Math.max(1, config.getSampleRate());
+        this.maxAttempts = Math.max(1, config.getMaxAttempts());
+
+        this.writer = new ThreadFactoryBuilder()
+                .setNameFormat("SteVe-Journal-%d")
+                .setDaemon(true)
+                .build()
+                .newThread(this::runWriter);
+    }
+
+    @PostConstruct
+    public void init() {
+        writer.start();
+        log.info("App log journal started (capacity: {}, batch size: {}, flush interval: {} ms, overflow policy: {})",
+                queueCapacity, batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos), overflowPolicy);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("App log journal did not finish in time, {} entries are lost", queue.size());
+            writer.interrupt();
+        }
+    }
+
+    /**
+     * Never waits for the database. Only waits for space in the queue, if the overflow policy is BLOCK.
+     */
+    public void add(JournalEntry entry) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                    return;
+                }
+                break;
+
+            case SAMPLE:
+                if (queue.offer(entry)) {
+                    break;
+                }
+                if (overflowCount.incrementAndGet() % sampleRate != 0) {
+                    dropped.increment();
+                    return;
+                }
+                replaceOldest(entry);
+                break;
+
+            case DROP_OLDEST:
+            default:
+                if (!queue.offer(entry)) {
+                    replaceOldest(entry);
+                }
+                break;
+        }
+
+        enqueued.increment();
+    }
+
+    public JournalStats getStats() {
+        long flushes = flushCount.sum();
+        return JournalStats.builder()
+                           .queueDepth(queue.size())
+                           .queueCapacity(queueCapacity)
+                           .overflowPolicy(overflowPolicy.name())
+                           .enqueued(enqueued.sum())
+                           .written(written.sum())
+                           .dropped(dropped.sum())
+                           .failedBatches(failedBatches.sum())
+                           .failedEntries(failedEntries.sum())
+                           .retries(retries.sum())
+                           .lastError(lastError.get())
+                           .flushCount(flushes)
+                           .lastFlushMillis(lastFlushMillis.get())
+                           .maxFlushMillis(maxFlushMillis.get())
+                           .avgFlushMillis(flushes == 0 ? 0 : (double) totalFlushMillis.sum() / flushes)
+                           .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    private void replaceOldest(JournalEntry entry) {
+        while (!queue.offer(entry)) {
+            if (queue.poll() != null) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<JournalEntry> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                JournalEntry first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch, System.nanoTime() + flushIntervalNanos);
+                flush(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flush(batch);
+        }
+    }
+
+    /**
+     * Collects entries until the batch is full or the deadline is reached. During shutdown only takes what is
+     * already queued, without waiting.
+     */
+    private void fillBatch(List<JournalEntry> batch, long deadline) throws InterruptedException {
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize || !running) {
+                return;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+
+            JournalEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<JournalEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    insert(batch);
+                    written.add(batch.size());
+                    return;
+                } catch (Exception e) {
+                    lastError.set(e.getMessage());
+                    // no pause (and no retry) during shutdown
+                    if (attempt >= maxAttempts || !pause(RETRY_BACKOFF_MILLIS << (attempt - 1))) {
+                        failedBatches.increment();
+                        failedEntries.add(batch.size());
+                        dropped.add(batch.size());
+                        log.error("Failed to write {} app_log entries in {} attempts, dropping them",
+                                batch.size(), attempt, e);
+                        return;
+                    }
+                    retries.increment();
+                    log.warn("Failed to write {} app_log entries (attempt {} of {}): {}",
+                            batch.size(), attempt, maxAttempts, e.getMessage());
+                }
+            }
+        } finally {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            flushCount.increment();
+            totalFlushMillis.add(millis);
+            lastFlushMillis.set(millis);
+            maxFlushMillis.accumulateAndGet(millis, Math::max);
+            batch.clear();
+        }
+    }
+
+    private void insert(List<JournalEntry> batch) {
+        var insert = ctx.insertInto(APP_LOG,
+                APP_LOG.TIMESTAMP_STR,
+                APP_LOG.CHARGE_BOX_ID,
+                APP_LOG.SESSION_ID,
+                APP_LOG.TRANSACTION_ID,
+                APP_LOG.EVENT,
+                APP_LOG.PAYLOAD,
+                APP_LOG.MESSAGE_ID,
+                APP_LOG.DIRECTION);
+
+        for (JournalEntry e : batch) {
+            insert = insert.values(
+                    e.getTimestamp(),
+                    e.getChargeBoxId(),
+                    e.getSessionId(),
+                    e.getTransactionId(),
+                    e.getEvent(),
+                    e.getPayload(),
+                    e.getMessageId(),
+                    e.getDirection());
+        }
+
+        insert.execute();
+    }
+
+    /**
+     * @return false, if interrupted (shutdown). The interrupt flag is kept for the writer loop.
+     */
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.myconfig.journal;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+/**
+ * One row of app_log, waiting to be written.
+ */
+@Getter
+@Builder
+public class JournalEntry {
+    private final DateTime timestamp;
+    private final String chargeBoxId;
+    private final String sessionId;
+    private final Integer transactionId;
+    private final String event;
+    private final String payload;
+    private final String messageId;
+    private final String direction;
+}
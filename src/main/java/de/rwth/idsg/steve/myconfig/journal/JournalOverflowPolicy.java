@@ -0,0 +1,49 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.myconfig.journal;
+
+import java.util.Locale;
+
+/**
+ * What to do when the journal queue is full, i.e. the database cannot keep up with the incoming frames.
+ */
+public enum JournalOverflowPolicy {
+
+    /**
+     * The caller waits until there is space in the queue. Never loses an entry, but slows down the WebSocket threads.
+     */
+    BLOCK,
+
+    /**
+     * The oldest queued entry is dropped to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * While the queue is full, only every Nth entry is kept (replacing the oldest one), the others are dropped.
+     */
+    SAMPLE;
+
+    public static JournalOverflowPolicy fromName(String v) {
+        if (v == null || v.isBlank()) {
+            return DROP_OLDEST;
+        }
+        return JournalOverflowPolicy.valueOf(v.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -30,6 +30,7 @@ import de.rwth.idsg.steve.ocpp.task.ResetTask;
 import de.rwth.idsg.steve.ocpp.task.UnlockConnectorTask;
 import de.rwth.idsg.steve.ocpp.task.UpdateFirmwareTask;
 import de.rwth.idsg.steve.ocpp.ws.ChargePointServiceInvoker;
+import de.rwth.idsg.steve.ocpp.ws.OutgoingCallQueue;
 import de.rwth.idsg.steve.ocpp.ws.ocpp12.Ocpp12TypeStore;
 import de.rwth.idsg.steve.ocpp.ws.ocpp12.Ocpp12WebSocketEndpoint;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.OutgoingCallPipeline;
@@ -52,8 +53,9 @@ public class ChargePointService12_InvokerImpl implements ChargePointService12_In
     private final ClientProviderWithCache<ChargePointService> soapHelper;
 
     @Autowired
-    public ChargePointService12_InvokerImpl(OutgoingCallPipeline pipeline, Ocpp12WebSocketEndpoint endpoint, ClientProvider clientProvider) {
-        this.wsHelper = new ChargePointServiceInvoker(pipeline, endpoint, Ocpp12TypeStore.INSTANCE);
+    public ChargePointService12_InvokerImpl(OutgoingCallPipeline pipeline, OutgoingCallQueue queue,
+                                            Ocpp12WebSocketEndpoint endpoint, ClientProvider clientProvider) {
+        this.wsHelper = new ChargePointServiceInvoker(pipeline, queue, endpoint, Ocpp12TypeStore.INSTANCE);
         this.soapHelper = new ClientProviderWithCache<>(clientProvider);
     }
 
@@ -36,6 +36,7 @@ import de.rwth.idsg.steve.ocpp.task.SendLocalListTask;
 import de.rwth.idsg.steve.ocpp.task.UnlockConnectorTask;
 import de.rwth.idsg.steve.ocpp.task.UpdateFirmwareTask;
 import de.rwth.idsg.steve.ocpp.ws.ChargePointServiceInvoker;
+import de.rwth.idsg.steve.ocpp.ws.OutgoingCallQueue;
 import de.rwth.idsg.steve.ocpp.ws.ocpp15.Ocpp15TypeStore;
 import de.rwth.idsg.steve.ocpp.ws.ocpp15.Ocpp15WebSocketEndpoint;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.OutgoingCallPipeline;
@@ -58,8 +59,9 @@ public class ChargePointService15_InvokerImpl implements ChargePointService15_In
     private final ClientProviderWithCache<ChargePointService> soapHelper;
 
     @Autowired
-    public ChargePointService15_InvokerImpl(OutgoingCallPipeline pipeline, Ocpp15WebSocketEndpoint endpoint, ClientProvider clientProvider) {
-        this.wsHelper = new ChargePointServiceInvoker(pipeline, endpoint, Ocpp15TypeStore.INSTANCE);
+    public ChargePointService15_InvokerImpl(OutgoingCallPipeline pipeline, OutgoingCallQueue queue,
+                                            Ocpp15WebSocketEndpoint endpoint, ClientProvider clientProvider) {
+        this.wsHelper = new ChargePointServiceInvoker(pipeline, queue, endpoint, Ocpp15TypeStore.INSTANCE);
         this.soapHelper = new ClientProviderWithCache<>(clientProvider);
     }
 
@@ -22,6 +22,7 @@ import de.rwth.idsg.steve.ocpp.soap.ClientProvider;
 import de.rwth.idsg.steve.ocpp.soap.ClientProviderWithCache;
 import de.rwth.idsg.steve.ocpp.task.*;
 import de.rwth.idsg.steve.ocpp.ws.ChargePointServiceInvoker;
+import de.rwth.idsg.steve.ocpp.ws.OutgoingCallQueue;
 import de.rwth.idsg.steve.ocpp.ws.ocpp16.Ocpp16TypeStore;
 import de.rwth.idsg.steve.ocpp.ws.ocpp16.Ocpp16WebSocketEndpoint;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.OutgoingCallPipeline;
@@ -45,6 +46,9 @@ public class ChargePointService16_InvokerImpl implements ChargePointService16_In
     @Autowired
     private OutgoingCallPipeline pipeline;
 
+    @Autowired
+    private OutgoingCallQueue queue;
+
     @Autowired
     @Lazy
     private Ocpp16WebSocketEndpoint endpoint;
@@ -57,7 +61,7 @@ public class ChargePointService16_InvokerImpl implements ChargePointService16_In
 
     @PostConstruct
     public void init() {
-        this.wsHelper = new ChargePointServiceInvoker(pipeline, endpoint, Ocpp16TypeStore.INSTANCE);
+        this.wsHelper = new ChargePointServiceInvoker(pipeline, queue, endpoint, Ocpp16TypeStore.INSTANCE);
         this.soapHelper = new ClientProviderWithCache<>(clientProvider);
     }
 
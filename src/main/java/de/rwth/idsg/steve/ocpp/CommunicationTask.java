@@ -20,6 +20,7 @@ package de.rwth.idsg.steve.ocpp;
 
 import de.rwth.idsg.ocpp.jaxb.RequestType;
 import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.SteveException;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonError;
 import de.rwth.idsg.steve.repository.dto.ChargePointSelect;
 import de.rwth.idsg.steve.utils.StringUtils;
@@ -31,15 +32,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.xml.ws.AsyncHandler;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Contains the context for a request/response communication and callbacks for handling responses/errors.
  *
+ * The outcome of every charge point can also be consumed as a {@link CompletableFuture}: per charge point with
+ * {@link #getFuture(String)}, and for the whole task with {@link #getCompletionFuture()}. The futures are completed
+ * by the thread that delivers the response (e.g. the OCPP worker of the station), so blocking follow-up work should
+ * use the async variants of CompletableFuture with an executor.
+ *
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 09.03.2018
  */
@@ -54,20 +64,34 @@ public abstract class CommunicationTask<S extends ChargePointSelection, RESPONSE
     private final String caller;
     protected final S params;
 
+    // keys are fixed at construction, only the RequestResult values change. therefore, reads need no locking.
     private final Map<String, RequestResult> resultMap;
     private final int resultSize;
 
     private final DateTime startTimestamp = DateTime.now();
-    private DateTime endTimestamp;
+    private volatile DateTime endTimestamp;
 
     private final AtomicInteger errorCount = new AtomicInteger(0);
     private final AtomicInteger responseCount = new AtomicInteger(0);
 
-    @Getter(AccessLevel.NONE) // disable getter generation
-    private final Object lockObject = new Object();
+    // number of charge points the request was handed over to (or failed to), for the progress of large tasks
+    private final AtomicInteger dispatchedCount = new AtomicInteger(0);
+
+    // only the first outcome of a charge point is counted, e.g. a late error after the sending already timed out
+    @Getter(AccessLevel.NONE)
+    private final Set<String> completedChargeBoxIds = ConcurrentHashMap.newKeySet();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger completedCount = new AtomicInteger(0);
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, CompletableFuture<RequestResult>> futureMap;
 
-    // The default initial capacity is 10. We probably won't need that much.
-    private final ArrayList<OcppCallback<RESPONSE>> callbackList = new ArrayList<>(2);
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<Map<String, RequestResult>> completionFuture = new CompletableFuture<>();
+
+    // Callbacks can be added while responses are being delivered
+    private final List<OcppCallback<RESPONSE>> callbackList = new CopyOnWriteArrayList<>();
 
     public CommunicationTask(OcppVersion ocppVersion, S params) {
         this(ocppVersion, params, TaskOrigin.INTERNAL, "SteVe");
@@ -85,9 +109,18 @@ public abstract class CommunicationTask<S extends ChargePointSelection, RESPONSE
         this.caller = caller;
         this.params = params;
 
-        resultMap = new HashMap<>(resultSize);
+        Map<String, RequestResult> results = new HashMap<>(resultSize);
+        Map<String, CompletableFuture<RequestResult>> futures = new HashMap<>(resultSize);
         for (ChargePointSelect cps : cpsList) {
-            resultMap.put(cps.getChargeBoxId(), new RequestResult());
+            results.put(cps.getChargeBoxId(), new RequestResult());
+            futures.put(cps.getChargeBoxId(), new CompletableFuture<>());
+        }
+        resultMap = Collections.unmodifiableMap(results);
+        futureMap = Collections.unmodifiableMap(futures);
+
+        if (resultSize == 0) {
+            endTimestamp = DateTime.now();
+            completionFuture.complete(resultMap);
         }
 
         callbackList.add(defaultCallback());
@@ -99,40 +132,83 @@ public abstract class CommunicationTask<S extends ChargePointSelection, RESPONSE
     }
 
     public boolean isFinished() {
-        synchronized (lockObject) {
-            return endTimestamp != null;
+        return endTimestamp != null;
+    }
+
+    /**
+     * Completes with the result of the charge point when it responded (the response might be an OCPP error), and
+     * exceptionally when the request could not be delivered or timed out.
+     */
+    public CompletableFuture<RequestResult> getFuture(String chargeBoxId) {
+        CompletableFuture<RequestResult> future = futureMap.get(chargeBoxId);
+        if (future == null) {
+            throw new IllegalArgumentException("The task does not contain the chargeBoxId '" + chargeBoxId + "'");
         }
+        // callers must not be able to complete the original
+        return future.copy();
+    }
+
+    /**
+     * Completes with all results, when every charge point has an outcome. Never completes exceptionally.
+     */
+    public CompletableFuture<Map<String, RequestResult>> getCompletionFuture() {
+        return completionFuture.copy();
     }
 
     public void addNewResponse(String chargeBoxId, String response) {
         RequestResult result = resultMap.get(chargeBoxId);
-        if (result != null) {
-            result.setResponse(response);
-        } else {
+        if (result == null) {
             log.warn("No RequestResult found in resultMap for chargeBoxId '{}', cannot set response.", chargeBoxId);
             return; // don’t crash, just log
         }
 
-        synchronized (lockObject) {
-            if (resultSize == (errorCount.get() + responseCount.incrementAndGet())) {
-                endTimestamp = DateTime.now();
-            }
+        if (!completedChargeBoxIds.add(chargeBoxId)) {
+            log.debug("The outcome for chargeBoxId '{}' is already set, ignoring response '{}'", chargeBoxId, response);
+            return;
+        }
+        result.setResponse(response);
+        responseCount.incrementAndGet();
+
+        boolean last = onOutcome();
+        futureMap.get(chargeBoxId).complete(result);
+        if (last) {
+            completionFuture.complete(resultMap);
         }
     }
 
     public void addNewError(String chargeBoxId, String errorMessage) {
         RequestResult result = resultMap.get(chargeBoxId);
-        if (result != null) {
-            result.setErrorMessage(errorMessage);
-        } else {
+        if (result == null) {
             log.warn("No RequestResult found in resultMap for chargeBoxId '{}', cannot set error message.", chargeBoxId);
             return;
         }
-        synchronized (lockObject) {
-            if (resultSize == (errorCount.incrementAndGet() + responseCount.get())) {
-                endTimestamp = DateTime.now();
-            }
+
+        if (!completedChargeBoxIds.add(chargeBoxId)) {
+            log.debug("The outcome for chargeBoxId '{}' is already set, ignoring error '{}'", chargeBoxId, errorMessage);
+            return;
+        }
+        result.setErrorMessage(errorMessage);
+        errorCount.incrementAndGet();
+
+        boolean last = onOutcome();
+        futureMap.get(chargeBoxId).completeExceptionally(new SteveException(errorMessage));
+        if (last) {
+            completionFuture.complete(resultMap);
+        }
+    }
+
+    /**
+     * Every charge point is counted only once, therefore exactly one thread sees the last outcome. The end timestamp
+     * is set before the futures complete, such that their dependents see a finished task.
+     *
+     * @return true, if this was the last outcome
+     */
+    private boolean onOutcome() {
+        if (completedCount.incrementAndGet() == resultSize) {
+            endTimestamp = DateTime.now();
+            return true;
         }
+        return false;
     }
 
     protected void success(String chargeBoxId, RESPONSE response) {
@@ -30,9 +30,10 @@ import org.jetbrains.annotations.Nullable;
 @Getter
 @Setter
 public class RequestResult {
-    private String response;
-    private String errorMessage;
-    private Object details;
+    // written by the thread delivering the outcome, read by others (web pages, futures)
+    private volatile String response;
+    private volatile String errorMessage;
+    private volatile Object details;
 
     @Nullable
     @SuppressWarnings("unchecked")
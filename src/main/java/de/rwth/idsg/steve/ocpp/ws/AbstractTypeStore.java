@@ -18,6 +18,8 @@
  */
 package de.rwth.idsg.steve.ocpp.ws;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.ClassPath;
@@ -28,6 +30,7 @@ import de.rwth.idsg.steve.ocpp.ws.data.ActionResponsePair;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Sevket Goekay <sevketgokay@gmail.com>
@@ -41,6 +44,10 @@ public abstract class AbstractTypeStore implements TypeStore {
     private final Map<String, Class<? extends RequestType>> requestClassMap = new HashMap<>();
     private final Map<Class<? extends RequestType>, ActionResponsePair> actionResponseMap = new HashMap<>();
 
+    // ObjectReaders are immutable and thread-safe. Resolving them once saves the deserializer lookup per message.
+    private final Map<Class<?>, ObjectReader> readerMap = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = JsonObjectMapper.INSTANCE.getMapper();
+
     public AbstractTypeStore(String packageForRequestClassMap,
                              String packageForActionResponseMap) {
         populateRequestClassMap(packageForRequestClassMap);
@@ -57,6 +64,11 @@ public abstract class AbstractTypeStore implements TypeStore {
         return actionResponseMap.get(requestPayload.getClass());
     }
 
+    @Override
+    public ObjectReader findReader(Class<?> payloadClass) {
+        return readerMap.computeIfAbsent(payloadClass, mapper::readerFor);
+    }
+
     // -------------------------------------------------------------------------
     // Private helpers
     // -------------------------------------------------------------------------
@@ -67,6 +79,7 @@ public abstract class AbstractTypeStore implements TypeStore {
             String action = getAction(clazz);
             Preconditions.checkNotNull(action);
             requestClassMap.put(action, clazz);
+            readerMap.put(clazz, mapper.readerFor(clazz));
         }
     }
 
@@ -83,6 +96,7 @@ public abstract class AbstractTypeStore implements TypeStore {
             Preconditions.checkNotNull(responseClass);
 
             actionResponseMap.put(requestClass, new ActionResponsePair(action, responseClass));
+            readerMap.put(responseClass, mapper.readerFor(responseClass));
         }
     }
 
@@ -122,6 +136,8 @@ public abstract class AbstractTypeStore implements TypeStore {
             Class<T> requestClass, String action, Class<R> responseClass) {
         requestClassMap.put(action, requestClass);
         actionResponseMap.put(requestClass, new ActionResponsePair(action, responseClass));
+        readerMap.put(requestClass, mapper.readerFor(requestClass));
+        readerMap.put(responseClass, mapper.readerFor(responseClass));
     }
 
 }
@@ -19,16 +19,22 @@
 package de.rwth.idsg.steve.ocpp.ws;
 
 import com.google.common.base.Strings;
-import de.rwth.idsg.steve.config.WebSocketConfiguration;
 import de.rwth.idsg.steve.ocpp.OcppTransport;
 import de.rwth.idsg.steve.ocpp.OcppVersion;
 import de.rwth.idsg.steve.ocpp.ws.data.CommunicationContext;
+import de.rwth.idsg.steve.ocpp.ws.data.MessageType;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonError;
 import de.rwth.idsg.steve.ocpp.ws.data.SessionContext;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionHealth;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionStats;
+import de.rwth.idsg.steve.ocpp.ws.pipeline.Deserializer;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.IncomingPipeline;
 import de.rwth.idsg.steve.repository.OcppServerRepository;
 import de.rwth.idsg.steve.service.notification.OcppStationWebSocketConnected;
 import de.rwth.idsg.steve.service.notification.OcppStationWebSocketDisconnected;
 import org.hibernate.validator.internal.util.stereotypes.Lazy;
+import org.jetbrains.annotations.Nullable;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
@@ -40,15 +46,13 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -57,15 +61,21 @@ import java.util.function.Consumer;
  */
 public abstract class AbstractWebSocketEndpoint extends ConcurrentWebSocketHandler implements SubProtocolCapable {
 
-    @Autowired private ScheduledExecutorService service;
     @Autowired private OcppServerRepository ocppServerRepository;
     @Autowired private FutureResponseContextStore futureResponseContextStore;
     @Autowired private ApplicationEventPublisher applicationEventPublisher;
+    @Autowired private IncomingMessageDispatcher incomingMessageDispatcher;
+    @Autowired private InboundRateLimiter inboundRateLimiter;
+    @Autowired private ConnectionRegistry connectionRegistry;
+    @Autowired private KeepaliveSweeper keepaliveSweeper;
+    @Autowired private WsMemoryManager wsMemoryManager;
 
 
     public static final String CHARGEBOX_ID_KEY = "CHARGEBOX_ID_KEY";
+    private static final String SESSION_HEALTH_KEY = "SESSION_HEALTH_KEY";
 
-    private final SessionContextStore sessionContextStore = new SessionContextStore();
+    private final SessionContextStore sessionContextStore =
+            new SessionContextStore(session -> futureResponseContextStore.getPendingCount(session));
     private final List<Consumer<String>> connectedCallbackList = new ArrayList<>();
     private final List<Consumer<String>> disconnectedCallbackList = new ArrayList<>();
     private final Object sessionContextLock = new Object();
@@ -107,22 +117,106 @@ public abstract class AbstractWebSocketEndpoint extends ConcurrentWebSocketHandl
         String incomingString = webSocketMessage.getPayload();
         String chargeBoxId = getChargeBoxId(session);
 
+        getHealth(session).received();
+
         // https://github.com/steve-community/steve/issues/66
         if (Strings.isNullOrEmpty(incomingString)) {
             WebSocketLogger.receivedEmptyText(chargeBoxId, session);
             return;
         }
 
-        WebSocketLogger.receivedText(chargeBoxId, session, incomingString);
-
         CommunicationContext context = new CommunicationContext(session, chargeBoxId);
         context.setIncomingString(incomingString);
 
-        pipeline.accept(context);
+        if ((inboundRateLimiter.isEnabled() || wsMemoryManager.hasInboundLimits()) && !admit(context)) {
+            return;
+        }
+
+        // Do not block the Jetty thread with DB work. The messages of a station are still processed in order.
+        if (!incomingMessageDispatcher.submit(chargeBoxId, session, () -> pipeline.accept(context))) {
+            rejectDropped(context);
+        }
+    }
+
+    /**
+     * The lane of the station is full. A dropped CALL is answered right away (there is no room on the lane for the
+     * answer either), so that the station does not have to wait for its own timeout. Responses to our calls cannot be
+     * answered and will time out in {@link FutureResponseContextStore}.
+     */
+    private void rejectDropped(CommunicationContext context) {
+        OcppJsonEnvelope header = Deserializer.readHeader(context.getIncomingString());
+        if (header == null || header.getMessageType() != MessageType.CALL) {
+            return;
+        }
+        incomingMessageDispatcher.droppedCallAnswered();
+        pipeline.reject(context, header,
+                ErrorFactory.tooManyPendingMessages(header.getMessageId(), header.getAction()));
+    }
+
+    /**
+     * Only CALLs are subject to size limits per action and rate limiting. Responses belong to our own calls, and
+     * malformed frames are answered by the pipeline.
+     *
+     * @return false, if the CALL was rejected (and its answer is on the way)
+     */
+    private boolean admit(CommunicationContext context) {
+        OcppJsonEnvelope header = Deserializer.readHeader(context.getIncomingString());
+        if (header == null || header.getMessageType() != MessageType.CALL) {
+            return true;
+        }
+
+        if (!wsMemoryManager.isInboundAllowed(header.getAction(), context.getIncomingString().length())) {
+            reject(context, header, ErrorFactory.messageTooLarge(header.getMessageId(), header.getAction(),
+                    wsMemoryManager.getInboundMaxBytes(header.getAction())), null);
+            return false;
+        }
+
+        if (!inboundRateLimiter.isEnabled()) {
+            return true;
+        }
+
+        InboundRateLimiter.Admission admission = inboundRateLimiter.admit(context.getChargeBoxId(), header.getAction());
+        if (admission == InboundRateLimiter.Admission.ACCEPT) {
+            return true;
+        }
+
+        CloseStatus closeStatus = admission == InboundRateLimiter.Admission.REJECT_AND_CLOSE
+                ? CloseStatus.POLICY_VIOLATION.withReason("Inbound rate limit exceeded")
+                : null;
+        reject(context, header, ErrorFactory.rateLimitExceeded(header.getMessageId(), header.getAction()), closeStatus);
+        return false;
+    }
+
+    /**
+     * The answer goes through the lane of the station, such that it does not overtake the answers to the CALLs before
+     * it and the Jetty thread does not block on sending. Only if the lane is full, it is sent right away.
+     */
+    private void reject(CommunicationContext context, OcppJsonEnvelope header, OcppJsonError error,
+                        @Nullable CloseStatus closeStatus) {
+        Runnable task = () -> {
+            pipeline.reject(context, header, error);
+            if (closeStatus != null) {
+                tryClose(context.getSession(), closeStatus);
+            }
+        };
+
+        if (!incomingMessageDispatcher.submit(context.getChargeBoxId(), context.getSession(), task)) {
+            incomingMessageDispatcher.droppedCallAnswered();
+            task.run();
+        }
+    }
+
+    private void tryClose(WebSocketSession session, CloseStatus closeStatus) {
+        try {
+            session.close(closeStatus);
+        } catch (IOException e) {
+            WebSocketLogger.transportError(getChargeBoxId(session), session, e);
+        }
     }
 
     private void handlePongMessage(WebSocketSession session) {
         WebSocketLogger.receivedPong(getChargeBoxId(session), session);
+        getHealth(session).pongReceived();
         ocppServerRepository.updateChargeboxHeartbeat(getChargeBoxId(session), DateTime.now());
     }
 
@@ -134,23 +228,22 @@ public abstract class AbstractWebSocketEndpoint extends ConcurrentWebSocketHandl
 
         ocppServerRepository.updateOcppProtocol(chargeBoxId, getVersion().toProtocol(OcppTransport.JSON));
 
-        // Just to keep the connection alive, such that the servers do not close
-        // the connection because of a idle timeout, we ping-pong at fixed intervals.
-        ScheduledFuture pingSchedule = service.scheduleAtFixedRate(
-                new PingTask(chargeBoxId, session),
-                WebSocketConfiguration.PING_INTERVAL,
-                WebSocketConfiguration.PING_INTERVAL,
-                TimeUnit.MINUTES);
+        SessionHealth health = new SessionHealth();
+        session.getAttributes().put(SESSION_HEALTH_KEY, health);
+
+        keepaliveSweeper.register(chargeBoxId, session, health);
 
-        futureResponseContextStore.addSession(session);
+        futureResponseContextStore.addSession(chargeBoxId, session);
 
         int sizeBeforeAdd;
 
         synchronized (sessionContextLock) {
             sizeBeforeAdd = sessionContextStore.getSize(chargeBoxId);
-            sessionContextStore.add(chargeBoxId, session, pingSchedule);
+            sessionContextStore.add(chargeBoxId, session, health);
         }
 
+        connectionRegistry.sessionOpened(chargeBoxId, getVersion(), session.getId());
+
         // Take into account that there might be multiple connections to a charging station.
         // Send notification only for the change 0 -> 1.
         if (sizeBeforeAdd == 0) {
@@ -164,7 +257,8 @@ public abstract class AbstractWebSocketEndpoint extends ConcurrentWebSocketHandl
 
         WebSocketLogger.closed(chargeBoxId, session, closeStatus);
 
-        futureResponseContextStore.removeSession(session);
+        keepaliveSweeper.unregister(session);
+        futureResponseContextStore.removeSession(chargeBoxId, session);
 
         int sizeAfterRemove;
 
@@ -173,9 +267,12 @@ public abstract class AbstractWebSocketEndpoint extends ConcurrentWebSocketHandl
             sizeAfterRemove = sessionContextStore.getSize(chargeBoxId);
         }
 
+        connectionRegistry.sessionClosed(chargeBoxId, session.getId());
+
         // Take into account that there might be multiple connections to a charging station.
         // Send notification only for the change 1 -> 0.
         if (sizeAfterRemove == 0) {
+            incomingMessageDispatcher.removeIfIdle(chargeBoxId);
             disconnectedCallbackList.forEach(consumer -> consumer.accept(chargeBoxId));
         }
     }
@@ -198,6 +295,10 @@ public abstract class AbstractWebSocketEndpoint extends ConcurrentWebSocketHandl
         return (String) session.getAttributes().get(CHARGEBOX_ID_KEY);
     }
 
+    private static SessionHealth getHealth(WebSocketSession session) {
+        return (SessionHealth) session.getAttributes().get(SESSION_HEALTH_KEY);
+    }
+
     protected void registerConnectedCallback(Consumer<String> consumer) {
         connectedCallbackList.add(consumer);
     }
@@ -222,4 +323,8 @@ public abstract class AbstractWebSocketEndpoint extends ConcurrentWebSocketHandl
         return sessionContextStore.getSession(chargeBoxId);
     }
 
+    public List<SessionStats> getSessionStats() {
+        return sessionContextStore.getStats(getVersion());
+    }
+
 }
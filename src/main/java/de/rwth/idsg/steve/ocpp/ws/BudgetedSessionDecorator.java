@@ -0,0 +1,217 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allows concurrent sending like Spring's ConcurrentWebSocketSessionDecorator: one thread writes to the socket, the
+ * others put their messages into the buffer of the session and leave. The buffer is accounted in the budget of
+ * {@link WsMemoryManager}, and its limit is not fixed but given by the manager at the time of sending.
+ *
+ * A session that would exceed its limit, or whose socket does not accept a message within the send time limit, is
+ * closed with {@link CloseStatus#SESSION_NOT_RELIABLE} and the reason. The sender gets an IOException.
+ */
+@Slf4j
+public class BudgetedSessionDecorator extends WebSocketSessionDecorator {
+
+    private final WsMemoryManager manager;
+
+    private final Queue<WebSocketMessage<?>> buffer = new LinkedBlockingQueue<>();
+    private final AtomicInteger bufferedBytes = new AtomicInteger();
+
+    private final Lock flushLock = new ReentrantLock();
+    private final Lock closeLock = new ReentrantLock();
+
+    private volatile long sendStartTime;
+    private volatile boolean limitExceeded;
+    private volatile boolean closeInProgress;
+    private volatile boolean released;
+
+    BudgetedSessionDecorator(WebSocketSession delegate, WsMemoryManager manager) {
+        super(delegate);
+        this.manager = manager;
+    }
+
+    public String getChargeBoxId() {
+        return (String) getAttributes().get(AbstractWebSocketEndpoint.CHARGEBOX_ID_KEY);
+    }
+
+    public int getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    public int getBufferedMessages() {
+        return buffer.size();
+    }
+
+    /**
+     * How long the current write to the socket takes. 0, if there is none.
+     */
+    public long getSendingForMillis() {
+        long start = sendStartTime;
+        return (start == 0) ? 0 : System.currentTimeMillis() - start;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (shouldNotSend()) {
+            throw new IOException("The session is being closed");
+        }
+
+        int size = sizeOf(message);
+        if (!manager.tryReserve(bufferedBytes.get(), size)) {
+            manager.closedForBufferLimit();
+            limitExceeded("Send buffer limit exceeded");
+            throw new IOException("Send buffer limit exceeded (buffered: " + bufferedBytes.get()
+                    + " bytes, limit: " + manager.getSessionLimit() + " bytes)");
+        }
+
+        bufferedBytes.addAndGet(size);
+        buffer.add(message);
+
+        // closed in the meantime: nobody will take it out anymore
+        if (released) {
+            discardBuffer();
+            throw new IOException("The session is closed");
+        }
+
+        do {
+            if (!tryFlushBuffer()) {
+                checkSendTimeLimit();
+                break;
+            }
+        } while (!buffer.isEmpty() && !shouldNotSend());
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        if (closeLock.tryLock()) {
+            try {
+                if (closeInProgress) {
+                    return;
+                }
+                closeInProgress = true;
+                super.close(status);
+            } finally {
+                closeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * After the connection is closed. Gives the bytes that are still buffered back to the budget.
+     */
+    void release() {
+        released = true;
+        manager.unregister(this);
+        discardBuffer();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    private boolean shouldNotSend() {
+        return limitExceeded || closeInProgress || released;
+    }
+
+    private boolean tryFlushBuffer() throws IOException {
+        if (!flushLock.tryLock()) {
+            return false;
+        }
+
+        try {
+            WebSocketMessage<?> message;
+            while ((message = buffer.poll()) != null) {
+                try {
+                    if (!shouldNotSend()) {
+                        sendStartTime = System.currentTimeMillis();
+                        getDelegate().sendMessage(message);
+                    }
+                } finally {
+                    sendStartTime = 0;
+                    giveBack(message);
+                }
+            }
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void checkSendTimeLimit() {
+        long sendingFor = getSendingForMillis();
+        if (sendingFor > manager.getSendTimeLimitMillis()) {
+            manager.closedForSendTimeLimit();
+            limitExceeded("Send time limit exceeded");
+        }
+    }
+
+    private void limitExceeded(String reason) {
+        if (limitExceeded) {
+            return;
+        }
+        limitExceeded = true;
+
+        log.warn("[chargeBoxId={}, sessionId={}] {} with {} bytes in {} buffered messages. Closing the session",
+                getChargeBoxId(), getId(), reason, bufferedBytes.get(), buffer.size());
+
+        try {
+            close(CloseStatus.SESSION_NOT_RELIABLE.withReason(reason));
+        } catch (IOException e) {
+            log.warn("[chargeBoxId={}, sessionId={}] Failed to close the session", getChargeBoxId(), getId(), e);
+        }
+    }
+
+    private void discardBuffer() {
+        WebSocketMessage<?> message;
+        while ((message = buffer.poll()) != null) {
+            giveBack(message);
+        }
+    }
+
+    private void giveBack(WebSocketMessage<?> message) {
+        int size = sizeOf(message);
+        bufferedBytes.addAndGet(-size);
+        manager.release(size);
+    }
+
+    /**
+     * For text, the length of the String (what it takes on the heap), without encoding it
+     */
+    private static int sizeOf(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage) {
+            return ((TextMessage) message).getPayload().length();
+        }
+        return message.getPayloadLength();
+    }
+}
@@ -34,9 +34,7 @@ import org.eclipse.jetty.server.session.Session;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -48,19 +46,21 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ChargePointServiceInvoker {
 
     private final OutgoingCallPipeline outgoingCallPipeline;
+    private final OutgoingCallQueue outgoingCallQueue;
     private final AbstractWebSocketEndpoint endpoint;
     private final TypeStore typeStore;
 
-    private final Map<String, WebSocketSession> session = new ConcurrentHashMap<>();
-
     /**
-     * Just a wrapper to make try-catch block and exception handling stand out
+     * Just a wrapper to make try-catch block and exception handling stand out.
+     *
+     * The CALL is queued and sent once the previous CALL to the station is completed (see {@link OutgoingCallQueue}).
      */
     public void  runPipeline(ChargePointSelect cps, CommunicationTask task) {
 
         String chargeBoxId = cps.getChargeBoxId();
         try {
-            run(chargeBoxId, task);
+            ActionResponsePair pair = findActionResponse(task.getRequest());
+            outgoingCallQueue.submit(chargeBoxId, task, pair.getAction(), onCompleted -> send(chargeBoxId, task, pair, onCompleted));
         } catch (Exception e) {
             log.error("Exception occurred", e);
             // Outgoing call failed due to technical problems. Pass the exception to handler to inform the user
@@ -68,44 +68,49 @@ public class ChargePointServiceInvoker {
         }
     }
 
-    /**
-     * Actual processing
-     */
-    private void run(String chargeBoxId, CommunicationTask task) {
-
-        RequestType request = task.getRequest();
+    private boolean send(String chargeBoxId, CommunicationTask task, ActionResponsePair pair, Runnable onCompleted) {
+        try {
+            run(chargeBoxId, task, pair, onCompleted);
+            return true;
+        } catch (Exception e) {
+            log.error("Exception occurred", e);
+            task.defaultCallback().failed(chargeBoxId, e);
+            return false;
+        }
+    }
 
+    private ActionResponsePair findActionResponse(RequestType request) {
         ActionResponsePair pair = typeStore.findActionResponse(request);
-        ActionResponsePair pairNew = Ocpp16TypeStore.INSTANCE.findActionResponse(request);
-        if (pairNew == null && pair == null) {
+        if (pair == null) {
+            pair = Ocpp16TypeStore.INSTANCE.findActionResponse(request);
+        }
+        if (pair == null) {
             throw new SteveException("Action name is not found");
         }
+        return pair;
+    }
 
-        if (pairNew != null && pair == null) {
-            pair = pairNew;
-        }
+    /**
+     * Actual processing
+     */
+    private void run(String chargeBoxId, CommunicationTask task, ActionResponsePair pair, Runnable onCompleted) {
 
-        // Get or refresh session
-        WebSocketSession wsSession = session.computeIfAbsent(chargeBoxId, endpoint::getSession);
+        // Looked up at the time of sending, since the station might have reconnected while the call was queued
+        WebSocketSession wsSession = endpoint.getSession(chargeBoxId);
 
-        // ✅ Check if session is null or closed
         if (wsSession == null || !wsSession.isOpen()) {
             log.error("WebSocket session for {} is null or closed. Cannot send OCPP message.", chargeBoxId);
             throw new SteveException("Cannot communicate with " + chargeBoxId + ": WebSocket is closed");
         }
 
-        // Debug session state (optional)
-        session.forEach((key, value) -> {
-            System.out.println("ChargeBoxId: " + key + " | Session open: " + (value != null && value.isOpen()));
-        });
-
         // Prepare OCPP call
         OcppJsonCall call = new OcppJsonCall();
         call.setMessageId(UUID.randomUUID().toString());
-        call.setPayload(request);
+        call.setPayload(task.getRequest());
         call.setAction(pair.getAction());
 
-        FutureResponseContext frc = new FutureResponseContext(task, pair.getResponseClass());
+        FutureResponseContext frc = new FutureResponseContext(task, chargeBoxId, pair.getAction(), pair.getResponseClass());
+        frc.setCompletionCallback(onCompleted);
 
         CommunicationContext context = new CommunicationContext(wsSession, chargeBoxId);
         context.setOutgoingMessage(call);
@@ -18,27 +18,26 @@
  */
 package de.rwth.idsg.steve.ocpp.ws;
 
-import de.rwth.idsg.steve.config.WebSocketConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 /**
+ * Every session is decorated for concurrent sending. The send buffers are bounded by {@link WsMemoryManager}.
+ *
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 07.05.2019
  */
 public abstract class ConcurrentWebSocketHandler implements WebSocketHandler {
 
-    private static final int sendTimeLimit = (int) TimeUnit.SECONDS.toMillis(10);
-    private static final int bufferSizeLimit = 5 * WebSocketConfiguration.MAX_MSG_SIZE;
+    @Autowired private WsMemoryManager wsMemoryManager;
 
-    private final Map<String, ConcurrentWebSocketSessionDecorator> sessions = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -57,11 +56,18 @@ public abstract class ConcurrentWebSocketHandler implements WebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
-        this.onClose(sessions.remove(session.getId()), closeStatus);
+        WebSocketSession decorated = sessions.remove(session.getId());
+        try {
+            this.onClose(decorated, closeStatus);
+        } finally {
+            if (decorated instanceof BudgetedSessionDecorator) {
+                ((BudgetedSessionDecorator) decorated).release();
+            }
+        }
     }
 
-    private ConcurrentWebSocketSessionDecorator internalGet(WebSocketSession session) {
-        return sessions.computeIfAbsent(session.getId(), s -> new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, bufferSizeLimit));
+    private WebSocketSession internalGet(WebSocketSession session) {
+        return sessions.computeIfAbsent(session.getId(), s -> wsMemoryManager.decorate(session));
     }
 
     // -------------------------------------------------------------------------
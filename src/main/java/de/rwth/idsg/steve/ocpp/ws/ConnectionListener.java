@@ -16,22 +16,18 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-package de.rwth.idsg.steve.myconfig;
+package de.rwth.idsg.steve.ocpp.ws;
 
-import java.util.concurrent.ConcurrentHashMap;
+import de.rwth.idsg.steve.ocpp.OcppVersion;
 
-public class OcppMessageTracker {
-    private static final ConcurrentHashMap<String, String> messageIdToEventMap = new ConcurrentHashMap<>();
-
-    public static void put(String messageId, String event) {
-        messageIdToEventMap.put(messageId, event);
-    }
+/**
+ * Notified by {@link ConnectionRegistry} when a charge point goes online (first session) or offline (last session
+ * closed), regardless of the OCPP version. Called on the WebSocket thread that opened/closed the session, therefore
+ * implementations should return quickly.
+ */
+public interface ConnectionListener {
 
-    public static String get(String messageId) {
-        return messageIdToEventMap.get(messageId);
-    }
+    default void onConnected(String chargeBoxId, OcppVersion version) { }
 
-    public static void remove(String messageId) {
-        messageIdToEventMap.remove(messageId);
-    }
+    default void onDisconnected(String chargeBoxId, OcppVersion version) { }
 }
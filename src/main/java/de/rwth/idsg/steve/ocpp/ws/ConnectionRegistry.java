@@ -0,0 +1,176 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.ocpp.OcppVersion;
+import de.rwth.idsg.steve.ocpp.ws.data.ConnectionInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The online JSON charge points of all OCPP versions, in one place. The WebSocket endpoints keep it up to date,
+ * such that the rest of the application can ask "is this station online?" or "how many 1.6 stations are connected?"
+ * in constant time, without copying the session stores of every endpoint.
+ *
+ * The sessions themselves (for sending) are still held by the endpoints. Only their ids, versions and opening times
+ * are kept here, for the status page.
+ */
+@Slf4j
+@Component
+public class ConnectionRegistry {
+
+    private final ConcurrentHashMap<String, ConnectionInfo> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Number of connected charge points per version, indexed by {@link OcppVersion#ordinal()}. A charge point with
+     * sessions of two versions counts for both, since it is connected to both endpoints.
+     */
+    private final AtomicIntegerArray versionCounts = new AtomicIntegerArray(OcppVersion.values().length);
+
+    private final List<ConnectionListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(ConnectionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(ConnectionListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void sessionOpened(String chargeBoxId, OcppVersion version, String sessionId) {
+        ConnectionInfo[] before = new ConnectionInfo[1];
+        DateTime now = DateTime.now();
+        ConnectionInfo.Session session = new ConnectionInfo.Session(sessionId, version, now);
+
+        connections.compute(chargeBoxId, (key, existing) -> {
+            before[0] = existing;
+            if (existing == null || !existing.hasVersion(version)) {
+                versionCounts.incrementAndGet(version.ordinal());
+            }
+            if (existing == null) {
+                return new ConnectionInfo(key, version, now, List.of(session));
+            }
+            List<ConnectionInfo.Session> sessions = new ArrayList<>(existing.getSessions());
+            sessions.add(session);
+            return new ConnectionInfo(key, version, existing.getConnectedSince(),
+                                      Collections.unmodifiableList(sessions));
+        });
+
+        if (before[0] == null) {
+            listeners.forEach(l -> notify(l, chargeBoxId, version, true));
+        }
+    }
+
+    public void sessionClosed(String chargeBoxId, String sessionId) {
+        ConnectionInfo.Session[] closed = new ConnectionInfo.Session[1];
+
+        ConnectionInfo after = connections.computeIfPresent(chargeBoxId, (key, existing) -> {
+            List<ConnectionInfo.Session> sessions = new ArrayList<>(existing.getSessions());
+            closed[0] = remove(sessions, sessionId);
+            if (closed[0] == null) {
+                // not ours (anymore)
+                return existing;
+            }
+
+            OcppVersion version = closed[0].getVersion();
+            if (sessions.stream().noneMatch(s -> s.getVersion() == version)) {
+                versionCounts.decrementAndGet(version.ordinal());
+            }
+            if (sessions.isEmpty()) {
+                return null;
+            }
+            OcppVersion latest = sessions.get(sessions.size() - 1).getVersion();
+            return new ConnectionInfo(key, latest, existing.getConnectedSince(),
+                                      Collections.unmodifiableList(sessions));
+        });
+
+        if (closed[0] != null && after == null) {
+            OcppVersion version = closed[0].getVersion();
+            listeners.forEach(l -> notify(l, chargeBoxId, version, false));
+        }
+    }
+
+    public boolean isOnline(String chargeBoxId) {
+        return connections.containsKey(chargeBoxId);
+    }
+
+    @Nullable
+    public ConnectionInfo get(String chargeBoxId) {
+        return connections.get(chargeBoxId);
+    }
+
+    public int getNumberOfChargeBoxes(OcppVersion version) {
+        return versionCounts.get(version.ordinal());
+    }
+
+    public int getNumberOfChargeBoxes() {
+        return connections.size();
+    }
+
+    /**
+     * Read-only and weakly consistent (no copy is made). The elements themselves are immutable.
+     */
+    public Collection<ConnectionInfo> getConnections() {
+        return Collections.unmodifiableCollection(connections.values());
+    }
+
+    /**
+     * Read-only and weakly consistent (no copy is made)
+     */
+    public Set<String> getChargeBoxIds() {
+        return Collections.unmodifiableSet(connections.keySet());
+    }
+
+    @Nullable
+    private static ConnectionInfo.Session remove(List<ConnectionInfo.Session> sessions, String sessionId) {
+        Iterator<ConnectionInfo.Session> it = sessions.iterator();
+        while (it.hasNext()) {
+            ConnectionInfo.Session session = it.next();
+            if (session.getSessionId().equals(sessionId)) {
+                it.remove();
+                return session;
+            }
+        }
+        return null;
+    }
+
+    private static void notify(ConnectionListener listener, String chargeBoxId, OcppVersion version, boolean connected) {
+        try {
+            if (connected) {
+                listener.onConnected(chargeBoxId, version);
+            } else {
+                listener.onDisconnected(chargeBoxId, version);
+            }
+        } catch (Exception e) {
+            log.error("[chargeBoxId={}] Exception occurred in ConnectionListener", chargeBoxId, e);
+        }
+    }
+}
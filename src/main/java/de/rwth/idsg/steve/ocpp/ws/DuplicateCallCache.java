@@ -0,0 +1,293 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import de.rwth.idsg.steve.ocpp.ws.data.DuplicateCallStats;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonMessage;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * The responses to the recent CALLs of every charge point, to answer retransmissions of the same CALL (e.g. after a
+ * reconnect, when the charge point did not receive our response) without processing them again.
+ *
+ * A retransmission is the exact same frame: same messageId and same content. A CALL that only reuses a messageId
+ * (e.g. a charge point that restarts counting after a reboot) is processed normally. Only CALL_RESULTs are cached,
+ * such that a CALL that failed with an error is processed again.
+ *
+ * The cache of a charge point is bounded (oldest out) and its entries expire, but it survives reconnects on purpose.
+ */
+@Slf4j
+@Component
+public class DuplicateCallCache {
+
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private final int maxSize;
+    private final int ttlSeconds;
+    private final long ttlNanos;
+
+    // (chargeBoxId, (messageId, entry))
+    private final Map<String, StationCache> stations = new ConcurrentHashMap<>();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder idCollisions = new LongAdder();
+    private final Map<String, LongAdder> hitsPerAction = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> sweepSchedule;
+
+    @Autowired
+    public DuplicateCallCache(ScheduledExecutorService executor) {
+        this(executor, CONFIG.getOcpp().getDuplicateCacheSize(), CONFIG.getOcpp().getDuplicateCacheTtlSeconds());
+    }
+
+    DuplicateCallCache(ScheduledExecutorService executor, int maxSize, int ttlSeconds) {
+        this.executor = executor;
+        this.maxSize = maxSize;
+        this.ttlSeconds = ttlSeconds;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            sweepSchedule = executor.scheduleWithFixedDelay(
+                    this::evictExpired, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (sweepSchedule != null) {
+            sweepSchedule.cancel(false);
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlSeconds > 0;
+    }
+
+    /**
+     * @return the response to the same CALL, if it was answered recently
+     */
+    @Nullable
+    public Entry get(String chargeBoxId, String messageId, String incomingString) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        lookups.increment();
+
+        StationCache cache = stations.get(chargeBoxId);
+        if (cache == null) {
+            return null;
+        }
+
+        Entry entry = cache.get(messageId, System.nanoTime());
+        if (entry == null) {
+            return null;
+        }
+
+        if (!entry.matches(incomingString)) {
+            idCollisions.increment();
+            return null;
+        }
+
+        hits.increment();
+        hitsPerAction.computeIfAbsent(entry.action, k -> new LongAdder()).increment();
+        return entry;
+    }
+
+    public void put(String chargeBoxId, String messageId, String action, String incomingString,
+                    OcppJsonMessage outgoingMessage, String outgoingString, OcppJsonEnvelope outgoingEnvelope) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Entry entry = new Entry(action, incomingString, outgoingMessage, outgoingString, outgoingEnvelope,
+                                System.nanoTime());
+
+        stations.computeIfAbsent(chargeBoxId, k -> new StationCache(maxSize))
+                .put(messageId, entry);
+    }
+
+    public DuplicateCallStats getStats() {
+        int entries = 0;
+        for (StationCache cache : stations.values()) {
+            entries += cache.size();
+        }
+
+        Map<String, Long> perAction = new TreeMap<>();
+        hitsPerAction.forEach((action, count) -> perAction.put(action, count.sum()));
+
+        long lookupCount = lookups.sum();
+        long hitCount = hits.sum();
+        return DuplicateCallStats.builder()
+                                 .sizePerStation(maxSize)
+                                 .ttlSeconds(ttlSeconds)
+                                 .stations(stations.size())
+                                 .entries(entries)
+                                 .lookups(lookupCount)
+                                 .hits(hitCount)
+                                 .hitRate(lookupCount == 0 ? 0 : (double) hitCount / lookupCount)
+                                 .idCollisions(idCollisions.sum())
+                                 .hitsPerAction(perAction)
+                                 .build();
+    }
+
+    /**
+     * Package-private for the scheduled sweep (and tests)
+     */
+    void evictExpired() {
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<String, StationCache> e : stations.entrySet()) {
+                StationCache cache = e.getValue();
+                if (cache.evictExpired(now)) {
+                    // the station might have put a new entry in the meantime
+                    stations.computeIfPresent(e.getKey(), (k, v) -> v.isEmpty() ? null : v);
+                }
+            }
+        } catch (Exception e) {
+            // do not let the exception cancel the schedule
+            log.error("Exception occurred while evicting cached responses", e);
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAtNanos >= ttlNanos;
+    }
+
+    @Getter
+    public static final class Entry {
+        private final String action;
+        private final HashCode incomingDigest;
+        private final int incomingLength;
+        private final OcppJsonMessage outgoingMessage;
+        private final String outgoingString;
+        private final OcppJsonEnvelope outgoingEnvelope;
+        private final long createdAtNanos;
+
+        private Entry(String action, String incomingString, OcppJsonMessage outgoingMessage,
+                      String outgoingString, OcppJsonEnvelope outgoingEnvelope, long createdAtNanos) {
+            this.action = action;
+            this.incomingDigest = digest(incomingString);
+            this.incomingLength = incomingString.length();
+            this.outgoingMessage = outgoingMessage;
+            this.outgoingString = outgoingString;
+            this.outgoingEnvelope = outgoingEnvelope;
+            this.createdAtNanos = createdAtNanos;
+        }
+
+        /**
+         * The frame is compared by its length and SHA-256 digest instead of String.hashCode(), since a CALL with a
+         * reused messageId and a colliding hash would otherwise get the response of another CALL. Keeping the digest
+         * instead of the frame bounds the memory of an entry, whatever the size of the CALL.
+         */
+        private boolean matches(String incomingString) {
+            return incomingLength == incomingString.length()
+                    && incomingDigest.equals(digest(incomingString));
+        }
+
+        private static HashCode digest(String incomingString) {
+            return Hashing.sha256().hashString(incomingString, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A handful of entries per station, so a synchronized LinkedHashMap (oldest first) is sufficient
+     */
+    private final class StationCache {
+        private final LinkedHashMap<String, Entry> map;
+
+        private StationCache(int maxSize) {
+            this.map = new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        private synchronized void put(String messageId, Entry entry) {
+            // re-insert, such that the map stays ordered by creation
+            map.remove(messageId);
+            map.put(messageId, entry);
+        }
+
+        @Nullable
+        private synchronized Entry get(String messageId, long now) {
+            Entry entry = map.get(messageId);
+            if (entry == null) {
+                return null;
+            }
+            if (isExpired(entry, now)) {
+                map.remove(messageId);
+                return null;
+            }
+            return entry;
+        }
+
+        /**
+         * @return true, if it is empty afterwards
+         */
+        private synchronized boolean evictExpired(long now) {
+            Iterator<Entry> it = map.values().iterator();
+            while (it.hasNext()) {
+                if (isExpired(it.next(), now)) {
+                    it.remove();
+                } else {
+                    break; // insertion order: the rest is newer
+                }
+            }
+            return map.isEmpty();
+        }
+
+        private synchronized boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        private synchronized int size() {
+            return map.size();
+        }
+    }
+}
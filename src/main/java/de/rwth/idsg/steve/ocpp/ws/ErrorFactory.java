@@ -56,6 +56,21 @@ public final class ErrorFactory {
                 "Internal services failed while processing of the payload", details);
     }
 
+    public static OcppJsonError rateLimitExceeded(String messageId, String action) {
+        return setFields(messageId, ErrorCode.GenericError,
+                "The rate limit for action '" + action + "' is exceeded. Retry later", null);
+    }
+
+    public static OcppJsonError messageTooLarge(String messageId, String action, int maxBytes) {
+        return setFields(messageId, ErrorCode.GenericError,
+                "The message for action '" + action + "' is larger than the limit of " + maxBytes + " bytes", null);
+    }
+
+    public static OcppJsonError tooManyPendingMessages(String messageId, String action) {
+        return setFields(messageId, ErrorCode.GenericError,
+                "Too many messages are pending for processing. Action '" + action + "' was dropped. Retry later", null);
+    }
+
     private static OcppJsonError setFields(String messageId, ErrorCode code, String desc, String details) {
         OcppJsonError error = new OcppJsonError();
         error.setMessageId(messageId);
@@ -19,6 +19,7 @@
 package de.rwth.idsg.steve.ocpp.ws;
 
 import de.rwth.idsg.steve.ocpp.ws.data.FutureResponseContext;
+import de.rwth.idsg.steve.ocpp.ws.data.PendingCallStats;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,36 +27,106 @@ import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.WebSocketSession;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
 
 /**
  * Presumption: The responses must be sent using the same connection as the requests!
  *
+ * Every stored call has a deadline (see {@link de.rwth.idsg.steve.SteveConfiguration.Ocpp#getCallTimeoutSeconds}).
+ * A single sweeper removes the expired ones and fails their tasks, such that a station that never answers does not
+ * leave unfinished tasks behind. The ids of expired calls are kept for a while, such that a response that arrives
+ * late is dropped instead of being treated as a protocol violation.
+ *
+ * The counters of a station are kept as long as it has a session, and are dropped with its last one.
+ *
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 21.03.2015
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class FutureResponseContextStore {
 
+    private static final long SWEEP_INTERVAL_SECONDS = 1;
+    private static final long EXPIRED_CALL_RETENTION_SECONDS = 600;
+
     // We store for each chargeBox connection, multiple pairs of (messageId, context)
     // (session, (messageId, context))
     private final Map<WebSocketSession, Map<String, FutureResponseContext>> lookupTable = new ConcurrentHashMap<>();
 
-    public void addSession(WebSocketSession session) {
+    // (session, (messageId, expiry time in nanos)) of calls that timed out
+    private final Map<WebSocketSession, Map<String, Long>> expiredCalls = new ConcurrentHashMap<>();
+
+    // (chargeBoxId, counters)
+    private final Map<String, CallCounters> counters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> sweepSchedule;
+
+    @PostConstruct
+    public void init() {
+        sweepSchedule = executor.scheduleWithFixedDelay(
+                this::expire, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (sweepSchedule != null) {
+            sweepSchedule.cancel(false);
+        }
+    }
+
+    public void addSession(String chargeBoxId, WebSocketSession session) {
+        counters.compute(chargeBoxId, (k, c) -> {
+            CallCounters result = (c == null) ? new CallCounters() : c;
+            result.sessions++;
+            return result;
+        });
         addIfAbsent(session);
     }
 
-    public void removeSession(WebSocketSession session) {
+    /**
+     * The responses cannot arrive anymore (see presumption above). Fail the calls that are still waiting.
+     */
+    public void removeSession(String chargeBoxId, WebSocketSession session) {
         log.debug("Deleting the store for sessionId '{}'", session.getId());
-        lookupTable.remove(session);
+        Map<String, FutureResponseContext> map = lookupTable.remove(session);
+        expiredCalls.remove(session);
+        if (map != null) {
+            map.forEach((messageId, context) -> {
+                fail(context, messageId,
+                     new IllegalStateException("The connection was closed before a response arrived"));
+                completed(context);
+            });
+        }
+
+        // a station might be connected with multiple sessions (e.g. during a reconnect)
+        counters.computeIfPresent(chargeBoxId, (k, c) -> --c.sessions > 0 ? c : null);
     }
 
     public void add(WebSocketSession session, String messageId, FutureResponseContext context) {
+        long now = System.nanoTime();
+        context.setSentAtNanos(now);
+        context.setDeadlineNanos(now + TimeUnit.SECONDS.toNanos(CONFIG.getOcpp().getCallTimeoutSeconds(context.getAction())));
+
         Map<String, FutureResponseContext> map = addIfAbsent(session);
         map.put(messageId, context);
+        increment(context.getChargeBoxId(), c -> c.sent);
         log.debug("Store size for sessionId '{}': {}", session.getId(), map.size());
     }
 
@@ -63,7 +134,152 @@ public class FutureResponseContextStore {
     public FutureResponseContext get(WebSocketSession session, String messageId) {
         RemoveFunction removeFunction = new RemoveFunction(messageId);
         lookupTable.computeIfPresent(session, removeFunction);
-        return removeFunction.removedContext;
+
+        FutureResponseContext context = removeFunction.removedContext;
+        if (context != null) {
+            completed(context);
+        }
+        return context;
+    }
+
+    /**
+     * A response without a pending call is either a late one for a call that timed out, or a protocol violation.
+     *
+     * @return true, if the call timed out before. The response is counted and should be dropped.
+     */
+    public boolean removeExpired(WebSocketSession session, String chargeBoxId, String messageId) {
+        Map<String, Long> map = expiredCalls.get(session);
+        if (map == null || map.remove(messageId) == null) {
+            return false;
+        }
+        increment(chargeBoxId, c -> c.lateResponses);
+        return true;
+    }
+
+    /**
+     * Number of calls that wait for a response on the session
+     */
+    public int getPendingCount(WebSocketSession session) {
+        Map<String, FutureResponseContext> map = lookupTable.get(session);
+        return (map == null) ? 0 : map.size();
+    }
+
+    /**
+     * Sorted by the number of pending calls, descending
+     */
+    public List<PendingCallStats> getStats() {
+        long now = System.nanoTime();
+
+        Map<String, int[]> pendingCounts = new HashMap<>();
+        Map<String, Long> oldest = new HashMap<>();
+        for (Map<String, FutureResponseContext> map : lookupTable.values()) {
+            for (FutureResponseContext context : map.values()) {
+                pendingCounts.computeIfAbsent(context.getChargeBoxId(), k -> new int[1])[0]++;
+                oldest.merge(context.getChargeBoxId(), now - context.getSentAtNanos(), Math::max);
+            }
+        }
+
+        List<PendingCallStats> list = new ArrayList<>(counters.size());
+        counters.forEach((chargeBoxId, c) -> {
+            long sent = c.sent.sum();
+            long timedOut = c.timedOut.sum();
+            long lateResponses = c.lateResponses.sum();
+            int[] pending = pendingCounts.get(chargeBoxId);
+            list.add(PendingCallStats.builder()
+                                     .chargeBoxId(chargeBoxId)
+                                     .pending(pending == null ? 0 : pending[0])
+                                     .oldestAgeMillis(TimeUnit.NANOSECONDS.toMillis(oldest.getOrDefault(chargeBoxId, 0L)))
+                                     .sent(sent)
+                                     .timedOut(timedOut)
+                                     .lateResponses(lateResponses)
+                                     .timeoutRate(sent == 0 ? 0 : (double) timedOut / sent)
+                                     .build());
+        });
+
+        list.sort((a, b) -> Integer.compare(b.getPending(), a.getPending()));
+        return list;
+    }
+
+    /**
+     * Package-private for the scheduled sweep (and tests)
+     */
+    void expire() {
+        long now = System.nanoTime();
+        try {
+            for (var sessionEntry : lookupTable.entrySet()) {
+                Map<String, FutureResponseContext> map = sessionEntry.getValue();
+                for (Map.Entry<String, FutureResponseContext> entry : map.entrySet()) {
+                    FutureResponseContext context = entry.getValue();
+                    if (now - context.getDeadlineNanos() < 0) {
+                        continue;
+                    }
+
+                    // a response might be processed concurrently. only one of them can remove the entry.
+                    if (map.remove(entry.getKey(), context)) {
+                        increment(context.getChargeBoxId(), c -> c.timedOut);
+                        expiredCalls.computeIfAbsent(sessionEntry.getKey(), k -> new ConcurrentHashMap<>())
+                                    .put(entry.getKey(), now);
+                        long seconds = TimeUnit.NANOSECONDS.toSeconds(now - context.getSentAtNanos());
+                        fail(context, entry.getKey(), new TimeoutException(
+                                "No response to " + context.getAction() + " within " + seconds + " seconds"));
+                        completed(context);
+                    }
+                }
+            }
+            forgetExpiredCalls(now);
+        } catch (Exception e) {
+            // do not let the exception cancel the schedule
+            log.error("Exception occurred while expiring pending calls", e);
+        }
+    }
+
+    /**
+     * Also drops the ids of sessions that were closed while the sweep was running
+     */
+    private void forgetExpiredCalls(long now) {
+        long retention = TimeUnit.SECONDS.toNanos(EXPIRED_CALL_RETENTION_SECONDS);
+        expiredCalls.entrySet().removeIf(sessionEntry -> {
+            if (!lookupTable.containsKey(sessionEntry.getKey())) {
+                return true;
+            }
+            sessionEntry.getValue().values().removeIf(expiredAt -> now - expiredAt > retention);
+            return false;
+        });
+    }
+
+    private static void fail(FutureResponseContext context, String messageId, Exception e) {
+        log.warn("[chargeBoxId={}, messageId={}] {}", context.getChargeBoxId(), messageId, e.getMessage());
+        try {
+            context.getTask().defaultCallback().failed(context.getChargeBoxId(), e);
+        } catch (Exception ex) {
+            log.error("Exception occurred in OcppCallback", ex);
+        }
+    }
+
+    /**
+     * Lets the next CALL to the station go (see {@link OutgoingCallQueue})
+     */
+    private static void completed(FutureResponseContext context) {
+        Runnable callback = context.getCompletionCallback();
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.error("Exception occurred in completion callback", e);
+        }
+    }
+
+    /**
+     * Not counted, if the last session of the station is closed already. Otherwise, the counters would be created
+     * again and never be dropped.
+     */
+    private void increment(String chargeBoxId, Function<CallCounters, LongAdder> counter) {
+        CallCounters c = counters.get(chargeBoxId);
+        if (c != null) {
+            counter.apply(c).increment();
+        }
     }
 
     private Map<String, FutureResponseContext> addIfAbsent(WebSocketSession session) {
@@ -73,6 +289,14 @@ public class FutureResponseContextStore {
         });
     }
 
+    private static class CallCounters {
+        // only changed within the compute methods of the map
+        private int sessions;
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder lateResponses = new LongAdder();
+    }
+
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     private static class RemoveFunction implements
             BiFunction<WebSocketSession, Map<String, FutureResponseContext>, Map<String, FutureResponseContext>> {
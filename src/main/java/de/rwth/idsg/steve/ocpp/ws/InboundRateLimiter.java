@@ -0,0 +1,274 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.ws.data.RateLimitStats;
+import de.rwth.idsg.steve.utils.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * Admission control for incoming OCPP-J CALLs, before they reach the pipeline (and thereby the database).
+ *
+ * Every charge point has a token bucket per action class, so that e.g. a firmware bug flooding MeterValues does not
+ * stop its transactions from being accepted. On top of that, an optional global bucket protects the server as a whole.
+ * The global bucket never rejects the transactional actions: they are not the fault of the charge point and losing
+ * them costs money. Responses to our own calls are never limited.
+ *
+ * The state of a charge point is kept across reconnects on purpose: reconnecting should not refill its buckets. It is
+ * evicted once the charge point stayed quiet long enough for all of its buckets to be full again.
+ */
+@Slf4j
+@Component
+public class InboundRateLimiter {
+
+    private static final int TOP_OFFENDERS = 10;
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    public enum Admission {
+        ACCEPT,
+        REJECT,
+        /**
+         * Rejected, and the charge point kept exceeding its limits for too long. Its session should be closed.
+         */
+        REJECT_AND_CLOSE
+    }
+
+    enum ActionClass {
+        METER_VALUES,
+        TRANSACTIONAL,
+        OTHER;
+
+        static ActionClass fromAction(@Nullable String action) {
+            if ("MeterValues".equals(action)) {
+                return METER_VALUES;
+            } else if ("StartTransaction".equals(action)
+                || "StopTransaction".equals(action)
+                || "Authorize".equals(action)) {
+                return TRANSACTIONAL;
+            } else {
+                return OTHER;
+            }
+        }
+    }
+
+    private final SteveConfiguration.RateLimit config;
+    private final long closeWindowNanos;
+    private final long idleEvictionNanos;
+    @Nullable private final TokenBucket global;
+
+    private final ConcurrentHashMap<String, StationLimits> stations = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rejectedGlobal = new LongAdder();
+    private final LongAdder closedSessions = new LongAdder();
+
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> sweepSchedule;
+
+    @Autowired
+    public InboundRateLimiter(ScheduledExecutorService executor) {
+        this(executor, CONFIG.getRateLimit());
+    }
+
+    InboundRateLimiter(ScheduledExecutorService executor, SteveConfiguration.RateLimit config) {
+        this.executor = executor;
+        this.config = config;
+        this.closeWindowNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getCloseWindowSeconds()));
+        this.idleEvictionNanos = Math.max(closeWindowNanos, Math.max(
+            refillNanos(config.getMeterValuesPerMinute(), config.getMeterValuesBurst()), Math.max(
+            refillNanos(config.getTransactionalPerMinute(), config.getTransactionalBurst()),
+            refillNanos(config.getOtherPerMinute(), config.getOtherBurst()))));
+        this.global = config.getGlobalPerSecond() > 0
+            ? new TokenBucket(config.getGlobalPerSecond(), Math.max(config.getGlobalPerSecond(), config.getGlobalBurst()))
+            : null;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            sweepSchedule = executor.scheduleWithFixedDelay(
+                this::evictIdle, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (sweepSchedule != null) {
+            sweepSchedule.cancel(false);
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public Admission admit(String chargeBoxId, @Nullable String action) {
+        ActionClass actionClass = ActionClass.fromAction(action);
+        StationLimits station = stations.computeIfAbsent(chargeBoxId, k -> new StationLimits());
+        station.lastSeenNanos = System.nanoTime();
+
+        if (!station.buckets[actionClass.ordinal()].tryAcquire()) {
+            rejected.increment();
+            if (station.recordRejection(actionClass)) {
+                closedSessions.increment();
+                log.warn("[chargeBoxId={}] Exceeded its inbound rate limits {} times within {} seconds",
+                    chargeBoxId, config.getCloseAfterRejections(), config.getCloseWindowSeconds());
+                return Admission.REJECT_AND_CLOSE;
+            }
+            return Admission.REJECT;
+        }
+
+        // not the fault of the charge point, therefore it does not count towards closing its session
+        if (global != null && actionClass != ActionClass.TRANSACTIONAL && !global.tryAcquire()) {
+            rejected.increment();
+            rejectedGlobal.increment();
+            return Admission.REJECT;
+        }
+
+        admitted.increment();
+        return Admission.ACCEPT;
+    }
+
+    public RateLimitStats getStats() {
+        List<RateLimitStats.Offender> offenders = stations.entrySet().stream()
+            .map(e -> e.getValue().toOffender(e.getKey()))
+            .filter(o -> o.getRejected() > 0)
+            .sorted((a, b) -> Long.compare(b.getRejected(), a.getRejected()))
+            .limit(TOP_OFFENDERS)
+            .collect(Collectors.toList());
+
+        return RateLimitStats.builder()
+            .enabled(config.isEnabled())
+            .admitted(admitted.sum())
+            .rejected(rejected.sum())
+            .rejectedGlobal(rejectedGlobal.sum())
+            .closedSessions(closedSessions.sum())
+            .topOffenders(offenders)
+            .build();
+    }
+
+    /**
+     * Package-private for the scheduled sweep (and tests)
+     */
+    void evictIdle() {
+        try {
+            long now = System.nanoTime();
+            for (String chargeBoxId : stations.keySet()) {
+                // the station might have sent a new message in the meantime
+                stations.computeIfPresent(chargeBoxId, (k, v) -> now - v.lastSeenNanos >= idleEvictionNanos ? null : v);
+            }
+        } catch (Exception e) {
+            // do not let the exception cancel the schedule
+            log.error("Exception occurred while evicting idle rate limit state", e);
+        }
+    }
+
+    int getStationCount() {
+        return stations.size();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    private static TokenBucket newBucket(int perMinute, int burst) {
+        return new TokenBucket(Math.max(1, perMinute) / 60d, Math.max(1, burst));
+    }
+
+    /**
+     * How long an empty bucket takes to be full again
+     */
+    private static long refillNanos(int perMinute, int burst) {
+        return TimeUnit.MINUTES.toNanos(Math.max(1, burst)) / Math.max(1, perMinute);
+    }
+
+    private class StationLimits {
+        private final TokenBucket[] buckets = {
+            newBucket(config.getMeterValuesPerMinute(), config.getMeterValuesBurst()),
+            newBucket(config.getTransactionalPerMinute(), config.getTransactionalBurst()),
+            newBucket(config.getOtherPerMinute(), config.getOtherBurst())
+        };
+
+        private volatile long lastSeenNanos = System.nanoTime();
+
+        // guarded by this
+        private final long[] rejectedPerClass = new long[ActionClass.values().length];
+        private long closed;
+        private long lastRejectedMillis;
+        private long windowStartNanos;
+        private int rejectionsInWindow;
+
+        /**
+         * @return true, if the rejections within the current window reached the threshold for closing the session
+         */
+        private synchronized boolean recordRejection(ActionClass actionClass) {
+            rejectedPerClass[actionClass.ordinal()]++;
+            lastRejectedMillis = System.currentTimeMillis();
+
+            long now = System.nanoTime();
+            if (rejectionsInWindow == 0 || now - windowStartNanos > closeWindowNanos) {
+                windowStartNanos = now;
+                rejectionsInWindow = 0;
+            }
+            rejectionsInWindow++;
+
+            int threshold = config.getCloseAfterRejections();
+            if (threshold > 0 && rejectionsInWindow >= threshold) {
+                rejectionsInWindow = 0;
+                closed++;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized RateLimitStats.Offender toOffender(String chargeBoxId) {
+            long meterValues = rejectedPerClass[ActionClass.METER_VALUES.ordinal()];
+            long transactional = rejectedPerClass[ActionClass.TRANSACTIONAL.ordinal()];
+            long other = rejectedPerClass[ActionClass.OTHER.ordinal()];
+
+            return RateLimitStats.Offender.builder()
+                .chargeBoxId(chargeBoxId)
+                .rejected(meterValues + transactional + other)
+                .rejectedMeterValues(meterValues)
+                .rejectedTransactional(transactional)
+                .rejectedOther(other)
+                .closedSessions(closed)
+                .lastRejected(lastRejectedMillis == 0 ? null : new DateTime(lastRejectedMillis))
+                .build();
+        }
+    }
+}
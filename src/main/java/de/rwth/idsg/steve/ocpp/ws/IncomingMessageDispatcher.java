@@ -0,0 +1,304 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.ws.data.DispatcherStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * Runs the incoming pipeline of OCPP-J messages outside of the Jetty threads.
+ *
+ * Every charge point gets its own serial lane, such that its messages are processed one after another in the order
+ * they arrived. Lanes are not threads: a lane with pending messages is scheduled on the shared worker pool, processes
+ * a limited number of messages and then gives the worker back, so that one busy or slow charge point cannot hold up
+ * the others.
+ */
+@Slf4j
+@Component
+public class IncomingMessageDispatcher {
+
+    /**
+     * Max number of messages a lane processes before giving the worker thread to the next lane
+     */
+    private static final int MAX_BURST = 32;
+
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+    private final int workerThreads;
+    private final int laneQueueCapacity;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rejectedCallsAnswered = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final LongAdder totalServiceNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxServiceNanos = new AtomicLong();
+
+    public IncomingMessageDispatcher() {
+        SteveConfiguration.Dispatcher config = CONFIG.getDispatcher();
+
+        this.workerThreads = Math.max(1, config.getWorkerThreads());
+        this.laneQueueCapacity = Math.max(1, config.getLaneQueueCapacity());
+
+        this.executor = new ThreadPoolExecutor(
+                workerThreads, workerThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("SteVe-Ocpp-Worker-%d").build()
+        );
+    }
+
+    /**
+     * @return false, if the lane of the charge point is full and the message is dropped
+     */
+    public boolean submit(String chargeBoxId, WebSocketSession session, Runnable task) {
+        Item item = new Item(session, task, System.nanoTime());
+        boolean[] accepted = new boolean[1];
+
+        // Offering inside compute() makes it atomic with removeIfIdle(), so that a message never ends up in a lane
+        // that was just removed from the map.
+        Lane lane = lanes.compute(chargeBoxId, (key, existing) -> {
+            Lane l = existing == null ? new Lane(key) : existing;
+            l.disconnected = false;
+            accepted[0] = l.offer(item, laneQueueCapacity);
+            return l;
+        });
+
+        if (!accepted[0]) {
+            rejected.increment();
+            log.warn("[chargeBoxId={}, sessionId={}] Lane is full ({} messages). Dropping the incoming message",
+                    chargeBoxId, session.getId(), laneQueueCapacity);
+            return false;
+        }
+
+        submitted.increment();
+        lane.schedule();
+        return true;
+    }
+
+    /**
+     * Called when the last session of a charge point is closed. A lane that still has work keeps running and removes
+     * itself once it drains, unless the charge point sent new messages in the meantime.
+     */
+    public void removeIfIdle(String chargeBoxId) {
+        lanes.computeIfPresent(chargeBoxId, (key, lane) -> {
+            if (lane.isIdle()) {
+                return null;
+            }
+            lane.disconnected = true;
+            return lane;
+        });
+    }
+
+    /**
+     * Counts a dropped CALL that the endpoint answered with a CALLERROR
+     */
+    public void droppedCallAnswered() {
+        rejectedCallsAnswered.increment();
+    }
+
+    public DispatcherStats getStats() {
+        Map<String, Integer> laneDepths = new HashMap<>();
+        long queued = 0;
+        for (Lane lane : lanes.values()) {
+            int depth = lane.size.get();
+            if (depth > 0) {
+                laneDepths.put(lane.chargeBoxId, depth);
+                queued += depth;
+            }
+        }
+
+        long done = completed.sum() + failed.sum();
+        return DispatcherStats.builder()
+                              .workerThreads(workerThreads)
+                              .activeWorkers(executor.getActiveCount())
+                              .laneQueueCapacity(laneQueueCapacity)
+                              .lanes(lanes.size())
+                              .queued(queued)
+                              .submitted(submitted.sum())
+                              .completed(completed.sum())
+                              .failed(failed.sum())
+                              .rejected(rejected.sum())
+                              .rejectedCallsAnswered(rejectedCallsAnswered.sum())
+                              .avgQueueWaitMillis(averageMillis(totalQueueWaitNanos.sum(), done))
+                              .maxQueueWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.get()))
+                              .avgServiceMillis(averageMillis(totalServiceNanos.sum(), done))
+                              .maxServiceMillis(TimeUnit.NANOSECONDS.toMillis(maxServiceNanos.get()))
+                              .laneDepths(laneDepths)
+                              .build();
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Killing non-finished incoming message tasks");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    private static double averageMillis(long totalNanos, long count) {
+        return count == 0 ? 0 : (double) totalNanos / count / 1_000_000;
+    }
+
+    private void execute(Item item) {
+        long start = System.nanoTime();
+        long waitNanos = start - item.enqueuedAt;
+        totalQueueWaitNanos.add(waitNanos);
+        maxQueueWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+        try {
+            item.task.run();
+            completed.increment();
+
+        } catch (Exception e) {
+            // Same as what Spring's ExceptionWebSocketHandlerDecorator did, when the pipeline ran on the Jetty thread
+            failed.increment();
+            log.error("[sessionId={}] Unhandled exception in the incoming pipeline. Closing the session",
+                    item.session.getId(), e);
+            tryClose(item.session);
+
+        } finally {
+            long serviceNanos = System.nanoTime() - start;
+            totalServiceNanos.add(serviceNanos);
+            maxServiceNanos.accumulateAndGet(serviceNanos, Math::max);
+        }
+    }
+
+    private static void tryClose(WebSocketSession session) {
+        try {
+            if (session.isOpen()) {
+                session.close(CloseStatus.SERVER_ERROR);
+            }
+        } catch (Exception e) {
+            log.warn("[sessionId={}] Failed to close the session", session.getId(), e);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Item {
+        private final WebSocketSession session;
+        private final Runnable task;
+        private final long enqueuedAt;
+    }
+
+    private class Lane implements Runnable {
+        private final String chargeBoxId;
+        private final Queue<Item> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * Only read and written inside the compute methods of the map, which serialize the access per key
+         */
+        private boolean disconnected;
+
+        private Lane(String chargeBoxId) {
+            this.chargeBoxId = chargeBoxId;
+        }
+
+        private boolean offer(Item item, int capacity) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            queue.add(item);
+            return true;
+        }
+
+        private boolean isIdle() {
+            return size.get() == 0 && !scheduled.get();
+        }
+
+        /**
+         * At most one worker runs a lane at any time, which is what keeps the messages of a charge point in order.
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < MAX_BURST; i++) {
+                    Item item = queue.poll();
+                    if (item == null) {
+                        break;
+                    }
+                    size.decrementAndGet();
+                    execute(item);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            // Messages that arrived after the last poll, or the ones left over after a full burst
+            if (!queue.isEmpty()) {
+                schedule();
+            } else {
+                lanes.computeIfPresent(chargeBoxId, (key, lane) -> lane == this && lane.disconnected && isIdle()
+                        ? null
+                        : lane);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.ocpp.ws.data.KeepaliveStats;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionHealth;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Just to keep the connections alive, such that the servers do not close the connection because of an idle timeout,
+ * we ping-pong at fixed intervals. Instead of one scheduled task per session, a single thread sweeps the sessions
+ * once per second. Every session is assigned to one of the per-second slots of the interval, such that the pings
+ * are spread evenly.
+ *
+ * When a session is visited again and did not receive anything since the last ping, the pong is missed. After
+ * {@link de.rwth.idsg.steve.SteveConfiguration.Keepalive#getMaxMissedPongs()} misses in a row, the connection is
+ * considered half-open and closed.
+ *
+ * The sweeping thread does not write to the sockets itself, since one slow socket would delay all the others. The
+ * pings are handed to a small pool of senders and go through the decorated session (see
+ * {@link BudgetedSessionDecorator}), which buffers them behind a write in progress and closes the session when its
+ * send time limit is exceeded. A session whose last ping is still being sent does not get another one.
+ */
+@Slf4j
+@Component
+public class KeepaliveSweeper {
+
+    private static final PingMessage PING_MESSAGE = new PingMessage(ByteBuffer.wrap("ping".getBytes(UTF_8)));
+    private static final CloseStatus MISSED_PONGS = CloseStatus.SESSION_NOT_RELIABLE.withReason("Missed pongs");
+    private static final CloseStatus PING_FAILED = CloseStatus.SESSION_NOT_RELIABLE.withReason("Ping failed");
+    private static final int SENDER_THREADS = 4;
+
+    private final int pingIntervalSeconds;
+    private final int maxMissedPongs;
+
+    // one slot per second of the interval
+    private final List<Set<Member>> slots;
+    private final Map<WebSocketSession, Member> members = new ConcurrentHashMap<>();
+    private final AtomicLong registrations = new AtomicLong();
+
+    private final LongAdder pingsSent = new LongAdder();
+    private final LongAdder pingFailures = new LongAdder();
+    private final LongAdder closedForMissedPongs = new LongAdder();
+
+    // only accessed by the sweeping thread
+    private long tick;
+
+    private ScheduledExecutorService executor;
+    private Executor sender;
+    private ExecutorService ownedSender;
+
+    public KeepaliveSweeper() {
+        this(CONFIG.getKeepalive().getPingIntervalSeconds(), CONFIG.getKeepalive().getMaxMissedPongs(), null);
+    }
+
+    /**
+     * @param sender to send the pings with. If null, a pool is created at startup.
+     */
+    KeepaliveSweeper(int pingIntervalSeconds, int maxMissedPongs, @Nullable Executor sender) {
+        this.sender = sender;
+        this.pingIntervalSeconds = Math.max(1, pingIntervalSeconds);
+        this.maxMissedPongs = Math.max(1, maxMissedPongs);
+
+        this.slots = new ArrayList<>(this.pingIntervalSeconds);
+        for (int i = 0; i < this.pingIntervalSeconds; i++) {
+            slots.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (sender == null) {
+            ownedSender = Executors.newFixedThreadPool(SENDER_THREADS,
+                new ThreadFactoryBuilder().setNameFormat("SteVe-Keepalive-Sender-%d").setDaemon(true).build()
+            );
+            sender = ownedSender;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("SteVe-Keepalive-%d").setDaemon(true).build()
+        );
+        executor.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (ownedSender != null) {
+            ownedSender.shutdownNow();
+        }
+    }
+
+    public void register(String chargeBoxId, WebSocketSession session, SessionHealth health) {
+        int slot = (int) (registrations.getAndIncrement() % slots.size());
+        Member member = new Member(chargeBoxId, session, health, slot);
+        members.put(session, member);
+        slots.get(slot).add(member);
+    }
+
+    public void unregister(WebSocketSession session) {
+        Member member = members.remove(session);
+        if (member != null) {
+            slots.get(member.slot).remove(member);
+        }
+    }
+
+    public KeepaliveStats getStats() {
+        int awaitingPong = 0;
+        long rttSum = 0;
+        int rttCount = 0;
+        long rttMax = 0;
+        List<KeepaliveStats.Session> withRtt = new ArrayList<>();
+
+        for (Member member : members.values()) {
+            if (member.health.isSilentSincePing()) {
+                awaitingPong++;
+            }
+
+            Long rtt = member.health.getPongRttMillis();
+            if (rtt != null) {
+                rttSum += rtt;
+                rttCount++;
+                rttMax = Math.max(rttMax, rtt);
+                withRtt.add(KeepaliveStats.Session.builder()
+                                                  .chargeBoxId(member.chargeBoxId)
+                                                  .sessionId(member.session.getId())
+                                                  .pongRttMillis(rtt)
+                                                  .build());
+            }
+        }
+
+        withRtt.sort((a, b) -> Long.compare(b.getPongRttMillis(), a.getPongRttMillis()));
+
+        return KeepaliveStats.builder()
+                             .sessions(members.size())
+                             .pingIntervalSeconds(pingIntervalSeconds)
+                             .maxMissedPongs(maxMissedPongs)
+                             .pingsSent(pingsSent.sum())
+                             .pingFailures(pingFailures.sum())
+                             .closedForMissedPongs(closedForMissedPongs.sum())
+                             .awaitingPong(awaitingPong)
+                             .avgPongRttMillis(rttCount == 0 ? 0 : (double) rttSum / rttCount)
+                             .maxPongRttMillis(rttMax)
+                             .slowest(new ArrayList<>(withRtt.subList(0, Math.min(10, withRtt.size()))))
+                             .build();
+    }
+
+    /**
+     * Package-private for the scheduled sweep (and tests)
+     */
+    void sweep() {
+        try {
+            Set<Member> slot = slots.get((int) (tick++ % slots.size()));
+            for (Member member : slot) {
+                visit(member);
+            }
+        } catch (Exception e) {
+            // do not let the exception cancel the schedule
+            log.error("Exception occurred while sweeping the WebSocket sessions", e);
+        }
+    }
+
+    private void visit(Member member) {
+        WebSocketSession session = member.session;
+        if (!session.isOpen()) {
+            unregister(session);
+            return;
+        }
+
+        if (member.health.isSilentSincePing()) {
+            member.missedPongs++;
+            if (member.missedPongs >= maxMissedPongs) {
+                log.warn("[chargeBoxId={}, sessionId={}] No pong for {} pings in a row, closing the connection",
+                        member.chargeBoxId, session.getId(), member.missedPongs);
+                closedForMissedPongs.increment();
+                close(member, MISSED_PONGS);
+                return;
+            }
+        } else {
+            member.missedPongs = 0;
+        }
+
+        // the last one is still being sent. the session's send time limit takes care of a stuck socket.
+        if (!member.pingInFlight.compareAndSet(false, true)) {
+            return;
+        }
+
+        member.health.pingSent();
+        try {
+            sender.execute(() -> ping(member));
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            member.pingInFlight.set(false);
+        }
+    }
+
+    private void ping(Member member) {
+        WebSocketSession session = member.session;
+        WebSocketLogger.sendingPing(member.chargeBoxId, session);
+        try {
+            session.sendMessage(PING_MESSAGE);
+            pingsSent.increment();
+        } catch (IOException e) {
+            // the connection is broken. closing it lets the endpoint clean up (and the station reconnect).
+            WebSocketLogger.pingError(member.chargeBoxId, session, e);
+            pingFailures.increment();
+            close(member, PING_FAILED);
+        } finally {
+            member.pingInFlight.set(false);
+        }
+    }
+
+    private void close(Member member, CloseStatus status) {
+        unregister(member.session);
+        try {
+            member.session.close(status);
+        } catch (Exception e) {
+            log.warn("[chargeBoxId={}, sessionId={}] Could not close the connection: {}",
+                    member.chargeBoxId, member.session.getId(), e.getMessage());
+        }
+    }
+
+    private static class Member {
+        private final String chargeBoxId;
+        private final WebSocketSession session;
+        private final SessionHealth health;
+        private final int slot;
+        private final AtomicBoolean pingInFlight = new AtomicBoolean();
+        private int missedPongs;
+
+        private Member(String chargeBoxId, WebSocketSession session, SessionHealth health, int slot) {
+            this.chargeBoxId = chargeBoxId;
+            this.session = session;
+            this.health = health;
+            this.slot = slot;
+        }
+    }
+}
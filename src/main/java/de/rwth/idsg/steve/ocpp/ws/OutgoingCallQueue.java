@@ -0,0 +1,269 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.ocpp.ws.data.CallPriority;
+import de.rwth.idsg.steve.ocpp.ws.data.OutgoingQueueStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * OCPP-J allows only one outstanding CALL per connection. Every station gets a queue, and its next CALL is sent only
+ * after the previous one is completed, i.e. answered, timed out or failed (see {@link FutureResponseContextStore}).
+ * Queued CALLs are ordered by {@link CallPriority} and then by submission.
+ *
+ * There is no dedicated thread: the next CALL is sent by the thread that submits into an idle queue or that completes
+ * the CALL in flight.
+ */
+@Slf4j
+@Component
+public class OutgoingCallQueue {
+
+    private static final Comparator<Entry> ORDER =
+            Comparator.<Entry>comparingInt(e -> e.priority.ordinal()).thenComparingLong(e -> e.sequence);
+
+    // (chargeBoxId, queue)
+    private final Map<String, StationQueue> queues = new ConcurrentHashMap<>();
+
+    private final int capacity;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public OutgoingCallQueue() {
+        this(CONFIG.getOcpp().getOutgoingQueueCapacity());
+    }
+
+    OutgoingCallQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Sends the CALL and returns true, if it is in flight. In that case it must run onCompleted exactly once, when
+     * it is answered or has failed. If it returns false, the CALL is considered completed right away.
+     */
+    @FunctionalInterface
+    public interface Call {
+        boolean send(Runnable onCompleted);
+    }
+
+    public void submit(String chargeBoxId, CommunicationTask task, String action, Call call) {
+        submitted.increment();
+
+        Entry entry = new Entry(CallPriority.fromAction(action), sequence.getAndIncrement(), action, call);
+
+        boolean[] accepted = new boolean[1];
+        StationQueue queue = queues.compute(chargeBoxId, (k, q) -> {
+            StationQueue station = (q == null) ? new StationQueue(chargeBoxId) : q;
+            synchronized (station) {
+                if (station.entries.size() < capacity) {
+                    entry.queue = station;
+                    station.entries.add(entry);
+                    accepted[0] = true;
+                }
+            }
+            return station;
+        });
+
+        if (!accepted[0]) {
+            rejected.increment();
+            log.warn("[chargeBoxId={}] Outgoing queue is full, rejecting {}", chargeBoxId, action);
+            try {
+                task.defaultCallback().failed(chargeBoxId,
+                        new SteveException("Too many outgoing calls to '%s' are waiting (limit: %s)", chargeBoxId, capacity));
+            } catch (Exception e) {
+                log.error("Exception occurred in OcppCallback", e);
+            }
+            return;
+        }
+
+        drain(queue);
+    }
+
+    public OutgoingQueueStats getStats() {
+        long now = System.nanoTime();
+
+        int queued = 0;
+        int inFlight = 0;
+        List<OutgoingQueueStats.Station> stations = new ArrayList<>();
+
+        for (StationQueue queue : queues.values()) {
+            synchronized (queue) {
+                Entry current = queue.inFlight;
+                if (queue.entries.isEmpty() && current == null) {
+                    continue;
+                }
+
+                long oldest = 0;
+                for (Entry e : queue.entries) {
+                    oldest = Math.max(oldest, now - e.submittedAtNanos);
+                }
+
+                queued += queue.entries.size();
+                inFlight += (current == null) ? 0 : 1;
+                stations.add(OutgoingQueueStats.Station.builder()
+                                                       .chargeBoxId(queue.chargeBoxId)
+                                                       .queued(queue.entries.size())
+                                                       .inFlightAction(current == null ? null : current.action)
+                                                       .oldestQueuedAgeMillis(TimeUnit.NANOSECONDS.toMillis(oldest))
+                                                       .build());
+            }
+        }
+
+        stations.sort((a, b) -> Integer.compare(b.getQueued(), a.getQueued()));
+
+        long sentCount = sent.sum();
+        return OutgoingQueueStats.builder()
+                                 .capacityPerStation(capacity)
+                                 .queued(queued)
+                                 .inFlight(inFlight)
+                                 .submitted(submitted.sum())
+                                 .sent(sentCount)
+                                 .rejected(rejected.sum())
+                                 .avgWaitMillis(sentCount == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(waitNanos.sum()) / 1000 / sentCount)
+                                 .maxWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()))
+                                 .stations(stations)
+                                 .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sends queued CALLs as long as nothing is in flight. Only one thread drains a queue at a time, and a completion
+     * that happens during the draining is picked up by the loop (instead of a recursive call).
+     */
+    private void drain(StationQueue queue) {
+        synchronized (queue) {
+            if (queue.draining) {
+                return;
+            }
+            queue.draining = true;
+        }
+
+        while (true) {
+            Entry next;
+            synchronized (queue) {
+                if (queue.inFlight != null || queue.entries.isEmpty()) {
+                    queue.draining = false;
+                    break;
+                }
+                next = queue.entries.poll();
+                queue.inFlight = next;
+            }
+
+            long waited = System.nanoTime() - next.submittedAtNanos;
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            sent.increment();
+
+            boolean inFlight;
+            try {
+                inFlight = next.call.send(() -> complete(next));
+            } catch (Exception e) {
+                // the call is responsible for failing its task. this is just the last line of defense for the queue.
+                log.error("[chargeBoxId={}] Exception occurred while sending {}", queue.chargeBoxId, next.action, e);
+                inFlight = false;
+            }
+
+            if (!inFlight) {
+                release(next);
+            }
+        }
+
+        removeIfIdle(queue.chargeBoxId);
+    }
+
+    private void complete(Entry entry) {
+        if (release(entry)) {
+            drain(entry.queue);
+        }
+    }
+
+    private static boolean release(Entry entry) {
+        if (!entry.completed.compareAndSet(false, true)) {
+            return false;
+        }
+
+        StationQueue queue = entry.queue;
+        synchronized (queue) {
+            if (queue.inFlight == entry) {
+                queue.inFlight = null;
+            }
+        }
+        return true;
+    }
+
+    private void removeIfIdle(String chargeBoxId) {
+        queues.computeIfPresent(chargeBoxId, (k, queue) -> {
+            synchronized (queue) {
+                boolean idle = !queue.draining && queue.inFlight == null && queue.entries.isEmpty();
+                return idle ? null : queue;
+            }
+        });
+    }
+
+    private static class StationQueue {
+        private final String chargeBoxId;
+        private final PriorityQueue<Entry> entries = new PriorityQueue<>(ORDER);
+        private Entry inFlight;
+        private boolean draining;
+
+        private StationQueue(String chargeBoxId) {
+            this.chargeBoxId = chargeBoxId;
+        }
+    }
+
+    private static class Entry {
+        private final CallPriority priority;
+        private final long sequence;
+        private final String action;
+        private final Call call;
+        private final long submittedAtNanos = System.nanoTime();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private volatile StationQueue queue;
+
+        private Entry(CallPriority priority, long sequence, String action, Call call) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.action = action;
+            this.call = call;
+        }
+    }
+}
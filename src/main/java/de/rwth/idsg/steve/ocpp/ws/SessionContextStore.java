@@ -21,21 +21,25 @@ package de.rwth.idsg.steve.ocpp.ws;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Striped;
 import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.ocpp.OcppVersion;
 import de.rwth.idsg.steve.ocpp.ws.custom.WsSessionSelectStrategy;
 import de.rwth.idsg.steve.ocpp.ws.data.SessionContext;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionHealth;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionStats;
 import lombok.extern.slf4j.Slf4j;
 import org.joda.time.DateTime;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.locks.Lock;
+import java.util.function.ToIntFunction;
 
 import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
 
@@ -54,13 +58,23 @@ public class SessionContextStore {
 
     private final Striped<Lock> locks = Striped.lock(16);
 
-    private final WsSessionSelectStrategy wsSessionSelectStrategy = CONFIG.getOcpp().getWsSessionSelectStrategy();
+    private final WsSessionSelectStrategy wsSessionSelectStrategy;
+    private final ToIntFunction<WebSocketSession> pendingCalls;
 
-    public void add(String chargeBoxId, WebSocketSession session, ScheduledFuture pingSchedule) {
+    public SessionContextStore(ToIntFunction<WebSocketSession> pendingCalls) {
+        this(CONFIG.getOcpp().getWsSessionSelectStrategy(), pendingCalls);
+    }
+
+    SessionContextStore(WsSessionSelectStrategy wsSessionSelectStrategy, ToIntFunction<WebSocketSession> pendingCalls) {
+        this.wsSessionSelectStrategy = wsSessionSelectStrategy;
+        this.pendingCalls = pendingCalls;
+    }
+
+    public void add(String chargeBoxId, WebSocketSession session, SessionHealth health) {
         Lock l = locks.get(chargeBoxId);
         l.lock();
         try {
-            SessionContext context = new SessionContext(session, pingSchedule, DateTime.now());
+            SessionContext context = new SessionContext(session, DateTime.now(), health);
 
             Deque<SessionContext> endpointDeque = lookupTable.computeIfAbsent(chargeBoxId, str -> new ArrayDeque<>());
             endpointDeque.addLast(context); // Adding at the end
@@ -95,14 +109,12 @@ public class SessionContextStore {
             }
 
             if (toRemove != null) {
-                // 1. Cancel the ping task
-                toRemove.getPingSchedule().cancel(true);
-                // 2. Delete from collection
+                // 1. Delete from collection
                 if (endpointDeque.remove(toRemove)) {
                     log.debug("A SessionContext is removed for chargeBoxId '{}'. Store size: {}",
                             chargeBoxId, endpointDeque.size());
                 }
-                // 3. Delete empty collection from lookup table in order to correctly calculate
+                // 2. Delete empty collection from lookup table in order to correctly calculate
                 // the number of connected chargeboxes with getNumberOfChargeBoxes()
                 if (endpointDeque.size() == 0) {
                     lookupTable.remove(chargeBoxId);
@@ -122,7 +134,9 @@ public class SessionContextStore {
                 log.warn("ChargeBoxId '{}' is not connected", chargeBoxId);
                 throw new SteveException("No session context for chargeBoxId '" + chargeBoxId + "'");
             }
-            return wsSessionSelectStrategy.getSession(endpointDeque);
+            WebSocketSession session = wsSessionSelectStrategy.getSession(endpointDeque, pendingCalls);
+            markSelected(endpointDeque, session);
+            return session;
         } catch (NoSuchElementException e) {
             throw new SteveException("No session context for chargeBoxId '%s'", chargeBoxId, e);
         } finally {
@@ -130,6 +144,47 @@ public class SessionContextStore {
         }
     }
 
+    /**
+     * Sorted by chargeBoxId, and then in the order the sessions were opened
+     */
+    public List<SessionStats> getStats(OcppVersion version) {
+        long now = System.nanoTime();
+        List<SessionStats> list = new ArrayList<>();
+
+        for (Map.Entry<String, Deque<SessionContext>> entry : lookupTable.entrySet()) {
+            String chargeBoxId = entry.getKey();
+            Lock l = locks.get(chargeBoxId);
+            l.lock();
+            try {
+                Deque<SessionContext> endpointDeque = entry.getValue();
+                SessionContext newest = endpointDeque.peekLast();
+                for (SessionContext context : endpointDeque) {
+                    WebSocketSession session = context.getSession();
+                    SessionHealth health = context.getHealth();
+                    int pending = pendingCalls.applyAsInt(session);
+                    list.add(SessionStats.builder()
+                                         .chargeBoxId(chargeBoxId)
+                                         .sessionId(session.getId())
+                                         .ocppVersion(version.getValue())
+                                         .openSince(context.getOpenSince())
+                                         .newest(context == newest)
+                                         .selected(health.getSelectedCount())
+                                         .pendingCalls(pending)
+                                         .silenceMillis(health.getSilenceMillis(now))
+                                         .unansweredPingMillis(health.getUnansweredPingMillis(now))
+                                         .pongRttMillis(health.getPongRttMillis())
+                                         .healthScore(health.score(pending, now))
+                                         .build());
+                }
+            } finally {
+                l.unlock();
+            }
+        }
+
+        list.sort((a, b) -> a.getChargeBoxId().compareTo(b.getChargeBoxId()));
+        return list;
+    }
+
     public int getSize(String chargeBoxId) {
         Deque<SessionContext> endpointDeque = lookupTable.get(chargeBoxId);
         if (endpointDeque == null) {
@@ -150,4 +205,13 @@ public class SessionContextStore {
     public Map<String, Deque<SessionContext>> getACopy() {
         return ImmutableMap.copyOf(lookupTable);
     }
+
+    private static void markSelected(Deque<SessionContext> endpointDeque, WebSocketSession session) {
+        for (SessionContext context : endpointDeque) {
+            if (context.getSession() == session) {
+                context.getHealth().selected();
+                return;
+            }
+        }
+    }
 }
@@ -18,6 +18,7 @@
  */
 package de.rwth.idsg.steve.ocpp.ws;
 
+import com.fasterxml.jackson.databind.ObjectReader;
 import de.rwth.idsg.ocpp.jaxb.RequestType;
 import de.rwth.idsg.steve.ocpp.ws.data.ActionResponsePair;
 
@@ -40,4 +41,11 @@ public interface TypeStore {
      * Request JAXB class --> Action field, Response JAXB class
      */
     <T extends RequestType> ActionResponsePair findActionResponse(T requestPayload);
+
+    /**
+     * For incoming payloads (requests of the station and responses to our requests)
+     *
+     * JAXB class --> Reader that binds directly from the streaming parser
+     */
+    ObjectReader findReader(Class<?> payloadClass);
 }
@@ -19,12 +19,6 @@
 package de.rwth.idsg.steve.ocpp.ws;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import de.rwth.idsg.steve.myconfig.*;
-import de.rwth.idsg.steve.service.RfidTagService;
-import de.rwth.idsg.steve.web.controller.DataTransferHandler;
-import de.rwth.idsg.steve.web.controller.TariffController;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketSession;
@@ -51,26 +45,7 @@ public final class WebSocketLogger {
     }
 
     public static void sending(String chargeBoxId, WebSocketSession session, String msg) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(msg);
-
-            if (root.isArray() && root.size() >= 3) {
-                int messageType = root.get(0).asInt();
-                if (messageType == 2) { // CALL
-                    String messageId = root.get(1).asText();
-                    String event = root.get(2).asText(); // e.g., BootNotification, RemoteStartTransaction
-                    OcppMessageTracker.put(messageId, event); // ✅ Save for tracking
-                }
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse message for tracking", e);
-        }
-
         log.info("[chargeBoxId={}, sessionId={}] Sending: {}", chargeBoxId, session.getId(), msg);
-        String sessionId = session.getId();
-        String direction = "Sending" + chargeBoxId;
-        LogService.saveToDatabase(chargeBoxId, sessionId, msg, direction);
     }
 
     public static void sendingPing(String chargeBoxId, WebSocketSession session) {
@@ -82,51 +57,7 @@ public final class WebSocketLogger {
     }
 
     public static void receivedText(String chargeBoxId, WebSocketSession session, String msg) {
-        try {
-
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(msg);
-
-            if (root.isArray() && root.size() >= 3) {
-                int messageType = root.get(0).asInt();
-
-                if (messageType == 2) { // CALL from charge point
-                    String messageId = root.get(1).asText();
-                    String event = root.get(2).asText();
-                    JsonNode payload = root.get(3);
-
-                    OcppMessageTracker.put(messageId, event);
-
-                    //Handle Authorize (extract RFID)
-                    if ("Authorize".equalsIgnoreCase(event) && payload != null && payload.has("idTag")) {
-                        String idTag = payload.get("idTag").asText();
-                        String userIdTag = idTag;
-                        RfidTagService rfidService = SpringUtils.getBean(RfidTagService.class);
-                        rfidService.storeRfidTag(idTag, userIdTag);
-                    }
-
-                    //Handle DataTransfer (extract MAC)
-                    if ("DataTransfer".equalsIgnoreCase(event)) {
-                        DataTransferHandler handler = SpringUtils.getBean(DataTransferHandler.class);
-                        handler.handleDataTransfer(payload, chargeBoxId);
-                    }
-                    if ("StartTransaction".equalsIgnoreCase(event) && payload != null && payload.has("idTag")) {
-                        String idTag = payload.get("idTag").asText();
-
-                        TariffController controller = SpringUtils.getBean(TariffController.class);
-                        controller.calculateWithPhpFetch(chargeBoxId, idTag);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse received message for tracking", e);
-        }
-
-        //Save full raw log to DB
-        String sessionId = session.getId();
-        String direction = "Received by Server from " + chargeBoxId;
-        log.info("[chargeBoxId={}, sessionId={}] Received: {}", chargeBoxId, sessionId, msg);
-        LogService.saveToDatabase(chargeBoxId, sessionId, msg, direction);
+        log.info("[chargeBoxId={}, sessionId={}] Received: {}", chargeBoxId, session.getId(), msg);
     }
 
     public static void receivedEmptyText(String chargeBoxId, WebSocketSession session) {
@@ -0,0 +1,218 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.ws.data.WsMemoryStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * Keeps the memory of the WebSocket connections bounded, such that the heap can be sized for the number of stations.
+ *
+ * Outgoing: Every session buffers the messages its socket does not accept right away (see
+ * {@link BudgetedSessionDecorator}). All buffers share one budget, and the limit of a single session shrinks from
+ * its maximum towards its minimum as the budget fills up. This way, a few slow consumers can use large buffers while
+ * memory is plenty, but a burst of them cannot take the whole heap. A session that would exceed its limit is closed.
+ *
+ * Incoming: Besides the frame size limit of the container, CALLs can be limited per action.
+ */
+@Slf4j
+@Component
+public class WsMemoryManager {
+
+    private static final int LARGEST_BUFFERS_LIMIT = 10;
+
+    private final long budgetBytes;
+    private final int sessionMaxBytes;
+    private final int sessionMinBytes;
+    private final long sendTimeLimitMillis;
+    private final int maxTextMessageBytes;
+    private final Map<String, Integer> inboundMaxBytesPerAction;
+
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicLong peakBufferedBytes = new AtomicLong();
+    private final Set<BudgetedSessionDecorator> sessions = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder closedForBufferLimit = new LongAdder();
+    private final LongAdder closedForSendTimeLimit = new LongAdder();
+    private final Map<String, LongAdder> inboundRejected = new ConcurrentHashMap<>();
+
+    public WsMemoryManager() {
+        this(CONFIG.getWsMemory());
+    }
+
+    WsMemoryManager(SteveConfiguration.WsMemory config) {
+        this.budgetBytes = config.getSendBufferBudgetMb() * 1024L * 1024L;
+        this.sessionMaxBytes = config.getSessionMaxBufferKb() * 1024;
+        this.sessionMinBytes = config.getSessionMinBufferKb() * 1024;
+        this.sendTimeLimitMillis = TimeUnit.SECONDS.toMillis(config.getSendTimeLimitSeconds());
+        this.maxTextMessageBytes = config.getMaxTextMessageBytes();
+
+        Map<String, Integer> map = new TreeMap<>();
+        config.getInboundMaxKbPerAction().keySet().forEach(action -> map.put(action, config.getInboundMaxBytes(action)));
+        this.inboundMaxBytesPerAction = Collections.unmodifiableMap(map);
+    }
+
+    public WebSocketSession decorate(WebSocketSession session) {
+        BudgetedSessionDecorator decorator = new BudgetedSessionDecorator(session, this);
+        sessions.add(decorator);
+        return decorator;
+    }
+
+    // -------------------------------------------------------------------------
+    // Outgoing
+    // -------------------------------------------------------------------------
+
+    /**
+     * Linear between the maximum (budget empty) and the minimum (budget full)
+     */
+    int getSessionLimit() {
+        long free = budgetBytes - bufferedBytes.get();
+        if (free <= 0) {
+            return sessionMinBytes;
+        }
+        return (int) (sessionMinBytes + (sessionMaxBytes - sessionMinBytes) * free / budgetBytes);
+    }
+
+    /**
+     * A session with an empty buffer may always send (at least) one message. Otherwise, the message must fit into
+     * the limit of the session and into the budget.
+     *
+     * @return false, if the message does not fit. Nothing is reserved then.
+     */
+    boolean tryReserve(int sessionBufferedBytes, int size) {
+        boolean mustFit = sessionBufferedBytes > 0;
+        if (mustFit && sessionBufferedBytes + size > getSessionLimit()) {
+            return false;
+        }
+
+        long after = bufferedBytes.addAndGet(size);
+        if (mustFit && after > budgetBytes) {
+            bufferedBytes.addAndGet(-size);
+            return false;
+        }
+
+        peakBufferedBytes.accumulateAndGet(after, Math::max);
+        return true;
+    }
+
+    void release(int size) {
+        bufferedBytes.addAndGet(-size);
+    }
+
+    long getSendTimeLimitMillis() {
+        return sendTimeLimitMillis;
+    }
+
+    void closedForBufferLimit() {
+        closedForBufferLimit.increment();
+    }
+
+    void closedForSendTimeLimit() {
+        closedForSendTimeLimit.increment();
+    }
+
+    void unregister(BudgetedSessionDecorator decorator) {
+        sessions.remove(decorator);
+    }
+
+    // -------------------------------------------------------------------------
+    // Incoming
+    // -------------------------------------------------------------------------
+
+    public boolean hasInboundLimits() {
+        return !inboundMaxBytesPerAction.isEmpty();
+    }
+
+    public int getInboundMaxBytes(String action) {
+        return inboundMaxBytesPerAction.getOrDefault(action, maxTextMessageBytes);
+    }
+
+    /**
+     * The length of the String is used as the size. OCPP-J messages are (almost) ASCII, and this is what they take
+     * on the heap.
+     */
+    public boolean isInboundAllowed(String action, int length) {
+        if (length <= getInboundMaxBytes(action)) {
+            return true;
+        }
+        inboundRejected.computeIfAbsent(action, k -> new LongAdder()).increment();
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Stats
+    // -------------------------------------------------------------------------
+
+    public WsMemoryStats getStats() {
+        List<BudgetedSessionDecorator> buffering = new ArrayList<>();
+        for (BudgetedSessionDecorator session : sessions) {
+            if (session.getBufferedBytes() > 0) {
+                buffering.add(session);
+            }
+        }
+        buffering.sort((a, b) -> Integer.compare(b.getBufferedBytes(), a.getBufferedBytes()));
+
+        List<WsMemoryStats.Session> largest = new ArrayList<>(Math.min(buffering.size(), LARGEST_BUFFERS_LIMIT));
+        for (BudgetedSessionDecorator session : buffering.subList(0, Math.min(buffering.size(), LARGEST_BUFFERS_LIMIT))) {
+            largest.add(WsMemoryStats.Session.builder()
+                                             .chargeBoxId(session.getChargeBoxId())
+                                             .sessionId(session.getId())
+                                             .bufferedBytes(session.getBufferedBytes())
+                                             .bufferedMessages(session.getBufferedMessages())
+                                             .sendingForMillis(session.getSendingForMillis())
+                                             .build());
+        }
+
+        Map<String, Long> rejected = new TreeMap<>();
+        inboundRejected.forEach((action, count) -> rejected.put(action, count.sum()));
+
+        return WsMemoryStats.builder()
+                            .budgetBytes(budgetBytes)
+                            .bufferedBytes(bufferedBytes.get())
+                            .peakBufferedBytes(peakBufferedBytes.get())
+                            .sessionMaxBytes(sessionMaxBytes)
+                            .sessionMinBytes(sessionMinBytes)
+                            .currentSessionLimitBytes(getSessionLimit())
+                            .sessions(sessions.size())
+                            .bufferingSessions(buffering.size())
+                            .closedForBufferLimit(closedForBufferLimit.sum())
+                            .closedForSendTimeLimit(closedForSendTimeLimit.sum())
+                            .maxTextMessageBytes(maxTextMessageBytes)
+                            .inboundMaxBytesPerAction(inboundMaxBytesPerAction)
+                            .inboundRejectedPerAction(rejected)
+                            .largestBuffers(largest)
+                            .build();
+    }
+}
@@ -22,15 +22,19 @@ import de.rwth.idsg.steve.ocpp.ws.data.SessionContext;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.Deque;
+import java.util.function.ToIntFunction;
 
 /**
  * We want to support multiple connections to a charge point. For sending messages we need a
  * mechanism to select one WebSocketSession. Implementations of this interface should use
  * different mechanisms to realize that.
  *
+ * The selection is called under the lock of the station, with a non-empty deque in the order the sessions were
+ * opened. pendingCalls returns the number of our calls that wait for a response on a session.
+ *
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 30.04.2015
  */
 public interface WsSessionSelectStrategy {
-    WebSocketSession getSession(Deque<SessionContext> sessionContexts);
+    WebSocketSession getSession(Deque<SessionContext> sessionContexts, ToIntFunction<WebSocketSession> pendingCalls);
 }
@@ -23,6 +23,8 @@ import lombok.Getter;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.ToIntFunction;
 
 /**
  * @author Sevket Goekay <sevketgokay@gmail.com>
@@ -36,7 +38,8 @@ public enum WsSessionSelectStrategyEnum implements WsSessionSelectStrategy {
          * Always use the last opened session/connection.
          */
         @Override
-        public WebSocketSession getSession(Deque<SessionContext> sessionContexts) {
+        public WebSocketSession getSession(Deque<SessionContext> sessionContexts,
+                                           ToIntFunction<WebSocketSession> pendingCalls) {
             return sessionContexts.getLast().getSession();
         }
     },
@@ -47,12 +50,46 @@ public enum WsSessionSelectStrategyEnum implements WsSessionSelectStrategy {
          * This would allow to distribute load to different connections.
          */
         @Override
-        public WebSocketSession getSession(Deque<SessionContext> sessionContexts) {
+        public WebSocketSession getSession(Deque<SessionContext> sessionContexts,
+                                           ToIntFunction<WebSocketSession> pendingCalls) {
             // Remove the first item, and add at the end
             SessionContext s = sessionContexts.removeFirst();
             sessionContexts.addLast(s);
             return s.getSession();
         }
+    },
+
+    HEALTHIEST {
+        /**
+         * The session with the best {@link de.rwth.idsg.steve.ocpp.ws.data.SessionHealth#score(int, long)}, such
+         * that a stale half-open connection is not preferred over a fresh one. Ties go to the last opened session.
+         * The deque is not modified.
+         */
+        @Override
+        public WebSocketSession getSession(Deque<SessionContext> sessionContexts,
+                                           ToIntFunction<WebSocketSession> pendingCalls) {
+            long now = System.nanoTime();
+
+            SessionContext best = null;
+            long bestScore = Long.MAX_VALUE;
+
+            Iterator<SessionContext> it = sessionContexts.descendingIterator();
+            while (it.hasNext()) {
+                SessionContext context = it.next();
+                WebSocketSession session = context.getSession();
+                if (!session.isOpen()) {
+                    continue;
+                }
+
+                long score = context.getHealth().score(pendingCalls.applyAsInt(session), now);
+                if (score < bestScore) {
+                    best = context;
+                    bestScore = score;
+                }
+            }
+
+            return (best == null) ? sessionContexts.getLast().getSession() : best.getSession();
+        }
     };
 
     public static WsSessionSelectStrategy fromName(String v) {
@@ -0,0 +1,66 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Order of the CALLs that wait in the outgoing queue of a station. Within the same priority, CALLs are sent in the
+ * order they were submitted.
+ */
+public enum CallPriority {
+
+    /**
+     * Actions with an immediate effect on a charging session (and its billing)
+     */
+    HIGH,
+
+    NORMAL,
+
+    /**
+     * Reads and long-running maintenance actions that can wait
+     */
+    LOW;
+
+    private static final Set<String> HIGH_ACTIONS = ImmutableSet.of(
+            "RemoteStopTransaction",
+            "RemoteStartTransaction",
+            "UnlockConnector"
+    );
+
+    private static final Set<String> LOW_ACTIONS = ImmutableSet.of(
+            "GetConfiguration",
+            "GetDiagnostics",
+            "GetLocalListVersion",
+            "GetCompositeSchedule",
+            "UpdateFirmware"
+    );
+
+    public static CallPriority fromAction(String action) {
+        if (HIGH_ACTIONS.contains(action)) {
+            return HIGH;
+        } else if (LOW_ACTIONS.contains(action)) {
+            return LOW;
+        } else {
+            return NORMAL;
+        }
+    }
+}
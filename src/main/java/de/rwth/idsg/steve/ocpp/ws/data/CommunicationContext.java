@@ -50,6 +50,10 @@ public class CommunicationContext {
     @Setter private OcppJsonMessage incomingMessage;
     @Setter private OcppJsonMessage outgoingMessage;
 
+    // the frames above, read or written only once by the pipeline
+    @Setter private OcppJsonEnvelope incomingEnvelope;
+    @Setter private OcppJsonEnvelope outgoingEnvelope;
+
     @Setter private FutureResponseContext futureResponseContext;
 
     // for incoming responses to previously sent requests
@@ -0,0 +1,71 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import de.rwth.idsg.steve.ocpp.OcppVersion;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.joda.time.DateTime;
+
+import java.util.List;
+
+/**
+ * Immutable view of the WebSocket connection(s) of one charge point. A new instance replaces the old one with every
+ * change, so readers never see a half-updated state.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ConnectionInfo {
+    private final String chargeBoxId;
+
+    /**
+     * The version negotiated by the most recent session
+     */
+    private final OcppVersion version;
+
+    /**
+     * Since when the charge point has been continuously connected with at least one session
+     */
+    private final DateTime connectedSince;
+
+    /**
+     * The open sessions, oldest first. A charge point might have more than one (e.g. when it reconnects before the
+     * old connection is closed), even with different versions. Unmodifiable.
+     */
+    private final List<Session> sessions;
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public boolean hasVersion(OcppVersion version) {
+        return sessions.stream().anyMatch(s -> s.getVersion() == version);
+    }
+
+    @Getter
+    @ToString
+    @RequiredArgsConstructor
+    public static class Session {
+        private final String sessionId;
+        private final OcppVersion version;
+        private final DateTime openSince;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@Builder
+public class DispatcherStats {
+    private final int workerThreads;
+    private final int activeWorkers;
+    private final int laneQueueCapacity;
+    private final int lanes;
+    private final long queued;
+    private final long submitted;
+    private final long completed;
+    private final long failed;
+    private final long rejected;
+
+    /**
+     * The part of the rejected messages that were CALLs and got answered with a CALLERROR
+     */
+    private final long rejectedCallsAnswered;
+    private final double avgQueueWaitMillis;
+    private final long maxQueueWaitMillis;
+    private final double avgServiceMillis;
+    private final long maxServiceMillis;
+
+    /**
+     * Only the lanes that have messages waiting, keyed by chargeBoxId
+     */
+    private final Map<String, Integer> laneDepths;
+}
@@ -0,0 +1,46 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Retransmitted CALLs that were answered with the cached response, instead of being processed again
+ */
+@Getter
+@Builder
+public class DuplicateCallStats {
+    private final int sizePerStation;
+    private final int ttlSeconds;
+    private final int stations;
+    private final int entries;
+    private final long lookups;
+    private final long hits;
+    private final double hitRate;
+
+    /**
+     * Same messageId, but a different payload. Processed normally.
+     */
+    private final long idCollisions;
+
+    private final Map<String, Long> hitsPerAction;
+}
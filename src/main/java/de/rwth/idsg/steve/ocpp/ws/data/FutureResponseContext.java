@@ -33,5 +33,14 @@ import lombok.Setter;
 @RequiredArgsConstructor
 public class FutureResponseContext {
     private final CommunicationTask task;
+    private final String chargeBoxId;
+    private final String action;
     private final Class<? extends ResponseType> responseClass;
+
+    // set when the call is sent, i.e. stored in FutureResponseContextStore
+    private long sentAtNanos;
+    private long deadlineNanos;
+
+    // run once, when the context leaves the store (answered, timed out or connection closed)
+    private Runnable completionCallback;
 }
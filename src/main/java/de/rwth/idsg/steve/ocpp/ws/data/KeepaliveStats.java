@@ -0,0 +1,60 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * WebSocket pings, and the connections that were closed because they did not answer
+ */
+@Getter
+@Builder
+public class KeepaliveStats {
+    private final int sessions;
+    private final int pingIntervalSeconds;
+    private final int maxMissedPongs;
+
+    private final long pingsSent;
+    private final long pingFailures;
+    private final long closedForMissedPongs;
+
+    /**
+     * Sessions whose last ping is not answered (yet)
+     */
+    private final int awaitingPong;
+
+    private final double avgPongRttMillis;
+    private final long maxPongRttMillis;
+
+    /**
+     * Top 10 by the last pong RTT
+     */
+    private final List<Session> slowest;
+
+    @Getter
+    @Builder
+    public static class Session {
+        private final String chargeBoxId;
+        private final String sessionId;
+        private final long pongRttMillis;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The frame header and payload of an OCPP-J message, as it was read (incoming) or written (outgoing) exactly once
+ * by the pipeline. Everything downstream of the (de)serialization (tracking, journaling, side effects) should read
+ * from this instead of parsing the raw string again.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+public class OcppJsonEnvelope {
+
+    private final MessageType messageType;
+    private final String messageId;
+
+    /**
+     * For CALLs the action of the frame. For CALL_RESULTs and CALL_ERRORs the action of the CALL they belong to,
+     * if it is known.
+     */
+    @Nullable private String action;
+
+    /**
+     * The payload as it appears in the frame (no re-serialization). Not set for CALL_ERRORs and for payloads which
+     * could not be read.
+     */
+    @Nullable private String rawPayload;
+
+    /**
+     * The bound payload: RequestType for CALLs, ResponseType for CALL_RESULTs, OcppJsonError for CALL_ERRORs.
+     */
+    @Nullable private Object payload;
+
+    public boolean isAction(String other) {
+        return other.equalsIgnoreCase(action);
+    }
+
+    /**
+     * True for missing, null and {} payloads.
+     */
+    public boolean isEmptyPayload() {
+        if (rawPayload == null) {
+            return true;
+        }
+
+        String s = rawPayload.trim();
+        if (s.isEmpty() || "null".equals(s)) {
+            return true;
+        }
+
+        return s.charAt(0) == '{'
+            && s.charAt(s.length() - 1) == '}'
+            && s.substring(1, s.length() - 1).isBlank();
+    }
+}
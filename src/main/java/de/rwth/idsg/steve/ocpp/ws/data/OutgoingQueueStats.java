@@ -0,0 +1,58 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outgoing CALLs that wait for their turn, since only one CALL per station can be in flight
+ */
+@Getter
+@Builder
+public class OutgoingQueueStats {
+    private final int capacityPerStation;
+    private final int queued;
+    private final int inFlight;
+    private final long submitted;
+    private final long sent;
+    private final long rejected;
+
+    /**
+     * Average time between the submission and the sending of a CALL
+     */
+    private final double avgWaitMillis;
+    private final long maxWaitMillis;
+
+    /**
+     * Only the stations with a queued or in-flight CALL, sorted by the number of queued CALLs, descending
+     */
+    private final List<Station> stations;
+
+    @Getter
+    @Builder
+    public static class Station {
+        private final String chargeBoxId;
+        private final int queued;
+        private final String inFlightAction;
+        private final long oldestQueuedAgeMillis;
+    }
+}
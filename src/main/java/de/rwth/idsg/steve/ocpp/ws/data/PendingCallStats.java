@@ -0,0 +1,41 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Outgoing calls of one station that wait for a response
+ */
+@Getter
+@Builder
+public class PendingCallStats {
+    private final String chargeBoxId;
+    private final int pending;
+    private final long oldestAgeMillis;
+    private final long sent;
+    private final long timedOut;
+    private final long lateResponses; // responses that arrived after the call timed out, and were dropped
+
+    /**
+     * timedOut / sent
+     */
+    private final double timeoutRate;
+}
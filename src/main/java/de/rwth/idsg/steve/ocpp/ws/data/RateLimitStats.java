@@ -0,0 +1,52 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class RateLimitStats {
+    private final boolean enabled;
+    private final long admitted;
+    private final long rejected;
+    private final long rejectedGlobal;
+    private final long closedSessions;
+
+    /**
+     * The charge points with the most rejected calls, in descending order
+     */
+    private final List<Offender> topOffenders;
+
+    @Getter
+    @Builder
+    public static class Offender {
+        private final String chargeBoxId;
+        private final long rejected;
+        private final long rejectedMeterValues;
+        private final long rejectedTransactional;
+        private final long rejectedOther;
+        private final long closedSessions;
+        private final DateTime lastRejected;
+    }
+}
@@ -23,8 +23,6 @@ import lombok.RequiredArgsConstructor;
 import org.joda.time.DateTime;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.util.concurrent.ScheduledFuture;
-
 /**
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 25.03.2015
@@ -33,6 +31,6 @@ import java.util.concurrent.ScheduledFuture;
 @RequiredArgsConstructor
 public class SessionContext {
     private final WebSocketSession session;
-    private final ScheduledFuture pingSchedule;
     private final DateTime openSince;
+    private final SessionHealth health;
 }
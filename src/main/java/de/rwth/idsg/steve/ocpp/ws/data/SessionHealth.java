@@ -0,0 +1,112 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liveness signals of one WebSocket session, used to select the healthiest session of a station with multiple
+ * connections. A half-open connection stops receiving anything, leaves its pings unanswered and its calls pending.
+ *
+ * Written by the WebSocket threads and read by the session selection, without locking.
+ */
+public class SessionHealth {
+
+    /**
+     * A pending call weighs as much as this much silence on the connection
+     */
+    private static final long PENDING_CALL_PENALTY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private volatile long lastReceivedAtNanos = System.nanoTime();
+
+    // 0, if there is no unanswered ping
+    private volatile long pingSentAtNanos;
+
+    // -1, if no pong arrived yet
+    private volatile long pongRttNanos = -1;
+
+    private final LongAdder selected = new LongAdder();
+
+    public void received() {
+        lastReceivedAtNanos = System.nanoTime();
+    }
+
+    public void pingSent() {
+        // keep the oldest unanswered ping, such that its age keeps growing
+        if (pingSentAtNanos == 0) {
+            pingSentAtNanos = System.nanoTime();
+        }
+    }
+
+    public void pongReceived() {
+        long now = System.nanoTime();
+        long sentAt = pingSentAtNanos;
+        if (sentAt != 0) {
+            pongRttNanos = now - sentAt;
+            pingSentAtNanos = 0;
+        }
+        lastReceivedAtNanos = now;
+    }
+
+    public void selected() {
+        selected.increment();
+    }
+
+    public long getSelectedCount() {
+        return selected.sum();
+    }
+
+    /**
+     * Whether a ping is unanswered and nothing else arrived since it was sent either
+     */
+    public boolean isSilentSincePing() {
+        long sentAt = pingSentAtNanos;
+        return sentAt != 0 && lastReceivedAtNanos - sentAt < 0;
+    }
+
+    public long getSilenceMillis(long now) {
+        return TimeUnit.NANOSECONDS.toMillis(now - lastReceivedAtNanos);
+    }
+
+    public long getUnansweredPingMillis(long now) {
+        long sentAt = pingSentAtNanos;
+        return sentAt == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(now - sentAt);
+    }
+
+    /**
+     * @return null, if no pong arrived yet
+     */
+    public Long getPongRttMillis() {
+        long rtt = pongRttNanos;
+        return rtt < 0 ? null : TimeUnit.NANOSECONDS.toMillis(rtt);
+    }
+
+    /**
+     * Lower is healthier. The sum of the time since the last received frame, the age of an unanswered ping (twice,
+     * since a healthy connection answers within its RTT), the last pong RTT and a penalty per pending call.
+     */
+    public long score(int pendingCalls, long now) {
+        Long rtt = getPongRttMillis();
+        return getSilenceMillis(now)
+                + 2 * getUnansweredPingMillis(now)
+                + (rtt == null ? 0 : rtt)
+                + pendingCalls * PENDING_CALL_PENALTY_MILLIS;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+/**
+ * One WebSocket session of a station, with the signals that the session selection is based on
+ */
+@Getter
+@Builder
+public class SessionStats {
+    private final String chargeBoxId;
+    private final String sessionId;
+    private final String ocppVersion;
+    private final DateTime openSince;
+
+    /**
+     * Whether it is the last opened session of the station (which ALWAYS_LAST would select)
+     */
+    private final boolean newest;
+
+    /**
+     * How often it was selected for an outgoing call
+     */
+    private final long selected;
+
+    private final int pendingCalls;
+    private final long silenceMillis;
+    private final long unansweredPingMillis;
+    private final Long pongRttMillis;
+
+    /**
+     * See {@link SessionHealth#score(int, long)}. Lower is healthier.
+     */
+    private final long healthScore;
+}
@@ -0,0 +1,67 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.data;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory of the WebSocket connections: the send buffers and the limits of incoming frames
+ */
+@Getter
+@Builder
+public class WsMemoryStats {
+    private final long budgetBytes;
+    private final long bufferedBytes;
+    private final long peakBufferedBytes;
+    private final int sessionMaxBytes;
+    private final int sessionMinBytes;
+
+    /**
+     * The limit of a session right now. Shrinks from sessionMaxBytes towards sessionMinBytes as the budget fills up.
+     */
+    private final int currentSessionLimitBytes;
+
+    private final int sessions;
+    private final int bufferingSessions;
+    private final long closedForBufferLimit;
+    private final long closedForSendTimeLimit;
+
+    private final int maxTextMessageBytes;
+    private final Map<String, Integer> inboundMaxBytesPerAction;
+    private final Map<String, Long> inboundRejectedPerAction;
+
+    /**
+     * The sessions with the most buffered bytes, descending
+     */
+    private final List<Session> largestBuffers;
+
+    @Getter
+    @Builder
+    public static class Session {
+        private final String chargeBoxId;
+        private final String sessionId;
+        private final int bufferedBytes;
+        private final int bufferedMessages;
+        private final long sendingForMillis;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.hook;
+
+import de.rwth.idsg.ocpp.jaxb.RequestType;
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.service.RfidTagService;
+import lombok.RequiredArgsConstructor;
+import ocpp.cs._2015._10.AuthorizeRequest;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Remembers the RFID tags that the charge points ask about.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthorizeRfidTagHook implements PostProcessingHook {
+
+    private final RfidTagService rfidTagService;
+
+    @Override
+    public String getName() {
+        return "AuthorizeRfidTag";
+    }
+
+    @Override
+    public Set<String> getActions() {
+        return Set.of("Authorize");
+    }
+
+    @Override
+    public void accept(String chargeBoxId, RequestType request, @Nullable ResponseType response) {
+        String idTag = ((AuthorizeRequest) request).getIdTag();
+        if (idTag != null) {
+            rfidTagService.storeRfidTag(idTag, idTag);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.hook;
+
+import de.rwth.idsg.ocpp.jaxb.RequestType;
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.web.controller.DataTransferHandler;
+import lombok.RequiredArgsConstructor;
+import ocpp.cs._2015._10.DataTransferRequest;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Forwards the data of DataTransfer requests (e.g. the MAC address) to {@link DataTransferHandler}.
+ */
+@Component
+@RequiredArgsConstructor
+public class DataTransferHook implements PostProcessingHook {
+
+    private final DataTransferHandler dataTransferHandler;
+
+    @Override
+    public String getName() {
+        return "DataTransfer";
+    }
+
+    @Override
+    public Set<String> getActions() {
+        return Set.of("DataTransfer");
+    }
+
+    @Override
+    public void accept(String chargeBoxId, RequestType request, @Nullable ResponseType response) {
+        dataTransferHandler.handleDataTransfer(((DataTransferRequest) request).getData(), chargeBoxId);
+    }
+}
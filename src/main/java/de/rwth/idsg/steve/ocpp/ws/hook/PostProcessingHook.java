@@ -0,0 +1,51 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.hook;
+
+import de.rwth.idsg.ocpp.jaxb.RequestType;
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * Business logic that should run after an incoming OCPP-J CALL of the charge point has been answered, and which the
+ * charge point does not need to wait for. Every Spring bean implementing this interface is registered in
+ * {@link PostProcessingHookRegistry}.
+ */
+public interface PostProcessingHook {
+
+    /**
+     * Name used in logs and metrics
+     */
+    String getName();
+
+    /**
+     * OCPP actions (e.g. "Authorize") this hook is interested in. Matched case-insensitively.
+     */
+    Set<String> getActions();
+
+    /**
+     * @param request   the request of the charge point, as the OCPP 1.6 class (ocpp.cs._2015._10 package) of the
+     *                  action, whatever the OCPP version of the station is
+     * @param response  the response that was sent (in the OCPP version of the station), or null if the request was
+     *                  answered with a CALLERROR
+     */
+    void accept(String chargeBoxId, RequestType request, @Nullable ResponseType response) throws Exception;
+}
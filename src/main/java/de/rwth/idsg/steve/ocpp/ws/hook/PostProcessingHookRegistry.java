@@ -0,0 +1,211 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.hook;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.ocpp.jaxb.RequestType;
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.ws.JsonObjectMapper;
+import de.rwth.idsg.steve.ocpp.ws.ocpp16.Ocpp16TypeStore;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * Runs the {@link PostProcessingHook}s of an OCPP action after the response has been sent to the charge point.
+ *
+ * Every hook invocation is a separate task: a failing hook does not affect the other hooks of the same message, and
+ * a slow hook does not delay the OCPP response. The tasks of a charge point always go to the same single-threaded,
+ * bounded executor (one of {@link de.rwth.idsg.steve.SteveConfiguration.Hooks#getThreads()}), such that they run in
+ * the order of its messages, like the messages themselves. If the queue of the executor is full, the invocation is
+ * dropped and counted as rejected.
+ *
+ * The hooks get the request as the OCPP 1.6 class of the action (see {@link Ocpp16TypeStore}), whatever the version
+ * of the station is. The fields that exist in the older versions have the same names.
+ */
+@Slf4j
+@Component
+public class PostProcessingHookRegistry {
+
+    private final Map<String, List<Entry>> hooksByAction;
+    private final List<Entry> entries;
+    private final ThreadPoolExecutor[] executors;
+
+    @Autowired
+    public PostProcessingHookRegistry(List<PostProcessingHook> hooks) {
+        this(hooks, CONFIG.getHooks());
+    }
+
+    PostProcessingHookRegistry(List<PostProcessingHook> hooks, SteveConfiguration.Hooks config) {
+        Map<String, List<Entry>> map = new HashMap<>();
+        List<Entry> list = new ArrayList<>(hooks.size());
+        for (PostProcessingHook hook : hooks) {
+            Entry entry = new Entry(hook);
+            list.add(entry);
+            for (String action : hook.getActions()) {
+                map.computeIfAbsent(normalize(action), k -> new ArrayList<>()).add(entry);
+            }
+            log.info("Registered post-processing hook '{}' for {}", hook.getName(), hook.getActions());
+        }
+        this.hooksByAction = Collections.unmodifiableMap(map);
+        this.entries = Collections.unmodifiableList(list);
+
+        int threads = Math.max(1, config.getThreads());
+        int queueCapacity = Math.max(1, config.getQueueCapacity() / threads);
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("SteVe-Hook-%d").build();
+
+        this.executors = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            executors[i] = new ThreadPoolExecutor(
+                    1, 1,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    threadFactory
+            );
+        }
+    }
+
+    public boolean hasHooks(String action) {
+        return hooksByAction.containsKey(normalize(action));
+    }
+
+    /**
+     * Does not wait for the hooks to run.
+     */
+    public void submit(String chargeBoxId, String action, RequestType request, @Nullable ResponseType response) {
+        List<Entry> hooks = hooksByAction.get(normalize(action));
+        if (hooks == null) {
+            return;
+        }
+
+        ThreadPoolExecutor executor = executors[Math.floorMod(chargeBoxId.hashCode(), executors.length)];
+        for (Entry entry : hooks) {
+            try {
+                executor.execute(() -> entry.run(chargeBoxId, action, request, response));
+            } catch (RejectedExecutionException e) {
+                entry.rejected.increment();
+                log.warn("[chargeBoxId={}] Post-processing hook '{}' for {} is rejected, the executor is saturated",
+                        chargeBoxId, entry.hook.getName(), action);
+            }
+        }
+    }
+
+    public List<HookStats> getStats() {
+        return entries.stream()
+                      .map(Entry::toStats)
+                      .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        for (ThreadPoolExecutor executor : executors) {
+            executor.shutdown();
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            for (ThreadPoolExecutor executor : executors) {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    log.warn("Killing non-finished post-processing hooks");
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (ThreadPoolExecutor executor : executors) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static String normalize(String action) {
+        return action.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The classes of the older versions are mapped by their field names to the OCPP 1.6 class of the same action
+     */
+    private static RequestType toOcpp16(String action, RequestType request) {
+        Class<? extends RequestType> ocpp16Class = Ocpp16TypeStore.INSTANCE.findRequestClass(action);
+        if (ocpp16Class == null || ocpp16Class.isInstance(request)) {
+            return request;
+        }
+        return JsonObjectMapper.INSTANCE.getMapper().convertValue(request, ocpp16Class);
+    }
+
+    private static class Entry {
+        private final PostProcessingHook hook;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Entry(PostProcessingHook hook) {
+            this.hook = hook;
+        }
+
+        private void run(String chargeBoxId, String action, RequestType request, @Nullable ResponseType response) {
+            long start = System.nanoTime();
+            try {
+                hook.accept(chargeBoxId, toOcpp16(action, request), response);
+            } catch (Exception e) {
+                failures.increment();
+                log.error("[chargeBoxId={}] Post-processing hook '{}' failed", chargeBoxId, hook.getName(), e);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                invocations.increment();
+                totalNanos.add(nanos);
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        private HookStats toStats() {
+            long count = invocations.sum();
+            return HookStats.builder()
+                            .name(hook.getName())
+                            .invocations(count)
+                            .failures(failures.sum())
+                            .rejected(rejected.sum())
+                            .avgMillis(count == 0 ? 0 : (double) totalNanos.sum() / count / 1_000_000)
+                            .maxMillis(TimeUnit.NANOSECONDS.toMillis(maxNanos.get()))
+                            .build();
+        }
+    }
+}
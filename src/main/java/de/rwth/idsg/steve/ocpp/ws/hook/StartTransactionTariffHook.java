@@ -0,0 +1,57 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.hook;
+
+import de.rwth.idsg.ocpp.jaxb.RequestType;
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.web.controller.TariffController;
+import lombok.RequiredArgsConstructor;
+import ocpp.cs._2015._10.StartTransactionRequest;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Calculates the tariff of a transaction when it is started.
+ */
+@Component
+@RequiredArgsConstructor
+public class StartTransactionTariffHook implements PostProcessingHook {
+
+    private final TariffController tariffController;
+
+    @Override
+    public String getName() {
+        return "StartTransactionTariff";
+    }
+
+    @Override
+    public Set<String> getActions() {
+        return Set.of("StartTransaction");
+    }
+
+    @Override
+    public void accept(String chargeBoxId, RequestType request, @Nullable ResponseType response) {
+        String idTag = ((StartTransactionRequest) request).getIdTag();
+        if (idTag != null) {
+            tariffController.calculateWithPhpFetch(chargeBoxId, idTag);
+        }
+    }
+}
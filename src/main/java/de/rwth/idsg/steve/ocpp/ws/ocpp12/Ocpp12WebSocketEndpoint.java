@@ -20,14 +20,18 @@ package de.rwth.idsg.steve.ocpp.ws.ocpp12;
 
 import de.rwth.idsg.ocpp.jaxb.RequestType;
 import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.myconfig.LogService;
 import de.rwth.idsg.steve.ocpp.OcppProtocol;
 import de.rwth.idsg.steve.ocpp.OcppVersion;
 import de.rwth.idsg.steve.ocpp.soap.CentralSystemService12_SoapServer;
 import de.rwth.idsg.steve.ocpp.ws.AbstractWebSocketEndpoint;
+import de.rwth.idsg.steve.ocpp.ws.DuplicateCallCache;
 import de.rwth.idsg.steve.ocpp.ws.FutureResponseContextStore;
+import de.rwth.idsg.steve.ocpp.ws.hook.PostProcessingHookRegistry;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.AbstractCallHandler;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.Deserializer;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.IncomingPipeline;
+import de.rwth.idsg.steve.ocpp.ws.pipeline.Sender;
 import de.rwth.idsg.steve.service.ScheduledChargingServiceup;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -56,13 +60,18 @@ public class Ocpp12WebSocketEndpoint extends AbstractWebSocketEndpoint {
 
     @Autowired private CentralSystemService12_SoapServer server;
     @Autowired private FutureResponseContextStore futureResponseContextStore;
+    @Autowired private PostProcessingHookRegistry hookRegistry;
+    @Autowired private DuplicateCallCache duplicateCallCache;
+    @Autowired private Sender sender;
+    @Autowired private LogService logService;
     private Map<String, WebSocketConnection> clientMap;
     @Autowired private ScheduledChargingServiceup scheduledCharging;
 
     @PostConstruct
     public void init() {
         Deserializer deserializer = new Deserializer(futureResponseContextStore, Ocpp12TypeStore.INSTANCE);
-        IncomingPipeline pipeline = new IncomingPipeline(deserializer, new Ocpp12CallHandler(server));
+        IncomingPipeline pipeline = new IncomingPipeline(deserializer, new Ocpp12CallHandler(server), hookRegistry,
+                                                         duplicateCallCache, sender, logService);
         super.init(pipeline);
     }
 
@@ -20,15 +20,19 @@ package de.rwth.idsg.steve.ocpp.ws.ocpp15;
 
 import de.rwth.idsg.ocpp.jaxb.RequestType;
 import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.myconfig.LogService;
 import de.rwth.idsg.steve.ocpp.OcppProtocol;
 import de.rwth.idsg.steve.ocpp.OcppVersion;
 import de.rwth.idsg.steve.ocpp.soap.CentralSystemService15_SoapServer;
 import de.rwth.idsg.steve.ocpp.ws.AbstractWebSocketEndpoint;
+import de.rwth.idsg.steve.ocpp.ws.DuplicateCallCache;
 import de.rwth.idsg.steve.ocpp.ws.FutureResponseContextStore;
 import de.rwth.idsg.steve.ocpp.ws.SessionContextStore;
+import de.rwth.idsg.steve.ocpp.ws.hook.PostProcessingHookRegistry;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.AbstractCallHandler;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.Deserializer;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.IncomingPipeline;
+import de.rwth.idsg.steve.ocpp.ws.pipeline.Sender;
 import lombok.RequiredArgsConstructor;
 import ocpp.cs._2012._06.AuthorizeRequest;
 import ocpp.cs._2012._06.BootNotificationRequest;
@@ -58,12 +62,17 @@ public class Ocpp15WebSocketEndpoint extends AbstractWebSocketEndpoint {
 
     @Autowired private CentralSystemService15_SoapServer server;
     @Autowired private FutureResponseContextStore futureResponseContextStore;
+    @Autowired private PostProcessingHookRegistry hookRegistry;
+    @Autowired private DuplicateCallCache duplicateCallCache;
+    @Autowired private Sender sender;
+    @Autowired private LogService logService;
     private Map<String, WebSocketConnection> clientMap;
 
     @PostConstruct
     public void init() {
         Deserializer deserializer = new Deserializer(futureResponseContextStore, Ocpp15TypeStore.INSTANCE);
-        IncomingPipeline pipeline = new IncomingPipeline(deserializer, new Ocpp15CallHandler(server));
+        IncomingPipeline pipeline = new IncomingPipeline(deserializer, new Ocpp15CallHandler(server), hookRegistry,
+                                                         duplicateCallCache, sender, logService);
         super.init(pipeline);
     }
 
@@ -20,15 +20,19 @@ package de.rwth.idsg.steve.ocpp.ws.ocpp16;
 
 import de.rwth.idsg.ocpp.jaxb.RequestType;
 import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.myconfig.LogService;
 import de.rwth.idsg.steve.myconfig.WebhookSender;
 import de.rwth.idsg.steve.ocpp.OcppProtocol;
 import de.rwth.idsg.steve.ocpp.OcppVersion;
 import de.rwth.idsg.steve.ocpp.soap.CentralSystemService16_SoapServer;
 import de.rwth.idsg.steve.ocpp.ws.AbstractWebSocketEndpoint;
+import de.rwth.idsg.steve.ocpp.ws.DuplicateCallCache;
 import de.rwth.idsg.steve.ocpp.ws.FutureResponseContextStore;
+import de.rwth.idsg.steve.ocpp.ws.hook.PostProcessingHookRegistry;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.AbstractCallHandler;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.Deserializer;
 import de.rwth.idsg.steve.ocpp.ws.pipeline.IncomingPipeline;
+import de.rwth.idsg.steve.ocpp.ws.pipeline.Sender;
 import lombok.RequiredArgsConstructor;
 import ocpp.cs._2015._10.AuthorizeRequest;
 import ocpp.cs._2015._10.BootNotificationRequest;
@@ -56,12 +60,17 @@ public class Ocpp16WebSocketEndpoint extends AbstractWebSocketEndpoint {
 
     @Autowired private CentralSystemService16_SoapServer server;
     @Autowired private FutureResponseContextStore futureResponseContextStore;
+    @Autowired private PostProcessingHookRegistry hookRegistry;
+    @Autowired private DuplicateCallCache duplicateCallCache;
+    @Autowired private Sender sender;
+    @Autowired private LogService logService;
     private Map<String, WebSocketConnection> clientMap;
 
     @PostConstruct
     public void init() {
         Deserializer deserializer = new Deserializer(futureResponseContextStore, Ocpp16TypeStore.INSTANCE);
-        IncomingPipeline pipeline = new IncomingPipeline(deserializer, new Ocpp16CallHandler(server));
+        IncomingPipeline pipeline = new IncomingPipeline(deserializer, new Ocpp16CallHandler(server), hookRegistry,
+                                                         duplicateCallCache, sender, logService);
         super.init(pipeline);
     }
 
@@ -19,12 +19,10 @@
 package de.rwth.idsg.steve.ocpp.ws.pipeline;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.TreeNode;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.NullNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import de.rwth.idsg.ocpp.jaxb.RequestType;
 import de.rwth.idsg.ocpp.jaxb.ResponseType;
 import de.rwth.idsg.steve.SteveException;
@@ -37,10 +35,12 @@ import de.rwth.idsg.steve.ocpp.ws.data.ErrorCode;
 import de.rwth.idsg.steve.ocpp.ws.data.FutureResponseContext;
 import de.rwth.idsg.steve.ocpp.ws.data.MessageType;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonCall;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonError;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.function.Consumer;
@@ -55,6 +55,8 @@ import java.util.function.Consumer;
 @RequiredArgsConstructor
 public class Deserializer implements Consumer<CommunicationContext> {
 
+    private static final String EMPTY_OBJECT = "{}";
+
     private final ObjectMapper mapper = JsonObjectMapper.INSTANCE.getMapper();
 
     private final FutureResponseContextStore futureResponseContextStore;
@@ -76,6 +78,10 @@ public class Deserializer implements Consumer<CommunicationContext> {
             String messageId = parser.getText();
 
             MessageType messageType = MessageType.fromTypeNr(messageTypeNr);
+
+            OcppJsonEnvelope envelope = new OcppJsonEnvelope(messageType, messageId);
+            context.setIncomingEnvelope(envelope);
+
             switch (messageType) {
                 case CALL:
                     handleCall(context, messageId, parser);
@@ -97,6 +103,33 @@ public class Deserializer implements Consumer<CommunicationContext> {
         }
     }
 
+    /**
+     * Reads only the message type, id and (for CALLs) action of a frame, for decisions that have to be made before
+     * the message is processed.
+     *
+     * @return null, if the frame is malformed. The pipeline will answer such frames properly.
+     */
+    @Nullable
+    public static OcppJsonEnvelope readHeader(String incomingString) {
+        try (JsonParser parser = JsonObjectMapper.INSTANCE.getMapper().getFactory().createParser(incomingString)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+                return null;
+            }
+            MessageType messageType = MessageType.fromTypeNr(parser.getIntValue());
+
+            parser.nextToken();
+            OcppJsonEnvelope envelope = new OcppJsonEnvelope(messageType, parser.getText());
+
+            if (messageType == MessageType.CALL) {
+                parser.nextToken();
+                envelope.setAction(parser.getText());
+            }
+            return envelope;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
     // -------------------------------------------------------------------------
     // Private Helpers
     // -------------------------------------------------------------------------
@@ -116,10 +149,14 @@ public class Deserializer implements Consumer<CommunicationContext> {
             return;
         }
 
+        OcppJsonEnvelope envelope = context.getIncomingEnvelope();
+        envelope.setAction(action);
+
         // find action class
         Class<? extends RequestType> clazz = typeStore.findRequestClass(action);
         if (clazz == null) {
             context.setOutgoingMessage(ErrorFactory.actionNotFound(messageId, action));
+            skipPayload(context, parser);
             return;
         }
 
@@ -127,20 +164,17 @@ public class Deserializer implements Consumer<CommunicationContext> {
         RequestType req;
         try {
             parser.nextToken();
-            JsonNode requestPayload = parser.readValueAsTree();
-
-            // https://github.com/steve-community/steve/issues/1109
-            if (requestPayload instanceof NullNode) {
-                requestPayload = new ObjectNode(JsonNodeFactory.instance);
-            }
-
-            req = mapper.treeToValue(requestPayload, clazz);
+            int payloadStart = payloadStart(parser);
+            req = readPayload(parser, typeStore.findReader(clazz));
+            envelope.setRawPayload(payloadSlice(context, parser, payloadStart));
         } catch (IOException e) {
             log.error("Exception occurred", e);
             context.setOutgoingMessage(ErrorFactory.payloadDeserializeError(messageId, e.getMessage()));
             return;
         }
 
+        envelope.setPayload(req);
+
         OcppJsonCall call = new OcppJsonCall();
         call.setMessageId(messageId);
         call.setAction(action);
@@ -149,6 +183,19 @@ public class Deserializer implements Consumer<CommunicationContext> {
         context.setIncomingMessage(call);
     }
 
+    /**
+     * The call timed out and its task failed already. Dropping the response keeps the session open for a station
+     * that is slow, but not broken.
+     */
+    private boolean isLateResponse(CommunicationContext context, String messageId) {
+        if (!futureResponseContextStore.removeExpired(context.getSession(), context.getChargeBoxId(), messageId)) {
+            return false;
+        }
+        log.warn("[chargeBoxId={}, messageId={}] Dropping the response, since the call timed out before",
+                 context.getChargeBoxId(), messageId);
+        return true;
+    }
+
     /**
      * Do NOT catch and handle exceptions for incoming RESPONSEs. Let the processing fail.
      * There is no mechanism in OCPP to report back such erroneous messages.
@@ -156,21 +203,30 @@ public class Deserializer implements Consumer<CommunicationContext> {
     private void handleResult(CommunicationContext context, String messageId, JsonParser parser) {
         FutureResponseContext responseContext = futureResponseContextStore.get(context.getSession(), messageId);
         if (responseContext == null) {
+            if (isLateResponse(context, messageId)) {
+                return;
+            }
             throw new SteveException(
                     "A result message was received as response to a not-sent call. The message was: %s",
                     context.getIncomingString()
             );
         }
 
+        OcppJsonEnvelope envelope = context.getIncomingEnvelope();
+        envelope.setAction(responseContext.getAction());
+
         ResponseType res;
         try {
             parser.nextToken();
-            JsonNode responsePayload = parser.readValueAsTree();
-            res = mapper.treeToValue(responsePayload, responseContext.getResponseClass());
+            int payloadStart = payloadStart(parser);
+            res = readPayload(parser, typeStore.findReader(responseContext.getResponseClass()));
+            envelope.setRawPayload(payloadSlice(context, parser, payloadStart));
         } catch (IOException e) {
             throw new SteveException("Deserialization of incoming response payload failed", e);
         }
 
+        envelope.setPayload(res);
+
         OcppJsonResult result = new OcppJsonResult();
         result.setMessageId(messageId);
         result.setPayload(res);
@@ -186,12 +242,17 @@ public class Deserializer implements Consumer<CommunicationContext> {
     private void handleError(CommunicationContext context, String messageId, JsonParser parser) {
         FutureResponseContext responseContext = futureResponseContextStore.get(context.getSession(), messageId);
         if (responseContext == null) {
+            if (isLateResponse(context, messageId)) {
+                return;
+            }
             throw new SteveException(
                     "An error message was received as response to a not-sent call. The message was: %s",
                     context.getIncomingString()
             );
         }
 
+        context.getIncomingEnvelope().setAction(responseContext.getAction());
+
         ErrorCode code;
         String desc;
         String details = null;
@@ -227,8 +288,50 @@ public class Deserializer implements Consumer<CommunicationContext> {
         error.setErrorDescription(desc);
         error.setErrorDetails(details);
 
+        context.getIncomingEnvelope().setPayload(error);
         context.setIncomingMessage(error);
         context.createErrorHandler(responseContext.getTask());
     }
 
+    /**
+     * Binds the payload directly from the streaming parser, without building an intermediate tree. The parser must
+     * be at the first token of the payload, and is left at its last token.
+     */
+    private static <T> T readPayload(JsonParser parser, ObjectReader reader) throws IOException {
+        // https://github.com/steve-community/steve/issues/1109
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return reader.readValue(EMPTY_OBJECT);
+        }
+        return reader.readValue(parser);
+    }
+
+    /**
+     * Keep the raw payload of a CALL we cannot bind (e.g. unknown action) for the journal, without reading a tree.
+     */
+    private static void skipPayload(CommunicationContext context, JsonParser parser) {
+        try {
+            parser.nextToken();
+            int payloadStart = payloadStart(parser);
+            parser.skipChildren();
+            context.getIncomingEnvelope().setRawPayload(payloadSlice(context, parser, payloadStart));
+        } catch (IOException e) {
+            log.debug("Could not read the payload of an unsupported call", e);
+        }
+    }
+
+    /**
+     * The parser must be at the first token of the payload
+     */
+    private static int payloadStart(JsonParser parser) {
+        return (int) parser.currentTokenLocation().getCharOffset();
+    }
+
+    /**
+     * The parser must be at the last token of the payload
+     */
+    private static String payloadSlice(CommunicationContext context, JsonParser parser, int payloadStart) {
+        int payloadEnd = (int) parser.currentLocation().getCharOffset();
+        return context.getIncomingString().substring(payloadStart, payloadEnd);
+    }
+
 }
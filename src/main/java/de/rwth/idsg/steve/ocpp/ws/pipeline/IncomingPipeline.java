@@ -18,11 +18,17 @@
  */
 package de.rwth.idsg.steve.ocpp.ws.pipeline;
 
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.myconfig.LogService;
+import de.rwth.idsg.steve.ocpp.ws.DuplicateCallCache;
+import de.rwth.idsg.steve.ocpp.ws.WebSocketLogger;
 import de.rwth.idsg.steve.ocpp.ws.data.CommunicationContext;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonCall;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonError;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonMessage;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonResult;
+import de.rwth.idsg.steve.ocpp.ws.hook.PostProcessingHookRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -39,14 +45,24 @@ import java.util.function.Consumer;
 public class IncomingPipeline implements Consumer<CommunicationContext> {
 
     private final Serializer serializer = Serializer.INSTANCE;
-    private final Sender sender = Sender.INSTANCE;
 
     private final Deserializer deserializer;
     private final AbstractCallHandler handler;
+    private final PostProcessingHookRegistry hookRegistry;
+    private final DuplicateCallCache duplicateCallCache;
+    private final Sender sender;
+    private final LogService logService;
 
     @Override
     public void accept(CommunicationContext context) {
-        deserializer.accept(context);
+        try {
+            deserializer.accept(context);
+        } finally {
+            // even if the deserialization fails, log what we have
+            WebSocketLogger.receivedText(context.getChargeBoxId(), context.getSession(), context.getIncomingString());
+            logService.saveReceived(context.getChargeBoxId(), context.getSession().getId(),
+                                    context.getIncomingString(), context.getIncomingEnvelope());
+        }
 
         // When the incoming could not be deserialized
         if (context.isSetOutgoingError()) {
@@ -58,9 +74,14 @@ public class IncomingPipeline implements Consumer<CommunicationContext> {
         OcppJsonMessage msg = context.getIncomingMessage();
 
         if (msg instanceof OcppJsonCall) {
+            if (answerFromCache(context, (OcppJsonCall) msg)) {
+                return;
+            }
             handler.accept(context);
             serializer.accept(context);
             sender.accept(context);
+            cacheResponse(context, (OcppJsonCall) msg);
+            submitHooks(context, (OcppJsonCall) msg);
 
         } else if (msg instanceof OcppJsonResult) {
             context.getResultHandler()
@@ -72,4 +93,61 @@ public class IncomingPipeline implements Consumer<CommunicationContext> {
         }
     }
 
+    /**
+     * Answers a CALL that was not admitted (e.g. because of rate limiting) with the error, without processing it.
+     */
+    public void reject(CommunicationContext context, OcppJsonEnvelope incomingEnvelope, OcppJsonError error) {
+        context.setIncomingEnvelope(incomingEnvelope);
+        WebSocketLogger.receivedText(context.getChargeBoxId(), context.getSession(), context.getIncomingString());
+        logService.saveReceived(context.getChargeBoxId(), context.getSession().getId(),
+                                context.getIncomingString(), incomingEnvelope);
+
+        context.setOutgoingMessage(error);
+        serializer.accept(context);
+        sender.accept(context);
+    }
+
+    /**
+     * A retransmission of a CALL we already answered: send the same response again, without processing the CALL
+     * (and its side effects, e.g. database writes and hooks) twice.
+     */
+    private boolean answerFromCache(CommunicationContext context, OcppJsonCall call) {
+        DuplicateCallCache.Entry entry = duplicateCallCache.get(context.getChargeBoxId(), call.getMessageId(),
+                                                                context.getIncomingString());
+        if (entry == null) {
+            return false;
+        }
+
+        log.info("[chargeBoxId={}, messageId={}] Answering the retransmitted {} with the cached response",
+                context.getChargeBoxId(), call.getMessageId(), call.getAction());
+
+        context.setOutgoingMessage(entry.getOutgoingMessage());
+        context.setOutgoingString(entry.getOutgoingString());
+        context.setOutgoingEnvelope(entry.getOutgoingEnvelope());
+        sender.accept(context);
+        return true;
+    }
+
+    private void cacheResponse(CommunicationContext context, OcppJsonCall call) {
+        if (context.getOutgoingMessage() instanceof OcppJsonResult) {
+            duplicateCallCache.put(context.getChargeBoxId(), call.getMessageId(), call.getAction(),
+                                   context.getIncomingString(), context.getOutgoingMessage(),
+                                   context.getOutgoingString(), context.getOutgoingEnvelope());
+        }
+    }
+
+    /**
+     * Only after the response is sent, such that the charge point does not wait for them.
+     */
+    private void submitHooks(CommunicationContext context, OcppJsonCall call) {
+        if (call.getPayload() == null || !hookRegistry.hasHooks(call.getAction())) {
+            return;
+        }
+
+        OcppJsonMessage outgoing = context.getOutgoingMessage();
+        ResponseType response = outgoing instanceof OcppJsonResult ? ((OcppJsonResult) outgoing).getPayload() : null;
+
+        hookRegistry.submit(context.getChargeBoxId(), call.getAction(), call.getPayload(), response);
+    }
+
 }
@@ -43,10 +43,10 @@ public class OutgoingCallPipeline implements Consumer<CommunicationContext> {
     private final Consumer<CommunicationContext> chainedConsumers;
 
     @Autowired
-    public OutgoingCallPipeline(FutureResponseContextStore store) {
+    public OutgoingCallPipeline(FutureResponseContextStore store, Sender sender) {
         chainedConsumers = OutgoingCallPipeline.start(Serializer.INSTANCE)
-                                               .andThen(Sender.INSTANCE)
-                                               .andThen(saveInStore(store));
+                                               .andThen(saveInStore(store))
+                                               .andThen(send(store, sender));
     }
 
     @Override
@@ -56,13 +56,26 @@ public class OutgoingCallPipeline implements Consumer<CommunicationContext> {
 
     private static Consumer<CommunicationContext> saveInStore(FutureResponseContextStore store) {
         return context -> {
-            // All went well, and the call is sent. Store the response context for later lookup.
+            // Store the response context for later lookup before sending, since the response can arrive (and be
+            // looked up by another thread) before the send returns.
             store.add(context.getSession(),
                       context.getOutgoingMessage().getMessageId(),
                       context.getFutureResponseContext());
         };
     }
 
+    private static Consumer<CommunicationContext> send(FutureResponseContextStore store, Sender sender) {
+        return context -> {
+            try {
+                sender.accept(context);
+            } catch (RuntimeException e) {
+                // The call is not sent, no response will arrive
+                store.get(context.getSession(), context.getOutgoingMessage().getMessageId());
+                throw e;
+            }
+        };
+    }
+
     private static Consumer<CommunicationContext> start(Consumer<CommunicationContext> starter) {
         return starter;
     }
@@ -19,10 +19,13 @@
 package de.rwth.idsg.steve.ocpp.ws.pipeline;
 
 import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.myconfig.LogService;
 import de.rwth.idsg.steve.ocpp.ws.WebSocketLogger;
 import de.rwth.idsg.steve.ocpp.ws.data.CommunicationContext;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonCall;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
@@ -36,8 +39,11 @@ import java.util.function.Consumer;
  * @since 12.03.2015
  */
 @Slf4j
-public enum Sender implements Consumer<CommunicationContext> {
-    INSTANCE;
+@Component
+@RequiredArgsConstructor
+public class Sender implements Consumer<CommunicationContext> {
+
+    private final LogService logService;
 
     @Override
     public void accept(CommunicationContext context) {
@@ -46,6 +52,7 @@ public enum Sender implements Consumer<CommunicationContext> {
         WebSocketSession session = context.getSession();
 
         WebSocketLogger.sending(chargeBoxId, session, outgoingString);
+        logService.saveSent(chargeBoxId, session.getId(), outgoingString, context.getOutgoingEnvelope());
 
         TextMessage out = new TextMessage(outgoingString);
         try {
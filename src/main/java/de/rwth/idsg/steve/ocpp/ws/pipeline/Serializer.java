@@ -18,28 +18,34 @@
  */
 package de.rwth.idsg.steve.ocpp.ws.pipeline;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import de.rwth.idsg.steve.SteveException;
 import de.rwth.idsg.steve.ocpp.ws.ErrorFactory;
 import de.rwth.idsg.steve.ocpp.ws.JsonObjectMapper;
 import de.rwth.idsg.steve.ocpp.ws.data.CommunicationContext;
 import de.rwth.idsg.steve.ocpp.ws.data.MessageType;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonCall;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonError;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonMessage;
 import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonResult;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
  * Outgoing OcppJsonMessage --> String.
  *
- * This class should remain stateless.
+ * The frame is written by a JsonGenerator directly into a buffer of the current thread, which is reused for the next
+ * message. Only the payload goes through the (cached) ObjectWriter of its class.
+ *
+ * This class should remain stateless, apart from these caches.
  *
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 17.03.2015
@@ -48,36 +54,54 @@ import java.util.function.Consumer;
 public enum Serializer implements Consumer<CommunicationContext> {
     INSTANCE;
 
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /**
+     * A buffer that grew beyond this size (e.g. because of a large GetConfiguration response) is not kept for the
+     * next message, so that every thread does not hold on to its largest message forever.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
     private final ObjectMapper mapper = JsonObjectMapper.INSTANCE.getMapper();
+    private final Map<Class<?>, ObjectWriter> writerMap = new ConcurrentHashMap<>();
+    private final ThreadLocal<FrameBuffer> buffers = ThreadLocal.withInitial(FrameBuffer::new);
 
     @Override
     public void accept(CommunicationContext context) {
         OcppJsonMessage message = context.getOutgoingMessage();
+        FrameBuffer buffer = buffers.get();
 
-        ArrayNode str;
-        MessageType messageType = message.getMessageType();
-        switch (messageType) {
-            case CALL:
-                str = handleCall((OcppJsonCall) message);
-                break;
+        try {
+            OcppJsonEnvelope envelope;
+            MessageType messageType = message.getMessageType();
+            switch (messageType) {
+                case CALL:
+                    envelope = handleCall(buffer, (OcppJsonCall) message);
+                    break;
 
-            case CALL_RESULT:
-                str = handleResult((OcppJsonResult) message);
-                break;
+                case CALL_RESULT:
+                    envelope = handleResult(buffer, (OcppJsonResult) message);
+                    break;
 
-            case CALL_ERROR:
-                str = handleError((OcppJsonError) message);
-                break;
+                case CALL_ERROR:
+                    envelope = handleError(buffer, (OcppJsonError) message);
+                    break;
 
-            default:
-                throw new SteveException("Unknown enum type");
-        }
+                default:
+                    throw new SteveException("Unknown enum type");
+            }
 
-        try {
-            String result = mapper.writeValueAsString(str);
-            context.setOutgoingString(result);
+            // the response to an incoming call: the action is the one of the call
+            if (envelope.getMessageType() != MessageType.CALL && context.getIncomingEnvelope() != null) {
+                envelope.setAction(context.getIncomingEnvelope().getAction());
+            }
+
+            context.setOutgoingString(buffer.toString());
+            context.setOutgoingEnvelope(envelope);
         } catch (IOException e) {
             throw new SteveException("The outgoing message could not be serialized", e);
+        } finally {
+            release(buffer);
         }
     }
 
@@ -89,43 +113,62 @@ public enum Serializer implements Consumer<CommunicationContext> {
      * Do NOT catch and handle exceptions for outgoing CALLs. Do NOT send the message.
      * Let the processing fail and acknowledge the user.
      */
-    private ArrayNode handleCall(OcppJsonCall call) {
-        JsonNode payloadNode;
+    private OcppJsonEnvelope handleCall(FrameBuffer buffer, OcppJsonCall call) throws IOException {
+        JsonGenerator gen = mapper.getFactory().createGenerator(buffer);
+        gen.writeStartArray();
+        gen.writeNumber(call.getMessageType().getTypeNr());
+        gen.writeString(call.getMessageId());
+        gen.writeString(call.getAction());
+
+        String rawPayload;
         try {
-            payloadNode = mapper.valueToTree(call.getPayload());
-        } catch (IllegalArgumentException e) {
+            rawPayload = writePayload(gen, buffer, call.getPayload());
+        } catch (IOException e) {
             throw new SteveException("The payload of the outgoing call could not be converted to JSON", e);
         }
 
-        return mapper.createArrayNode()
-                     .add(call.getMessageType().getTypeNr())
-                     .add(call.getMessageId())
-                     .add(call.getAction())
-                     .add(payloadNode);
+        gen.writeEndArray();
+        gen.close();
+
+        OcppJsonEnvelope envelope = new OcppJsonEnvelope(call.getMessageType(), call.getMessageId());
+        envelope.setAction(call.getAction());
+        envelope.setRawPayload(rawPayload);
+        envelope.setPayload(call.getPayload());
+        return envelope;
     }
 
     /**
      * Catch exceptions and wrap them in outgoing ERRORs for outgoing RESPONSEs.
      */
-    private ArrayNode handleResult(OcppJsonResult result) {
-        JsonNode payloadNode;
+    private OcppJsonEnvelope handleResult(FrameBuffer buffer, OcppJsonResult result) throws IOException {
+        JsonGenerator gen = mapper.getFactory().createGenerator(buffer);
+        gen.writeStartArray();
+        gen.writeNumber(result.getMessageType().getTypeNr());
+        gen.writeString(result.getMessageId());
+
+        String rawPayload;
         try {
-            payloadNode = mapper.valueToTree(result.getPayload());
-        } catch (IllegalArgumentException e) {
+            rawPayload = writePayload(gen, buffer, result.getPayload());
+        } catch (IOException e) {
             log.error("Exception occurred", e);
-            return handleError(ErrorFactory.payloadSerializeError(result.getMessageId(), e.getMessage()));
+            // the half-written generator is abandoned, since closing it would write into the buffer again
+            buffer.reset();
+            return handleError(buffer, ErrorFactory.payloadSerializeError(result.getMessageId(), e.getMessage()));
         }
 
-        return mapper.createArrayNode()
-                     .add(result.getMessageType().getTypeNr())
-                     .add(result.getMessageId())
-                     .add(payloadNode);
+        gen.writeEndArray();
+        gen.close();
+
+        OcppJsonEnvelope envelope = new OcppJsonEnvelope(result.getMessageType(), result.getMessageId());
+        envelope.setRawPayload(rawPayload);
+        envelope.setPayload(result.getPayload());
+        return envelope;
     }
 
     /**
      * No exception to catch during serialization, since the fields of the error are simple Strings.
      */
-    private ArrayNode handleError(OcppJsonError error) {
+    private OcppJsonEnvelope handleError(FrameBuffer buffer, OcppJsonError error) throws IOException {
         // From spec:
         // ErrorDescription - Should be filled in if possible, otherwise a clear empty string "".
         String description;
@@ -135,19 +178,119 @@ public enum Serializer implements Consumer<CommunicationContext> {
             description = "";
         }
 
+        JsonGenerator gen = mapper.getFactory().createGenerator(buffer);
+        gen.writeStartArray();
+        gen.writeNumber(error.getMessageType().getTypeNr());
+        gen.writeString(error.getMessageId());
+        gen.writeString(error.getErrorCode().name());
+        gen.writeString(description);
+
         // From spec:
         // ErrorDetails - This JSON object describes error details in an undefined way.
         // If there are no error details you should fill in an empty object {}, missing or null is not allowed
-        ObjectNode detailsNode = mapper.createObjectNode();
+        gen.flush();
+        int detailsStart = buffer.length() + 1; // skip ','
+        gen.writeStartObject();
         if (error.isSetDetails()) {
-            detailsNode.set("errorMsg", mapper.getNodeFactory().textNode(error.toStringErrorDetails()));
+            gen.writeStringField("errorMsg", error.toStringErrorDetails());
+        }
+        gen.writeEndObject();
+        gen.flush();
+        String details = error.isSetDetails() ? buffer.substring(detailsStart, buffer.length()) : null;
+
+        gen.writeEndArray();
+        gen.close();
+
+        // what was actually sent, which might differ from the given error (e.g. truncated details)
+        OcppJsonError sent = new OcppJsonError();
+        sent.setMessageId(error.getMessageId());
+        sent.setErrorCode(error.getErrorCode());
+        sent.setErrorDescription(description);
+        sent.setErrorDetails(details);
+
+        OcppJsonEnvelope envelope = new OcppJsonEnvelope(error.getMessageType(), error.getMessageId());
+        envelope.setPayload(sent);
+        return envelope;
+    }
+
+    /**
+     * Writes the payload as the next element of the frame, and returns it as String (for the journal), such that the
+     * outgoing frame does not have to be parsed again.
+     */
+    private String writePayload(JsonGenerator gen, FrameBuffer buffer, Object payload) throws IOException {
+        gen.flush();
+        // the generator writes the separator lazily with the next value. it is a single ',' since we do not pretty print
+        int start = buffer.length() + 1;
+
+        if (payload == null) {
+            gen.writeNull();
+        } else {
+            writerMap.computeIfAbsent(payload.getClass(), mapper::writerFor)
+                     .writeValue(gen, payload);
+        }
+
+        gen.flush();
+        return buffer.substring(start, buffer.length());
+    }
+
+    private void release(FrameBuffer buffer) {
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffers.remove();
+        } else {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Unsynchronized Writer over a StringBuilder. It is only used by one thread at a time (see the ThreadLocal).
+     */
+    private static final class FrameBuffer extends Writer {
+        private final StringBuilder sb = new StringBuilder(INITIAL_BUFFER_SIZE);
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            sb.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(int c) {
+            sb.append((char) c);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            sb.append(str, off, off + len);
         }
 
-        return mapper.createArrayNode()
-                     .add(error.getMessageType().getTypeNr())
-                     .add(error.getMessageId())
-                     .add(error.getErrorCode().name())
-                     .add(description)
-                     .add(detailsNode);
+        @Override
+        public void flush() {
+            // nothing to flush
+        }
+
+        @Override
+        public void close() {
+            // the buffer is reused
+        }
+
+        private int length() {
+            return sb.length();
+        }
+
+        private int capacity() {
+            return sb.capacity();
+        }
+
+        private String substring(int start, int end) {
+            return sb.substring(start, end);
+        }
+
+        private void reset() {
+            sb.setLength(0);
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository;
+
+import de.rwth.idsg.steve.repository.dto.MeterValueRollupRow;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Reads of connector_meter_value_rollup, for reports that should not scan the raw meter values.
+ *
+ * The tariff billing and the transaction details keep reading connector_meter_value: billing prices every interval
+ * between two values with the tariff of its time of day, and the details list the values themselves. Neither can be
+ * answered from aggregates.
+ */
+public interface MeterValueRollupRepository {
+
+    /**
+     * The buckets that start in [from, to), ordered by bucket start and phase
+     */
+    List<MeterValueRollupRow> getRollups(int connectorPk, RollupGranularity granularity, String measurand,
+                                         DateTime from, DateTime to);
+
+    /**
+     * The energy (Wh) that the register counted in [from, to), with the precision of a minute. Null, if there is no
+     * value in the period.
+     */
+    @Nullable
+    BigDecimal getEnergyWh(int connectorPk, DateTime from, DateTime to);
+}
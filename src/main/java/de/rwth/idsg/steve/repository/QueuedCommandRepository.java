@@ -0,0 +1,85 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository;
+
+import de.rwth.idsg.steve.repository.dto.QueuedCommand;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Commands for charge points that are offline, to be sent in insertion order when they connect
+ */
+public interface QueuedCommandRepository {
+
+    List<QueuedCommand> getOverview(@Nullable String chargeBoxId, @Nullable QueuedCommandStatus status);
+
+    @Nullable
+    QueuedCommand getOne(int queuedCommandPk);
+
+    /**
+     * Returns the id of the inserted command
+     */
+    int insert(String chargeBoxId, String command, String payload, @Nullable DateTime expiryTimestamp);
+
+    /**
+     * The oldest command of the charge point that is neither sent nor expired
+     */
+    @Nullable
+    QueuedCommand getNext(String chargeBoxId);
+
+    boolean hasQueued(String chargeBoxId);
+
+    /**
+     * QUEUED -> DISPATCHED and increments the attempts. Returns false, if the command is not QUEUED anymore (e.g.
+     * cancelled or expired in the meantime).
+     */
+    boolean claim(int queuedCommandPk);
+
+    void setTaskId(int queuedCommandPk, int taskId);
+
+    /**
+     * DISPATCHED -> QUEUED, to be sent again at the next opportunity
+     */
+    void requeue(int queuedCommandPk, String errorMessage);
+
+    void finish(int queuedCommandPk, QueuedCommandStatus status, @Nullable String response, @Nullable String errorMessage);
+
+    /**
+     * QUEUED -> CANCELLED. Returns false, if the command is not QUEUED.
+     */
+    boolean cancel(int queuedCommandPk);
+
+    /**
+     * QUEUED -> EXPIRED for all commands past their expiry timestamp. Returns the number of expired commands.
+     */
+    int expire();
+
+    /**
+     * DISPATCHED -> QUEUED for the given commands. The outcome of these is unknown after a restart.
+     */
+    int requeueDispatched(Collection<String> commands);
+
+    /**
+     * DISPATCHED -> FAILED for all commands
+     */
+    int failDispatched(String errorMessage);
+}
@@ -0,0 +1,36 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository;
+
+/**
+ * Life cycle of a command in the store-and-forward queue
+ */
+public enum QueuedCommandStatus {
+
+    QUEUED,      // Waiting for the charge point to be online
+    DISPATCHED,  // Sent, waiting for the response of the charge point
+    DELIVERED,   // The charge point responded
+    FAILED,      // The charge point responded with an error, or the command could not be sent often enough
+    EXPIRED,     // Not sent before its expiry timestamp
+    CANCELLED;   // Cancelled by the user before it was sent
+
+    public boolean isFinal() {
+        return this != QUEUED && this != DISPATCHED;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Time buckets of connector_meter_value_rollup
+ */
+@Getter
+@RequiredArgsConstructor
+public enum RollupGranularity {
+
+    MINUTE(1),
+    QUARTER_HOUR(15),
+    HOUR(60);
+
+    private final int minutes;
+
+    public long getMillis() {
+        return minutes * 60_000L;
+    }
+
+    /**
+     * @return the start of the bucket that contains the given instant (epoch millis)
+     */
+    public long bucketStart(long millis) {
+        return Math.floorDiv(millis, getMillis()) * getMillis();
+    }
+}
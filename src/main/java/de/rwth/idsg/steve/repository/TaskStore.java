@@ -20,6 +20,8 @@ package de.rwth.idsg.steve.repository;
 
 import de.rwth.idsg.steve.ocpp.CommunicationTask;
 import de.rwth.idsg.steve.repository.dto.TaskOverview;
+import de.rwth.idsg.steve.repository.dto.TaskStoreStats;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
@@ -29,7 +31,17 @@ import java.util.List;
  */
 public interface TaskStore {
     List<TaskOverview> getOverview();
+
+    /**
+     * The newest tasks first, starting with the newest task that is older than beforeTaskId (or with the newest task
+     * at all, if it is null). Paging by the task id instead of an offset keeps the cost of a page independent of
+     * how deep into the store it is.
+     */
+    List<TaskOverview> getOverview(@Nullable Integer beforeTaskId, int limit);
+
+    int size();
     CommunicationTask get(Integer taskId);
     Integer add(CommunicationTask task);
     void clearFinished();
+    TaskStoreStats getStats();
 }
@@ -0,0 +1,50 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.dto;
+
+import de.rwth.idsg.steve.repository.RollupGranularity;
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+
+/**
+ * One bucket of connector_meter_value_rollup. The values are normalized to Wh, W, Percent or V (see unit).
+ */
+@Getter
+@Builder
+public class MeterValueRollupRow {
+    private final int connectorPk;
+    private final RollupGranularity granularity;
+    private final String measurand;
+    private final String phase; // empty, if the value is not for a phase
+    private final String unit;
+    private final DateTime bucketStart;
+
+    private final DateTime firstTimestamp;
+    private final DateTime lastTimestamp;
+    private final BigDecimal first;
+    private final BigDecimal last;
+    private final BigDecimal min;
+    private final BigDecimal max;
+    private final BigDecimal avg;
+    private final BigDecimal delta; // last - first, e.g. the energy of the bucket for a register
+    private final int samples;
+}
@@ -0,0 +1,39 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+@Getter
+@Builder
+public class MeterValueRollupStats {
+    private final long samples; // numeric values of a supported measurand
+    private final long skipped; // not numeric, signed data or not supported
+    private final long upsertedRows;
+    private final long failedBatches;
+
+    private final boolean backfillRunning;
+    private final DateTime backfillFrom;
+    private final DateTime backfillTo;
+    private final long backfillHoursDone;
+    private final long backfillHoursTotal;
+    private final String backfillError;
+}
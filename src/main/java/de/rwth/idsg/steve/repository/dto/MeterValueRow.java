@@ -0,0 +1,43 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+/**
+ * One row of connector_meter_value, i.e. one sampled value of a meter value
+ */
+@Getter
+@Builder
+public class MeterValueRow {
+    private final int connectorPk;
+    private final Integer transactionPk;
+    private final DateTime valueTimestamp;
+    private final String value;
+
+    // optional
+    private final String readingContext;
+    private final String format;
+    private final String measurand;
+    private final String location;
+    private final String unit;
+    private final String phase;
+}
@@ -0,0 +1,56 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+import java.util.List;
+
+/**
+ * State of one partitioned table. The pruning fields are the result of EXPLAIN for a query over the last 24 hours:
+ * with working partition pruning only the latest partition(s) are scanned.
+ */
+@Getter
+@Builder
+public class PartitionTableStats {
+    private final String table;
+    private final boolean partitioned;
+    private final int retentionMonths; // 0 = keep everything
+    private final boolean archive;
+    private final List<Partition> partitions;
+    private final long created;
+    private final long dropped;
+    private final long archived;
+    private final long deletedOrphans; // rows of deleted connectors, see PartitionRetentionManager
+    private final DateTime lastMaintenance;
+    private final String lastError;
+    private final int pruningScanned;
+    private final int pruningTotal;
+
+    @Getter
+    @Builder
+    public static class Partition {
+        private final String name;
+        private final DateTime lessThan; // null for the catch-all partition
+        private final long rows; // estimate of InnoDB
+        private final long bytes;
+    }
+}
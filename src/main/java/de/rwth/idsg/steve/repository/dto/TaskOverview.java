@@ -32,7 +32,7 @@ import org.joda.time.DateTime;
 @EqualsAndHashCode
 @Builder
 public final class TaskOverview implements Comparable<TaskOverview> {
-    private final int taskId, responseCount, requestCount;
+    private final int taskId, responseCount, requestCount, dispatchedCount;
     private final DateTime start, end;
     private final TaskOrigin origin;
 
@@ -31,13 +31,13 @@ import de.rwth.idsg.steve.web.dto.ChargePointQueryForm;
 import de.rwth.idsg.steve.web.dto.ConnectorStatusForm;
 import jooq.steve.db.tables.records.AddressRecord;
 import jooq.steve.db.tables.records.ChargeBoxRecord;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ocpp.cs._2015._10.RegistrationStatus;
 import org.joda.time.DateTime;
 import org.jooq.*;
 import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.CollectionUtils;
 import java.util.*;
@@ -47,7 +47,9 @@ import static de.rwth.idsg.steve.utils.CustomDSL.date;
 import static de.rwth.idsg.steve.utils.CustomDSL.includes;
 import static jooq.steve.db.tables.ChargeBox.CHARGE_BOX;
 import static jooq.steve.db.tables.Connector.CONNECTOR;
+import static jooq.steve.db.tables.ConnectorMeterValue.CONNECTOR_METER_VALUE;
 import static jooq.steve.db.tables.ConnectorStatus.CONNECTOR_STATUS;
+import static jooq.steve.db.tables.ConnectorStatusLatest.CONNECTOR_STATUS_LATEST;
 
 
 
@@ -57,16 +59,13 @@ import static jooq.steve.db.tables.ConnectorStatus.CONNECTOR_STATUS;
  */
 @Slf4j
 @Repository
+@RequiredArgsConstructor
 public class ChargePointRepositoryImpl implements ChargePointRepository {
 
     private final DSLContext ctx;
     private final AddressRepository addressRepository;
-
-    @Autowired
-    public ChargePointRepositoryImpl(DSLContext ctx, AddressRepository addressRepository) {
-        this.ctx = ctx;
-        this.addressRepository = addressRepository;
-    }
+    private final HeartbeatRegistry heartbeatRegistry;
+    private final ConnectorPkCache connectorPkCache;
 
     @Override
     public Optional<String> getRegistrationStatus(String chargeBoxId) {
@@ -125,6 +124,9 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
 
     @SuppressWarnings("unchecked")
     private Result<Record5<Integer, String, String, String, DateTime>> getOverviewInternal(ChargePointQueryForm form) {
+        // including the heartbeats that are not written yet, such that the period is filtered by the current value
+        Field<DateTime> lastHeartbeat = heartbeatRegistry.lastHeartbeatWithPending();
+
         SelectQuery selectQuery = ctx.selectQuery();
         selectQuery.addFrom(CHARGE_BOX);
         selectQuery.addSelect(
@@ -132,7 +134,7 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
                 CHARGE_BOX.CHARGE_BOX_ID,
                 CHARGE_BOX.DESCRIPTION,
                 CHARGE_BOX.OCPP_PROTOCOL,
-                CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP
+                lastHeartbeat.as(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP.getName())
         );
 
         if (form.isSetOcppVersion()) {
@@ -149,32 +151,32 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
             selectQuery.addConditions(includes(CHARGE_BOX.CHARGE_BOX_ID, form.getChargeBoxId()));
         }
 
+        Condition heartbeatCondition;
         switch (form.getHeartbeatPeriod()) {
             case ALL:
+                heartbeatCondition = null;
                 break;
 
             case TODAY:
-                selectQuery.addConditions(
-                        date(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP).eq(date(DateTime.now()))
-                );
+                heartbeatCondition = date(lastHeartbeat).eq(date(DateTime.now()));
                 break;
 
             case YESTERDAY:
-                selectQuery.addConditions(
-                        date(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP).eq(date(DateTime.now().minusDays(1)))
-                );
+                heartbeatCondition = date(lastHeartbeat).eq(date(DateTime.now().minusDays(1)));
                 break;
 
             case EARLIER:
-                selectQuery.addConditions(
-                        date(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP).lessThan(date(DateTime.now().minusDays(1)))
-                );
+                heartbeatCondition = date(lastHeartbeat).lessThan(date(DateTime.now().minusDays(1)));
                 break;
 
             default:
                 throw new SteveException("Unknown enum type");
         }
 
+        if (heartbeatCondition != null) {
+            selectQuery.addConditions(heartbeatCondition);
+        }
+
         // Default order
         selectQuery.addOrderBy(CHARGE_BOX.CHARGE_BOX_PK.asc());
 
@@ -191,6 +193,9 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
             throw new SteveException("Charge point not found");
         }
 
+        cbr.setLastHeartbeatTimestamp(
+                heartbeatRegistry.overlay(cbr.getChargeBoxId(), cbr.getLastHeartbeatTimestamp()));
+
         AddressRecord ar = addressRepository.get(ctx, cbr.getAddressPk());
 
         return new ChargePoint.Details(cbr, ar);
@@ -198,26 +203,8 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
 
     @Override
     public List<ConnectorStatus> getChargePointConnectorStatus(ConnectorStatusForm form) {
-        // find out the latest timestamp for each connector
-        Field<Integer> t1Pk = CONNECTOR_STATUS.CONNECTOR_PK.as("t1_pk");
-        Field<DateTime> t1TsMax = DSL.max(CONNECTOR_STATUS.STATUS_TIMESTAMP).as("t1_ts_max");
-        Table<?> t1 = ctx.select(t1Pk, t1TsMax)
-                .from(CONNECTOR_STATUS)
-                .groupBy(CONNECTOR_STATUS.CONNECTOR_PK)
-                .asTable("t1");
-
-        // get the status table with latest timestamps only
-        Field<Integer> t2Pk = CONNECTOR_STATUS.CONNECTOR_PK.as("t2_pk");
-        Field<DateTime> t2Ts = CONNECTOR_STATUS.STATUS_TIMESTAMP.as("t2_ts");
-        Field<String> t2Status = CONNECTOR_STATUS.STATUS.as("t2_status");
-        Field<String> t2Error = CONNECTOR_STATUS.ERROR_CODE.as("t2_error");
-        Table<?> t2 = ctx.selectDistinct(t2Pk, t2Ts, t2Status, t2Error)
-                .from(CONNECTOR_STATUS)
-                .join(t1)
-                .on(CONNECTOR_STATUS.CONNECTOR_PK.equal(t1.field(t1Pk)))
-                .and(CONNECTOR_STATUS.STATUS_TIMESTAMP.equal(t1.field(t1TsMax)))
-                .asTable("t2");
-
+        // connector_status_latest holds the most recent status per connector (maintained on insert), such that we
+        // do not have to find it by grouping the whole connector_status log
         // https://github.com/steve-community/steve/issues/691
         Condition chargeBoxCondition = CHARGE_BOX.REGISTRATION_STATUS.eq(RegistrationStatus.ACCEPTED.value());
 
@@ -229,24 +216,24 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
         if (form == null || form.getStatus() == null) {
             statusCondition = DSL.noCondition();
         } else {
-            statusCondition = t2.field(t2Status).eq(form.getStatus());
+            statusCondition = CONNECTOR_STATUS_LATEST.STATUS.eq(form.getStatus());
         }
 
         return ctx.select(
                         CHARGE_BOX.CHARGE_BOX_PK,
                         CONNECTOR.CHARGE_BOX_ID,
                         CONNECTOR.CONNECTOR_ID,
-                        t2.field(t2Ts),
-                        t2.field(t2Status),
-                        t2.field(t2Error),
+                        CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP,
+                        CONNECTOR_STATUS_LATEST.STATUS,
+                        CONNECTOR_STATUS_LATEST.ERROR_CODE,
                         CHARGE_BOX.OCPP_PROTOCOL)
-                .from(t2)
+                .from(CONNECTOR_STATUS_LATEST)
                 .join(CONNECTOR)
-                .on(CONNECTOR.CONNECTOR_PK.eq(t2.field(t2Pk)))
+                .on(CONNECTOR.CONNECTOR_PK.eq(CONNECTOR_STATUS_LATEST.CONNECTOR_PK))
                 .join(CHARGE_BOX)
                 .on(CHARGE_BOX.CHARGE_BOX_ID.eq(CONNECTOR.CHARGE_BOX_ID))
                 .where(chargeBoxCondition, statusCondition)
-                .orderBy(t2.field(t2Ts).desc())
+                .orderBy(CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP.desc())
                 .fetch()
                 .map(r -> ConnectorStatus.builder()
                         .chargeBoxPk(r.value1())
@@ -313,16 +300,28 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
 
     @Override
     public void deleteChargePoint(int chargeBoxPk) {
-        ctx.transaction(configuration -> {
+        String chargeBoxId = ctx.transactionResult(configuration -> {
             DSLContext ctx = DSL.using(configuration);
             try {
+                String id = ctx.select(CHARGE_BOX.CHARGE_BOX_ID)
+                               .from(CHARGE_BOX)
+                               .where(CHARGE_BOX.CHARGE_BOX_PK.eq(chargeBoxPk))
+                               .fetchOne(CHARGE_BOX.CHARGE_BOX_ID);
+
                 addressRepository.delete(ctx, selectAddressId(chargeBoxPk));
+                deleteConnectorLogs(ctx, id);
                 deleteChargePointInternal(ctx, chargeBoxPk);
+                return id;
 
             } catch (DataAccessException e) {
                 throw new SteveException("Failed to delete the charge point", e);
             }
         });
+
+        // the connectors are deleted with the charge point (ON DELETE CASCADE)
+        if (chargeBoxId != null) {
+            connectorPkCache.invalidate(chargeBoxId);
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -365,6 +364,32 @@ public class ChargePointRepositoryImpl implements ChargePointRepository {
            .execute();
     }
 
+    /**
+     * connector_meter_value and connector_status are partitioned and therefore cannot have foreign keys, i.e. they
+     * are not deleted with the connectors (ON DELETE CASCADE)
+     */
+    private static void deleteConnectorLogs(DSLContext ctx, String chargeBoxId) {
+        if (chargeBoxId == null) {
+            return;
+        }
+
+        List<Integer> connectorPks = ctx.select(CONNECTOR.CONNECTOR_PK)
+                                        .from(CONNECTOR)
+                                        .where(CONNECTOR.CHARGE_BOX_ID.eq(chargeBoxId))
+                                        .fetch(CONNECTOR.CONNECTOR_PK);
+        if (connectorPks.isEmpty()) {
+            return;
+        }
+
+        ctx.delete(CONNECTOR_METER_VALUE)
+           .where(CONNECTOR_METER_VALUE.CONNECTOR_PK.in(connectorPks))
+           .execute();
+
+        ctx.delete(CONNECTOR_STATUS)
+           .where(CONNECTOR_STATUS.CONNECTOR_PK.in(connectorPks))
+           .execute();
+    }
+
     private void deleteChargePointInternal(DSLContext ctx, int chargeBoxPk) {
         ctx.delete(CHARGE_BOX)
            .where(CHARGE_BOX.CHARGE_BOX_PK.equal(chargeBoxPk))
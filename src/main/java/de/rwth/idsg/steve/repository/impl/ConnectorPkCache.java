@@ -0,0 +1,187 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.repository.dto.ConnectorPkCacheStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static jooq.steve.db.tables.Connector.CONNECTOR;
+
+/**
+ * (charge_box_id, connector_id) -> connector_pk. Connectors are inserted when an OCPP message mentions them for the
+ * first time, and only deleted together with their charge box. Therefore, the mapping is loaded once at startup,
+ * filled on a miss, and has to be invalidated (see {@link #invalidate(String)}) when a charge box is deleted.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConnectorPkCache {
+
+    private final DSLContext ctx;
+
+    // (chargeBoxId, (connectorId, connectorPk))
+    private final Map<String, Map<Integer, Integer>> pks = new ConcurrentHashMap<>();
+
+    // (connectorPk, chargeBoxId)
+    private final Map<Integer, String> chargeBoxIds = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        try {
+            for (Record3<Integer, String, Integer> r : ctx.select(CONNECTOR.CONNECTOR_PK,
+                                                                  CONNECTOR.CHARGE_BOX_ID,
+                                                                  CONNECTOR.CONNECTOR_ID)
+                                                          .from(CONNECTOR)
+                                                          .fetch()) {
+                put(r.value2(), r.value3(), r.value1());
+            }
+            log.info("Loaded {} connectors into the cache", chargeBoxIds.size());
+        } catch (Exception e) {
+            // not fatal: the cache is filled on demand
+            log.error("Failed to load the connectors into the cache", e);
+        }
+    }
+
+    /**
+     * Inserts the connector, if it is new to us (see {@link OcppServerRepositoryImpl#insertIgnoreConnector}).
+     * Runs outside of the transaction of the caller, such that we never cache a pk that is rolled back.
+     */
+    public int getOrInsert(String chargeBoxId, int connectorId) {
+        Integer pk = lookup(chargeBoxId, connectorId);
+        if (pk != null) {
+            return pk;
+        }
+
+        OcppServerRepositoryImpl.insertIgnoreConnector(ctx, chargeBoxId, connectorId);
+        pk = select(chargeBoxId, connectorId);
+        if (pk == null) {
+            // the charge box was deleted in the meantime
+            throw new SteveException("The connector %s/%s does not exist", chargeBoxId, connectorId);
+        }
+        put(chargeBoxId, connectorId, pk);
+        return pk;
+    }
+
+    /**
+     * Does not insert the connector. A connector that does not exist is not cached.
+     */
+    @Nullable
+    public Integer find(String chargeBoxId, int connectorId) {
+        Integer pk = lookup(chargeBoxId, connectorId);
+        if (pk != null) {
+            return pk;
+        }
+
+        pk = select(chargeBoxId, connectorId);
+        if (pk != null) {
+            put(chargeBoxId, connectorId, pk);
+        }
+        return pk;
+    }
+
+    @Nullable
+    public String getChargeBoxId(int connectorPk) {
+        String chargeBoxId = chargeBoxIds.get(connectorPk);
+        if (chargeBoxId != null) {
+            hits.increment();
+            return chargeBoxId;
+        }
+
+        misses.increment();
+        var r = ctx.select(CONNECTOR.CHARGE_BOX_ID, CONNECTOR.CONNECTOR_ID)
+                   .from(CONNECTOR)
+                   .where(CONNECTOR.CONNECTOR_PK.eq(connectorPk))
+                   .fetchOne();
+        if (r == null) {
+            return null;
+        }
+        put(r.value1(), r.value2(), connectorPk);
+        return r.value1();
+    }
+
+    /**
+     * The connectors of the charge box are deleted with it (ON DELETE CASCADE)
+     */
+    public void invalidate(String chargeBoxId) {
+        Map<Integer, Integer> connectors = pks.remove(chargeBoxId);
+        if (connectors != null) {
+            connectors.values().forEach(chargeBoxIds::remove);
+            invalidations.increment();
+        }
+    }
+
+    public ConnectorPkCacheStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return ConnectorPkCacheStats.builder()
+                                    .size(chargeBoxIds.size())
+                                    .chargeBoxes(pks.size())
+                                    .hits(hitCount)
+                                    .misses(missCount)
+                                    .hitRate(total == 0 ? 0 : (double) hitCount / total)
+                                    .invalidations(invalidations.sum())
+                                    .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    @Nullable
+    private Integer lookup(String chargeBoxId, int connectorId) {
+        Map<Integer, Integer> connectors = pks.get(chargeBoxId);
+        Integer pk = (connectors == null) ? null : connectors.get(connectorId);
+        if (pk == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return pk;
+    }
+
+    @Nullable
+    private Integer select(String chargeBoxId, int connectorId) {
+        return ctx.select(CONNECTOR.CONNECTOR_PK)
+                  .from(CONNECTOR)
+                  .where(CONNECTOR.CHARGE_BOX_ID.eq(chargeBoxId))
+                  .and(CONNECTOR.CONNECTOR_ID.eq(connectorId))
+                  .fetchOne(CONNECTOR.CONNECTOR_PK);
+    }
+
+    private void put(String chargeBoxId, int connectorId, int connectorPk) {
+        pks.computeIfAbsent(chargeBoxId, k -> new ConcurrentHashMap<>()).put(connectorId, connectorPk);
+        chargeBoxIds.put(connectorPk, chargeBoxId);
+    }
+}
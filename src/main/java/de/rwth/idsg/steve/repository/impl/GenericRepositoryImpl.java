@@ -24,12 +24,12 @@ import de.rwth.idsg.steve.repository.ReservationStatus;
 import de.rwth.idsg.steve.repository.dto.DbVersion;
 import de.rwth.idsg.steve.utils.DateTimeUtils;
 import de.rwth.idsg.steve.web.dto.Statistics;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.joda.time.DateTime;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import de.rwth.idsg.steve.myconfig.JodaDateTimeConverter;
 
@@ -49,9 +49,11 @@ import static org.jooq.impl.DSL.select;
  */
 @Slf4j
 @Repository
+@RequiredArgsConstructor
 public class GenericRepositoryImpl implements GenericRepository {
 
-    @Autowired private DSLContext ctx;
+    private final DSLContext ctx;
+    private final HeartbeatRegistry heartbeatRegistry;
 
     @Override
     public Statistics getStats() {
@@ -62,6 +64,9 @@ public class GenericRepositoryImpl implements GenericRepository {
         DateTime now = DateTime.now();
         DateTime yesterdaysNow = now.minusDays(1);
 
+        // including the heartbeats that are not written yet
+        Field<DateTime> lastHeartbeat = heartbeatRegistry.lastHeartbeatWithPending();
+
         Field<Integer> numChargeBoxes =
                 ctx.selectCount()
                    .from(CHARGE_BOX)
@@ -93,19 +98,19 @@ public class GenericRepositoryImpl implements GenericRepository {
         Field<Integer> heartbeatsToday =
                 ctx.selectCount()
                         .from(CHARGE_BOX)
-                        .where(date(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP).eq(date(DSL.val(now, jodaDateTimeType))))
+                        .where(date(lastHeartbeat).eq(date(DSL.val(now, jodaDateTimeType))))
                         .asField("heartbeats_today");
 
         Field<Integer> heartbeatsYesterday =
                 ctx.selectCount()
                         .from(CHARGE_BOX)
-                        .where(date(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP).eq(date(DSL.val(yesterdaysNow, jodaDateTimeType))))
+                        .where(date(lastHeartbeat).eq(date(DSL.val(yesterdaysNow, jodaDateTimeType))))
                         .asField("heartbeats_yesterday");
 
         Field<Integer> heartbeatsEarlier =
                 ctx.selectCount()
                         .from(CHARGE_BOX)
-                        .where(date(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP).lessThan(date(DSL.val(yesterdaysNow, jodaDateTimeType))))
+                        .where(date(lastHeartbeat).lessThan(date(DSL.val(yesterdaysNow, jodaDateTimeType))))
                         .asField("heartbeats_earlier");
 
         Record8<Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer> gs =
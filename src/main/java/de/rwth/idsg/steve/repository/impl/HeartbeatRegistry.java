@@ -0,0 +1,228 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import com.google.common.collect.Iterables;
+import de.rwth.idsg.steve.repository.dto.HeartbeatRegistryStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.joda.time.DateTime;
+import org.jooq.CaseWhenStep;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+import static jooq.steve.db.tables.ChargeBox.CHARGE_BOX;
+
+/**
+ * Coalesces the heartbeat timestamps (Heartbeat requests and WebSocket pongs) of the stations in memory, and writes
+ * the changed ones periodically in one UPDATE per batch. The timestamp is only needed with minute resolution, so
+ * there is no reason to write charge_box for every single heartbeat.
+ *
+ * Readers of last_heartbeat_timestamp should overlay {@link #getPending()} (or select
+ * {@link #lastHeartbeatWithPending()} instead of the column), since the database lags behind by at most one flush
+ * interval. This is also what is lost in case of a crash.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HeartbeatRegistry {
+
+    /**
+     * Keeps the statement (and the number of bind values) within reasonable limits
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final DSLContext ctx;
+    private final ScheduledExecutorService executor;
+
+    private final ConcurrentHashMap<String, DateTime> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder touches = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+
+    private ScheduledFuture<?> flushSchedule;
+
+    @PostConstruct
+    public void init() {
+        int interval = getFlushIntervalSeconds();
+        flushSchedule = executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (flushSchedule != null) {
+            flushSchedule.cancel(false);
+        }
+        flush();
+    }
+
+    public void touch(String chargeBoxId, DateTime ts) {
+        touches.increment();
+        pending.merge(chargeBoxId, ts, HeartbeatRegistry::latest);
+    }
+
+    /**
+     * The timestamps that are not written yet. Unmodifiable snapshot.
+     */
+    public Map<String, DateTime> getPending() {
+        if (pending.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new HashMap<>(pending));
+    }
+
+    /**
+     * @return the later one of the persisted and the pending timestamp
+     */
+    public DateTime overlay(String chargeBoxId, DateTime persisted) {
+        DateTime inMemory = pending.get(chargeBoxId);
+        if (inMemory == null) {
+            return persisted;
+        }
+        return persisted == null ? inMemory : latest(persisted, inMemory);
+    }
+
+    /**
+     * last_heartbeat_timestamp with the pending timestamps overlaid, to be selected instead of the column. This way,
+     * the database evaluates it (e.g. its date()) and no extra query is needed. If there are too many pending
+     * timestamps to inline them, they are flushed first.
+     */
+    public Field<DateTime> lastHeartbeatWithPending() {
+        if (pending.size() > MAX_ROWS_PER_STATEMENT) {
+            flush();
+        }
+
+        Map<String, DateTime> snapshot = getPending();
+        if (snapshot.isEmpty()) {
+            return CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP;
+        }
+        // the flush failed: inline as many as we can
+        return latestOf(Iterables.limit(snapshot.entrySet(), MAX_ROWS_PER_STATEMENT));
+    }
+
+    public HeartbeatRegistryStats getStats() {
+        return HeartbeatRegistryStats.builder()
+                                     .pending(pending.size())
+                                     .touches(touches.sum())
+                                     .flushes(flushes.sum())
+                                     .rowsWritten(rowsWritten.sum())
+                                     .failedFlushes(failedFlushes.sum())
+                                     .lastFlushMillis(lastFlushMillis.get())
+                                     .flushIntervalSeconds(getFlushIntervalSeconds())
+                                     .build();
+    }
+
+    /**
+     * Synchronized only against itself (the scheduled and the final flush), not against touch().
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<String, DateTime> snapshot = new HashMap<>(pending);
+
+        for (List<Map.Entry<String, DateTime>> batch
+                : Iterables.partition(new ArrayList<>(snapshot.entrySet()), MAX_ROWS_PER_STATEMENT)) {
+            try {
+                rowsWritten.add(write(batch));
+                // only remove, if there was no newer touch in the meantime
+                batch.forEach(e -> pending.remove(e.getKey(), e.getValue()));
+            } catch (Exception e) {
+                // keep them pending, the next flush will try again
+                failedFlushes.increment();
+                log.error("Failed to write the heartbeats of {} charge boxes", batch.size(), e);
+            }
+        }
+
+        flushes.increment();
+        lastFlushMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    /**
+     * UPDATE charge_box
+     * SET last_heartbeat_timestamp = CASE charge_box_id WHEN ? THEN GREATEST(COALESCE(last_heartbeat_timestamp, ?), ?) ... END
+     * WHERE charge_box_id IN (...)
+     *
+     * GREATEST, because other statements (e.g. BootNotification) might have written a newer value in the meantime.
+     */
+    private int write(List<Map.Entry<String, DateTime>> batch) {
+        List<String> ids = new ArrayList<>(batch.size());
+        for (Map.Entry<String, DateTime> e : batch) {
+            ids.add(e.getKey());
+        }
+
+        return ctx.update(CHARGE_BOX)
+                  .set(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP, latestOf(batch))
+                  .where(CHARGE_BOX.CHARGE_BOX_ID.in(ids))
+                  .execute();
+    }
+
+    /**
+     * CASE charge_box_id WHEN ? THEN GREATEST(COALESCE(last_heartbeat_timestamp, ?), ?) ...
+     * ELSE last_heartbeat_timestamp END
+     */
+    private static Field<DateTime> latestOf(Iterable<Map.Entry<String, DateTime>> entries) {
+        CaseWhenStep<String, DateTime> caseStep = null;
+
+        for (Map.Entry<String, DateTime> e : entries) {
+            Field<DateTime> ts = DSL.val(e.getValue(), CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP);
+            Field<DateTime> value = DSL.greatest(DSL.coalesce(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP, ts), ts);
+
+            caseStep = (caseStep == null)
+                    ? DSL.choose(CHARGE_BOX.CHARGE_BOX_ID).when(e.getKey(), value)
+                    : caseStep.when(e.getKey(), value);
+        }
+
+        return caseStep.otherwise(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP);
+    }
+
+    private static DateTime latest(DateTime a, DateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static int getFlushIntervalSeconds() {
+        return Math.max(1, CONFIG.getOcpp().getHeartbeatFlushIntervalSeconds());
+    }
+}
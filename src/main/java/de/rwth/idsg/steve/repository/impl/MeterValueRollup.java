@@ -0,0 +1,490 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.repository.RollupGranularity;
+import de.rwth.idsg.steve.repository.dto.MeterValueRollupStats;
+import de.rwth.idsg.steve.repository.dto.MeterValueRow;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+import static jooq.steve.db.tables.ConnectorMeterValue.CONNECTOR_METER_VALUE;
+import static jooq.steve.db.tables.ConnectorMeterValueRollup.CONNECTOR_METER_VALUE_ROLLUP;
+
+/**
+ * Maintains connector_meter_value_rollup: the numeric energy, power, SoC and voltage values are aggregated per
+ * connector, measurand, phase and bucket (see {@link RollupGranularity}), such that reports do not have to parse and
+ * filter the raw rows.
+ *
+ * Only the periodic samples (reading context Sample.Periodic) of the outlet (location Outlet) are rolled up, which
+ * are also the defaults of OCPP. The readings at the start/end of a transaction or at clock-aligned intervals repeat
+ * values of the periodic ones and would be counted twice. Readings at the inlet or of the EV would be mixed with
+ * those of the outlet, since the rollup is not keyed by the location.
+ *
+ * The rows are rolled up when they are written to connector_meter_value ({@link MeterValueWriter}). The aggregates of
+ * a batch are merged into the stored ones with a single upsert, i.e. the raw table is never read again. Out-of-order
+ * values are fine: first/last are decided by the timestamps, not by the arrival.
+ *
+ * The rollup is written after the raw rows and is not retried. What is lost that way (and the history before the
+ * rollup existed) is recomputed by {@link #backfill(DateTime, DateTime)} from the raw rows. The replay of spilled
+ * rows rolls them up in the transaction of their insert (see {@link #add(DSLContext, List)}), i.e. they are counted
+ * once, even if the replay is interrupted.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MeterValueRollup {
+
+    public static final String ENERGY = "Energy.Active.Import.Register";
+    public static final String POWER = "Power.Active.Import";
+    public static final String SOC = "SoC";
+    public static final String VOLTAGE = "Voltage";
+
+    private static final String SAMPLE_PERIODIC = "Sample.Periodic";
+    private static final String OUTLET = "Outlet";
+
+    /**
+     * The values are normalized to these units. The kilo variants (e.g. kWh) are converted.
+     */
+    private static final Map<String, String> UNITS = Map.of(ENERGY, "Wh", POWER, "W", SOC, "Percent", VOLTAGE, "V");
+
+    private static final BigDecimal KILO = BigDecimal.valueOf(1000);
+    private static final int SCALE = 6;
+
+    /**
+     * Keeps the statement (and the number of bind values) within reasonable limits
+     */
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    /**
+     * The raw rows of an hour are read and rolled up in windows of this size, and every window is written on its own.
+     * Memory and statement size grow with the rows of one window (i.e. the connectors that report within it), not
+     * with the rows of the hour.
+     */
+    private static final int BACKFILL_WINDOW_MINUTES = 5;
+
+    private final DSLContext ctx;
+
+    /**
+     * The backfill leaves the recent hours to the incremental rollup: their rows might still be written (late values,
+     * spilled rows), which would race with the delete and rewrite of the backfill
+     */
+    private final int backfillHorizonHours = CONFIG.getMeterValues().getRollupBackfillHorizonHours();
+
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder upsertedRows = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("SteVe-RollupBackfill-%d").setDaemon(true).build());
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final AtomicLong backfillHoursDone = new AtomicLong();
+    private final AtomicLong backfillHoursTotal = new AtomicLong();
+    private volatile DateTime backfillFrom;
+    private volatile DateTime backfillTo;
+    private volatile String backfillError;
+
+    /**
+     * Rolls up rows that were written to connector_meter_value just now. Does not throw: the raw rows are written
+     * already and the rollup can be recomputed.
+     */
+    public void add(List<MeterValueRow> rows) {
+        add(ctx, rows);
+    }
+
+    /**
+     * Same as {@link #add(List)}, with the given context, e.g. in the transaction that writes the rows
+     */
+    public void add(DSLContext ctx, List<MeterValueRow> rows) {
+        try {
+            Map<Key, Bucket> buckets = new HashMap<>();
+            for (MeterValueRow row : rows) {
+                accumulate(buckets, row);
+            }
+            upsert(ctx, buckets);
+        } catch (Exception e) {
+            failedBatches.increment();
+            log.error("Failed to roll up {} meter values", rows.size(), e);
+        }
+    }
+
+    /**
+     * Recomputes the rollup of the complete hours in the given period from the raw rows, hour by hour, in a thread of
+     * its own (stopped with the application). The hours within the backfill horizon
+     * (meter.values.rollup.backfill.horizon.hours) are left to the incremental rollup, even if the period includes
+     * them: values that are written while their hour is recomputed could be counted twice, or not at all.
+     *
+     * @param from null for the oldest raw row
+     * @param to   null for now
+     * @return false, if a backfill is running already
+     */
+    public boolean backfill(@Nullable DateTime from, @Nullable DateTime to) {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+
+        backfillFrom = from;
+        backfillTo = to;
+        backfillError = null;
+        backfillHoursDone.set(0);
+        backfillHoursTotal.set(0);
+
+        backfillExecutor.execute(() -> runBackfill(from, to));
+        return true;
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        // the hour that is being backfilled stays incomplete, until it is backfilled again
+        backfillExecutor.shutdownNow();
+    }
+
+    public MeterValueRollupStats getStats() {
+        return MeterValueRollupStats.builder()
+                                    .samples(samples.sum())
+                                    .skipped(skipped.sum())
+                                    .upsertedRows(upsertedRows.sum())
+                                    .failedBatches(failedBatches.sum())
+                                    .backfillRunning(backfillRunning.get())
+                                    .backfillFrom(backfillFrom)
+                                    .backfillTo(backfillTo)
+                                    .backfillHoursDone(backfillHoursDone.get())
+                                    .backfillHoursTotal(backfillHoursTotal.get())
+                                    .backfillError(backfillError)
+                                    .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Backfill
+    // -------------------------------------------------------------------------
+
+    private void runBackfill(@Nullable DateTime from, @Nullable DateTime to) {
+        try {
+            Field<DateTime> oldest = DSL.min(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP);
+            DateTime start = (from != null) ? from : ctx.select(oldest).from(CONNECTOR_METER_VALUE).fetchOne(oldest);
+            if (start == null) {
+                return;
+            }
+
+            long hour = RollupGranularity.HOUR.getMillis();
+            long startHour = RollupGranularity.HOUR.bucketStart(start.getMillis());
+            long horizon = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(Math.max(0, backfillHorizonHours));
+            long end = (to != null) ? Math.min(to.getMillis(), horizon) : horizon;
+            long endHour = RollupGranularity.HOUR.bucketStart(end);
+
+            backfillFrom = new DateTime(startHour, DateTimeZone.UTC);
+            backfillTo = new DateTime(endHour, DateTimeZone.UTC);
+            backfillHoursTotal.set(Math.max(0, (endHour - startHour) / hour));
+            log.info("Backfilling the meter value rollup from {} to {}", backfillFrom, backfillTo);
+
+            for (long h = startHour; h < endHour && !Thread.currentThread().isInterrupted(); h += hour) {
+                backfillHour(new DateTime(h, DateTimeZone.UTC));
+                backfillHoursDone.incrementAndGet();
+            }
+            log.info("Backfilled the meter value rollup of {} hours", backfillHoursDone.get());
+
+        } catch (Exception e) {
+            backfillError = e.getMessage();
+            log.error("Backfill of the meter value rollup failed after {} hours", backfillHoursDone.get(), e);
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    /**
+     * All buckets of all granularities lie within the hour, so they can be replaced as a whole. The rollup of the hour
+     * is deleted and then rebuilt window by window: until then, reports see the hour incomplete. If the backfill fails
+     * halfway, the hour stays incomplete until it is backfilled again.
+     */
+    private void backfillHour(DateTime hourStart) {
+        DateTime hourEnd = hourStart.plusHours(1);
+
+        ctx.delete(CONNECTOR_METER_VALUE_ROLLUP)
+           .where(CONNECTOR_METER_VALUE_ROLLUP.BUCKET_START.greaterOrEqual(hourStart))
+           .and(CONNECTOR_METER_VALUE_ROLLUP.BUCKET_START.lessThan(hourEnd))
+           .execute();
+
+        // an empty measurand is the default of OCPP as well, see measurandOf(). same for the rest, see normalize().
+        Condition condition = orDefault(CONNECTOR_METER_VALUE.MEASURAND, UNITS.keySet())
+                .and(orDefault(CONNECTOR_METER_VALUE.READING_CONTEXT, List.of(SAMPLE_PERIODIC)))
+                .and(orDefault(CONNECTOR_METER_VALUE.LOCATION, List.of(OUTLET)));
+
+        for (DateTime s = hourStart; s.isBefore(hourEnd); s = s.plusMinutes(BACKFILL_WINDOW_MINUTES)) {
+            List<MeterValueRow> rows = ctx.select(
+                            CONNECTOR_METER_VALUE.CONNECTOR_PK,
+                            CONNECTOR_METER_VALUE.VALUE_TIMESTAMP,
+                            CONNECTOR_METER_VALUE.VALUE,
+                            CONNECTOR_METER_VALUE.FORMAT,
+                            CONNECTOR_METER_VALUE.MEASURAND,
+                            CONNECTOR_METER_VALUE.UNIT,
+                            CONNECTOR_METER_VALUE.PHASE,
+                            CONNECTOR_METER_VALUE.READING_CONTEXT,
+                            CONNECTOR_METER_VALUE.LOCATION)
+                    .from(CONNECTOR_METER_VALUE)
+                    .where(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP.greaterOrEqual(s))
+                    .and(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP.lessThan(s.plusMinutes(BACKFILL_WINDOW_MINUTES)))
+                    .and(condition)
+                    .fetch(r -> MeterValueRow.builder()
+                                             .connectorPk(r.value1())
+                                             .valueTimestamp(r.value2())
+                                             .value(r.value3())
+                                             .format(r.value4())
+                                             .measurand(r.value5())
+                                             .unit(r.value6())
+                                             .phase(r.value7())
+                                             .readingContext(r.value8())
+                                             .location(r.value9())
+                                             .build());
+
+            // the buckets of the window are merged into the ones of the earlier windows by the upsert
+            Map<Key, Bucket> buckets = new HashMap<>();
+            for (MeterValueRow row : rows) {
+                accumulate(buckets, row);
+            }
+            upsert(ctx, buckets);
+        }
+    }
+
+    private static Condition orDefault(Field<String> field, Collection<String> values) {
+        return field.isNull().or(field.eq("")).or(field.in(values));
+    }
+
+    // -------------------------------------------------------------------------
+    // Aggregation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the row to its bucket of every granularity. Package-private for tests.
+     *
+     * @return false, if the row is not rolled up (not numeric, signed data, other measurand, unit, context or location)
+     */
+    boolean accumulate(Map<Key, Bucket> buckets, MeterValueRow row) {
+        BigDecimal value = normalize(row);
+        if (value == null || row.getValueTimestamp() == null) {
+            skipped.increment();
+            return false;
+        }
+
+        samples.increment();
+        String measurand = measurandOf(row);
+        String phase = (row.getPhase() == null) ? "" : row.getPhase();
+        long millis = row.getValueTimestamp().getMillis();
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Key key = new Key(row.getConnectorPk(), granularity, measurand, phase, granularity.bucketStart(millis));
+            buckets.computeIfAbsent(key, k -> new Bucket(UNITS.get(measurand)))
+                   .add(row.getValueTimestamp(), value);
+        }
+        return true;
+    }
+
+    /**
+     * @return the value in the unit of the rollup, or null if the row is not rolled up
+     */
+    @Nullable
+    static BigDecimal normalize(MeterValueRow row) {
+        String unit = UNITS.get(measurandOf(row));
+        if (unit == null || "SignedData".equals(row.getFormat()) || row.getValue() == null) {
+            return null;
+        }
+        if (!isEmptyOr(row.getReadingContext(), SAMPLE_PERIODIC) || !isEmptyOr(row.getLocation(), OUTLET)) {
+            return null;
+        }
+
+        BigDecimal factor;
+        if (isEmpty(row.getUnit()) || unit.equals(row.getUnit())) {
+            factor = BigDecimal.ONE;
+        } else if (("k" + unit).equals(row.getUnit())) {
+            factor = KILO;
+        } else {
+            return null;
+        }
+
+        try {
+            return new BigDecimal(row.getValue().trim()).multiply(factor).setScale(SCALE, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Energy.Active.Import.Register is the default of OCPP
+     */
+    private static String measurandOf(MeterValueRow row) {
+        return isEmpty(row.getMeasurand()) ? ENERGY : row.getMeasurand();
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+
+    /**
+     * Empty is the default of OCPP, i.e. the given value
+     */
+    private static boolean isEmptyOr(String s, String value) {
+        return isEmpty(s) || value.equals(s);
+    }
+
+    /**
+     * Merges the buckets into the stored ones. The first/last values are replaced only by earlier/later ones. MySQL
+     * evaluates the assignments from left to right, i.e. the values must be decided before the timestamps change.
+     */
+    private void upsert(DSLContext ctx, Map<Key, Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Key, Bucket>> entries = new ArrayList<>(buckets.entrySet());
+        for (int i = 0; i < entries.size(); i += MAX_ROWS_PER_STATEMENT) {
+            upsertChunk(ctx, entries.subList(i, Math.min(i + MAX_ROWS_PER_STATEMENT, entries.size())));
+        }
+    }
+
+    private void upsertChunk(DSLContext ctx, Collection<Map.Entry<Key, Bucket>> entries) {
+        var r = CONNECTOR_METER_VALUE_ROLLUP;
+
+        var insert = ctx.insertInto(r,
+                r.CONNECTOR_PK,
+                r.BUCKET_MINUTES,
+                r.MEASURAND,
+                r.PHASE,
+                r.BUCKET_START,
+                r.UNIT,
+                r.FIRST_TIMESTAMP,
+                r.LAST_TIMESTAMP,
+                r.VALUE_FIRST,
+                r.VALUE_LAST,
+                r.VALUE_MIN,
+                r.VALUE_MAX,
+                r.VALUE_SUM,
+                r.SAMPLE_COUNT);
+
+        for (Map.Entry<Key, Bucket> e : entries) {
+            Key k = e.getKey();
+            Bucket b = e.getValue();
+            insert = insert.values(
+                    k.connectorPk,
+                    k.granularity.getMinutes(),
+                    k.measurand,
+                    k.phase,
+                    new DateTime(k.bucketStart, DateTimeZone.UTC),
+                    b.unit,
+                    b.firstTimestamp,
+                    b.lastTimestamp,
+                    b.first,
+                    b.last,
+                    b.min,
+                    b.max,
+                    b.sum,
+                    b.count);
+        }
+
+        insert.onDuplicateKeyUpdate()
+              .set(r.VALUE_FIRST, ifElse(DSL.excluded(r.FIRST_TIMESTAMP).lessThan(r.FIRST_TIMESTAMP), r.VALUE_FIRST))
+              .set(r.FIRST_TIMESTAMP, DSL.least(r.FIRST_TIMESTAMP, DSL.excluded(r.FIRST_TIMESTAMP)))
+              .set(r.VALUE_LAST, ifElse(DSL.excluded(r.LAST_TIMESTAMP).greaterOrEqual(r.LAST_TIMESTAMP), r.VALUE_LAST))
+              .set(r.LAST_TIMESTAMP, DSL.greatest(r.LAST_TIMESTAMP, DSL.excluded(r.LAST_TIMESTAMP)))
+              .set(r.VALUE_MIN, DSL.least(r.VALUE_MIN, DSL.excluded(r.VALUE_MIN)))
+              .set(r.VALUE_MAX, DSL.greatest(r.VALUE_MAX, DSL.excluded(r.VALUE_MAX)))
+              .set(r.VALUE_SUM, r.VALUE_SUM.plus(DSL.excluded(r.VALUE_SUM)))
+              .set(r.SAMPLE_COUNT, r.SAMPLE_COUNT.plus(DSL.excluded(r.SAMPLE_COUNT)))
+              .execute();
+
+        upsertedRows.add(entries.size());
+    }
+
+    /**
+     * @return the incoming value if the condition holds, the stored one otherwise
+     */
+    private static <T> Field<T> ifElse(Condition condition, Field<T> field) {
+        return DSL.when(condition, DSL.excluded(field)).otherwise(field);
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    static final class Key {
+        private final int connectorPk;
+        private final RollupGranularity granularity;
+        private final String measurand;
+        private final String phase;
+        private final long bucketStart;
+    }
+
+    /**
+     * Package-private for tests
+     */
+    @RequiredArgsConstructor
+    static final class Bucket {
+        private final String unit;
+
+        DateTime firstTimestamp;
+        DateTime lastTimestamp;
+        BigDecimal first;
+        BigDecimal last;
+        BigDecimal min;
+        BigDecimal max;
+        BigDecimal sum = BigDecimal.ZERO;
+        int count;
+
+        private void add(DateTime timestamp, BigDecimal value) {
+            if (count == 0 || timestamp.isBefore(firstTimestamp)) {
+                first = value;
+                firstTimestamp = timestamp;
+            }
+            // with equal timestamps the later one wins, like in the upsert
+            if (count == 0 || !timestamp.isBefore(lastTimestamp)) {
+                last = value;
+                lastTimestamp = timestamp;
+            }
+            min = (count == 0) ? value : min.min(value);
+            max = (count == 0) ? value : max.max(value);
+            sum = sum.add(value);
+            count++;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.repository.MeterValueRollupRepository;
+import de.rwth.idsg.steve.repository.RollupGranularity;
+import de.rwth.idsg.steve.repository.dto.MeterValueRollupRow;
+import jooq.steve.db.tables.records.ConnectorMeterValueRollupRecord;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static jooq.steve.db.tables.ConnectorMeterValueRollup.CONNECTOR_METER_VALUE_ROLLUP;
+
+@Repository
+@RequiredArgsConstructor
+public class MeterValueRollupRepositoryImpl implements MeterValueRollupRepository {
+
+    private final DSLContext ctx;
+
+    @Override
+    public List<MeterValueRollupRow> getRollups(int connectorPk, RollupGranularity granularity, String measurand,
+                                                DateTime from, DateTime to) {
+        return ctx.selectFrom(CONNECTOR_METER_VALUE_ROLLUP)
+                  .where(bucketCondition(connectorPk, granularity, measurand, from, to))
+                  .orderBy(CONNECTOR_METER_VALUE_ROLLUP.BUCKET_START, CONNECTOR_METER_VALUE_ROLLUP.PHASE)
+                  .fetch(r -> toRow(r, granularity));
+    }
+
+    /**
+     * The first value of the earliest bucket and the last value of the latest bucket. Both are found with the
+     * primary key.
+     */
+    @Override
+    @Nullable
+    public BigDecimal getEnergyWh(int connectorPk, DateTime from, DateTime to) {
+        Condition condition = bucketCondition(connectorPk, RollupGranularity.MINUTE, MeterValueRollup.ENERGY, from, to)
+                .and(CONNECTOR_METER_VALUE_ROLLUP.PHASE.eq(""));
+
+        BigDecimal first = fetchValue(CONNECTOR_METER_VALUE_ROLLUP.VALUE_FIRST, condition, false);
+        BigDecimal last = fetchValue(CONNECTOR_METER_VALUE_ROLLUP.VALUE_LAST, condition, true);
+
+        if (first == null || last == null) {
+            return null;
+        }
+        return last.subtract(first);
+    }
+
+    private BigDecimal fetchValue(Field<BigDecimal> field, Condition condition, boolean latest) {
+        return ctx.select(field)
+                  .from(CONNECTOR_METER_VALUE_ROLLUP)
+                  .where(condition)
+                  .orderBy(latest
+                          ? CONNECTOR_METER_VALUE_ROLLUP.BUCKET_START.desc()
+                          : CONNECTOR_METER_VALUE_ROLLUP.BUCKET_START.asc())
+                  .limit(1)
+                  .fetchOne(field);
+    }
+
+    private static Condition bucketCondition(int connectorPk, RollupGranularity granularity, String measurand,
+                                             DateTime from, DateTime to) {
+        return CONNECTOR_METER_VALUE_ROLLUP.CONNECTOR_PK.eq(connectorPk)
+                .and(CONNECTOR_METER_VALUE_ROLLUP.BUCKET_MINUTES.eq(granularity.getMinutes()))
+                .and(CONNECTOR_METER_VALUE_ROLLUP.MEASURAND.eq(measurand))
+                .and(CONNECTOR_METER_VALUE_ROLLUP.BUCKET_START.greaterOrEqual(from))
+                .and(CONNECTOR_METER_VALUE_ROLLUP.BUCKET_START.lessThan(to));
+    }
+
+    private static MeterValueRollupRow toRow(ConnectorMeterValueRollupRecord r, RollupGranularity granularity) {
+        BigDecimal avg = (r.getSampleCount() == null || r.getSampleCount() == 0 || r.getValueSum() == null)
+                ? null
+                : r.getValueSum().divide(BigDecimal.valueOf(r.getSampleCount()), 6, RoundingMode.HALF_UP);
+
+        BigDecimal delta = (r.getValueFirst() == null || r.getValueLast() == null)
+                ? null
+                : r.getValueLast().subtract(r.getValueFirst());
+
+        return MeterValueRollupRow.builder()
+                                  .connectorPk(r.getConnectorPk())
+                                  .granularity(granularity)
+                                  .measurand(r.getMeasurand())
+                                  .phase(r.getPhase())
+                                  .unit(r.getUnit())
+                                  .bucketStart(r.getBucketStart())
+                                  .firstTimestamp(r.getFirstTimestamp())
+                                  .lastTimestamp(r.getLastTimestamp())
+                                  .first(r.getValueFirst())
+                                  .last(r.getValueLast())
+                                  .min(r.getValueMin())
+                                  .max(r.getValueMax())
+                                  .avg(avg)
+                                  .delta(delta)
+                                  .samples(r.getSampleCount() == null ? 0 : r.getSampleCount())
+                                  .build();
+    }
+}
@@ -0,0 +1,830 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.repository.dto.MeterValueRow;
+import de.rwth.idsg.steve.repository.dto.MeterValueWriterStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ocpp.cs._2015._10.MeterValue;
+import ocpp.cs._2015._10.SampledValue;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataTypeException;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+import static jooq.steve.db.tables.ConnectorMeterValue.CONNECTOR_METER_VALUE;
+import static jooq.steve.db.tables.MeterValueSpillReplay.METER_VALUE_SPILL_REPLAY;
+
+/**
+ * Write-behind of connector_meter_value. The charge point is answered as soon as the rows are queued: a single
+ * thread collects the rows of all charge points and writes them in multi-row inserts, when the batch is full or when
+ * the flush interval since the first row of the batch has passed.
+ *
+ * Rows are not dropped when the database cannot keep up. If the queue is full or a write fails, they are appended to
+ * a spill file (one JSON array per row), which is written to the database when the queue is idle again, and at
+ * startup. The spill file is written by the writer thread: the rows that do not fit into the queue are handed over
+ * in a second queue of the same capacity. Only if that one is full as well, the caller writes them itself.
+ *
+ * The replay records the lines of a spill file that are written in the transaction of the insert (see
+ * meter_value_spill_replay), i.e. an interrupted replay goes on after the last written chunk. Rows are written twice
+ * only if an insert succeeds but reports a failure (e.g. the connection is lost before the commit is acknowledged).
+ *
+ * The callback of rows that are spilled runs once the spill files are written, not before: it usually reads the rows.
+ *
+ * If an insert fails because of the values of some rows (and not e.g. because the database is down), the rows are
+ * written one by one, such that a bad row does not hold back the others. A row that fails {@value #MAX_ATTEMPTS}
+ * times is moved to a dead-letter file in the spill directory, which is not written again.
+ */
+@Slf4j
+@Component
+public class MeterValueWriter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String SPILL_FILE_NAME = "meter-values.spill";
+    private static final String REPLAY_FILE_SUFFIX = ".replay";
+    private static final String DEAD_LETTER_FILE_NAME = "meter-values.dead";
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final DSLContext ctx;
+    private final MeterValueRollup rollup;
+
+    private final BlockingQueue<Entry> queue;
+    private final BlockingQueue<Entry> overflow; // to be spilled by the writer thread
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Path spillDirectory;
+    private final Path spillFile;
+    private final Path deadLetterFile;
+    private final long spillRetryNanos;
+    private final Object spillLock = new Object();
+
+    // callbacks of spilled rows, to run when the spill files are written. guarded by spillLock.
+    private final List<Runnable> afterReplay = new ArrayList<>();
+
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long replayNotBeforeNanos = System.nanoTime();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder totalFlushMillis = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+
+    // for the throughput since the last call of getStats()
+    private long statsNanos = System.nanoTime();
+    private long statsWritten;
+
+    @Autowired
+    public MeterValueWriter(DSLContext ctx, MeterValueRollup rollup) {
+        this(ctx, rollup, CONFIG.getMeterValues());
+    }
+
+    MeterValueWriter(DSLContext ctx, MeterValueRollup rollup, SteveConfiguration.MeterValues config) {
+        this.ctx = ctx;
+        this.rollup = rollup;
+        this.queueCapacity = Math.max(1, config.getQueueCapacity());
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflow = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getFlushIntervalMillis()));
+        this.spillDirectory = Paths.get(config.getSpillDirectory());
+        this.spillFile = spillDirectory.resolve(SPILL_FILE_NAME);
+        this.deadLetterFile = spillDirectory.resolve(DEAD_LETTER_FILE_NAME);
+        this.spillRetryNanos = TimeUnit.SECONDS.toNanos(Math.max(0, config.getSpillRetrySeconds()));
+
+        this.writer = new ThreadFactoryBuilder()
+                .setNameFormat("SteVe-MeterValues-%d")
+                .setDaemon(true)
+                .build()
+                .newThread(this::runWriter);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(spillDirectory);
+        } catch (IOException e) {
+            log.error("Failed to create the spill directory {}", spillDirectory, e);
+        }
+        writer.start();
+        log.info("Meter value writer started (capacity: {}, batch size: {}, flush interval: {} ms, spill dir: {})",
+                queueCapacity, batchSize, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos), spillDirectory);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+
+        // whatever the writer did not get to is written at the next startup
+        List<Entry> rest = new ArrayList<>(queue.size() + overflow.size());
+        queue.drainTo(rest);
+        overflow.drainTo(rest);
+        if (!rest.isEmpty()) {
+            log.warn("Meter value writer did not finish in time, spilling {} rows", rest.size());
+            spill(rest);
+        }
+    }
+
+    /**
+     * Never waits for the database. The rows that do not fit into the queue are spilled to disk by the writer thread,
+     * or by the caller, if the writer thread cannot keep up with that either.
+     *
+     * @param afterWrite runs after the rows are written, e.g. to submit processing that reads them again. If they are
+     *                   spilled, it runs after the spill files are written. It runs on the writer thread, and must
+     *                   not block.
+     */
+    public void add(List<MeterValueRow> rows, @Nullable Runnable afterWrite) {
+        if (rows.isEmpty()) {
+            runAfterWrite(afterWrite);
+            return;
+        }
+
+        List<Entry> toSpill = null;
+        int last = rows.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            Entry entry = new Entry(rows.get(i), i == last ? afterWrite : null);
+            if (running && queue.offer(entry)) {
+                enqueued.increment();
+                continue;
+            }
+            if (running && overflow.offer(entry)) {
+                continue;
+            }
+            if (toSpill == null) {
+                toSpill = new ArrayList<>(rows.size() - i);
+            }
+            toSpill.add(entry);
+        }
+
+        if (toSpill != null) {
+            spill(toSpill);
+        }
+    }
+
+    public synchronized MeterValueWriterStats getStats() {
+        long now = System.nanoTime();
+        long writtenNow = written.sum();
+        double seconds = (now - statsNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        double rowsPerSecond = seconds <= 0 ? 0 : (writtenNow - statsWritten) / seconds;
+        statsNanos = now;
+        statsWritten = writtenNow;
+
+        long flushes = flushCount.sum();
+        return MeterValueWriterStats.builder()
+                                    .queueDepth(queue.size())
+                                    .queueCapacity(queueCapacity)
+                                    .enqueued(enqueued.sum())
+                                    .written(writtenNow)
+                                    .spilled(spilled.sum())
+                                    .replayed(replayed.sum())
+                                    .dropped(dropped.sum())
+                                    .deadLettered(deadLettered.sum())
+                                    .spillFileBytes(getSpillFileBytes())
+                                    .failedBatches(failedBatches.sum())
+                                    .flushCount(flushes)
+                                    .lastFlushMillis(lastFlushMillis.get())
+                                    .maxFlushMillis(maxFlushMillis.get())
+                                    .avgFlushMillis(flushes == 0 ? 0 : (double) totalFlushMillis.sum() / flushes)
+                                    .avgRowsPerFlush(flushes == 0 ? 0 : (double) flushedRows.sum() / flushes)
+                                    .rowsPerSecond(rowsPerSecond)
+                                    .build();
+    }
+
+    /**
+     * One row per sampled value
+     */
+    public static List<MeterValueRow> toRows(List<MeterValue> list, int connectorPk, Integer transactionPk) {
+        List<MeterValueRow> rows = new ArrayList<>();
+        for (MeterValue t : list) {
+            for (SampledValue k : t.getSampledValue()) {
+                rows.add(MeterValueRow.builder()
+                                      .connectorPk(connectorPk)
+                                      .transactionPk(transactionPk)
+                                      .valueTimestamp(t.getTimestamp())
+                                      .value(k.getValue())
+                                      .readingContext(k.isSetContext() ? k.getContext().value() : null)
+                                      .format(k.isSetFormat() ? k.getFormat().value() : null)
+                                      .measurand(k.isSetMeasurand() ? k.getMeasurand().value() : null)
+                                      .location(k.isSetLocation() ? k.getLocation().value() : null)
+                                      .unit(k.isSetUnit() ? k.getUnit().value() : null)
+                                      .phase(k.isSetPhase() ? k.getPhase().value() : null)
+                                      .build());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * A single multi-row insert
+     */
+    public static void insert(DSLContext ctx, List<MeterValueRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        var insert = ctx.insertInto(CONNECTOR_METER_VALUE,
+                CONNECTOR_METER_VALUE.CONNECTOR_PK,
+                CONNECTOR_METER_VALUE.TRANSACTION_PK,
+                CONNECTOR_METER_VALUE.VALUE_TIMESTAMP,
+                CONNECTOR_METER_VALUE.VALUE,
+                CONNECTOR_METER_VALUE.READING_CONTEXT,
+                CONNECTOR_METER_VALUE.FORMAT,
+                CONNECTOR_METER_VALUE.MEASURAND,
+                CONNECTOR_METER_VALUE.LOCATION,
+                CONNECTOR_METER_VALUE.UNIT,
+                CONNECTOR_METER_VALUE.PHASE);
+
+        for (MeterValueRow r : rows) {
+            insert = insert.values(
+                    r.getConnectorPk(),
+                    r.getTransactionPk(),
+                    r.getValueTimestamp(),
+                    r.getValue(),
+                    r.getReadingContext(),
+                    r.getFormat(),
+                    r.getMeasurand(),
+                    r.getLocation(),
+                    r.getUnit(),
+                    r.getPhase());
+        }
+
+        insert.execute();
+    }
+
+    // -------------------------------------------------------------------------
+    // Writer thread
+    // -------------------------------------------------------------------------
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                spillOverflow();
+                Entry first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (running) {
+                        replaySpillFiles();
+                    }
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch, System.nanoTime() + flushIntervalNanos);
+                flush(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flush(batch);
+        }
+        spillOverflow();
+    }
+
+    /**
+     * Collects rows until the batch is full or the deadline is reached. During shutdown only takes what is already
+     * queued, without waiting.
+     */
+    private void fillBatch(List<Entry> batch, long deadline) throws InterruptedException {
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize || !running) {
+                return;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+
+            Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        WriteResult result;
+        try {
+            result = write(ctx, batch);
+        } finally {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            flushCount.increment();
+            flushedRows.add(batch.size());
+            totalFlushMillis.add(millis);
+            lastFlushMillis.set(millis);
+            maxFlushMillis.accumulateAndGet(millis, Math::max);
+        }
+
+        written.add(result.written.size());
+        // does not throw, i.e. cannot cause the written rows to be spilled
+        rollup.add(rowsOf(result.written));
+        for (Entry e : result.written) {
+            runAfterWrite(e.afterWrite);
+        }
+
+        List<Entry> failed = new ArrayList<>(result.badRows);
+        failed.addAll(result.notWritten);
+        if (!failed.isEmpty()) {
+            log.warn("Spilling {} meter values to disk", failed.size());
+            spill(failed);
+            // give the database some time, before we write the spill file
+            replayNotBeforeNanos = System.nanoTime() + spillRetryNanos;
+        }
+        batch.clear();
+    }
+
+    /**
+     * Writes the entries in one insert. If the insert fails because of some rows, writes them one by one.
+     */
+    private WriteResult write(DSLContext ctx, List<Entry> entries) {
+        try {
+            insert(ctx, rowsOf(entries));
+            return new WriteResult(entries, Collections.emptyList(), Collections.emptyList());
+        } catch (Exception e) {
+            failedBatches.increment();
+            if (!isRowError(e)) {
+                log.error("Failed to write {} meter values", entries.size(), e);
+                return new WriteResult(Collections.emptyList(), Collections.emptyList(), entries);
+            }
+            log.warn("Failed to write {} meter values because of their values, writing them one by one",
+                    entries.size(), e);
+        }
+
+        List<Entry> ok = new ArrayList<>(entries.size());
+        List<Entry> badRows = new ArrayList<>();
+        List<Entry> notWritten = Collections.emptyList();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            try {
+                insert(ctx, Collections.singletonList(entry.row));
+                ok.add(entry);
+            } catch (Exception e) {
+                if (!isRowError(e)) {
+                    // the database is gone. do not try the rest one by one.
+                    log.error("Failed to write the meter values one by one", e);
+                    notWritten = entries.subList(i, entries.size());
+                    break;
+                }
+                entry.attempts++;
+                badRows.add(entry);
+                log.warn("Failed to write a meter value of connectorPk {} (attempt {} of {}): {}",
+                        entry.row.getConnectorPk(), entry.attempts, MAX_ATTEMPTS, e.getMessage());
+            }
+        }
+        return new WriteResult(ok, badRows, notWritten);
+    }
+
+    /**
+     * Data exceptions (SQL state class 22, e.g. a value out of range) and integrity constraint violations (23) are
+     * caused by the rows. Everything else (e.g. a lost connection) is taken as a problem of the database.
+     */
+    static boolean isRowError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof DataTypeException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                return state != null && (state.startsWith("22") || state.startsWith("23"));
+            }
+        }
+        return false;
+    }
+
+    private static List<MeterValueRow> rowsOf(List<Entry> entries) {
+        List<MeterValueRow> rows = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            rows.add(e.row);
+        }
+        return rows;
+    }
+
+    // -------------------------------------------------------------------------
+    // Spill to disk
+    // -------------------------------------------------------------------------
+
+    private void spillOverflow() {
+        if (overflow.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(overflow.size());
+        overflow.drainTo(entries);
+        spill(entries);
+    }
+
+    /**
+     * Entries that failed too often go to the dead-letter file instead
+     */
+    private void spill(List<Entry> entries) {
+        List<Entry> again = new ArrayList<>(entries.size());
+        List<Entry> dead = new ArrayList<>();
+        for (Entry e : entries) {
+            (e.attempts >= MAX_ATTEMPTS ? dead : again).add(e);
+        }
+
+        if (!again.isEmpty()) {
+            List<String> lines = toLines(again);
+            try {
+                append(spillFile, lines);
+                spilled.add(lines.size());
+            } catch (IOException e) {
+                dropped.add(lines.size());
+                log.error("Failed to spill {} meter values to {}, they are lost", lines.size(), spillFile, e);
+            }
+        }
+
+        if (!dead.isEmpty()) {
+            List<String> lines = toLines(dead);
+            try {
+                append(deadLetterFile, lines);
+                deadLettered.add(lines.size());
+                log.error("Moved {} meter values that cannot be written to {}", lines.size(), deadLetterFile);
+            } catch (IOException e) {
+                dropped.add(lines.size());
+                log.error("Failed to write {} meter values to {}, they are lost", lines.size(), deadLetterFile, e);
+            }
+        }
+
+        synchronized (spillLock) {
+            for (Entry e : entries) {
+                if (e.afterWrite == null) {
+                    continue;
+                }
+                if (afterReplay.size() >= queueCapacity) {
+                    log.warn("Too many callbacks wait for the spilled meter values, skipping one");
+                    continue;
+                }
+                afterReplay.add(e.afterWrite);
+            }
+        }
+    }
+
+    private List<String> toLines(List<Entry> entries) {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            try {
+                lines.add(toJson(e));
+            } catch (IOException ex) {
+                dropped.increment();
+                log.error("Failed to serialize a meter value of connectorPk {}, it is lost",
+                        e.row.getConnectorPk(), ex);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Appends the lines to the file, and syncs it to the disk
+     */
+    private void append(Path file, List<String> lines) throws IOException {
+        synchronized (spillLock) {
+            try (FileOutputStream out = new FileOutputStream(file.toFile(), true)) {
+                Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    w.write(line);
+                    w.write('\n');
+                }
+                w.flush();
+                out.getFD().sync();
+            }
+        }
+    }
+
+    /**
+     * Writes the spilled rows to the database, oldest file first. Stops at the first failure, and when new rows
+     * arrive (these have priority, the spilled ones are written at the next idle moment).
+     */
+    private void replaySpillFiles() {
+        if (System.nanoTime() - replayNotBeforeNanos < 0) {
+            return;
+        }
+
+        List<Path> files = new ArrayList<>();
+        synchronized (spillLock) {
+            try {
+                if (Files.exists(spillFile) && Files.size(spillFile) > 0) {
+                    String name = SPILL_FILE_NAME + "." + System.currentTimeMillis() + REPLAY_FILE_SUFFIX;
+                    Files.move(spillFile, spillDirectory.resolve(name));
+                }
+                String glob = "*" + REPLAY_FILE_SUFFIX;
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(spillDirectory, glob)) {
+                    stream.forEach(files::add);
+                }
+            } catch (IOException e) {
+                log.error("Failed to list the spill files in {}", spillDirectory, e);
+                replayNotBeforeNanos = System.nanoTime() + spillRetryNanos;
+                return;
+            }
+        }
+
+        // the timestamp in the name keeps them in order
+        files.sort(null);
+
+        for (Path file : files) {
+            if (!replay(file)) {
+                replayNotBeforeNanos = System.nanoTime() + spillRetryNanos;
+                return;
+            }
+            if (!queue.isEmpty()) {
+                return;
+            }
+        }
+
+        List<Runnable> callbacks;
+        synchronized (spillLock) {
+            callbacks = new ArrayList<>(afterReplay);
+            afterReplay.clear();
+        }
+        callbacks.forEach(this::runAfterWrite);
+    }
+
+    /**
+     * @return true, if the file is written completely and deleted
+     */
+    private boolean replay(Path file) {
+        String fileName = file.getFileName().toString();
+        int writtenLines;
+        try {
+            writtenLines = getReplayedLines(fileName);
+        } catch (Exception e) {
+            log.error("Failed to read how much of the spill file {} is written", fileName, e);
+            return false;
+        }
+
+        List<String> lines = new ArrayList<>(batchSize);
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= writtenLines) {
+                    continue;
+                }
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+                if (lines.size() >= batchSize) {
+                    if (!replayChunk(fileName, lines, lineNumber)) {
+                        return false;
+                    }
+                    lines.clear();
+                }
+            }
+            if (!lines.isEmpty() && !replayChunk(fileName, lines, lineNumber)) {
+                return false;
+            }
+        } catch (IOException e) {
+            // the file stays and is tried again, after the chunks written so far
+            log.error("Failed to read the spill file {}", file, e);
+            return false;
+        }
+
+        deleteQuietly(file);
+        try {
+            ctx.delete(METER_VALUE_SPILL_REPLAY)
+               .where(METER_VALUE_SPILL_REPLAY.FILE_NAME.eq(fileName))
+               .execute();
+        } catch (Exception e) {
+            // the file names are unique, the row is not read again
+            log.warn("Failed to delete the replay progress of {}", fileName, e);
+        }
+        log.info("Wrote the spilled meter values of {}", fileName);
+        return true;
+    }
+
+    /**
+     * Writes the rows and records that the file is written up to the given line in one transaction. Rows that fail
+     * because of their values are spilled again (or dead-lettered) before the commit: if the commit fails, they are
+     * read from this file again as well.
+     *
+     * @return false, if the database failed. Nothing of the chunk is written then.
+     */
+    private boolean replayChunk(String fileName, List<String> lines, int lineNumber) {
+        List<Entry> entries = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            try {
+                entries.add(fromJson(line));
+            } catch (Exception e) {
+                dropped.increment();
+                log.error("Skipping a malformed line of the spill file: {}", line, e);
+            }
+        }
+
+        WriteResult result;
+        try {
+            result = ctx.transactionResult(configuration -> {
+                DSLContext ctx = DSL.using(configuration);
+                WriteResult r = write(ctx, entries);
+                if (!r.notWritten.isEmpty()) {
+                    // rolls back what is written one by one
+                    throw new SteveException("Failed to write %s spilled meter values", r.notWritten.size());
+                }
+                if (!r.badRows.isEmpty()) {
+                    spill(r.badRows);
+                }
+                // the rollup is part of the transaction as well, i.e. the rows are not counted twice
+                rollup.add(ctx, rowsOf(r.written));
+                setReplayedLines(ctx, fileName, lineNumber);
+                return r;
+            });
+        } catch (Exception e) {
+            log.error("Failed to write the spilled meter values of {}, will try again in {} seconds",
+                    fileName, TimeUnit.NANOSECONDS.toSeconds(spillRetryNanos), e);
+            return false;
+        }
+
+        written.add(result.written.size());
+        replayed.add(result.written.size());
+
+        if (!result.badRows.isEmpty()) {
+            // they are tried again with the next replay, at the earliest after the retry delay
+            replayNotBeforeNanos = System.nanoTime() + spillRetryNanos;
+        }
+        return true;
+    }
+
+    private int getReplayedLines(String fileName) {
+        Integer lines = ctx.select(METER_VALUE_SPILL_REPLAY.LINE_COUNT)
+                           .from(METER_VALUE_SPILL_REPLAY)
+                           .where(METER_VALUE_SPILL_REPLAY.FILE_NAME.eq(fileName))
+                           .fetchOne(METER_VALUE_SPILL_REPLAY.LINE_COUNT);
+        return (lines == null) ? 0 : lines;
+    }
+
+    private static void setReplayedLines(DSLContext ctx, String fileName, int lines) {
+        ctx.insertInto(METER_VALUE_SPILL_REPLAY)
+           .set(METER_VALUE_SPILL_REPLAY.FILE_NAME, fileName)
+           .set(METER_VALUE_SPILL_REPLAY.LINE_COUNT, lines)
+           .onDuplicateKeyUpdate()
+           .set(METER_VALUE_SPILL_REPLAY.LINE_COUNT, lines)
+           .execute();
+    }
+
+    private long getSpillFileBytes() {
+        long bytes = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spillDirectory, SPILL_FILE_NAME + "*")) {
+            for (Path file : stream) {
+                bytes += Files.size(file);
+            }
+        } catch (IOException e) {
+            // the directory might not exist (yet)
+        }
+        return bytes;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("Failed to delete {}", file, e);
+        }
+    }
+
+    /**
+     * The number of failed attempts is appended to the columns
+     */
+    private static String toJson(Entry e) throws IOException {
+        MeterValueRow r = e.row;
+        Object[] array = {
+                r.getConnectorPk(),
+                r.getTransactionPk(),
+                r.getValueTimestamp() == null ? null : r.getValueTimestamp().getMillis(),
+                r.getValue(),
+                r.getReadingContext(),
+                r.getFormat(),
+                r.getMeasurand(),
+                r.getLocation(),
+                r.getUnit(),
+                r.getPhase(),
+                e.attempts
+        };
+        return MAPPER.writeValueAsString(array);
+    }
+
+    private static Entry fromJson(String line) throws IOException {
+        JsonNode a = MAPPER.readTree(line);
+        MeterValueRow row = MeterValueRow.builder()
+                            .connectorPk(a.get(0).asInt())
+                            .transactionPk(a.get(1).isNull() ? null : a.get(1).asInt())
+                            .valueTimestamp(a.get(2).isNull() ? null : new DateTime(a.get(2).asLong()))
+                            .value(text(a.get(3)))
+                            .readingContext(text(a.get(4)))
+                            .format(text(a.get(5)))
+                            .measurand(text(a.get(6)))
+                            .location(text(a.get(7)))
+                            .unit(text(a.get(8)))
+                            .phase(text(a.get(9)))
+                            .build();
+
+        Entry entry = new Entry(row, null);
+        entry.attempts = a.size() > 10 ? a.get(10).asInt() : 0;
+        return entry;
+    }
+
+    @Nullable
+    private static String text(JsonNode node) {
+        return node.isNull() ? null : node.asText();
+    }
+
+    private void runAfterWrite(@Nullable Runnable afterWrite) {
+        if (afterWrite == null) {
+            return;
+        }
+
+        try {
+            afterWrite.run();
+        } catch (Exception e) {
+            log.error("Exception occurred after writing meter values", e);
+        }
+    }
+
+    private static final class Entry {
+        private final MeterValueRow row;
+        @Nullable private final Runnable afterWrite;
+        private int attempts; // failed because of the values of the row
+
+        private Entry(MeterValueRow row, @Nullable Runnable afterWrite) {
+            this.row = row;
+            this.afterWrite = afterWrite;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class WriteResult {
+        private final List<Entry> written;
+        private final List<Entry> badRows; // failed because of their values
+        private final List<Entry> notWritten; // not written, since the database failed
+    }
+}
@@ -34,19 +34,18 @@ import de.rwth.idsg.steve.repository.dto.UpdateChargeboxParams;
 import de.rwth.idsg.steve.repository.dto.UpdateTransactionParams;
 import jooq.steve.db.enums.TransactionStopEventActor;
 import jooq.steve.db.enums.TransactionStopFailedEventActor;
-import jooq.steve.db.tables.records.ConnectorMeterValueRecord;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ocpp.cs._2015._10.MeterValue;
 
-import ocpp.cs._2015._10.SampledValue;
 import org.hibernate.validator.internal.util.stereotypes.Lazy;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDateTime;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.SelectConditionStep;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
@@ -58,13 +57,13 @@ import java.sql.Timestamp;
 import java.util.List;
 
 import java.util.concurrent.locks.Lock;
-import java.util.stream.Collectors;
 
 
 import static jooq.steve.db.tables.ChargeBox.CHARGE_BOX;
 import static jooq.steve.db.tables.Connector.CONNECTOR;
 import static jooq.steve.db.tables.ConnectorMeterValue.CONNECTOR_METER_VALUE;
 import static jooq.steve.db.tables.ConnectorStatus.CONNECTOR_STATUS;
+import static jooq.steve.db.tables.ConnectorStatusLatest.CONNECTOR_STATUS_LATEST;
 import static jooq.steve.db.tables.OcppTag.OCPP_TAG;
 import static jooq.steve.db.tables.TransactionMeterValues.TRANSACTION_METER_VALUES;
 import static jooq.steve.db.tables.TransactionStart.TRANSACTION_START;
@@ -86,6 +85,7 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
 
     private final DSLContext ctx;
     private final ReservationRepository reservationRepository;
+    private final ConnectorPkCache connectorPkCache;
     private final Striped<Lock> transactionTableLocks = Striped.lock(16);
 
     @Autowired
@@ -98,6 +98,9 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
     @Autowired
     private CustomStopReasonStore customStopReasonStore;
     @Autowired private TariffSessionCost tariffSessionCost;
+    @Autowired private HeartbeatRegistry heartbeatRegistry;
+    @Autowired private MeterValueWriter meterValueWriter;
+    @Autowired private TariffProcessingQueue tariffProcessingQueue;
 
 
 //    @Autowired
@@ -182,32 +185,25 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
 
     @Override
     public void updateChargeboxHeartbeat(String chargeBoxIdentity, DateTime ts) {
-        ctx.update(CHARGE_BOX)
-                .set(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP, ts)
-                .where(CHARGE_BOX.CHARGE_BOX_ID.equal(chargeBoxIdentity))
-                .execute();
+        // Coalesced and written periodically
+        heartbeatRegistry.touch(chargeBoxIdentity, ts);
     }
 
     @Override
     public void insertConnectorStatus(InsertConnectorStatusParams p) {
 
-        ctx.transaction(configuration -> {
-            DSLContext ctx = DSL.using(configuration);
+        // Step 1
+        int connectorPk = getOrInsertConnectorPk(p.getChargeBoxId(), p.getConnectorId());
 
-            // Step 1
-            insertIgnoreConnector(ctx, p.getChargeBoxId(), p.getConnectorId());
+        // -------------------------------------------------------------------------
+        // Step 2: We store a log of connector statuses, and keep the latest one per connector
+        // -------------------------------------------------------------------------
 
-            // -------------------------------------------------------------------------
-            // Step 2: We store a log of connector statuses
-            // -------------------------------------------------------------------------
+        ctx.transaction(configuration -> {
+            DSLContext ctx = DSL.using(configuration);
 
             ctx.insertInto(CONNECTOR_STATUS)
-                    .set(CONNECTOR_STATUS.CONNECTOR_PK, DSL.select(CONNECTOR.CONNECTOR_PK)
-                            .from(CONNECTOR)
-                            .where(CONNECTOR.CHARGE_BOX_ID.equal(p.getChargeBoxId()))
-                            .and(CONNECTOR.CONNECTOR_ID.equal(p.getConnectorId()))
-                    )
-
+                    .set(CONNECTOR_STATUS.CONNECTOR_PK, connectorPk)
                     .set(CONNECTOR_STATUS.STATUS_TIMESTAMP, p.getTimestamp())
                     .set(CONNECTOR_STATUS.STATUS, p.getStatus())
                     .set(CONNECTOR_STATUS.ERROR_CODE, p.getErrorCode())
@@ -216,8 +212,11 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
                     .set(CONNECTOR_STATUS.VENDOR_ERROR_CODE, p.getVendorErrorCode())
                     .execute();
 
-            log.debug("Stored a new connector status for {}/{}.", p.getChargeBoxId(), p.getConnectorId());
+            upsertLatestConnectorStatus(ctx, DSL.val(connectorPk), p.getTimestamp(), p.getStatus(), p.getErrorCode(),
+                    p.getErrorInfo(), p.getVendorId(), p.getVendorErrorCode());
         });
+
+        log.debug("Stored a new connector status for {}/{}.", p.getChargeBoxId(), p.getConnectorId());
     }
 
     @Override
@@ -226,31 +225,20 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
         if (CollectionUtils.isEmpty(list)) {
             return;
         }
-        ctx.transaction(configuration -> {
-            try {
-                DSLContext ctx = DSL.using(configuration);
-
-                insertIgnoreConnector(ctx, chargeBoxIdentity, connectorId);
-                int connectorPk = getConnectorPkFromConnector(ctx, chargeBoxIdentity, connectorId);
-                batchInsertMeterValues(ctx, list, connectorPk, transactionId);
-                // Fetch idTag using transactionId
-                String idTag = ctx.select(TRANSACTION_START.ID_TAG)
-                        .from(TRANSACTION_START)
-                        .where(TRANSACTION_START.TRANSACTION_PK.eq(transactionId))
-                        .fetchOneInto(String.class);
-
-                if (idTag != null) {
-                    tariffSessionCost.callPhpAndProcess(chargeBoxIdentity, idTag, connectorId, transactionId);
-                } else {
-                    log.warn("No idTag found for transactionId {}", transactionId);
-                }
-
-               // walletMonitorService.checkAndStopIfLowBalance(list, transactionId, connectorPk);
-
-            } catch (Exception e) {
-                log.error("Exception occurred", e.getMessage());
-            }
-        });
+
+        // Only the connector is resolved here. The rows are written in batches, together with the rows of the other
+        // stations, and the tariff is processed when they are in the database.
+        try {
+            int connectorPk = getOrInsertConnectorPk(chargeBoxIdentity, connectorId);
+            Runnable afterWrite = (transactionId == null) ? null : () -> tariffProcessingQueue.submit(
+                    transactionId, () -> processTariff(chargeBoxIdentity, connectorId, transactionId));
+            meterValueWriter.add(MeterValueWriter.toRows(list, connectorPk, transactionId), afterWrite);
+
+            // walletMonitorService.checkAndStopIfLowBalance(list, transactionId, connectorPk);
+
+        } catch (Exception e) {
+            log.error("Exception occurred", e);
+        }
     }
 
     @Override
@@ -259,22 +247,36 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
             return;
         }
 
-        ctx.transaction(configuration -> {
-            try {
-                DSLContext ctx = DSL.using(configuration);
-
-                // First, get connector primary key from transaction table
-                int connectorPk = ctx.select(TRANSACTION_START.CONNECTOR_PK)
-                        .from(TRANSACTION_START)
-                        .where(TRANSACTION_START.TRANSACTION_PK.equal(transactionId))
-                        .fetchOne()
-                        .value1();
-
-                batchInsertMeterValues(ctx, list, connectorPk, transactionId);
-            } catch (Exception e) {
-                log.error("Exception occurred", e);
+        try {
+            // First, get connector primary key from transaction table
+            int connectorPk = ctx.select(TRANSACTION_START.CONNECTOR_PK)
+                    .from(TRANSACTION_START)
+                    .where(TRANSACTION_START.TRANSACTION_PK.equal(transactionId))
+                    .fetchOne()
+                    .value1();
+
+            meterValueWriter.add(MeterValueWriter.toRows(list, connectorPk, transactionId), null);
+        } catch (Exception e) {
+            log.error("Exception occurred", e);
+        }
+    }
+
+    private void processTariff(String chargeBoxIdentity, int connectorId, Integer transactionId) {
+        try {
+            // Fetch idTag using transactionId
+            String idTag = ctx.select(TRANSACTION_START.ID_TAG)
+                    .from(TRANSACTION_START)
+                    .where(TRANSACTION_START.TRANSACTION_PK.eq(transactionId))
+                    .fetchOneInto(String.class);
+
+            if (idTag != null) {
+                tariffSessionCost.callPhpAndProcess(chargeBoxIdentity, idTag, connectorId, transactionId);
+            } else {
+                log.warn("No idTag found for transactionId {}", transactionId);
             }
-        });
+        } catch (Exception e) {
+            log.error("Exception occurred", e);
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -284,17 +286,11 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
     @Override
     public int insertTransaction(InsertTransactionParams p) {
 
-        SelectConditionStep<Record1<Integer>> connectorPkQuery =
-                DSL.select(CONNECTOR.CONNECTOR_PK)
-                        .from(CONNECTOR)
-                        .where(CONNECTOR.CHARGE_BOX_ID.equal(p.getChargeBoxId()))
-                        .and(CONNECTOR.CONNECTOR_ID.equal(p.getConnectorId()));
-
         // -------------------------------------------------------------------------
         // Step 1: Insert connector and idTag, if they are new to us
         // -------------------------------------------------------------------------
 
-        insertIgnoreConnector(ctx, p.getChargeBoxId(), p.getConnectorId());
+        int connectorPk = getOrInsertConnectorPk(p.getChargeBoxId(), p.getConnectorId());
 
         // it is important to insert idTag before transaction, since the transaction table references it
         boolean unknownTagInserted = insertIgnoreIdTag(ctx, p);
@@ -303,7 +299,7 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
         // Step 2: Insert transaction if it does not exist already
         // -------------------------------------------------------------------------
 
-        TransactionDataHolder data = insertIgnoreTransaction(p, connectorPkQuery);
+        TransactionDataHolder data = insertIgnoreTransaction(p, connectorPk);
         int transactionId = data.transactionId;
 
         if (data.existsAlready) {
@@ -320,7 +316,7 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
         // -------------------------------------------------------------------------
 
         if (p.isSetReservationId()) {
-            reservationRepository.used(connectorPkQuery, p.getIdTag(), p.getReservationId(), transactionId);
+            reservationRepository.used(connectorPk, p.getIdTag(), p.getReservationId(), transactionId);
         }
 
         // -------------------------------------------------------------------------
@@ -328,7 +324,7 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
         // -------------------------------------------------------------------------
 
         if (shouldInsertConnectorStatusAfterTransactionMsg(p.getChargeBoxId())) {
-            insertConnectorStatus(ctx, connectorPkQuery, p.getStartTimestamp(), p.getStatusUpdate());
+            insertConnectorStatus(ctx, DSL.val(connectorPk), p.getStartTimestamp(), p.getStatusUpdate());
         }
 
         return transactionId;
@@ -363,24 +359,23 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
                     .set(TRANSACTION_STOP.STOP_REASON, p.getStopReason())
                     .execute();
 
-            Integer connectorPk =
-                    ctx.select(TRANSACTION_START.CONNECTOR_PK)
-                    .from(TRANSACTION_START)
-                    .where(TRANSACTION_START.TRANSACTION_PK.eq(p.getTransactionId()))
-                    .fetchOne(TRANSACTION_START.CONNECTOR_PK);
-
-                ctx.insertInto(CONNECTOR_METER_VALUE)
-                        .set(CONNECTOR_METER_VALUE.VALUE, p.getStopMeterValue())
-                        .set(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP, p.getStopTimestamp())
-                        .set(CONNECTOR_METER_VALUE.CONNECTOR_PK, connectorPk)
-                        .set(CONNECTOR_METER_VALUE.TRANSACTION_PK, p.getTransactionId()) // add transaction_pk
-                        .set(CONNECTOR_METER_VALUE.UNIT, "Wh")
-                        .set(CONNECTOR_METER_VALUE.FORMAT, "format")
-                        .set(CONNECTOR_METER_VALUE.LOCATION, "Outlet")
-                        .set(CONNECTOR_METER_VALUE.PHASE, "L1")
-                        .set(CONNECTOR_METER_VALUE.READING_CONTEXT, "ReadingContext")
-                        .set(CONNECTOR_METER_VALUE.MEASURAND, "Energy.Active.Import.Register")
-                        .execute();
+            Integer connectorPk = ctx.select(TRANSACTION_START.CONNECTOR_PK)
+                                     .from(TRANSACTION_START)
+                                     .where(TRANSACTION_START.TRANSACTION_PK.eq(p.getTransactionId()))
+                                     .fetchOne(TRANSACTION_START.CONNECTOR_PK);
+
+            ctx.insertInto(CONNECTOR_METER_VALUE)
+                    .set(CONNECTOR_METER_VALUE.VALUE, p.getStopMeterValue())
+                    .set(CONNECTOR_METER_VALUE.VALUE_TIMESTAMP, p.getStopTimestamp())
+                    .set(CONNECTOR_METER_VALUE.CONNECTOR_PK, connectorPk)
+                    .set(CONNECTOR_METER_VALUE.TRANSACTION_PK, p.getTransactionId()) // add transaction_pk
+                    .set(CONNECTOR_METER_VALUE.UNIT, "Wh")
+                    .set(CONNECTOR_METER_VALUE.FORMAT, "format")
+                    .set(CONNECTOR_METER_VALUE.LOCATION, "Outlet")
+                    .set(CONNECTOR_METER_VALUE.PHASE, "L1")
+                    .set(CONNECTOR_METER_VALUE.READING_CONTEXT, "ReadingContext")
+                    .set(CONNECTOR_METER_VALUE.MEASURAND, "Energy.Active.Import.Register")
+                    .execute();
 
         } catch (Exception e) {
             log.error("Exception occurred", e);
@@ -393,10 +388,10 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
         // -------------------------------------------------------------------------
 
         if (shouldInsertConnectorStatusAfterTransactionMsg(p.getChargeBoxId())) {
-            SelectConditionStep<Record1<Integer>> connectorPkQuery =
-                    DSL.select(TRANSACTION_START.CONNECTOR_PK)
+            Field<Integer> connectorPkQuery =
+                    DSL.field(DSL.select(TRANSACTION_START.CONNECTOR_PK)
                             .from(TRANSACTION_START)
-                            .where(TRANSACTION_START.TRANSACTION_PK.equal(p.getTransactionId()));
+                            .where(TRANSACTION_START.TRANSACTION_PK.equal(p.getTransactionId())));
 
             insertConnectorStatus(ctx, connectorPkQuery, p.getStopTimestamp(), p.getStatusUpdate());
         }
@@ -407,15 +402,14 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
      * problems the response of StartTransaction could not be delivered and station tries again later), we do not want
      * to insert this into database multiple times.
      */
-    private TransactionDataHolder insertIgnoreTransaction(InsertTransactionParams p,
-                                                          SelectConditionStep<Record1<Integer>> connectorPkQuery) {
+    private TransactionDataHolder insertIgnoreTransaction(InsertTransactionParams p, int connectorPk) {
         Lock l = transactionTableLocks.get(p.getChargeBoxId());
         l.lock();
         try {
             // 🔧 Relaxed check: ignore idTag – allow multiple devices using same idTag
             Record1<Integer> r = ctx.select(TRANSACTION_START.TRANSACTION_PK)
                     .from(TRANSACTION_START)
-                    .where(TRANSACTION_START.CONNECTOR_PK.eq(connectorPkQuery))
+                    .where(TRANSACTION_START.CONNECTOR_PK.eq(connectorPk))
                     .and(TRANSACTION_START.START_TIMESTAMP.eq(p.getStartTimestamp()))
                     .and(TRANSACTION_START.START_VALUE.eq(p.getStartMeterValue()))
                     .fetchOne();
@@ -427,7 +421,7 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
             // ✅ Always insert new transaction (only blocked if exact same connector/start time/start value)
             Integer transactionId = ctx.insertInto(TRANSACTION_START)
                     .set(TRANSACTION_START.EVENT_TIMESTAMP, p.getEventTimestamp())
-                    .set(TRANSACTION_START.CONNECTOR_PK, connectorPkQuery)
+                    .set(TRANSACTION_START.CONNECTOR_PK, connectorPk)
                     .set(TRANSACTION_START.ID_TAG, p.getIdTag())
                     .set(TRANSACTION_START.START_TIMESTAMP, p.getStartTimestamp())
                     .set(TRANSACTION_START.START_VALUE, p.getStartMeterValue())
@@ -455,21 +449,63 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
      * and we have a "more recent" status, it will still be the current status.
      */
     private void insertConnectorStatus(DSLContext ctx,
-                                       SelectConditionStep<Record1<Integer>> connectorPkQuery,
+                                       Field<Integer> connectorPk,
                                        DateTime timestamp,
                                        TransactionStatusUpdate statusUpdate) {
         try {
             ctx.insertInto(CONNECTOR_STATUS)
-                    .set(CONNECTOR_STATUS.CONNECTOR_PK, connectorPkQuery)
+                    .set(CONNECTOR_STATUS.CONNECTOR_PK, connectorPk)
                     .set(CONNECTOR_STATUS.STATUS_TIMESTAMP, timestamp)
                     .set(CONNECTOR_STATUS.STATUS, statusUpdate.getStatus())
                     .set(CONNECTOR_STATUS.ERROR_CODE, statusUpdate.getErrorCode())
                     .execute();
+
+            upsertLatestConnectorStatus(ctx, connectorPk, timestamp, statusUpdate.getStatus(),
+                    statusUpdate.getErrorCode(), null, null, null);
         } catch (Exception e) {
             log.error("Exception occurred", e);
         }
     }
 
+    /**
+     * Keeps connector_status_latest in sync with the log. Statuses can arrive out of order (e.g. transaction data
+     * pushed late by an offline station), therefore the row is only overwritten if the incoming timestamp is not
+     * older than the stored one. With equal timestamps, the later insert wins.
+     */
+    private static void upsertLatestConnectorStatus(DSLContext ctx, Field<Integer> connectorPk, DateTime timestamp,
+                                                    String status, String errorCode, String errorInfo,
+                                                    String vendorId, String vendorErrorCode) {
+        if (timestamp == null) {
+            return;
+        }
+
+        Condition newer = CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP.isNull()
+                .or(DSL.excluded(CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP)
+                       .ge(CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP));
+
+        // the conditions are evaluated against the stored row. the timestamp must therefore be updated last.
+        ctx.insertInto(CONNECTOR_STATUS_LATEST)
+           .set(CONNECTOR_STATUS_LATEST.CONNECTOR_PK, connectorPk)
+           .set(CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP, timestamp)
+           .set(CONNECTOR_STATUS_LATEST.STATUS, status)
+           .set(CONNECTOR_STATUS_LATEST.ERROR_CODE, errorCode)
+           .set(CONNECTOR_STATUS_LATEST.ERROR_INFO, errorInfo)
+           .set(CONNECTOR_STATUS_LATEST.VENDOR_ID, vendorId)
+           .set(CONNECTOR_STATUS_LATEST.VENDOR_ERROR_CODE, vendorErrorCode)
+           .onDuplicateKeyUpdate()
+           .set(CONNECTOR_STATUS_LATEST.STATUS, ifNewer(newer, CONNECTOR_STATUS_LATEST.STATUS))
+           .set(CONNECTOR_STATUS_LATEST.ERROR_CODE, ifNewer(newer, CONNECTOR_STATUS_LATEST.ERROR_CODE))
+           .set(CONNECTOR_STATUS_LATEST.ERROR_INFO, ifNewer(newer, CONNECTOR_STATUS_LATEST.ERROR_INFO))
+           .set(CONNECTOR_STATUS_LATEST.VENDOR_ID, ifNewer(newer, CONNECTOR_STATUS_LATEST.VENDOR_ID))
+           .set(CONNECTOR_STATUS_LATEST.VENDOR_ERROR_CODE, ifNewer(newer, CONNECTOR_STATUS_LATEST.VENDOR_ERROR_CODE))
+           .set(CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP, ifNewer(newer, CONNECTOR_STATUS_LATEST.STATUS_TIMESTAMP))
+           .execute();
+    }
+
+    private static <T> Field<T> ifNewer(Condition newer, Field<T> field) {
+        return DSL.when(newer, DSL.excluded(field)).otherwise(field);
+    }
+
     /**
      * Use case: An offline charging station decides to allow an unknown idTag to start a transaction. Later, when it
      * is online, it sends a StartTransactionRequest with this idTag. If we do not insert this idTag, the transaction
@@ -499,13 +535,8 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
         return (r != null) && (r.value1() == 1);
     }
 
-    private int getConnectorPkFromConnector(DSLContext ctx, String chargeBoxIdentity, int connectorId) {
-        return ctx.select(CONNECTOR.CONNECTOR_PK)
-                .from(CONNECTOR)
-                .where(CONNECTOR.CHARGE_BOX_ID.equal(chargeBoxIdentity))
-                .and(CONNECTOR.CONNECTOR_ID.equal(connectorId))
-                .fetchOne()
-                .value1();
+    private int getOrInsertConnectorPk(String chargeBoxIdentity, int connectorId) {
+        return connectorPkCache.getOrInsert(chargeBoxIdentity, connectorId);
     }
 
     private void tryInsertingFailed(UpdateTransactionParams p, Exception e) {
@@ -526,29 +557,6 @@ public class OcppServerRepositoryImpl implements OcppServerRepository {
         }
     }
 
-    private void batchInsertMeterValues(DSLContext ctx, List<MeterValue> list, int connectorPk, Integer transactionId) {
-
-        List<ConnectorMeterValueRecord> batch =
-                list.stream()
-                        .flatMap(t -> t.getSampledValue()
-                                .stream()
-                                .map(k -> ctx.newRecord(CONNECTOR_METER_VALUE)
-                                        .setConnectorPk(connectorPk)
-                                        .setTransactionPk(transactionId)
-                                        .setValueTimestamp(t.getTimestamp())
-                                        .setValue(k.getValue())
-                                        // The following are optional fields!
-                                        .setReadingContext(k.isSetContext() ? k.getContext().value() : null)
-                                        .setFormat(k.isSetFormat() ? k.getFormat().value() : null)
-                                        .setMeasurand(k.isSetMeasurand() ? k.getMeasurand().value() : null)
-                                        .setLocation(k.isSetLocation() ? k.getLocation().value() : null)
-                                        .setUnit(k.isSetUnit() ? k.getUnit().value() : null)
-                                        .setPhase(k.isSetPhase() ? k.getPhase().value() : null)))
-                        .collect(Collectors.toList());
-
-        ctx.batchInsert(batch).execute();
-    }
-
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     private static final class TransactionDataHolder {
         final boolean existsAlready;
@@ -0,0 +1,479 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.repository.dto.PartitionTableStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+import static jooq.steve.db.tables.AppLog.APP_LOG;
+import static jooq.steve.db.tables.Connector.CONNECTOR;
+import static jooq.steve.db.tables.ConnectorMeterValue.CONNECTOR_METER_VALUE;
+import static jooq.steve.db.tables.ConnectorStatus.CONNECTOR_STATUS;
+
+/**
+ * Maintains the monthly range partitions of the append-only tables (see migration V2_0_7):
+ *
+ * - The partitions of the coming months are created in advance by splitting them off the empty catch-all partition
+ * p_future. Rows never have to be moved that way.
+ * - The partitions that are older than the retention of the table are dropped. If the table is archived, the partition
+ * is first exchanged with an empty table of its own (e.g. connector_meter_value_p202401), which only swaps metadata.
+ * In contrast to DELETE, both operations do not lock or scan the live data.
+ * - Partitioned tables cannot have foreign keys. The rows of a deleted charge point are deleted with it, but the
+ * writes that were still buffered (see MeterValueWriter) or in flight at that time arrive later. These orphans (rows
+ * of a connector that does not exist anymore) are deleted by each run.
+ *
+ * The partition bounds are TO_SECONDS() of the first day of a month, i.e. of the values as the application writes
+ * them (the columns are DATETIME).
+ */
+@Slf4j
+@Component
+public class PartitionRetentionManager {
+
+    private static final long MAXVALUE = Long.MAX_VALUE;
+
+    // TO_DAYS('1970-01-01') of MySQL, which counts the days since the year 0
+    private static final long TO_DAYS_OF_EPOCH = 719_528;
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+    // a query over the last day spans two monthly partitions at most. MySQL scans the first partition as well, since
+    // it would hold the rows for which TO_SECONDS() is NULL.
+    private static final int MAX_PRUNED_SCAN = 3;
+
+    private final DSLContext ctx;
+    private final ScheduledExecutorService executor;
+    private final SteveConfiguration.Retention config;
+    private final List<ManagedTable> tables = new ArrayList<>();
+
+    private ScheduledFuture<?> schedule;
+
+    @Autowired
+    public PartitionRetentionManager(DSLContext ctx, ScheduledExecutorService executor) {
+        this(ctx, executor, CONFIG.getRetention());
+    }
+
+    PartitionRetentionManager(DSLContext ctx, ScheduledExecutorService executor, SteveConfiguration.Retention config) {
+        this.ctx = ctx;
+        this.executor = executor;
+        this.config = config;
+
+        tables.add(new ManagedTable(CONNECTOR_METER_VALUE, CONNECTOR_METER_VALUE.VALUE_TIMESTAMP,
+                CONNECTOR_METER_VALUE.CONNECTOR_PK, config.getMeterValueMonths(), config.isMeterValueArchive()));
+        tables.add(new ManagedTable(CONNECTOR_STATUS, CONNECTOR_STATUS.STATUS_TIMESTAMP,
+                CONNECTOR_STATUS.CONNECTOR_PK, config.getConnectorStatusMonths(), config.isConnectorStatusArchive()));
+        tables.add(new ManagedTable(APP_LOG, APP_LOG.TIMESTAMP_STR,
+                null, config.getAppLogMonths(), config.isAppLogArchive()));
+    }
+
+    @PostConstruct
+    public void init() {
+        int interval = config.getMaintenanceIntervalMinutes();
+        schedule = executor.scheduleWithFixedDelay(this::maintain, 1, interval, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (schedule != null) {
+            schedule.cancel(false);
+        }
+    }
+
+    public List<PartitionTableStats> getStats() {
+        List<PartitionTableStats> list = new ArrayList<>(tables.size());
+        for (ManagedTable table : tables) {
+            List<Partition> partitions = List.of();
+            int scanned = 0;
+            try {
+                partitions = getPartitions(table);
+                scanned = partitions.isEmpty() ? 0 : explainLastDay(table);
+            } catch (Exception e) {
+                log.warn("Failed to read the partitions of {}", table.getName(), e);
+            }
+
+            List<PartitionTableStats.Partition> partitionStats = new ArrayList<>(partitions.size());
+            for (Partition p : partitions) {
+                DateTime lessThan = (p.lessThan == MAXVALUE) ? null : toDate(p.lessThan).toDateTimeAtStartOfDay();
+                partitionStats.add(PartitionTableStats.Partition.builder()
+                                                                .name(p.name)
+                                                                .lessThan(lessThan)
+                                                                .rows(p.rows)
+                                                                .bytes(p.bytes)
+                                                                .build());
+            }
+
+            list.add(PartitionTableStats.builder()
+                                        .table(table.getName())
+                                        .partitioned(!partitions.isEmpty())
+                                        .retentionMonths(table.retentionMonths)
+                                        .archive(table.archive)
+                                        .partitions(partitionStats)
+                                        .created(table.created.sum())
+                                        .dropped(table.dropped.sum())
+                                        .archived(table.archived.sum())
+                                        .deletedOrphans(table.deletedOrphans.sum())
+                                        .lastMaintenance(table.lastMaintenance)
+                                        .lastError(table.lastError)
+                                        .pruningScanned(scanned)
+                                        .pruningTotal(partitions.size())
+                                        .build());
+        }
+        return list;
+    }
+
+    /**
+     * Package-private for the scheduled run (and tests)
+     */
+    void maintain() {
+        maintain(DateTime.now());
+    }
+
+    synchronized void maintain(DateTime now) {
+        LocalDate currentMonth = now.toLocalDate().withDayOfMonth(1);
+
+        // do not let an exception of one table cancel the others (or the schedule)
+        for (ManagedTable table : tables) {
+            try {
+                maintain(table, currentMonth);
+                table.lastError = null;
+            } catch (Exception e) {
+                table.lastError = e.getMessage();
+                log.error("Partition maintenance of {} failed", table.getName(), e);
+            }
+            table.lastMaintenance = now;
+        }
+    }
+
+    private void maintain(ManagedTable table, LocalDate currentMonth) {
+        List<Partition> partitions = getPartitions(table);
+        if (partitions.isEmpty()) {
+            log.warn("{} is not partitioned. Skipping the partition maintenance", table.getName());
+            return;
+        }
+
+        checkPruning(table, partitions.size());
+        createPartitions(table, partitions, currentMonth.plusMonths(config.getPrecreateMonths() + 1));
+
+        if (table.retentionMonths > 0) {
+            expirePartitions(table, partitions, currentMonth.minusMonths(table.retentionMonths));
+        }
+
+        deleteOrphans(table);
+    }
+
+    /**
+     * Proves once with EXPLAIN that the server prunes a range query on the timestamp (see V2_0_7), as soon as there
+     * are more partitions than such a query may scan. Retention works either way.
+     */
+    private void checkPruning(ManagedTable table, int partitionCount) {
+        if (table.pruningChecked || partitionCount <= MAX_PRUNED_SCAN) {
+            return;
+        }
+        table.pruningChecked = true;
+
+        try {
+            int scanned = explainLastDay(table);
+            if (scanned > MAX_PRUNED_SCAN) {
+                log.error("A query over the last day scans {} of {} partitions of {}. The server does not prune them",
+                        scanned, partitionCount, table.getName());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check the partition pruning of {}", table.getName(), e);
+        }
+    }
+
+    /**
+     * Makes sure that there are monthly partitions until (exclusive) the given month
+     */
+    private void createPartitions(ManagedTable table, List<Partition> partitions, LocalDate until) {
+        Partition last = partitions.get(partitions.size() - 1);
+        boolean hasCatchAll = last.lessThan == MAXVALUE;
+
+        long bound;
+        if (!hasCatchAll) {
+            bound = last.lessThan;
+        } else if (partitions.size() > 1) {
+            bound = partitions.get(partitions.size() - 2).lessThan;
+        } else {
+            bound = toSeconds(until.minusMonths(config.getPrecreateMonths() + 1));
+        }
+
+        List<String> definitions = new ArrayList<>();
+        LocalDate start = toDate(bound);
+        while (start.isBefore(until)) {
+            LocalDate end = start.withDayOfMonth(1).plusMonths(1);
+            definitions.add("PARTITION " + partitionName(start) + " VALUES LESS THAN (" + toSeconds(end) + ")");
+            start = end;
+        }
+
+        if (definitions.isEmpty()) {
+            return;
+        }
+
+        String joined = String.join(", ", definitions);
+        if (hasCatchAll) {
+            ctx.execute("ALTER TABLE {0} REORGANIZE PARTITION {1} INTO ("
+                            + joined + ", PARTITION {1} VALUES LESS THAN MAXVALUE)",
+                    DSL.name(table.getName()), DSL.name(last.name));
+        } else {
+            ctx.execute("ALTER TABLE {0} ADD PARTITION (" + joined + ")", DSL.name(table.getName()));
+        }
+
+        table.created.add(definitions.size());
+        log.info("Created {} partition(s) of {}: {}", definitions.size(), table.getName(), joined);
+    }
+
+    /**
+     * Drops (or archives) the partitions whose rows are all older than the cutoff
+     */
+    private void expirePartitions(ManagedTable table, List<Partition> partitions, LocalDate cutoff) {
+        long cutoffSeconds = toSeconds(cutoff);
+
+        for (Partition p : partitions) {
+            // ordered by the bound. the catch-all partition is never reached.
+            if (p.lessThan > cutoffSeconds) {
+                break;
+            }
+
+            if (table.archive) {
+                archivePartition(table, p);
+                table.archived.increment();
+                log.info("Archived partition {} of {} (~{} rows) into {}",
+                        p.name, table.getName(), p.rows, archiveName(table, p));
+            } else {
+                dropPartition(table, p);
+                table.dropped.increment();
+                log.info("Dropped partition {} of {} (~{} rows)", p.name, table.getName(), p.rows);
+            }
+        }
+    }
+
+    /**
+     * Finds the referenced connectors with a loose scan of the connector_pk index (one entry per connector and
+     * partition), such that only the rows of the orphans are read. A connector_pk is never reused: an orphan cannot
+     * become valid again.
+     *
+     * The transaction_pk of connector_meter_value needs no cleanup: transactions are only deleted together with their
+     * connector.
+     */
+    private void deleteOrphans(ManagedTable table) {
+        if (table.connectorPk == null) {
+            return;
+        }
+
+        List<Integer> referenced = ctx.selectDistinct(table.connectorPk)
+                                      .from(table.table)
+                                      .fetch(table.connectorPk);
+        if (referenced.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> orphans = new HashSet<>(referenced);
+        orphans.removeAll(ctx.select(CONNECTOR.CONNECTOR_PK)
+                             .from(CONNECTOR)
+                             .where(CONNECTOR.CONNECTOR_PK.in(referenced))
+                             .fetch(CONNECTOR.CONNECTOR_PK));
+        if (orphans.isEmpty()) {
+            return;
+        }
+
+        int count = ctx.delete(table.table)
+                       .where(table.connectorPk.in(orphans))
+                       .execute();
+
+        table.deletedOrphans.add(count);
+        log.info("Deleted {} rows of {} of the deleted connectors {}", count, table.getName(), orphans);
+    }
+
+    /**
+     * The exchange swaps the rows of the partition and the archive table. It is decided by the archive table: an empty
+     * one (just created, or left behind by a run that failed before the exchange) takes the rows of the partition. One
+     * with rows was exchanged already, by a run that did not get to drop the partition.
+     */
+    private void archivePartition(ManagedTable table, Partition p) {
+        String archive = archiveName(table, p);
+
+        if (!tableExists(archive)) {
+            ctx.execute("CREATE TABLE {0} LIKE {1}", DSL.name(archive), DSL.name(table.getName()));
+            ctx.execute("ALTER TABLE {0} REMOVE PARTITIONING", DSL.name(archive));
+        }
+
+        if (isEmpty(DSL.table(DSL.name(archive)))) {
+            ctx.execute("ALTER TABLE {0} EXCHANGE PARTITION {1} WITH TABLE {2}",
+                    DSL.name(table.getName()), DSL.name(p.name), DSL.name(archive));
+
+        } else if (!isEmpty(partitionOf(table, p))) {
+            // the exchange would swap the archived rows back into the live table, and the drop would lose these
+            throw new SteveException("Both the archive table '%s' and partition '%s' of '%s' have rows",
+                    archive, p.name, table.getName());
+        }
+
+        // empty at this point. either exchanged just now, or in a previous run that did not get to drop it.
+        dropPartition(table, p);
+    }
+
+    private void dropPartition(ManagedTable table, Partition p) {
+        ctx.execute("ALTER TABLE {0} DROP PARTITION {1}", DSL.name(table.getName()), DSL.name(p.name));
+    }
+
+    private boolean isEmpty(Table<?> table) {
+        return !ctx.fetchExists(DSL.selectOne().from(table));
+    }
+
+    private static Table<?> partitionOf(ManagedTable table, Partition p) {
+        return DSL.table("{0} PARTITION ({1})", DSL.name(table.getName()), DSL.name(p.name));
+    }
+
+    private boolean tableExists(String name) {
+        return ctx.fetchExists(DSL.selectOne()
+                                  .from(DSL.table(DSL.name("information_schema", "TABLES")))
+                                  .where(DSL.field(DSL.name("TABLE_SCHEMA"), String.class).eq(DSL.currentSchema()))
+                                  .and(DSL.field(DSL.name("TABLE_NAME"), String.class).eq(name)));
+    }
+
+    /**
+     * Ordered by the bound. Empty, if the table is not partitioned.
+     */
+    private List<Partition> getPartitions(ManagedTable table) {
+        Field<String> name = DSL.field(DSL.name("PARTITION_NAME"), String.class);
+        Field<String> description = DSL.field(DSL.name("PARTITION_DESCRIPTION"), String.class);
+        Field<Long> rows = DSL.field(DSL.name("TABLE_ROWS"), Long.class);
+        Field<Long> dataLength = DSL.field(DSL.name("DATA_LENGTH"), Long.class);
+        Field<Long> indexLength = DSL.field(DSL.name("INDEX_LENGTH"), Long.class);
+
+        return ctx.select(name, description, rows, dataLength, indexLength)
+                  .from(DSL.table(DSL.name("information_schema", "PARTITIONS")))
+                  .where(DSL.field(DSL.name("TABLE_SCHEMA"), String.class).eq(DSL.currentSchema()))
+                  .and(DSL.field(DSL.name("TABLE_NAME"), String.class).eq(table.getName()))
+                  .and(name.isNotNull())
+                  .orderBy(DSL.field(DSL.name("PARTITION_ORDINAL_POSITION")))
+                  .fetch(r -> new Partition(
+                          r.value1(),
+                          "MAXVALUE".equalsIgnoreCase(r.value2()) ? MAXVALUE : Long.parseLong(r.value2()),
+                          r.value3() == null ? 0 : r.value3(),
+                          (r.value4() == null ? 0 : r.value4()) + (r.value5() == null ? 0 : r.value5())));
+    }
+
+    /**
+     * @return the number of partitions that a query over the last 24 hours has to scan
+     */
+    private int explainLastDay(ManagedTable table) {
+        DateTime now = DateTime.now();
+        String sql = ctx.renderInlined(DSL.selectOne()
+                                          .from(table.table)
+                                          .where(table.timestamp.between(now.minusDays(1), now)));
+
+        Result<Record> result;
+        try {
+            // MariaDB and MySQL 5.7
+            result = ctx.fetch("EXPLAIN PARTITIONS " + sql);
+        } catch (DataAccessException e) {
+            // MySQL 8 always reports the partitions, and does not know the keyword anymore
+            result = ctx.fetch("EXPLAIN " + sql);
+        }
+
+        Set<String> scanned = new LinkedHashSet<>();
+        for (Record r : result) {
+            Object partitions = r.get("partitions");
+            if (partitions != null) {
+                scanned.addAll(List.of(partitions.toString().split(",")));
+            }
+        }
+        return scanned.size();
+    }
+
+    private static String archiveName(ManagedTable table, Partition p) {
+        return table.getName() + "_" + p.name;
+    }
+
+    private static String partitionName(LocalDate monthStart) {
+        return "p" + monthStart.toString("yyyyMM");
+    }
+
+    /**
+     * TO_SECONDS() of the start of the day, as MySQL computes it
+     */
+    static long toSeconds(LocalDate date) {
+        return (Days.daysBetween(EPOCH, date).getDays() + TO_DAYS_OF_EPOCH) * SECONDS_PER_DAY;
+    }
+
+    /**
+     * Inverse of {@link #toSeconds(LocalDate)}. The bounds are always at the start of a day.
+     */
+    private static LocalDate toDate(long seconds) {
+        return EPOCH.plusDays((int) (seconds / SECONDS_PER_DAY - TO_DAYS_OF_EPOCH));
+    }
+
+    @RequiredArgsConstructor
+    private static class Partition {
+        private final String name;
+        private final long lessThan; // MAXVALUE for the catch-all partition
+        private final long rows;
+        private final long bytes;
+    }
+
+    @RequiredArgsConstructor
+    private static class ManagedTable {
+        private final Table<?> table;
+        private final Field<DateTime> timestamp;
+        @Nullable private final Field<Integer> connectorPk; // null, if the rows do not belong to a connector
+        private final int retentionMonths;
+        private final boolean archive;
+
+        private final LongAdder created = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder archived = new LongAdder();
+        private final LongAdder deletedOrphans = new LongAdder();
+        private volatile DateTime lastMaintenance;
+        private volatile String lastError;
+        private boolean pruningChecked; // guarded by the manager
+
+        private String getName() {
+            return table.getName();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.repository.QueuedCommandRepository;
+import de.rwth.idsg.steve.repository.QueuedCommandStatus;
+import de.rwth.idsg.steve.repository.dto.QueuedCommand;
+import jooq.steve.db.tables.records.QueuedCommandRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import static jooq.steve.db.tables.QueuedCommand.QUEUED_COMMAND;
+
+@Slf4j
+@Repository
+public class QueuedCommandRepositoryImpl implements QueuedCommandRepository {
+
+    private final DSLContext ctx;
+
+    @Autowired
+    public QueuedCommandRepositoryImpl(DSLContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public List<QueuedCommand> getOverview(@Nullable String chargeBoxId, @Nullable QueuedCommandStatus status) {
+        Condition chargeBoxCondition = (chargeBoxId == null)
+                ? DSL.noCondition()
+                : QUEUED_COMMAND.CHARGE_BOX_ID.eq(chargeBoxId);
+
+        Condition statusCondition = (status == null)
+                ? DSL.noCondition()
+                : QUEUED_COMMAND.STATUS.eq(status.name());
+
+        return ctx.selectFrom(QUEUED_COMMAND)
+                  .where(chargeBoxCondition)
+                  .and(statusCondition)
+                  .orderBy(QUEUED_COMMAND.QUEUED_COMMAND_PK.desc())
+                  .fetch()
+                  .map(QueuedCommandRepositoryImpl::map);
+    }
+
+    @Override
+    @Nullable
+    public QueuedCommand getOne(int queuedCommandPk) {
+        QueuedCommandRecord record = ctx.selectFrom(QUEUED_COMMAND)
+                                        .where(QUEUED_COMMAND.QUEUED_COMMAND_PK.eq(queuedCommandPk))
+                                        .fetchOne();
+
+        return (record == null) ? null : map(record);
+    }
+
+    @Override
+    public int insert(String chargeBoxId, String command, String payload, @Nullable DateTime expiryTimestamp) {
+        return ctx.insertInto(QUEUED_COMMAND)
+                  .set(QUEUED_COMMAND.CHARGE_BOX_ID, chargeBoxId)
+                  .set(QUEUED_COMMAND.COMMAND, command)
+                  .set(QUEUED_COMMAND.PAYLOAD, payload)
+                  .set(QUEUED_COMMAND.STATUS, QueuedCommandStatus.QUEUED.name())
+                  .set(QUEUED_COMMAND.CREATED_TIMESTAMP, DateTime.now())
+                  .set(QUEUED_COMMAND.EXPIRY_TIMESTAMP, expiryTimestamp)
+                  .returning(QUEUED_COMMAND.QUEUED_COMMAND_PK)
+                  .fetchOne()
+                  .getQueuedCommandPk();
+    }
+
+    @Override
+    @Nullable
+    public QueuedCommand getNext(String chargeBoxId) {
+        QueuedCommandRecord record = ctx.selectFrom(QUEUED_COMMAND)
+                                        .where(QUEUED_COMMAND.CHARGE_BOX_ID.eq(chargeBoxId))
+                                        .and(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.QUEUED.name()))
+                                        .and(notExpired())
+                                        .orderBy(QUEUED_COMMAND.QUEUED_COMMAND_PK.asc())
+                                        .limit(1)
+                                        .fetchOne();
+
+        return (record == null) ? null : map(record);
+    }
+
+    @Override
+    public boolean hasQueued(String chargeBoxId) {
+        return ctx.fetchExists(
+                ctx.selectOne()
+                   .from(QUEUED_COMMAND)
+                   .where(QUEUED_COMMAND.CHARGE_BOX_ID.eq(chargeBoxId))
+                   .and(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.QUEUED.name()))
+                   .and(notExpired())
+        );
+    }
+
+    @Override
+    public boolean claim(int queuedCommandPk) {
+        int count = ctx.update(QUEUED_COMMAND)
+                       .set(QUEUED_COMMAND.STATUS, QueuedCommandStatus.DISPATCHED.name())
+                       .set(QUEUED_COMMAND.ATTEMPTS, QUEUED_COMMAND.ATTEMPTS.plus(1))
+                       .set(QUEUED_COMMAND.DISPATCHED_TIMESTAMP, DateTime.now())
+                       .where(QUEUED_COMMAND.QUEUED_COMMAND_PK.eq(queuedCommandPk))
+                       .and(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.QUEUED.name()))
+                       .execute();
+
+        return count == 1;
+    }
+
+    @Override
+    public void setTaskId(int queuedCommandPk, int taskId) {
+        ctx.update(QUEUED_COMMAND)
+           .set(QUEUED_COMMAND.TASK_ID, taskId)
+           .where(QUEUED_COMMAND.QUEUED_COMMAND_PK.eq(queuedCommandPk))
+           .execute();
+    }
+
+    @Override
+    public void requeue(int queuedCommandPk, String errorMessage) {
+        ctx.update(QUEUED_COMMAND)
+           .set(QUEUED_COMMAND.STATUS, QueuedCommandStatus.QUEUED.name())
+           .set(QUEUED_COMMAND.ERROR_MESSAGE, errorMessage)
+           .where(QUEUED_COMMAND.QUEUED_COMMAND_PK.eq(queuedCommandPk))
+           .and(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.DISPATCHED.name()))
+           .execute();
+    }
+
+    @Override
+    public void finish(int queuedCommandPk, QueuedCommandStatus status,
+                       @Nullable String response, @Nullable String errorMessage) {
+        ctx.update(QUEUED_COMMAND)
+           .set(QUEUED_COMMAND.STATUS, status.name())
+           .set(QUEUED_COMMAND.RESPONSE, response)
+           .set(QUEUED_COMMAND.ERROR_MESSAGE, errorMessage)
+           .set(QUEUED_COMMAND.FINISHED_TIMESTAMP, DateTime.now())
+           .where(QUEUED_COMMAND.QUEUED_COMMAND_PK.eq(queuedCommandPk))
+           .execute();
+    }
+
+    @Override
+    public boolean cancel(int queuedCommandPk) {
+        int count = ctx.update(QUEUED_COMMAND)
+                       .set(QUEUED_COMMAND.STATUS, QueuedCommandStatus.CANCELLED.name())
+                       .set(QUEUED_COMMAND.FINISHED_TIMESTAMP, DateTime.now())
+                       .where(QUEUED_COMMAND.QUEUED_COMMAND_PK.eq(queuedCommandPk))
+                       .and(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.QUEUED.name()))
+                       .execute();
+
+        return count == 1;
+    }
+
+    @Override
+    public int expire() {
+        DateTime now = DateTime.now();
+        return ctx.update(QUEUED_COMMAND)
+                  .set(QUEUED_COMMAND.STATUS, QueuedCommandStatus.EXPIRED.name())
+                  .set(QUEUED_COMMAND.FINISHED_TIMESTAMP, now)
+                  .where(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.QUEUED.name()))
+                  .and(QUEUED_COMMAND.EXPIRY_TIMESTAMP.le(now))
+                  .execute();
+    }
+
+    @Override
+    public int requeueDispatched(Collection<String> commands) {
+        if (commands.isEmpty()) {
+            return 0;
+        }
+        return ctx.update(QUEUED_COMMAND)
+                  .set(QUEUED_COMMAND.STATUS, QueuedCommandStatus.QUEUED.name())
+                  .where(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.DISPATCHED.name()))
+                  .and(QUEUED_COMMAND.COMMAND.in(commands))
+                  .execute();
+    }
+
+    @Override
+    public int failDispatched(String errorMessage) {
+        return ctx.update(QUEUED_COMMAND)
+                  .set(QUEUED_COMMAND.STATUS, QueuedCommandStatus.FAILED.name())
+                  .set(QUEUED_COMMAND.ERROR_MESSAGE, errorMessage)
+                  .set(QUEUED_COMMAND.FINISHED_TIMESTAMP, DateTime.now())
+                  .where(QUEUED_COMMAND.STATUS.eq(QueuedCommandStatus.DISPATCHED.name()))
+                  .execute();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    private static Condition notExpired() {
+        return QUEUED_COMMAND.EXPIRY_TIMESTAMP.isNull()
+                                              .or(QUEUED_COMMAND.EXPIRY_TIMESTAMP.gt(DateTime.now()));
+    }
+
+    private static QueuedCommand map(QueuedCommandRecord r) {
+        return QueuedCommand.builder()
+                            .id(r.getQueuedCommandPk())
+                            .chargeBoxId(r.getChargeBoxId())
+                            .command(r.getCommand())
+                            .payload(r.getPayload())
+                            .status(QueuedCommandStatus.valueOf(r.getStatus()))
+                            .attempts(r.getAttempts())
+                            .taskId(r.getTaskId())
+                            .response(r.getResponse())
+                            .errorMessage(r.getErrorMessage())
+                            .createdTimestamp(r.getCreatedTimestamp())
+                            .expiryTimestamp(r.getExpiryTimestamp())
+                            .dispatchedTimestamp(r.getDispatchedTimestamp())
+                            .finishedTimestamp(r.getFinishedTimestamp())
+                            .build();
+    }
+}
@@ -18,19 +18,45 @@
  */
 package de.rwth.idsg.steve.repository.impl;
 
+import de.rwth.idsg.steve.SteveConfiguration;
 import de.rwth.idsg.steve.SteveException;
 import de.rwth.idsg.steve.ocpp.CommunicationTask;
 import de.rwth.idsg.steve.repository.TaskStore;
 import de.rwth.idsg.steve.repository.dto.TaskOverview;
+import de.rwth.idsg.steve.repository.dto.TaskStoreStats;
+import jooq.steve.db.tables.records.TaskSummaryRecord;
 import lombok.extern.slf4j.Slf4j;
+import org.joda.time.DateTime;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.DSLContext;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+import static jooq.steve.db.tables.TaskSummary.TASK_SUMMARY;
+
 /**
+ * Tasks are kept in memory, ordered by their id (i.e. creation), so that the overview can be paged without sorting.
+ *
+ * The store is bounded, since automated remote commands add tasks without anyone ever clearing them: finished tasks
+ * are evicted after a TTL, all tasks after a max age, and the oldest ones (finished first) when the store is full.
+ * Optionally, a compact summary of every evicted task is persisted.
+ *
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 29.12.2014
  */
@@ -38,26 +64,80 @@ import java.util.stream.Collectors;
 @Repository
 public class TaskStoreImpl implements TaskStore {
 
+    private static final int SWEEP_INTERVAL_SECONDS = 60;
+
+    private final DSLContext ctx;
+    private final ScheduledExecutorService executor;
+    private final SteveConfiguration.Tasks config = CONFIG.getTasks();
+
     private final AtomicInteger atomicInteger = new AtomicInteger(0);
-    private final ConcurrentHashMap<Integer, CommunicationTask> lookupTable = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, CommunicationTask> lookupTable = new ConcurrentSkipListMap<>();
+
+    // ConcurrentSkipListMap.size() is not a constant-time operation
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    private final ConcurrentLinkedQueue<TaskSummaryRecord> pendingSummaries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSummaryCount = new AtomicInteger(0);
+
+    private final LongAdder added = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder evictedUnfinished = new LongAdder();
+    private final LongAdder persistedSummaries = new LongAdder();
+
+    private ScheduledFuture<?> sweepFuture;
+
+    public TaskStoreImpl(DSLContext ctx, ScheduledExecutorService executor) {
+        this.ctx = ctx;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init() {
+        sweepFuture = executor.scheduleWithFixedDelay(
+            this::sweepSafely, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS
+        );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sweepFuture != null) {
+            sweepFuture.cancel(false);
+        }
+        persistSummaries();
+    }
 
     @Override
     public List<TaskOverview> getOverview() {
-        return lookupTable.entrySet()
-                          .stream()
-                          .map(entry -> {
-                              CommunicationTask r = entry.getValue();
-                              return TaskOverview.builder()
-                                                 .taskId(entry.getKey())
-                                                 .origin(r.getOrigin())
-                                                 .start(r.getStartTimestamp())
-                                                 .end(r.getEndTimestamp())
-                                                 .responseCount(r.getResponseCount().get())
-                                                 .requestCount(r.getResultMap().size())
-                                                 .build();
-                          })
-                          .sorted()
-                          .collect(Collectors.toList());
+        return getOverview(null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<TaskOverview> getOverview(@Nullable Integer beforeTaskId, int limit) {
+        ConcurrentNavigableMap<Integer, CommunicationTask> older =
+                beforeTaskId == null ? lookupTable : lookupTable.headMap(beforeTaskId, false);
+
+        return older.descendingMap()
+                    .entrySet()
+                    .stream()
+                    .limit(Math.max(0, limit))
+                    .map(entry -> {
+                        CommunicationTask r = entry.getValue();
+                        return TaskOverview.builder()
+                                           .taskId(entry.getKey())
+                                           .origin(r.getOrigin())
+                                           .start(r.getStartTimestamp())
+                                           .end(r.getEndTimestamp())
+                                           .responseCount(r.getResponseCount().get())
+                                           .requestCount(r.getResultMap().size())
+                                           .dispatchedCount(r.getDispatchedCount().get())
+                                           .build();
+                    })
+                    .collect(Collectors.toList());
+    }
+
+    @Override
+    public int size() {
+        return size.get();
     }
 
     @Override
@@ -74,6 +154,12 @@ public class TaskStoreImpl implements TaskStore {
     public Integer add(CommunicationTask task) {
         int taskId = atomicInteger.incrementAndGet();
         lookupTable.put(taskId, task);
+        size.incrementAndGet();
+        added.increment();
+
+        if (size.get() > config.getMaxSize()) {
+            trimToMaxSize();
+        }
         return taskId;
     }
 
@@ -82,6 +168,135 @@ public class TaskStoreImpl implements TaskStore {
         lookupTable.entrySet()
                    .stream()
                    .filter(entry -> entry.getValue().isFinished())
-                   .forEach(entry -> lookupTable.remove(entry.getKey()));
+                   .forEach(entry -> remove(entry.getKey(), entry.getValue()));
+    }
+
+    @Override
+    public TaskStoreStats getStats() {
+        return TaskStoreStats.builder()
+                             .size(size.get())
+                             .maxSize(config.getMaxSize())
+                             .added(added.sum())
+                             .evicted(evicted.sum())
+                             .evictedUnfinished(evictedUnfinished.sum())
+                             .persistedSummaries(persistedSummaries.sum())
+                             .pendingSummaries(pendingSummaryCount.get())
+                             .build();
+    }
+
+    /**
+     * Package-private for tests
+     */
+    void sweep(DateTime now) {
+        DateTime finishedThreshold = now.minusMinutes(config.getFinishedTtlMinutes());
+        DateTime ageThreshold = now.minusHours(config.getMaxAgeHours());
+
+        for (Map.Entry<Integer, CommunicationTask> entry : lookupTable.entrySet()) {
+            CommunicationTask task = entry.getValue();
+            DateTime end = task.getEndTimestamp();
+
+            boolean expired = (end != null && end.isBefore(finishedThreshold))
+                || task.getStartTimestamp().isBefore(ageThreshold);
+
+            if (expired) {
+                evict(entry.getKey(), task);
+            }
+        }
+
+        trimToMaxSize();
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    private void sweepSafely() {
+        try {
+            sweep(DateTime.now());
+            persistSummaries();
+        } catch (Exception e) {
+            log.error("Exception occurred while sweeping the task store", e);
+        }
+    }
+
+    /**
+     * Evicts the oldest finished tasks first. Only if this is not enough, the oldest unfinished ones as well.
+     */
+    private synchronized void trimToMaxSize() {
+        int maxSize = config.getMaxSize();
+
+        Iterator<Map.Entry<Integer, CommunicationTask>> it = lookupTable.entrySet().iterator();
+        while (size.get() > maxSize && it.hasNext()) {
+            Map.Entry<Integer, CommunicationTask> entry = it.next();
+            if (entry.getValue().isFinished()) {
+                evict(entry.getKey(), entry.getValue());
+            }
+        }
+
+        while (size.get() > maxSize) {
+            Map.Entry<Integer, CommunicationTask> oldest = lookupTable.firstEntry();
+            if (oldest == null) {
+                break;
+            }
+            evict(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private void evict(Integer taskId, CommunicationTask task) {
+        if (!remove(taskId, task)) {
+            return;
+        }
+
+        evicted.increment();
+        if (!task.isFinished()) {
+            evictedUnfinished.increment();
+        }
+
+        if (config.isPersistSummaries()) {
+            pendingSummaries.add(toSummary(taskId, task));
+            pendingSummaryCount.incrementAndGet();
+        }
+    }
+
+    private boolean remove(Integer taskId, CommunicationTask task) {
+        if (lookupTable.remove(taskId, task)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private void persistSummaries() {
+        List<TaskSummaryRecord> batch = new ArrayList<>();
+        TaskSummaryRecord record;
+        while ((record = pendingSummaries.poll()) != null) {
+            batch.add(record);
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        pendingSummaryCount.addAndGet(-batch.size());
+
+        try {
+            ctx.batchInsert(batch).execute();
+            persistedSummaries.add(batch.size());
+        } catch (Exception e) {
+            log.error("Could not persist the summaries of {} evicted tasks", batch.size(), e);
+        }
+    }
+
+    private TaskSummaryRecord toSummary(Integer taskId, CommunicationTask task) {
+        return ctx.newRecord(TASK_SUMMARY)
+                  .setTaskId(taskId)
+                  .setOperationName(task.getOperationName())
+                  .setOcppVersion(task.getOcppVersion().getValue())
+                  .setOrigin(task.getOrigin().name())
+                  .setCaller(task.getCaller())
+                  .setStartTimestamp(task.getStartTimestamp())
+                  .setEndTimestamp(task.getEndTimestamp())
+                  .setRequestCount(task.getResultMap().size())
+                  .setResponseCount(task.getResponseCount().get())
+                  .setErrorCount(task.getErrorCount().get());
     }
 }
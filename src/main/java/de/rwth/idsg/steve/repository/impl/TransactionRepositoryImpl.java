@@ -154,6 +154,9 @@ public class TransactionRepositoryImpl implements TransactionRepository {
 
         // Case 1: Ideal and most accurate case. Station sends meter values with transaction id set.
         //
+        // Not bounded by time (stations with a wrong clock), therefore not pruned to the partitions of the
+        // transaction period like case 2, but one lookup of the transaction_pk index per partition.
+        //
         SelectQuery<ConnectorMeterValueRecord> transactionQuery =
                 ctx.selectFrom(CONNECTOR_METER_VALUE)
                         .where(CONNECTOR_METER_VALUE.TRANSACTION_PK.eq(transactionPk))
@@ -18,55 +18,246 @@
  */
 package de.rwth.idsg.steve.service;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
 import de.rwth.idsg.steve.repository.dto.ChargePointSelect;
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
+import de.rwth.idsg.steve.service.dto.FanOutStats;
+import de.rwth.idsg.steve.utils.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
 /**
+ * Hands the request of a task over to its charge points, in the background.
+ *
+ * The charge points are not processed one after another: the requests are fanned out to a bounded pool of workers,
+ * such that one slow charge point (SOAP calls block the caller until the connection is made) does not delay all the
+ * others. The number of requests in flight is limited per transport, handing over a request to a charge point must
+ * complete within a timeout, and the fan-out can be paced to a max rate so that fleet-wide operations do not
+ * saturate the network (or our own ingress with the responses).
+ *
+ * A SOAP request is in flight until the call returns. Handing over a JSON request only queues it on the session, so
+ * it is in flight until the charge point has an outcome in the task (response, error or timeout).
+ *
  * @author Sevket Goekay <sevketgokay@gmail.com>
  * @since 08.03.2018
  */
-@RequiredArgsConstructor
+@Slf4j
+@Service
 public class BackgroundService {
-    private final ExecutorService executorService;
 
-    public static BackgroundService with(ExecutorService executorService) {
-        return new BackgroundService(executorService);
+    private final ScheduledExecutorService scheduler;
+
+    // walk through the charge points of a task and wait for permits. they do not do the actual work.
+    private final ExecutorService coordinators;
+    private final ThreadPoolExecutor workers;
+
+    private final Semaphore soapPermits;
+    private final Semaphore jsonPermits;
+    @Nullable private final TokenBucket pacing;
+    private final int stationTimeoutSeconds;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public BackgroundService(ScheduledExecutorService scheduler) {
+        this(scheduler, CONFIG.getFanOut());
+    }
+
+    BackgroundService(ScheduledExecutorService scheduler, SteveConfiguration.FanOut config) {
+        int parallelism = Math.max(1, config.getParallelism());
+
+        this.scheduler = scheduler;
+        this.stationTimeoutSeconds = Math.max(1, config.getStationTimeoutSeconds());
+        this.soapPermits = new Semaphore(Math.max(1, config.getSoapConcurrency()));
+        this.jsonPermits = new Semaphore(Math.max(1, config.getJsonConcurrency()));
+        this.pacing = config.getPacingPerSecond() > 0
+            ? new TokenBucket(config.getPacingPerSecond(), config.getPacingPerSecond())
+            : null;
+
+        // further tasks wait for a coordinator, instead of each one starting a thread that blocks on the permits
+        int coordinatorThreads = Math.max(1, config.getCoordinators());
+        this.coordinators = new ThreadPoolExecutor(
+            coordinatorThreads, coordinatorThreads,
+            0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("SteVe-FanOut-Coordinator-%d").build()
+        );
+        this.workers = new ThreadPoolExecutor(
+            parallelism, parallelism,
+            0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("SteVe-FanOut-%d").build()
+        );
     }
 
-    public Runner forFirst(List<ChargePointSelect> list) {
-        return new BackgroundSingleRunner(list.get(0));
+    @PreDestroy
+    public void shutDown() {
+        // coordinators only wait for permits and workers for charge points, neither is worth waiting for
+        coordinators.shutdownNow();
+        workers.shutdownNow();
+        try {
+            if (!coordinators.awaitTermination(30, TimeUnit.SECONDS)
+                || !workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Fan-out threads did not terminate");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    public Runner forEach(List<ChargePointSelect> list) {
-        return new BackgroundListRunner(list);
+    public Runner forFirst(CommunicationTask<?, ?> task) {
+        List<ChargePointSelect> list = task.getParams().getChargePointSelectList();
+        return consumer -> start(task, Collections.singletonList(list.get(0)), consumer);
+    }
+
+    public Runner forEach(CommunicationTask<?, ?> task) {
+        List<ChargePointSelect> list = task.getParams().getChargePointSelectList();
+        return consumer -> start(task, list, consumer);
+    }
+
+    public FanOutStats getStats() {
+        return FanOutStats.builder()
+                          .parallelism(workers.getMaximumPoolSize())
+                          .activeWorkers(workers.getActiveCount())
+                          .queued(workers.getQueue().size())
+                          .availableSoapPermits(soapPermits.availablePermits())
+                          .availableJsonPermits(jsonPermits.availablePermits())
+                          .dispatched(dispatched.sum())
+                          .failed(failed.sum())
+                          .timedOut(timedOut.sum())
+                          .build();
     }
 
     public interface Runner {
         void execute(Consumer<ChargePointSelect> consumer);
     }
 
-    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
-    private class BackgroundSingleRunner implements Runner {
-        private final ChargePointSelect cps;
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
 
-        @Override
-        public void execute(Consumer<ChargePointSelect> consumer) {
-            executorService.execute(() -> consumer.accept(cps));
+    private void start(CommunicationTask<?, ?> task, List<ChargePointSelect> list, Consumer<ChargePointSelect> consumer) {
+        coordinators.execute(() -> {
+            for (ChargePointSelect cps : list) {
+                try {
+                    dispatch(task, cps, consumer);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Fan-out of task '{}' was interrupted", task.getOperationName());
+                    return;
+                }
+            }
+        });
+    }
+
+    private void dispatch(CommunicationTask<?, ?> task, ChargePointSelect cps,
+                          Consumer<ChargePointSelect> consumer) throws InterruptedException {
+        if (pacing != null) {
+            pacing.acquire();
         }
+
+        Semaphore permits = cps.isSoap() ? soapPermits : jsonPermits;
+        permits.acquire();
+
+        // see the class javadoc. every way of finishing an item gives the charge point an outcome as well.
+        boolean releaseOnOutcome = !cps.isSoap();
+
+        Item item = new Item(task, cps, releaseOnOutcome ? null : permits);
+        Future<?> future;
+        try {
+            future = workers.submit(() -> item.run(consumer));
+        } catch (RuntimeException e) {
+            item.finish();
+            permits.release();
+            throw e;
+        }
+        if (releaseOnOutcome) {
+            task.getFuture(cps.getChargeBoxId()).whenComplete((result, error) -> permits.release());
+        }
+        item.timeout = scheduler.schedule(() -> item.expire(future), stationTimeoutSeconds, TimeUnit.SECONDS);
     }
 
-    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
-    private class BackgroundListRunner implements Runner {
-        private final List<ChargePointSelect> list;
+    /**
+     * The request to one charge point. Finishes exactly once: either by the worker or by the timeout.
+     */
+    private class Item {
+        private final CommunicationTask<?, ?> task;
+        private final ChargePointSelect cps;
+        @Nullable private final Semaphore permits; // null, if they are released with the outcome
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        private volatile ScheduledFuture<?> timeout;
+
+        private Item(CommunicationTask<?, ?> task, ChargePointSelect cps, @Nullable Semaphore permits) {
+            this.task = task;
+            this.cps = cps;
+            this.permits = permits;
+        }
+
+        private void run(Consumer<ChargePointSelect> consumer) {
+            try {
+                consumer.accept(cps);
+            } catch (Exception e) {
+                if (finish()) {
+                    failed.increment();
+                    log.error("[chargeBoxId={}] Exception occurred while sending '{}'",
+                        cps.getChargeBoxId(), task.getOperationName(), e);
+                    task.defaultCallback().failed(cps.getChargeBoxId(), e);
+                }
+            } finally {
+                finish();
+            }
+        }
+
+        private void expire(Future<?> future) {
+            if (!finish()) {
+                return;
+            }
+            future.cancel(true);
+            timedOut.increment();
+            log.warn("[chargeBoxId={}] Sending '{}' did not complete within {} seconds",
+                cps.getChargeBoxId(), task.getOperationName(), stationTimeoutSeconds);
+
+            task.defaultCallback().failed(cps.getChargeBoxId(), new TimeoutException(
+                "Sending the request did not complete within " + stationTimeoutSeconds + " seconds"));
+        }
+
+        private boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            if (permits != null) {
+                permits.release();
+            }
+            dispatched.increment();
+            task.getDispatchedCount().incrementAndGet();
 
-        @Override
-        public void execute(Consumer<ChargePointSelect> consumer) {
-            executorService.execute(() -> list.forEach(consumer));
+            ScheduledFuture<?> t = timeout;
+            if (t != null) {
+                t.cancel(false);
+            }
+            return true;
         }
     }
 }
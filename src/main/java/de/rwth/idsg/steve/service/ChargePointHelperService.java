@@ -23,7 +23,8 @@ import de.rwth.idsg.steve.ocpp.OcppProtocol;
 import de.rwth.idsg.steve.ocpp.OcppTransport;
 import de.rwth.idsg.steve.ocpp.OcppVersion;
 import de.rwth.idsg.steve.ocpp.ws.AbstractWebSocketEndpoint;
-import de.rwth.idsg.steve.ocpp.ws.data.SessionContext;
+import de.rwth.idsg.steve.ocpp.ws.ConnectionRegistry;
+import de.rwth.idsg.steve.ocpp.ws.data.ConnectionInfo;
 import de.rwth.idsg.steve.ocpp.ws.ocpp12.Ocpp12WebSocketEndpoint;
 import de.rwth.idsg.steve.ocpp.ws.ocpp15.Ocpp15WebSocketEndpoint;
 import de.rwth.idsg.steve.ocpp.ws.ocpp16.Ocpp16WebSocketEndpoint;
@@ -45,15 +46,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
@@ -79,6 +76,7 @@ public class ChargePointHelperService {
     @Autowired private Ocpp12WebSocketEndpoint ocpp12WebSocketEndpoint;
     @Autowired private Ocpp15WebSocketEndpoint ocpp15WebSocketEndpoint;
     @Autowired private Ocpp16WebSocketEndpoint ocpp16WebSocketEndpoint;
+    @Autowired private ConnectionRegistry connectionRegistry;
 
     private final UnidentifiedIncomingObjectService unknownChargePointService = new UnidentifiedIncomingObjectService(100);
 
@@ -100,16 +98,13 @@ public class ChargePointHelperService {
         Statistics stats = genericRepository.getStats();
 
         // Set online JSON charge box counts
-        stats.setNumOcpp12JChargeBoxes(ocpp12WebSocketEndpoint.getNumberOfChargeBoxes());
-        stats.setNumOcpp15JChargeBoxes(ocpp15WebSocketEndpoint.getNumberOfChargeBoxes());
-        stats.setNumOcpp16JChargeBoxes(ocpp16WebSocketEndpoint.getNumberOfChargeBoxes());
-
-        // Get online JSON chargeBoxIds
-        Set<String> connectedJsonChargeBoxIds = getConnectedJsonChargeBoxIds();
+        stats.setNumOcpp12JChargeBoxes(connectionRegistry.getNumberOfChargeBoxes(OcppVersion.V_12));
+        stats.setNumOcpp15JChargeBoxes(connectionRegistry.getNumberOfChargeBoxes(OcppVersion.V_15));
+        stats.setNumOcpp16JChargeBoxes(connectionRegistry.getNumberOfChargeBoxes(OcppVersion.V_16));
 
         // Get connector statuses and filter by online only
         List<ConnectorStatus> latestList = chargePointRepository.getChargePointConnectorStatus();
-        filterDisconnectedJsonChargePoints(latestList, connectedJsonChargeBoxIds);
+        filterDisconnectedJsonChargePoints(latestList);
 
         // Count status
         Map<String, Integer> statusMap = ConnectorStatusCountFilter.getStatusCountMap(latestList);
@@ -119,12 +114,6 @@ public class ChargePointHelperService {
     }
 
     public List<ConnectorStatus> getChargePointConnectorStatus(ConnectorStatusForm params) {
-        Map<String, Deque<SessionContext>> ocpp12Map = ocpp12WebSocketEndpoint.getACopy();
-        Map<String, Deque<SessionContext>> ocpp15Map = ocpp15WebSocketEndpoint.getACopy();
-        Map<String, Deque<SessionContext>> ocpp16Map = ocpp16WebSocketEndpoint.getACopy();
-
-        Set<String> connectedJsonChargeBoxIds = new HashSet<>(extractIds(Arrays.asList(ocpp12Map, ocpp15Map, ocpp16Map)));
-
         List<ConnectorStatus> latestList = chargePointRepository.getChargePointConnectorStatus(params);
 
         // iterate over JSON stations and mark disconnected ones
@@ -132,39 +121,52 @@ public class ChargePointHelperService {
         //
 
         for (ConnectorStatus status : latestList) {
-            OcppProtocol protocol = status.getOcppProtocol();
-            if (protocol != null && protocol.getTransport() == OcppTransport.JSON) {
-                status.setJsonAndDisconnected(!connectedJsonChargeBoxIds.contains(status.getChargeBoxId()));
+            if (isJson(status)) {
+                status.setJsonAndDisconnected(!connectionRegistry.isOnline(status.getChargeBoxId()));
             }
         }
         // ✅ Remove disconnected JSON-based charge points
-        latestList.removeIf(status ->
-                status.getOcppProtocol() != null &&
-                        status.getOcppProtocol().getTransport() == OcppTransport.JSON &&
-                        !connectedJsonChargeBoxIds.contains(status.getChargeBoxId())
-        );
+        filterDisconnectedJsonChargePoints(latestList);
 
         return latestList;
     }
 
     public boolean isOnline(String chargeBoxId) {
-        return getConnectedJsonChargeBoxIds().contains(chargeBoxId);
+        return connectionRegistry.isOnline(chargeBoxId);
     }
 
+    /**
+     * One entry per session, such that a charge point with multiple connections (possibly of different versions) is
+     * listed multiple times
+     */
     public List<OcppJsonStatus> getOcppJsonStatus() {
-        Map<String, Deque<SessionContext>> ocpp12Map = ocpp12WebSocketEndpoint.getACopy();
-        Map<String, Deque<SessionContext>> ocpp15Map = ocpp15WebSocketEndpoint.getACopy();
-        Map<String, Deque<SessionContext>> ocpp16Map = ocpp16WebSocketEndpoint.getACopy();
+        Collection<ConnectionInfo> connections = connectionRegistry.getConnections();
 
-        List<String> idList = extractIds(Arrays.asList(ocpp12Map, ocpp15Map, ocpp16Map));
+        List<String> idList = connections.stream().map(ConnectionInfo::getChargeBoxId).collect(Collectors.toList());
         Map<String, Integer> primaryKeyLookup = chargePointRepository.getChargeBoxIdPkPair(idList);
 
         DateTime now = DateTime.now();
-        List<OcppJsonStatus> returnList = new ArrayList<>();
+        List<OcppJsonStatus> returnList = new ArrayList<>(connections.size());
+
+        for (ConnectionInfo connection : connections) {
+            // null, if e.g. the station was deleted from the database while being connected
+            Integer chargeBoxPk = primaryKeyLookup.get(connection.getChargeBoxId());
+
+            for (ConnectionInfo.Session session : connection.getSessions()) {
+                DateTime openSince = session.getOpenSince();
+
+                OcppJsonStatus status = OcppJsonStatus.builder()
+                                                      .chargeBoxPk(chargeBoxPk)
+                                                      .chargeBoxId(connection.getChargeBoxId())
+                                                      .connectedSinceDT(openSince)
+                                                      .connectedSince(DateTimeUtils.humanize(openSince))
+                                                      .connectionDuration(DateTimeUtils.timeElapsed(openSince, now))
+                                                      .version(session.getVersion())
+                                                      .build();
 
-        appendList(ocpp12Map, returnList, now, OcppVersion.V_12, primaryKeyLookup);
-        appendList(ocpp15Map, returnList, now, OcppVersion.V_15, primaryKeyLookup);
-        appendList(ocpp16Map, returnList, now, OcppVersion.V_16, primaryKeyLookup);
+                returnList.add(status);
+            }
+        }
         return returnList;
     }
 
@@ -234,20 +236,16 @@ public class ChargePointHelperService {
         }
     }
 
-    //1. Online ChargeBoxIds - getStats
-    private Set<String> getConnectedJsonChargeBoxIds() {
-        Map<String, Deque<SessionContext>> ocpp12Map = ocpp12WebSocketEndpoint.getACopy();
-        Map<String, Deque<SessionContext>> ocpp15Map = ocpp15WebSocketEndpoint.getACopy();
-        Map<String, Deque<SessionContext>> ocpp16Map = ocpp16WebSocketEndpoint.getACopy();
-        return new HashSet<>(extractIds(Arrays.asList(ocpp12Map, ocpp15Map, ocpp16Map)));
+    /**
+     * Use filter to exclude offline JSON charge points
+     */
+    private void filterDisconnectedJsonChargePoints(List<ConnectorStatus> list) {
+        list.removeIf(status -> isJson(status) && !connectionRegistry.isOnline(status.getChargeBoxId()));
     }
-    //2. Use filter to exclude offline chargeboxids - getStats
-    private void filterDisconnectedJsonChargePoints(List<ConnectorStatus> list, Set<String> connectedIds) {
-        list.removeIf(status ->
-                status.getOcppProtocol() != null &&
-                        status.getOcppProtocol().getTransport() == OcppTransport.JSON &&
-                        !connectedIds.contains(status.getChargeBoxId())
-        );
+
+    private static boolean isJson(ConnectorStatus status) {
+        OcppProtocol protocol = status.getOcppProtocol();
+        return protocol != null && protocol.getTransport() == OcppTransport.JSON;
     }
 
     private List<ChargePointSelect> getChargePoints(OcppProtocol protocol, List<RegistrationStatus> inStatusFilter,
@@ -272,35 +270,4 @@ public class ChargePointHelperService {
 
         return returnList;
     }
-
-    private static List<String> extractIds(List<Map<String, Deque<SessionContext>>> ocppMaps) {
-        return ocppMaps.stream()
-                       .map(Map::keySet)
-                       .flatMap(Collection::stream)
-                       .collect(Collectors.toList());
-    }
-
-    private static void appendList(Map<String, Deque<SessionContext>> map, List<OcppJsonStatus> returnList,
-                                   DateTime now, OcppVersion version, Map<String, Integer> primaryKeyLookup) {
-
-        for (Map.Entry<String, Deque<SessionContext>> entry : map.entrySet()) {
-            String chargeBoxId = entry.getKey();
-            Deque<SessionContext> endpointDeque = entry.getValue();
-
-            for (SessionContext ctx : endpointDeque) {
-                DateTime openSince = ctx.getOpenSince();
-
-                OcppJsonStatus status = OcppJsonStatus.builder()
-                                                      .chargeBoxPk(primaryKeyLookup.get(chargeBoxId))
-                                                      .chargeBoxId(chargeBoxId)
-                                                      .connectedSinceDT(openSince)
-                                                      .connectedSince(DateTimeUtils.humanize(openSince))
-                                                      .connectionDuration(DateTimeUtils.timeElapsed(openSince, now))
-                                                      .version(version)
-                                                      .build();
-
-                returnList.add(status);
-            }
-        }
-    }
 }
@@ -52,7 +52,6 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.concurrent.ScheduledExecutorService;
 import static jooq.steve.db.Tables.CONNECTOR;
 
 /**
@@ -63,10 +62,10 @@ import static jooq.steve.db.Tables.CONNECTOR;
 @Qualifier("ChargePointService12_Client")
 public class ChargePointService12_Client {
 
-    @Autowired
-    protected ScheduledExecutorService executorService;
     @Autowired
     protected TaskStore taskStore;
+    @Autowired
+    protected BackgroundService backgroundService;
 
     @Autowired
     private ChargePointService12_InvokerImpl invoker12;
@@ -94,8 +93,7 @@ public class ChargePointService12_Client {
     public int changeAvailability(ChangeAvailabilityParams params) {
         ChangeAvailabilityTask task = new ChangeAvailabilityTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forEach(task.getParams().getChargePointSelectList())
+        backgroundService.forEach(task)
                 .execute(c -> getOcpp12Invoker().changeAvailability(c, task));
 
         return taskStore.add(task);
@@ -104,8 +102,7 @@ public class ChargePointService12_Client {
     public int changeConfiguration(ChangeConfigurationParams params) {
         ChangeConfigurationTask task = new ChangeConfigurationTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forEach(task.getParams().getChargePointSelectList())
+        backgroundService.forEach(task)
                 .execute(c -> getOcpp12Invoker().changeConfiguration(c, task));
 
         return taskStore.add(task);
@@ -114,8 +111,7 @@ public class ChargePointService12_Client {
     public int clearCache(MultipleChargePointSelect params) {
         ClearCacheTask task = new ClearCacheTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forEach(task.getParams().getChargePointSelectList())
+        backgroundService.forEach(task)
                 .execute(c -> getOcpp12Invoker().clearCache(c, task));
 
         return taskStore.add(task);
@@ -124,8 +120,7 @@ public class ChargePointService12_Client {
     public int getDiagnostics(GetDiagnosticsParams params) {
         GetDiagnosticsTask task = new GetDiagnosticsTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forEach(task.getParams().getChargePointSelectList())
+        backgroundService.forEach(task)
                 .execute(c -> getOcpp12Invoker().getDiagnostics(c, task));
 
         return taskStore.add(task);
@@ -134,8 +129,7 @@ public class ChargePointService12_Client {
     public int reset(ResetParams params) {
         ResetTask task = new ResetTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forEach(task.getParams().getChargePointSelectList())
+        backgroundService.forEach(task)
                 .execute(c -> getOcpp12Invoker().reset(c, task));
 
         return taskStore.add(task);
@@ -144,8 +138,7 @@ public class ChargePointService12_Client {
     public int updateFirmware(UpdateFirmwareParams params) {
         UpdateFirmwareTask task = new UpdateFirmwareTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forEach(task.getParams().getChargePointSelectList())
+        backgroundService.forEach(task)
                 .execute(c -> getOcpp12Invoker().updateFirmware(c, task));
 
         return taskStore.add(task);
@@ -167,8 +160,7 @@ public class ChargePointService12_Client {
         RemoteStartTransactionTask task = new RemoteStartTransactionTask(getVersion(), params);
 
         // Execute the remote start
-        BackgroundService.with(executorService)
-                .forFirst(task.getParams().getChargePointSelectList())
+        backgroundService.forFirst(task)
                 .execute(c -> getOcpp12Invoker().remoteStartTransaction(c, task));
 
         return taskStore.add(task);
@@ -178,8 +170,7 @@ public class ChargePointService12_Client {
         System.out.println("Default Remote Stop transaction method ...");
         RemoteStopTransactionTask task = new RemoteStopTransactionTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forFirst(task.getParams().getChargePointSelectList())
+        backgroundService.forFirst(task)
                 .execute(c -> getOcpp12Invoker().remoteStopTransaction(c, task));
 
         return taskStore.add(task);
@@ -188,8 +179,7 @@ public class ChargePointService12_Client {
     public int unlockConnector(UnlockConnectorParams params) {
         UnlockConnectorTask task = new UnlockConnectorTask(getVersion(), params);
 
-        BackgroundService.with(executorService)
-                .forFirst(task.getParams().getChargePointSelectList())
+        backgroundService.forFirst(task)
                 .execute(c -> getOcpp12Invoker().unlockConnector(c, task));
 
         return taskStore.add(task);
@@ -0,0 +1,208 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.service;
+
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.ocpp.OcppVersion;
+import de.rwth.idsg.steve.repository.dto.ChargePointSelect;
+import de.rwth.idsg.steve.web.api.exception.BadRequestException;
+import de.rwth.idsg.steve.web.dto.CommandForm;
+import de.rwth.idsg.steve.web.dto.CommandType;
+import de.rwth.idsg.steve.web.dto.ocpp.ChangeConfigurationParams;
+import de.rwth.idsg.steve.web.dto.ocpp.RemoteStartTransactionParams;
+import de.rwth.idsg.steve.web.dto.ocpp.RemoteStopTransactionParams;
+import de.rwth.idsg.steve.web.dto.ocpp.ResetParams;
+import de.rwth.idsg.steve.web.dto.ocpp.TriggerMessageParams;
+import de.rwth.idsg.steve.web.dto.ocpp.UnlockConnectorParams;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends the commands of the command API (see {@link CommandForm}) with the client of the OCPP version that the
+ * charge points use. Every method returns the id of the started task.
+ */
+@Service
+public class CommandService {
+
+    private static final OcppVersion[] VERSIONS = {OcppVersion.V_16, OcppVersion.V_15, OcppVersion.V_12};
+
+    private final ChargePointService12_Client client12;
+    private final ChargePointService15_Client client15;
+    private final ChargePointService16_Client client16;
+    private final ChargePointHelperService chargePointHelperService;
+
+    public CommandService(@Qualifier("ChargePointService12_Client") ChargePointService12_Client client12,
+                          @Qualifier("ChargePointService15_Client") ChargePointService15_Client client15,
+                          @Qualifier("ChargePointService16_Client") ChargePointService16_Client client16,
+                          ChargePointHelperService chargePointHelperService) {
+        this.client12 = client12;
+        this.client15 = client15;
+        this.client16 = client16;
+        this.chargePointHelperService = chargePointHelperService;
+    }
+
+    public int execute(CommandType type, Object form) {
+        switch (type) {
+            case REMOTE_START:
+                return remoteStart((CommandForm.RemoteStart) form);
+            case REMOTE_STOP:
+                return remoteStop((CommandForm.RemoteStop) form);
+            case RESET:
+                return reset((CommandForm.Reset) form);
+            case UNLOCK_CONNECTOR:
+                return unlockConnector((CommandForm.UnlockConnector) form);
+            case TRIGGER_MESSAGE:
+                return triggerMessage((CommandForm.TriggerMessage) form);
+            case CHANGE_CONFIGURATION:
+                return changeConfiguration((CommandForm.ChangeConfiguration) form);
+            default:
+                throw new IllegalArgumentException("Unknown command: " + type);
+        }
+    }
+
+    public int remoteStart(CommandForm.RemoteStart form) {
+        Target target = resolve(Collections.singletonList(form.getChargeBoxId()));
+
+        RemoteStartTransactionParams params = new RemoteStartTransactionParams();
+        params.setChargePointSelectList(target.chargePoints);
+        if (form.getConnectorId() != null) {
+            params.setConnectorId(form.getConnectorId());
+        }
+        params.setIdTag(form.getIdTag());
+
+        return getClient(target.version).remoteStartTransaction(params);
+    }
+
+    public int remoteStop(CommandForm.RemoteStop form) {
+        Target target = resolve(Collections.singletonList(form.getChargeBoxId()));
+
+        RemoteStopTransactionParams params = new RemoteStopTransactionParams();
+        params.setChargePointSelectList(target.chargePoints);
+        params.setTransactionId(form.getTransactionId());
+
+        return getClient(target.version).remoteStopTransaction(params);
+    }
+
+    public int reset(CommandForm.Reset form) {
+        Target target = resolve(form.getChargeBoxIds());
+
+        ResetParams params = new ResetParams();
+        params.setChargePointSelectList(target.chargePoints);
+        params.setResetType(form.getResetType());
+
+        return getClient(target.version).reset(params);
+    }
+
+    public int unlockConnector(CommandForm.UnlockConnector form) {
+        Target target = resolve(Collections.singletonList(form.getChargeBoxId()));
+
+        UnlockConnectorParams params = new UnlockConnectorParams();
+        params.setChargePointSelectList(target.chargePoints);
+        params.setConnectorId(form.getConnectorId());
+
+        return getClient(target.version).unlockConnector(params);
+    }
+
+    public int triggerMessage(CommandForm.TriggerMessage form) {
+        Target target = resolve(form.getChargeBoxIds());
+        if (target.version != OcppVersion.V_16) {
+            throw new BadRequestException("TriggerMessage is only supported by OCPP 1.6 charge points");
+        }
+
+        TriggerMessageParams params = new TriggerMessageParams();
+        params.setChargePointSelectList(target.chargePoints);
+        params.setTriggerMessage(form.getTriggerMessage());
+        params.setConnectorId(form.getConnectorId());
+
+        return client16.triggerMessage(params);
+    }
+
+    public int changeConfiguration(CommandForm.ChangeConfiguration form) {
+        Target target = resolve(form.getChargeBoxIds());
+
+        ChangeConfigurationParams params = new ChangeConfigurationParams();
+        params.setChargePointSelectList(target.chargePoints);
+        params.setConfKey(form.getKey());
+        params.setValue(form.getValue());
+
+        return getClient(target.version).changeConfiguration(params);
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    /**
+     * All charge points of a command must be known, accepted and (for JSON) online, and use the same OCPP version
+     */
+    private Target resolve(List<String> chargeBoxIds) {
+        Set<String> remaining = new LinkedHashSet<>(chargeBoxIds);
+        Map<OcppVersion, List<ChargePointSelect>> found = new EnumMap<>(OcppVersion.class);
+
+        for (OcppVersion version : VERSIONS) {
+            List<ChargePointSelect> list = chargePointHelperService.getChargePointsWithIds(version, chargeBoxIds);
+            if (!list.isEmpty()) {
+                found.put(version, list);
+                list.forEach(c -> remaining.remove(c.getChargeBoxId()));
+            }
+        }
+
+        if (!remaining.isEmpty()) {
+            throw new SteveException.NotFound("Unknown, not accepted or offline charge points: " + remaining);
+        }
+
+        if (found.size() > 1) {
+            throw new BadRequestException("The charge points use different OCPP versions " + found.keySet()
+                    + ". Please send separate commands.");
+        }
+
+        Map.Entry<OcppVersion, List<ChargePointSelect>> entry = found.entrySet().iterator().next();
+        return new Target(entry.getKey(), entry.getValue());
+    }
+
+    private ChargePointService12_Client getClient(OcppVersion version) {
+        switch (version) {
+            case V_12:
+                return client12;
+            case V_15:
+                return client15;
+            case V_16:
+                return client16;
+            default:
+                throw new IllegalArgumentException("Unknown OCPP version: " + version);
+        }
+    }
+
+    private static class Target {
+        private final OcppVersion version;
+        private final List<ChargePointSelect> chargePoints;
+
+        private Target(OcppVersion version, List<ChargePointSelect> chargePoints) {
+            this.version = version;
+            this.chargePoints = chargePoints;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.ocpp.RequestResult;
+import de.rwth.idsg.steve.ocpp.ws.ConnectionRegistry;
+import de.rwth.idsg.steve.repository.ChargePointRepository;
+import de.rwth.idsg.steve.repository.QueuedCommandRepository;
+import de.rwth.idsg.steve.repository.QueuedCommandStatus;
+import de.rwth.idsg.steve.repository.TaskStore;
+import de.rwth.idsg.steve.repository.dto.QueuedCommand;
+import de.rwth.idsg.steve.service.notification.OcppStationWebSocketConnected;
+import de.rwth.idsg.steve.web.api.exception.BadRequestException;
+import de.rwth.idsg.steve.web.dto.CommandType;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+/**
+ * Store-and-forward for commands to JSON charge points that are offline. The commands are persisted, such that they
+ * survive restarts, and are sent in insertion order when the station connects: one at a time, the next one only after
+ * the outcome of the previous one is known.
+ *
+ * A command that could not be sent (e.g. the station went offline before) goes back to the queue, until
+ * {@link de.rwth.idsg.steve.SteveConfiguration.CommandQueue#getMaxAttempts()} is reached. A command that was sent, but
+ * whose outcome is unknown (the connection broke or the call timed out before the response arrived, or it was in
+ * flight during a shutdown), might have been executed by the station already. It is only sent again if it is
+ * {@link CommandType#isIdempotent()}. Otherwise it fails with the outcome unknown.
+ *
+ * The queues are sent by a pool of their own, such that the shared scheduler is not blocked by the database and the
+ * sending. Its queue is not bounded, but holds at most one task per charge point that is being sent.
+ */
+@Slf4j
+@Service
+public class QueuedCommandService {
+
+    private static final long EXPIRY_SWEEP_INTERVAL_SECONDS = 60;
+    private static final int DISPATCH_THREADS = 2;
+    private static final String OUTCOME_UNKNOWN = "Outcome unknown, not sent again: ";
+
+    private final QueuedCommandRepository repository;
+    private final ChargePointRepository chargePointRepository;
+    private final CommandService commandService;
+    private final TaskStore taskStore;
+    private final ConnectionRegistry connectionRegistry;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService dispatcher;
+
+    // the charge points, whose queues are being sent
+    private final Set<String> draining = ConcurrentHashMap.newKeySet();
+
+    private ScheduledFuture<?> expirySchedule;
+
+    @Autowired
+    public QueuedCommandService(QueuedCommandRepository repository,
+                                ChargePointRepository chargePointRepository,
+                                CommandService commandService,
+                                TaskStore taskStore,
+                                ConnectionRegistry connectionRegistry,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                ScheduledExecutorService executor) {
+        this(repository, chargePointRepository, commandService, taskStore, connectionRegistry, objectMapper, validator,
+             executor, new ThreadPoolExecutor(
+                     DISPATCH_THREADS, DISPATCH_THREADS,
+                     0L, TimeUnit.MILLISECONDS,
+                     new LinkedBlockingQueue<>(),
+                     new ThreadFactoryBuilder().setNameFormat("SteVe-CommandQueue-%d").setDaemon(true).build()
+             ));
+    }
+
+    QueuedCommandService(QueuedCommandRepository repository,
+                         ChargePointRepository chargePointRepository,
+                         CommandService commandService,
+                         TaskStore taskStore,
+                         ConnectionRegistry connectionRegistry,
+                         ObjectMapper objectMapper,
+                         Validator validator,
+                         ScheduledExecutorService executor,
+                         ExecutorService dispatcher) {
+        this.repository = repository;
+        this.chargePointRepository = chargePointRepository;
+        this.commandService = commandService;
+        this.taskStore = taskStore;
+        this.connectionRegistry = connectionRegistry;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.executor = executor;
+        this.dispatcher = dispatcher;
+    }
+
+    @PostConstruct
+    public void init() {
+        List<String> idempotent = Arrays.stream(CommandType.values())
+                                        .filter(CommandType::isIdempotent)
+                                        .map(CommandType::name)
+                                        .toList();
+        int count = repository.requeueDispatched(idempotent);
+        if (count > 0) {
+            log.info("Queued {} commands again, which were sent before the shutdown without a known outcome", count);
+        }
+        count = repository.failDispatched(OUTCOME_UNKNOWN + "sent before the shutdown, without a response");
+        if (count > 0) {
+            log.warn("{} commands were sent before the shutdown without a known outcome and are not sent again", count);
+        }
+
+        expirySchedule = executor.scheduleWithFixedDelay(
+                this::expire, EXPIRY_SWEEP_INTERVAL_SECONDS, EXPIRY_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (expirySchedule != null) {
+            expirySchedule.cancel(false);
+        }
+        // lets the commands in flight be updated. the queued ones are rejected and sent at the next start.
+        dispatcher.shutdown();
+    }
+
+    @EventListener
+    public void onConnected(OcppStationWebSocketConnected notification) {
+        drain(notification.getChargeBoxId());
+    }
+
+    /**
+     * @param params     the request body of the command (see {@link CommandType#getFormClass()}) without the
+     *                   charge point, which is set from chargeBoxId
+     * @param ttlSeconds the command expires, if not sent within this time. the default is used, if not set.
+     * @return the id of the queued command
+     */
+    public int enqueue(String chargeBoxId, CommandType type, @Nullable JsonNode params, @Nullable Integer ttlSeconds) {
+        if (chargePointRepository.getRegistrationStatus(chargeBoxId).isEmpty()) {
+            throw new SteveException.NotFound("Unknown charge point: " + chargeBoxId);
+        }
+
+        Object form = toForm(chargeBoxId, type, params);
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(form);
+        } catch (JsonProcessingException e) {
+            throw new SteveException("Failed to serialize the command", e);
+        }
+
+        int id = repository.insert(chargeBoxId, type.name(), payload, getExpiry(ttlSeconds));
+        log.info("[chargeBoxId={}] Queued {} with id {}", chargeBoxId, type, id);
+
+        drain(chargeBoxId);
+        return id;
+    }
+
+    public List<QueuedCommand> getOverview(@Nullable String chargeBoxId, @Nullable QueuedCommandStatus status) {
+        return repository.getOverview(chargeBoxId, status);
+    }
+
+    public QueuedCommand getOne(int id) {
+        QueuedCommand command = repository.getOne(id);
+        if (command == null) {
+            throw new SteveException.NotFound("Could not find this queued command");
+        }
+        return command;
+    }
+
+    /**
+     * Only possible as long as the command is not sent
+     */
+    public void cancel(int id) {
+        QueuedCommand command = getOne(id);
+        if (!repository.cancel(id)) {
+            throw new BadRequestException("The command is " + getOne(id).getStatus() + " and cannot be cancelled");
+        }
+        log.info("[chargeBoxId={}] Cancelled the queued command {}", command.getChargeBoxId(), id);
+    }
+
+    /**
+     * Starts sending the queue of the charge point, if it is online and not being sent already
+     */
+    public void drain(String chargeBoxId) {
+        if (!connectionRegistry.isOnline(chargeBoxId)) {
+            return;
+        }
+        if (draining.add(chargeBoxId)) {
+            execute(chargeBoxId, () -> dispatchNext(chargeBoxId));
+        }
+    }
+
+    /**
+     * Package-private for the scheduled sweep (and tests)
+     */
+    void expire() {
+        try {
+            int count = repository.expire();
+            if (count > 0) {
+                log.info("{} queued commands expired", count);
+            }
+        } catch (Exception e) {
+            // do not let the exception cancel the schedule
+            log.error("Exception occurred while expiring queued commands", e);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Private helpers
+    // -------------------------------------------------------------------------
+
+    private void dispatchNext(String chargeBoxId) {
+        QueuedCommand command;
+        try {
+            command = claimNext(chargeBoxId);
+        } catch (Exception e) {
+            log.error("[chargeBoxId={}] Exception occurred while reading the command queue", chargeBoxId, e);
+            draining.remove(chargeBoxId);
+            return;
+        }
+
+        if (command == null) {
+            stopDraining(chargeBoxId);
+        } else {
+            dispatch(command);
+        }
+    }
+
+    @Nullable
+    private QueuedCommand claimNext(String chargeBoxId) {
+        while (connectionRegistry.isOnline(chargeBoxId)) {
+            QueuedCommand command = repository.getNext(chargeBoxId);
+            if (command == null) {
+                return null;
+            }
+            if (repository.claim(command.getId())) {
+                return command;
+            }
+            // cancelled or expired in the meantime. try the next one.
+        }
+        return null;
+    }
+
+    private void stopDraining(String chargeBoxId) {
+        draining.remove(chargeBoxId);
+
+        // a command might have been queued (or the station reconnected) after we looked the last time
+        try {
+            if (connectionRegistry.isOnline(chargeBoxId) && repository.hasQueued(chargeBoxId)) {
+                drain(chargeBoxId);
+            }
+        } catch (Exception e) {
+            log.error("[chargeBoxId={}] Exception occurred while reading the command queue", chargeBoxId, e);
+        }
+    }
+
+    private void dispatch(QueuedCommand command) {
+        String chargeBoxId = command.getChargeBoxId();
+
+        CommunicationTask<?, ?> task;
+        try {
+            CommandType type = CommandType.valueOf(command.getCommand());
+            Object form = objectMapper.readValue(command.getPayload(), type.getFormClass());
+            int taskId = commandService.execute(type, form);
+            repository.setTaskId(command.getId(), taskId);
+            task = taskStore.get(taskId);
+        } catch (SteveException.NotFound e) {
+            // offline again, or not accepted (anymore)
+            retryOrFail(command, e.getMessage(), true);
+            execute(chargeBoxId, () -> dispatchNext(chargeBoxId));
+            return;
+        } catch (Exception e) {
+            log.warn("[chargeBoxId={}] Failed to send the queued command {}", chargeBoxId, command.getId(), e);
+            finish(command, QueuedCommandStatus.FAILED, null, e.getMessage());
+            execute(chargeBoxId, () -> dispatchNext(chargeBoxId));
+            return;
+        }
+
+        log.info("[chargeBoxId={}] Sent the queued command {} ({})", chargeBoxId, command.getId(), command.getCommand());
+
+        task.getFuture(chargeBoxId).whenComplete((result, e) -> execute(chargeBoxId, () -> {
+            onOutcome(command, result, e);
+            dispatchNext(chargeBoxId);
+        }));
+    }
+
+    /**
+     * The future of a station completes exceptionally on errors (see {@link CommunicationTask#addNewError}). A result
+     * is a response, even if it is a CALL_ERROR or a rejection: the station received the command.
+     */
+    private void onOutcome(QueuedCommand command, @Nullable RequestResult result, @Nullable Throwable e) {
+        if (e != null) {
+            Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+            retryOrFail(command, cause.getMessage(), false);
+        } else {
+            finish(command, QueuedCommandStatus.DELIVERED, result.getResponse(), null);
+        }
+    }
+
+    /**
+     * @param notSent true, if the command certainly did not reach the station
+     */
+    private void retryOrFail(QueuedCommand command, String errorMessage, boolean notSent) {
+        // the attempts of the dto do not include the current one
+        int attempts = command.getAttempts() + 1;
+        try {
+            if (!notSent && !isIdempotent(command)) {
+                repository.finish(command.getId(), QueuedCommandStatus.FAILED, null, OUTCOME_UNKNOWN + errorMessage);
+            } else if (attempts < CONFIG.getCommandQueue().getMaxAttempts()) {
+                repository.requeue(command.getId(), errorMessage);
+            } else {
+                repository.finish(command.getId(), QueuedCommandStatus.FAILED, null,
+                        "Not delivered after " + attempts + " attempts: " + errorMessage);
+            }
+        } catch (Exception e) {
+            log.error("[chargeBoxId={}] Failed to update the queued command {}", command.getChargeBoxId(), command.getId(), e);
+        }
+    }
+
+    private static boolean isIdempotent(QueuedCommand command) {
+        try {
+            return CommandType.valueOf(command.getCommand()).isIdempotent();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void finish(QueuedCommand command, QueuedCommandStatus status,
+                        @Nullable String response, @Nullable String errorMessage) {
+        try {
+            repository.finish(command.getId(), status, response, errorMessage);
+        } catch (Exception e) {
+            log.error("[chargeBoxId={}] Failed to update the queued command {}", command.getChargeBoxId(), command.getId(), e);
+        }
+    }
+
+    private void execute(String chargeBoxId, Runnable runnable) {
+        try {
+            dispatcher.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            // shutting down. the commands are sent at the next start.
+            draining.remove(chargeBoxId);
+        }
+    }
+
+    private Object toForm(String chargeBoxId, CommandType type, @Nullable JsonNode params) {
+        if (params != null && !params.isObject()) {
+            throw new BadRequestException("The params of the command must be an object");
+        }
+
+        ObjectNode node = (params == null) ? objectMapper.createObjectNode() : ((ObjectNode) params).deepCopy();
+        if (type.isSingle()) {
+            node.put("chargeBoxId", chargeBoxId);
+        } else {
+            node.putArray("chargeBoxIds").add(chargeBoxId);
+        }
+
+        Object form;
+        try {
+            form = objectMapper.treeToValue(node, type.getFormClass());
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Invalid params for " + type + ": " + e.getOriginalMessage());
+        }
+
+        Set<ConstraintViolation<Object>> violations = validator.validate(form);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(violations.stream()
+                                                    .map(ConstraintViolation::getMessage)
+                                                    .sorted()
+                                                    .collect(Collectors.joining(", ")));
+        }
+        return form;
+    }
+
+    @Nullable
+    private static DateTime getExpiry(@Nullable Integer ttlSeconds) {
+        if (ttlSeconds != null) {
+            if (ttlSeconds <= 0) {
+                throw new BadRequestException("ttlSeconds must be positive");
+            }
+            return DateTime.now().plusSeconds(ttlSeconds);
+        }
+
+        int defaultTtlMinutes = CONFIG.getCommandQueue().getDefaultTtlMinutes();
+        return (defaultTtlMinutes == 0) ? null : DateTime.now().plusMinutes(defaultTtlMinutes);
+    }
+}
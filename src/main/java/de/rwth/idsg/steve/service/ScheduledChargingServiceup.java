@@ -21,6 +21,7 @@ package de.rwth.idsg.steve.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.rwth.idsg.steve.myconfig.*;
 import de.rwth.idsg.steve.ocpp.ChargePointService16_InvokerImpl;
+import de.rwth.idsg.steve.repository.impl.ConnectorPkCache;
 import lombok.extern.slf4j.Slf4j;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -55,6 +56,8 @@ public class ScheduledChargingServiceup {
     private ChargePointService16_InvokerImpl cpsImpl;
     @Autowired
     private ChargingSessionManager chargingSessionManager;
+    @Autowired
+    private ConnectorPkCache connectorPkCache;
 
     private final ExecutorService executor = Executors.newFixedThreadPool(20);
     private final Map<String, String> lastScheduleTimes = new ConcurrentHashMap<>();
@@ -96,17 +99,11 @@ public class ScheduledChargingServiceup {
         try {
             int connectorId = Integer.parseInt(schedule.getCon());
 
-            Integer connectorPk = ctx.select(CONNECTOR.CONNECTOR_PK)
-                    .from(CONNECTOR)
-                    .where(CONNECTOR.CHARGE_BOX_ID.eq(schedule.getCharger_id()))
-                    .and(CONNECTOR.CONNECTOR_ID.eq(connectorId))
-                    .fetchOneInto(Integer.class);
+            Integer connectorPk = connectorPkCache.find(schedule.getCharger_id(), connectorId);
 
-            String status = ctx.select(CONNECTOR_STATUS.STATUS)
-                    .from(CONNECTOR_STATUS)
-                    .where(CONNECTOR_STATUS.CONNECTOR_PK.eq(connectorPk))
-                    .orderBy(CONNECTOR_STATUS.STATUS_TIMESTAMP.desc())
-                    .limit(1)
+            String status = ctx.select(CONNECTOR_STATUS_LATEST.STATUS)
+                    .from(CONNECTOR_STATUS_LATEST)
+                    .where(CONNECTOR_STATUS_LATEST.CONNECTOR_PK.eq(connectorPk))
                     .fetchOneInto(String.class);
 
             Contents contents = null;
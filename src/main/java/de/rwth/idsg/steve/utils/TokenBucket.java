@@ -0,0 +1,78 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classic token bucket: holds at most {@code capacity} tokens and refills continuously with {@code ratePerSecond}.
+ * Refill is computed lazily on acquire, so an idle bucket costs nothing.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, int capacity) {
+        if (ratePerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity of a token bucket must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Blocks until a token is available
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(1, waitNanos));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.api;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.ocpp.RequestResult;
+import de.rwth.idsg.steve.repository.TaskStore;
+import de.rwth.idsg.steve.service.CommandService;
+import de.rwth.idsg.steve.web.api.ApiControllerAdvice.ApiErrorResponse;
+import de.rwth.idsg.steve.web.dto.CommandForm;
+import de.rwth.idsg.steve.web.dto.CommandStatus;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import javax.validation.Valid;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commands are sent to the charge points in the background. The POST endpoints return 202 with the id of the task
+ * right away, and the results can be fetched with a long-poll or followed as server-sent events. While waiting, no
+ * servlet thread is held: the requests are completed by the thread that delivers the outcome of the charge point. The
+ * events are written to the clients by a small pool of threads of their own, such that this thread (of the charge
+ * point) does not wait for a slow client.
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = "/api/v1/commands", produces = MediaType.APPLICATION_JSON_VALUE)
+public class CommandsRestController {
+
+    private static final int MAX_WAIT_SECONDS = 60;
+    private static final long EVENTS_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int EVENT_THREADS = 2;
+    private static final int EVENT_QUEUE_CAPACITY = 1_000;
+
+    private final CommandService commandService;
+    private final TaskStore taskStore;
+    private final ThreadPoolExecutor eventSender;
+
+    public CommandsRestController(CommandService commandService, TaskStore taskStore) {
+        this.commandService = commandService;
+        this.taskStore = taskStore;
+        this.eventSender = new ThreadPoolExecutor(
+                EVENT_THREADS, EVENT_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EVENT_QUEUE_CAPACITY),
+                new ThreadFactoryBuilder().setNameFormat("SteVe-CommandEvents-%d").setDaemon(true).build(),
+                // must not throw into the thread that completes the task. the client runs into the timeout.
+                (r, executor) -> log.warn("Skipping an event of a command, the queue is full or shut down")
+        );
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        eventSender.shutdownNow();
+    }
+
+    // -------------------------------------------------------------------------
+    // Commands
+    // -------------------------------------------------------------------------
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping("/remoteStart")
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CommandStatus remoteStart(@RequestBody @Valid CommandForm.RemoteStart form) {
+        log.debug("RemoteStart request: {}", form);
+        return accepted(commandService.remoteStart(form));
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping("/remoteStop")
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CommandStatus remoteStop(@RequestBody @Valid CommandForm.RemoteStop form) {
+        log.debug("RemoteStop request: {}", form);
+        return accepted(commandService.remoteStop(form));
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping("/reset")
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CommandStatus reset(@RequestBody @Valid CommandForm.Reset form) {
+        log.debug("Reset request: {}", form);
+        return accepted(commandService.reset(form));
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping("/unlockConnector")
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CommandStatus unlockConnector(@RequestBody @Valid CommandForm.UnlockConnector form) {
+        log.debug("UnlockConnector request: {}", form);
+        return accepted(commandService.unlockConnector(form));
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping("/triggerMessage")
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CommandStatus triggerMessage(@RequestBody @Valid CommandForm.TriggerMessage form) {
+        log.debug("TriggerMessage request: {}", form);
+        return accepted(commandService.triggerMessage(form));
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping("/changeConfiguration")
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CommandStatus changeConfiguration(@RequestBody @Valid CommandForm.ChangeConfiguration form) {
+        log.debug("ChangeConfiguration request: {}", form);
+        return accepted(commandService.changeConfiguration(form));
+    }
+
+    // -------------------------------------------------------------------------
+    // Results
+    // -------------------------------------------------------------------------
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/{taskId}")
+    @ResponseBody
+    public DeferredResult<CommandStatus> getStatus(@PathVariable("taskId") Integer taskId,
+                                                   @RequestParam(value = "waitSeconds", defaultValue = "0") int waitSeconds) {
+        CommunicationTask<?, ?> task = getTask(taskId);
+
+        int wait = Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS));
+
+        // the current state, if the task does not finish in time
+        DeferredResult<CommandStatus> result = new DeferredResult<>(
+                TimeUnit.SECONDS.toMillis(wait), () -> toStatus(taskId, task));
+
+        if (wait == 0 || task.isFinished()) {
+            result.setResult(toStatus(taskId, task));
+        } else {
+            task.getCompletionFuture().whenComplete((map, e) -> result.setResult(toStatus(taskId, task)));
+        }
+        return result;
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping(value = "/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getEvents(@PathVariable("taskId") Integer taskId) {
+        CommunicationTask<?, ?> task = getTask(taskId);
+
+        SseEmitter emitter = new SseEmitter(EVENTS_TIMEOUT_MILLIS);
+
+        // one "result" event per charge point, as soon as its outcome is known, and "finished" after all of them
+        List<CompletableFuture<?>> events = new ArrayList<>();
+        for (String chargeBoxId : task.getResultMap().keySet()) {
+            events.add(task.getFuture(chargeBoxId).whenCompleteAsync(
+                    (r, e) -> send(emitter, "result", toStationResult(task, chargeBoxId)), eventSender));
+        }
+        events.add(task.getCompletionFuture());
+
+        CompletableFuture.allOf(events.toArray(new CompletableFuture<?>[0])).whenCompleteAsync((v, e) -> {
+            if (send(emitter, "finished", toStatus(taskId, task))) {
+                emitter.complete();
+            }
+        }, eventSender);
+
+        return emitter;
+    }
+
+    // -------------------------------------------------------------------------
+    // Helpers
+    // -------------------------------------------------------------------------
+
+    private CommandStatus accepted(int taskId) {
+        return toStatus(taskId, getTask(taskId));
+    }
+
+    private CommunicationTask<?, ?> getTask(Integer taskId) {
+        try {
+            return taskStore.get(taskId);
+        } catch (SteveException e) {
+            throw new SteveException.NotFound(e.getMessage());
+        }
+    }
+
+    private static CommandStatus toStatus(int taskId, CommunicationTask<?, ?> task) {
+        List<CommandStatus.StationResult> results = new ArrayList<>();
+        for (String chargeBoxId : task.getResultMap().keySet()) {
+            results.add(toStationResult(task, chargeBoxId));
+        }
+
+        return CommandStatus.builder()
+                            .taskId(taskId)
+                            .operation(task.getOperationName())
+                            .ocppVersion(task.getOcppVersion().getValue())
+                            .finished(task.isFinished())
+                            .startTimestamp(task.getStartTimestamp())
+                            .endTimestamp(task.getEndTimestamp())
+                            .results(results)
+                            .build();
+    }
+
+    private static CommandStatus.StationResult toStationResult(CommunicationTask<?, ?> task, String chargeBoxId) {
+        RequestResult result = task.getResultMap().get(chargeBoxId);
+        String response = result.getResponse();
+        String errorMessage = result.getErrorMessage();
+        return CommandStatus.StationResult.builder()
+                                          .chargeBoxId(chargeBoxId)
+                                          .completed(response != null || errorMessage != null)
+                                          .response(response)
+                                          .errorMessage(errorMessage)
+                                          .build();
+    }
+
+    /**
+     * @return false, if the client is gone
+     */
+    private static boolean send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not send the '{}' event: {}", name, e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
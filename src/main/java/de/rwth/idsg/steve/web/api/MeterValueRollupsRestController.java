@@ -0,0 +1,120 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.api;
+
+import de.rwth.idsg.steve.repository.MeterValueRollupRepository;
+import de.rwth.idsg.steve.repository.RollupGranularity;
+import de.rwth.idsg.steve.repository.dto.MeterValueRollupRow;
+import de.rwth.idsg.steve.repository.dto.MeterValueRollupStats;
+import de.rwth.idsg.steve.repository.impl.ConnectorPkCache;
+import de.rwth.idsg.steve.repository.impl.MeterValueRollup;
+import de.rwth.idsg.steve.web.api.ApiControllerAdvice.ApiErrorResponse;
+import de.rwth.idsg.steve.web.api.exception.BadRequestException;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.joda.time.LocalDateTime;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static de.rwth.idsg.steve.utils.DateTimeUtils.toDateTime;
+
+/**
+ * Meter values of a connector, aggregated into buckets of 1, 15 or 60 minutes. Reads do not touch the raw meter
+ * values. The progress of a backfill is reported under /api/v1/metrics/meterValueRollups.
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = "/api/v1/meterValueRollups", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+public class MeterValueRollupsRestController {
+
+    private final MeterValueRollupRepository meterValueRollupRepository;
+    private final MeterValueRollup meterValueRollup;
+    private final ConnectorPkCache connectorPkCache;
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping(value = "")
+    @ResponseBody
+    public List<MeterValueRollupRow> get(@RequestParam("chargeBoxId") String chargeBoxId,
+                                         @RequestParam("connectorId") int connectorId,
+                                         @RequestParam(value = "granularity", defaultValue = "QUARTER_HOUR")
+                                         RollupGranularity granularity,
+                                         @RequestParam(value = "measurand", defaultValue = MeterValueRollup.ENERGY)
+                                         String measurand,
+                                         @RequestParam("from") LocalDateTime from,
+                                         @RequestParam("to") LocalDateTime to) {
+        log.debug("Read request for chargeBoxId: {}, connectorId: {}, granularity: {}, measurand: {}, from: {}, to: {}",
+                  chargeBoxId, connectorId, granularity, measurand, from, to);
+
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+
+        Integer connectorPk = connectorPkCache.find(chargeBoxId, connectorId);
+        if (connectorPk == null) {
+            throw new BadRequestException("Unknown connector " + connectorId + " of charge box " + chargeBoxId);
+        }
+
+        return meterValueRollupRepository.getRollups(connectorPk, granularity, measurand,
+                                                     toDateTime(from), toDateTime(to));
+    }
+
+    /**
+     * Recomputes the rollups of the complete hours in the period from the raw meter values, in the background. The
+     * hours within meter.values.rollup.backfill.horizon.hours before now are skipped.
+     */
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping("/backfill")
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public MeterValueRollupStats backfill(@RequestParam(value = "from", required = false) LocalDateTime from,
+                                         @RequestParam(value = "to", required = false) LocalDateTime to) {
+        log.debug("Backfill request from: {}, to: {}", from, to);
+
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+
+        if (!meterValueRollup.backfill(toDateTime(from), toDateTime(to))) {
+            throw new BadRequestException("A backfill is running already");
+        }
+        return meterValueRollup.getStats();
+    }
+}
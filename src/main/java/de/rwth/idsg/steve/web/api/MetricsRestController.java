@@ -0,0 +1,304 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.api;
+
+import de.rwth.idsg.steve.myconfig.TariffProcessingQueue;
+import de.rwth.idsg.steve.myconfig.journal.AppLogJournal;
+import de.rwth.idsg.steve.myconfig.journal.JournalStats;
+import de.rwth.idsg.steve.ocpp.ws.AbstractWebSocketEndpoint;
+import de.rwth.idsg.steve.ocpp.ws.DuplicateCallCache;
+import de.rwth.idsg.steve.ocpp.ws.FutureResponseContextStore;
+import de.rwth.idsg.steve.ocpp.ws.InboundRateLimiter;
+import de.rwth.idsg.steve.ocpp.ws.IncomingMessageDispatcher;
+import de.rwth.idsg.steve.ocpp.ws.KeepaliveSweeper;
+import de.rwth.idsg.steve.ocpp.ws.OutgoingCallQueue;
+import de.rwth.idsg.steve.ocpp.ws.WsMemoryManager;
+import de.rwth.idsg.steve.ocpp.ws.data.DispatcherStats;
+import de.rwth.idsg.steve.ocpp.ws.data.DuplicateCallStats;
+import de.rwth.idsg.steve.ocpp.ws.data.KeepaliveStats;
+import de.rwth.idsg.steve.ocpp.ws.data.OutgoingQueueStats;
+import de.rwth.idsg.steve.ocpp.ws.data.PendingCallStats;
+import de.rwth.idsg.steve.ocpp.ws.data.RateLimitStats;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionStats;
+import de.rwth.idsg.steve.ocpp.ws.data.WsMemoryStats;
+import de.rwth.idsg.steve.ocpp.ws.hook.HookStats;
+import de.rwth.idsg.steve.ocpp.ws.hook.PostProcessingHookRegistry;
+import de.rwth.idsg.steve.repository.TaskStore;
+import de.rwth.idsg.steve.repository.dto.ConnectorPkCacheStats;
+import de.rwth.idsg.steve.repository.dto.HeartbeatRegistryStats;
+import de.rwth.idsg.steve.repository.dto.MeterValueRollupStats;
+import de.rwth.idsg.steve.repository.dto.MeterValueWriterStats;
+import de.rwth.idsg.steve.repository.dto.PartitionTableStats;
+import de.rwth.idsg.steve.repository.dto.TaskStoreStats;
+import de.rwth.idsg.steve.repository.impl.ConnectorPkCache;
+import de.rwth.idsg.steve.repository.impl.HeartbeatRegistry;
+import de.rwth.idsg.steve.repository.impl.MeterValueRollup;
+import de.rwth.idsg.steve.repository.impl.MeterValueWriter;
+import de.rwth.idsg.steve.repository.impl.PartitionRetentionManager;
+import de.rwth.idsg.steve.service.BackgroundService;
+import de.rwth.idsg.steve.service.dto.FanOutStats;
+import de.rwth.idsg.steve.service.dto.TariffProcessingStats;
+import de.rwth.idsg.steve.web.api.ApiControllerAdvice.ApiErrorResponse;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only runtime metrics of the internal queues and caches. Every value is a snapshot at the time of the request.
+ */
+@RestController
+@RequestMapping(value = "/api/v1/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+public class MetricsRestController {
+
+    private final AppLogJournal appLogJournal;
+    private final IncomingMessageDispatcher incomingMessageDispatcher;
+    private final PostProcessingHookRegistry postProcessingHookRegistry;
+    private final HeartbeatRegistry heartbeatRegistry;
+    private final FutureResponseContextStore futureResponseContextStore;
+    private final InboundRateLimiter inboundRateLimiter;
+    private final BackgroundService backgroundService;
+    private final TaskStore taskStore;
+    private final OutgoingCallQueue outgoingCallQueue;
+    private final List<AbstractWebSocketEndpoint> webSocketEndpoints;
+    private final KeepaliveSweeper keepaliveSweeper;
+    private final DuplicateCallCache duplicateCallCache;
+    private final WsMemoryManager wsMemoryManager;
+    private final MeterValueWriter meterValueWriter;
+    private final ConnectorPkCache connectorPkCache;
+    private final PartitionRetentionManager partitionRetentionManager;
+    private final MeterValueRollup meterValueRollup;
+    private final TariffProcessingQueue tariffProcessingQueue;
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/journal")
+    @ResponseBody
+    public JournalStats getJournal() {
+        return appLogJournal.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/dispatcher")
+    @ResponseBody
+    public DispatcherStats getDispatcher() {
+        return incomingMessageDispatcher.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/hooks")
+    @ResponseBody
+    public List<HookStats> getHooks() {
+        return postProcessingHookRegistry.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/heartbeats")
+    @ResponseBody
+    public HeartbeatRegistryStats getHeartbeats() {
+        return heartbeatRegistry.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/pendingCalls")
+    @ResponseBody
+    public List<PendingCallStats> getPendingCalls() {
+        return futureResponseContextStore.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/rateLimits")
+    @ResponseBody
+    public RateLimitStats getRateLimits() {
+        return inboundRateLimiter.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/fanOut")
+    @ResponseBody
+    public FanOutStats getFanOut() {
+        return backgroundService.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/tasks")
+    @ResponseBody
+    public TaskStoreStats getTasks() {
+        return taskStore.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/outgoingQueues")
+    @ResponseBody
+    public OutgoingQueueStats getOutgoingQueues() {
+        return outgoingCallQueue.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/sessions")
+    @ResponseBody
+    public List<SessionStats> getSessions() {
+        List<SessionStats> list = new ArrayList<>();
+        for (AbstractWebSocketEndpoint endpoint : webSocketEndpoints) {
+            list.addAll(endpoint.getSessionStats());
+        }
+        return list;
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/keepalive")
+    @ResponseBody
+    public KeepaliveStats getKeepalive() {
+        return keepaliveSweeper.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/duplicateCalls")
+    @ResponseBody
+    public DuplicateCallStats getDuplicateCalls() {
+        return duplicateCallCache.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/wsMemory")
+    @ResponseBody
+    public WsMemoryStats getWsMemory() {
+        return wsMemoryManager.getStats();
+    }
+
+    /**
+     * rowsPerSecond is the write rate since the previous call of this endpoint
+     */
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/meterValues")
+    @ResponseBody
+    public MeterValueWriterStats getMeterValues() {
+        return meterValueWriter.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/connectorPks")
+    @ResponseBody
+    public ConnectorPkCacheStats getConnectorPks() {
+        return connectorPkCache.getStats();
+    }
+
+    /**
+     * pruningScanned is the number of partitions that a query over the last 24 hours has to scan
+     */
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/partitions")
+    @ResponseBody
+    public List<PartitionTableStats> getPartitions() {
+        return partitionRetentionManager.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/meterValueRollups")
+    @ResponseBody
+    public MeterValueRollupStats getMeterValueRollups() {
+        return meterValueRollup.getStats();
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/tariffProcessing")
+    @ResponseBody
+    public TariffProcessingStats getTariffProcessing() {
+        return tariffProcessingQueue.getStats();
+    }
+}
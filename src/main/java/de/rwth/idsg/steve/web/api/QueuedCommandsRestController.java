@@ -0,0 +1,118 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.api;
+
+import de.rwth.idsg.steve.repository.QueuedCommandStatus;
+import de.rwth.idsg.steve.repository.dto.QueuedCommand;
+import de.rwth.idsg.steve.service.QueuedCommandService;
+import de.rwth.idsg.steve.web.api.ApiControllerAdvice.ApiErrorResponse;
+import de.rwth.idsg.steve.web.dto.QueuedCommandForm;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.List;
+
+/**
+ * Commands for charge points that might be offline. They are sent in order when the charge point connects, and their
+ * status can be followed here. Unlike /api/v1/commands, a command is for exactly one charge point.
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = "/api/v1/queuedCommands", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+public class QueuedCommandsRestController {
+
+    private final QueuedCommandService queuedCommandService;
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping(value = "")
+    @ResponseBody
+    public List<QueuedCommand> get(@RequestParam(value = "chargeBoxId", required = false) String chargeBoxId,
+                                   @RequestParam(value = "status", required = false) QueuedCommandStatus status) {
+        log.debug("Read request for chargeBoxId: {}, status: {}", chargeBoxId, status);
+        return queuedCommandService.getOverview(chargeBoxId, status);
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @GetMapping("/{id}")
+    @ResponseBody
+    public QueuedCommand getOne(@PathVariable("id") Integer id) {
+        log.debug("Read request for id: {}", id);
+        return queuedCommandService.getOne(id);
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 201, message = "Created"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @PostMapping
+    @ResponseBody
+    @ResponseStatus(HttpStatus.CREATED)
+    public QueuedCommand create(@RequestBody @Valid QueuedCommandForm form) {
+        log.debug("Create request: {}", form);
+
+        int id = queuedCommandService.enqueue(form.getChargeBoxId(), form.getCommand(), form.getParams(),
+                                              form.getTtlSeconds());
+        return queuedCommandService.getOne(id);
+    }
+
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Bad Request", response = ApiErrorResponse.class),
+        @ApiResponse(code = 401, message = "Unauthorized", response = ApiErrorResponse.class),
+        @ApiResponse(code = 404, message = "Not Found", response = ApiErrorResponse.class),
+        @ApiResponse(code = 500, message = "Internal Server Error", response = ApiErrorResponse.class)}
+    )
+    @DeleteMapping("/{id}")
+    @ResponseBody
+    public QueuedCommand cancel(@PathVariable("id") Integer id) {
+        log.debug("Cancel request for id: {}", id);
+
+        queuedCommandService.cancel(id);
+        return queuedCommandService.getOne(id);
+    }
+}
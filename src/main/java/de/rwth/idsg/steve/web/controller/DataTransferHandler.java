@@ -38,20 +38,23 @@ import static jooq.steve.db.Tables.*;
 @Component
 public class DataTransferHandler {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     @Autowired
     private DSLContext dsl;
 
-    public void handleDataTransfer(JsonNode payload, String chargeBoxId) {
+    /**
+     * @param dataJson the 'data' field of the DataTransfer request
+     */
+    public void handleDataTransfer(String dataJson, String chargeBoxId) {
 
         try {
-            if (payload == null || !payload.has("data")) {
+            if (dataJson == null) {
                 log.warn("Missing 'data' in DataTransfer payload");
                 return;
             }
 
-            String dataJson = payload.get("data").asText();
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode dataNode = mapper.readTree(dataJson);
+            JsonNode dataNode = MAPPER.readTree(dataJson);
 
             if (dataNode.has("mac")) {
                 String mac = dataNode.get("mac").asText();// This is your VID:xxxx
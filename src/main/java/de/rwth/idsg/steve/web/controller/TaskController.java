@@ -24,6 +24,7 @@ import de.rwth.idsg.steve.ocpp.RequestResult;
 import de.rwth.idsg.steve.ocpp.task.GetCompositeScheduleTask;
 import de.rwth.idsg.steve.ocpp.task.GetConfigurationTask;
 import de.rwth.idsg.steve.repository.TaskStore;
+import de.rwth.idsg.steve.repository.dto.TaskOverview;
 import ocpp.cp._2015._10.GetCompositeScheduleResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -31,6 +32,9 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
 
 /**
  * @author Sevket Goekay <sevketgokay@gmail.com>
@@ -49,20 +53,32 @@ public class TaskController {
     private static final String TASK_ID_PATH = "/{taskId}";
     private static final String TASK_DETAILS_PATH = TASK_ID_PATH + "/details/{chargeBoxId}/";
 
+    private static final int PAGE_SIZE = 100;
+
     // -------------------------------------------------------------------------
     // HTTP methods
     // -------------------------------------------------------------------------
 
     @RequestMapping(method = RequestMethod.GET)
-    public String getOverview(Model model) {
-        model.addAttribute("taskList", taskStore.getOverview());
+    public String getOverview(@RequestParam(value = "before", required = false) Integer before, Model model) {
+        // One more than a page, to find out whether there are older tasks
+        List<TaskOverview> tasks = taskStore.getOverview(before, PAGE_SIZE + 1);
+        boolean hasOlder = tasks.size() > PAGE_SIZE;
+        if (hasOlder) {
+            tasks = tasks.subList(0, PAGE_SIZE);
+        }
+
+        model.addAttribute("taskList", tasks);
+        model.addAttribute("isFirstPage", before == null);
+        model.addAttribute("olderBefore", hasOlder ? tasks.get(PAGE_SIZE - 1).getTaskId() : null);
+        model.addAttribute("taskCount", taskStore.size());
         return "tasks";
     }
 
     @RequestMapping(method = RequestMethod.POST)
     public String clearFinished(Model model) {
         taskStore.clearFinished();
-        return getOverview(model);
+        return getOverview(null, model);
     }
 
     @RequestMapping(value = TASK_ID_PATH, method = RequestMethod.GET)
@@ -0,0 +1,119 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.dto;
+
+import de.rwth.idsg.steve.web.dto.ocpp.ResetType;
+import de.rwth.idsg.steve.web.dto.ocpp.TriggerMessageEnum;
+import de.rwth.idsg.steve.web.validation.IdTag;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Request bodies of the command API. Charge points are referenced by chargeBoxId. The OCPP version (and transport) is
+ * derived from the charge point, since the commands of one request must be sent with one version.
+ */
+public final class CommandForm {
+
+    private CommandForm() { }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Single {
+        @NotBlank(message = "chargeBoxId is required")
+        private String chargeBoxId;
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Multiple {
+        @NotEmpty(message = "At least one chargeBoxId is required")
+        private List<String> chargeBoxIds;
+    }
+
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class RemoteStart extends Single {
+        @ApiModelProperty(value = "Not for a specific connector, if not set")
+        @Min(value = 1, message = "Connector ID must be at least {value}")
+        private Integer connectorId;
+
+        @NotBlank(message = "ID Tag is required")
+        @IdTag
+        private String idTag;
+    }
+
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class RemoteStop extends Single {
+        @NotNull(message = "Transaction ID is required")
+        private Integer transactionId;
+    }
+
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class Reset extends Multiple {
+        @NotNull(message = "Reset Type is required")
+        private ResetType resetType;
+    }
+
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class UnlockConnector extends Single {
+        @NotNull(message = "Connector ID is required")
+        @Min(value = 1, message = "Connector ID must be at least {value}")
+        private Integer connectorId;
+    }
+
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class TriggerMessage extends Multiple {
+        @ApiModelProperty(value = "Only supported by OCPP 1.6 charge points")
+        @NotNull(message = "Requested Message required")
+        private TriggerMessageEnum triggerMessage;
+
+        @Min(value = 1, message = "Connector ID must be at least {value}")
+        private Integer connectorId;
+    }
+
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class ChangeConfiguration extends Multiple {
+        @NotBlank(message = "Configuration Key is required")
+        private String key;
+
+        // empty values are permitted, see ChangeConfigurationParams
+        private String value;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+import java.util.List;
+
+/**
+ * State of a command (i.e. a task) and the results of the charge points that answered so far
+ */
+@Getter
+@Builder
+public class CommandStatus {
+    private final int taskId;
+    private final String operation;
+    private final String ocppVersion;
+    private final boolean finished;
+    private final DateTime startTimestamp;
+    private final DateTime endTimestamp;
+    private final List<StationResult> results;
+
+    @Getter
+    @Builder
+    public static class StationResult {
+        private final String chargeBoxId;
+
+        /**
+         * Whether the outcome of this charge point is known, i.e. one of response or errorMessage is set
+         */
+        private final boolean completed;
+        private final String response;
+        private final String errorMessage;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The commands of the command API, with the request body of each
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CommandType {
+    REMOTE_START(CommandForm.RemoteStart.class, false),
+    REMOTE_STOP(CommandForm.RemoteStop.class, true), // of one transaction
+    RESET(CommandForm.Reset.class, false),
+    UNLOCK_CONNECTOR(CommandForm.UnlockConnector.class, false), // might unlock the cable of the next session
+    TRIGGER_MESSAGE(CommandForm.TriggerMessage.class, true),
+    CHANGE_CONFIGURATION(CommandForm.ChangeConfiguration.class, true);
+
+    private final Class<?> formClass;
+
+    /**
+     * Whether the command can be sent again when the outcome of the previous attempt is unknown, i.e. the station
+     * might have executed it already
+     */
+    private final boolean idempotent;
+
+    /**
+     * Whether the form selects exactly one charge point (chargeBoxId) or a list (chargeBoxIds)
+     */
+    public boolean isSingle() {
+        return CommandForm.Single.class.isAssignableFrom(formClass);
+    }
+}
@@ -22,6 +22,7 @@ import de.rwth.idsg.steve.ocpp.OcppVersion;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
+import org.jetbrains.annotations.Nullable;
 import org.joda.time.DateTime;
 
 /**
@@ -32,7 +33,7 @@ import org.joda.time.DateTime;
 @Builder
 @ToString
 public final class OcppJsonStatus {
-    private final int chargeBoxPk;
+    @Nullable private final Integer chargeBoxPk; // not in the database (anymore)
     private final String chargeBoxId, connectedSince;
     private final String connectionDuration;
     private final OcppVersion version;
@@ -0,0 +1,51 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+/**
+ * A command for one charge point, which is sent when the charge point is online
+ */
+@Getter
+@Setter
+@ToString
+public class QueuedCommandForm {
+
+    @NotBlank(message = "chargeBoxId is required")
+    private String chargeBoxId;
+
+    @NotNull(message = "command is required")
+    private CommandType command;
+
+    @ApiModelProperty(value = "The request body of the command in the command API, without the charge point(s)")
+    private JsonNode params;
+
+    @ApiModelProperty(value = "The command expires, if not sent within this time. The configured default, if not set.")
+    @Positive(message = "ttlSeconds must be positive")
+    private Integer ttlSeconds;
+}
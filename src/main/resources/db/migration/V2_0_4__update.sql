@@ -0,0 +1,15 @@
+CREATE TABLE task_summary (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_id INT NOT NULL,
+    operation_name VARCHAR(100) NOT NULL,
+    ocpp_version VARCHAR(10) NOT NULL,
+    origin VARCHAR(20) NOT NULL,
+    caller VARCHAR(255),
+    start_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    end_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    request_count INT NOT NULL,
+    response_count INT NOT NULL,
+    error_count INT NOT NULL,
+    evicted_timestamp TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX task_summary_start_idx (start_timestamp)
+);
@@ -0,0 +1,17 @@
+CREATE TABLE queued_command (
+    queued_command_pk INT AUTO_INCREMENT PRIMARY KEY,
+    charge_box_id VARCHAR(255) NOT NULL,
+    command VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    task_id INT NULL DEFAULT NULL,
+    response VARCHAR(255) NULL DEFAULT NULL,
+    error_message TEXT NULL DEFAULT NULL,
+    created_timestamp TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    expiry_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    dispatched_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    finished_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    INDEX queued_command_station_idx (charge_box_id, status, queued_command_pk),
+    INDEX queued_command_expiry_idx (status, expiry_timestamp)
+);
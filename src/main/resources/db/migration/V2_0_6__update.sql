@@ -0,0 +1,25 @@
+-- The most recent entry of connector_status per connector, maintained on every insert into connector_status
+CREATE TABLE connector_status_latest (
+    connector_pk INT(11) UNSIGNED NOT NULL,
+    status_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    status VARCHAR(255) NULL DEFAULT NULL,
+    error_code VARCHAR(255) NULL DEFAULT NULL,
+    error_info VARCHAR(255) NULL DEFAULT NULL,
+    vendor_id VARCHAR(255) NULL DEFAULT NULL,
+    vendor_error_code VARCHAR(255) NULL DEFAULT NULL,
+    PRIMARY KEY (connector_pk),
+    INDEX connector_status_latest_status_idx (status),
+    CONSTRAINT FK_csl_connector_pk FOREIGN KEY (connector_pk) REFERENCES connector (connector_pk) ON DELETE CASCADE
+);
+
+-- Ties (same connector and timestamp) keep the first row
+INSERT INTO connector_status_latest
+    (connector_pk, status_timestamp, status, error_code, error_info, vendor_id, vendor_error_code)
+SELECT cs.connector_pk, cs.status_timestamp, cs.status, cs.error_code, cs.error_info, cs.vendor_id, cs.vendor_error_code
+FROM connector_status cs
+JOIN (
+    SELECT connector_pk, MAX(status_timestamp) AS max_timestamp
+    FROM connector_status
+    GROUP BY connector_pk
+) t ON cs.connector_pk = t.connector_pk AND cs.status_timestamp = t.max_timestamp
+ON DUPLICATE KEY UPDATE connector_pk = connector_status_latest.connector_pk;
@@ -0,0 +1,93 @@
+-- Monthly range partitioning of the append-only tables connector_meter_value, connector_status and app_log.
+-- The partitions of the coming months are created (and the expired ones dropped/archived) at runtime by
+-- PartitionRetentionManager. This migration only creates p_history (everything until the end of the current month)
+-- and p_future (catch-all, kept empty by the manager).
+--
+-- The partitioning function is TO_SECONDS(), for which MySQL and MariaDB document the pruning of range conditions.
+-- TO_SECONDS() is not permitted on TIMESTAMP columns, therefore the timestamp columns become DATETIME(6). The
+-- conversion keeps the values as the application reads them: a TIMESTAMP is converted into the time zone of the
+-- session, which is the one of this migration as well (i.e. do NOT set time_zone here). The bounds are TO_SECONDS()
+-- of the first day of a month. PartitionRetentionManager checks the pruning with EXPLAIN (see pruningScanned in
+-- /api/v1/metrics/partitions) and logs an error if a query over the last day is not pruned.
+--
+-- Each ALTER TABLE below copies the whole table and blocks writes to it while doing so. On a large
+-- connector_meter_value or app_log this takes a while: plan the upgrade for a maintenance window.
+SET @steve_partition_bound = TO_SECONDS(DATE_FORMAT(NOW() + INTERVAL 1 MONTH, '%Y-%m-01'));
+
+-- -------------------------------------------------------------------------
+-- Partitioned InnoDB tables cannot have foreign keys. The deletion of the rows of a charge point's connectors is
+-- done by the application (see ChargePointRepositoryImpl.deleteChargePoint). Rows that are written after that (e.g.
+-- buffered meter values) are deleted by PartitionRetentionManager.
+-- -------------------------------------------------------------------------
+
+ALTER TABLE `connector_meter_value`
+    DROP FOREIGN KEY `FK_pk_cm`,
+    DROP FOREIGN KEY `FK_tid_cm`,
+    MODIFY `value_timestamp` DATETIME(6) NULL DEFAULT NULL;
+
+ALTER TABLE `connector_status`
+    DROP FOREIGN KEY `FK_cs_pk`,
+    MODIFY `status_timestamp` DATETIME(6) NULL DEFAULT NULL;
+
+SET @steve_sql = CONCAT('ALTER TABLE connector_meter_value ',
+    'PARTITION BY RANGE (TO_SECONDS(value_timestamp)) (',
+    'PARTITION p_history VALUES LESS THAN (', @steve_partition_bound, '), ',
+    'PARTITION p_future VALUES LESS THAN MAXVALUE)');
+PREPARE stmt FROM @steve_sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @steve_sql = CONCAT('ALTER TABLE connector_status ',
+    'PARTITION BY RANGE (TO_SECONDS(status_timestamp)) (',
+    'PARTITION p_history VALUES LESS THAN (', @steve_partition_bound, '), ',
+    'PARTITION p_future VALUES LESS THAN MAXVALUE)');
+PREPARE stmt FROM @steve_sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- -------------------------------------------------------------------------
+-- app_log was created outside of the migrations so far. Every unique key of a partitioned table must contain the
+-- partitioning column, therefore the primary key becomes (id, timestamp_str).
+-- -------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS `app_log` (
+    `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+    `timestamp_str` DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    `charge_box_id` VARCHAR(255) NULL DEFAULT NULL,
+    `session_id` VARCHAR(255) NULL DEFAULT NULL,
+    `transaction_id` INT(11) NULL DEFAULT NULL,
+    `event` VARCHAR(255) NULL DEFAULT NULL,
+    `payload` MEDIUMTEXT NULL DEFAULT NULL,
+    `message_id` VARCHAR(255) NULL DEFAULT NULL,
+    `direction` VARCHAR(255) NULL DEFAULT NULL,
+    PRIMARY KEY (`id`, `timestamp_str`),
+    INDEX `app_log_charge_box_id_idx` (`charge_box_id`)
+);
+
+UPDATE `app_log` SET `timestamp_str` = FROM_UNIXTIME(1) WHERE `timestamp_str` IS NULL;
+
+SET @steve_app_log_pk = (SELECT GROUP_CONCAT(column_name ORDER BY ordinal_position)
+                         FROM information_schema.key_column_usage
+                         WHERE table_schema = DATABASE()
+                           AND table_name = 'app_log'
+                           AND constraint_name = 'PRIMARY');
+
+SET @steve_sql = CASE
+    WHEN @steve_app_log_pk = 'id,timestamp_str' THEN
+        'ALTER TABLE app_log MODIFY timestamp_str DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)'
+    WHEN @steve_app_log_pk IS NULL THEN
+        'ALTER TABLE app_log MODIFY timestamp_str DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), ADD PRIMARY KEY (id, timestamp_str)'
+    ELSE
+        'ALTER TABLE app_log MODIFY timestamp_str DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), DROP PRIMARY KEY, ADD PRIMARY KEY (id, timestamp_str)'
+    END;
+PREPARE stmt FROM @steve_sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @steve_sql = CONCAT('ALTER TABLE app_log ',
+    'PARTITION BY RANGE (TO_SECONDS(timestamp_str)) (',
+    'PARTITION p_history VALUES LESS THAN (', @steve_partition_bound, '), ',
+    'PARTITION p_future VALUES LESS THAN MAXVALUE)');
+PREPARE stmt FROM @steve_sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
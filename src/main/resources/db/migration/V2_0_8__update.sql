@@ -0,0 +1,22 @@
+-- Aggregates of the numeric meter values (energy, power, SoC, voltage) per connector, measurand, phase and time
+-- bucket of 1, 15 and 60 minutes. Maintained by MeterValueRollup when connector_meter_value is written. The values
+-- are normalized to Wh, W, Percent and V. The average is value_sum / sample_count.
+CREATE TABLE connector_meter_value_rollup (
+    connector_pk INT(11) UNSIGNED NOT NULL,
+    bucket_minutes INT(11) NOT NULL,
+    measurand VARCHAR(64) NOT NULL,
+    phase VARCHAR(16) NOT NULL DEFAULT '',
+    bucket_start TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    unit VARCHAR(16) NULL DEFAULT NULL,
+    first_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    last_timestamp TIMESTAMP(6) NULL DEFAULT NULL,
+    value_first DECIMAL(24,6) NULL DEFAULT NULL,
+    value_last DECIMAL(24,6) NULL DEFAULT NULL,
+    value_min DECIMAL(24,6) NULL DEFAULT NULL,
+    value_max DECIMAL(24,6) NULL DEFAULT NULL,
+    value_sum DECIMAL(30,6) NULL DEFAULT NULL,
+    sample_count INT(11) NOT NULL DEFAULT 0,
+    PRIMARY KEY (connector_pk, bucket_minutes, measurand, phase, bucket_start),
+    INDEX connector_meter_value_rollup_bucket_start_idx (bucket_start),
+    CONSTRAINT FK_cmvr_connector_pk FOREIGN KEY (connector_pk) REFERENCES connector (connector_pk) ON DELETE CASCADE
+);
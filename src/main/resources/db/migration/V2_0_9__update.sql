@@ -0,0 +1,8 @@
+-- Progress of the replay of the spill files of MeterValueWriter: the number of lines of a file that are written to
+-- connector_meter_value. It is updated in the transaction of the insert, such that an interrupted replay goes on
+-- after the last written chunk instead of writing the rows again. The row is deleted with the file.
+CREATE TABLE meter_value_spill_replay (
+    file_name VARCHAR(255) NOT NULL,
+    line_count INT(11) NOT NULL,
+    PRIMARY KEY (file_name)
+);
@@ -39,6 +39,7 @@
                 <th data-sort="string">Origin</th>
                 <th data-sort="date">Start Timestamp</th>
                 <th data-sort="date">End Timestamp</th>
+                <th>Sent / Requests</th>
                 <th>Responses / Requests</th>
             </tr>
         </thead>
@@ -48,10 +49,23 @@
                 <td>${task.origin}</td>
                 <td data-sort-value="${task.start.millis}">${task.start}</td>
                 <td data-sort-value="${task.end.millis}">${task.end}</td>
+                <td>${task.dispatchedCount} / ${task.requestCount}</td>
                 <td>${task.responseCount} / ${task.requestCount}</td>
             </tr>
         </c:forEach>
         </tbody>
     </table>
+    <c:if test="${not isFirstPage or not empty olderBefore}">
+        <br>
+        <div>
+            <c:if test="${not isFirstPage}">
+                <a href="${ctxPath}/manager/operations/tasks">&laquo; Newest</a>
+            </c:if>
+            (${taskCount} tasks)
+            <c:if test="${not empty olderBefore}">
+                <a href="${ctxPath}/manager/operations/tasks?before=${olderBefore}">Older &raquo;</a>
+            </c:if>
+        </div>
+    </c:if>
 </div>
 <%@ include file="00-footer.jsp" %>
\ No newline at end of file
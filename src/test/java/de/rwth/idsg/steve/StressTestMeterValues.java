@@ -0,0 +1,167 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve;
+
+import de.rwth.idsg.steve.config.BeanConfiguration;
+import de.rwth.idsg.steve.repository.impl.ConnectorPkCache;
+import de.rwth.idsg.steve.repository.impl.MeterValueRollup;
+import de.rwth.idsg.steve.repository.impl.MeterValueWriter;
+import de.rwth.idsg.steve.repository.impl.OcppServerRepositoryImpl;
+import de.rwth.idsg.steve.utils.StressTester;
+import de.rwth.idsg.steve.utils.__DatabasePreparer__;
+import ocpp.cs._2015._10.MeterValue;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jooq.steve.db.tables.Connector.CONNECTOR;
+import static jooq.steve.db.tables.ConnectorMeterValue.CONNECTOR_METER_VALUE;
+
+/**
+ * Compares the ingestion of meter values in rows/second: every message in its own transaction (as it was before
+ * {@link MeterValueWriter}), and the write-behind of {@link MeterValueWriter}. Does not need a running SteVe, only
+ * the test database.
+ */
+public class StressTestMeterValues extends StressTest {
+
+    private static final int METER_VALUES_PER_MESSAGE = 4;
+
+    private final DSLContext ctx = new BeanConfiguration().dslContext();
+    private final String chargeBoxId = __DatabasePreparer__.getRegisteredChargeBoxId();
+
+    public static void main(String[] args) throws Exception {
+        new StressTestMeterValues().attack();
+    }
+
+    @Override
+    protected void attack() throws Exception {
+        Assertions.assertEquals(ApplicationProfile.TEST, SteveConfiguration.CONFIG.getProfile());
+
+        __DatabasePreparer__.prepare();
+        try {
+            attackInternal();
+        } finally {
+            __DatabasePreparer__.cleanUp();
+        }
+    }
+
+    @Override
+    protected void attackInternal() throws Exception {
+        long rows = (long) THREAD_COUNT * REPEAT_COUNT_PER_THREAD * METER_VALUES_PER_MESSAGE;
+
+        // before: every message is written by the thread of the station, in its own transaction
+        long start = System.nanoTime();
+        run(list -> ctx.transaction(configuration -> {
+            DSLContext ctx = DSL.using(configuration);
+            int connectorPk = resolveConnector(ctx);
+            MeterValueWriter.insert(ctx, MeterValueWriter.toRows(list, connectorPk, null));
+        }));
+        long directNanos = System.nanoTime() - start;
+        assertRowCount(rows);
+
+        // after: the thread of the station only resolves the connector (from memory) and queues the rows
+        ConnectorPkCache connectorPkCache = new ConnectorPkCache(ctx);
+        connectorPkCache.init();
+        MeterValueWriter writer = new MeterValueWriter(ctx, new MeterValueRollup(ctx));
+        writer.init();
+        try {
+            start = System.nanoTime();
+            run(list -> {
+                int connectorPk = connectorPkCache.getOrInsert(chargeBoxId, randomConnectorId());
+                writer.add(MeterValueWriter.toRows(list, connectorPk, null), null);
+            });
+            long acknowledgedNanos = System.nanoTime() - start;
+
+            while (writer.getStats().getWritten() < rows) {
+                Thread.sleep(10);
+            }
+            long writtenNanos = System.nanoTime() - start;
+            assertRowCount(2 * rows);
+
+            print("direct (transaction per message)", rows, directNanos);
+            print("write-behind, acknowledged", rows, acknowledgedNanos);
+            print("write-behind, written", rows, writtenNanos);
+            System.out.printf(Locale.ROOT, "%-45s %12.0f rows/flush%n", "write-behind, batch size",
+                    writer.getStats().getAvgRowsPerFlush());
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    private void run(Ingestion ingestion) throws InterruptedException {
+        AtomicLong failures = new AtomicLong();
+
+        StressTester tester = new StressTester(THREAD_COUNT, REPEAT_COUNT_PER_THREAD);
+        tester.test(new StressTester.Runnable() {
+            @Override
+            public void beforeRepeat() { }
+
+            @Override
+            public void toRepeat() {
+                int start = ThreadLocalRandom.current().nextInt(1_000_000);
+                List<MeterValue> list = getMeterValues(start, start + 1_000 * METER_VALUES_PER_MESSAGE);
+                try {
+                    ingestion.ingest(list);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void afterRepeat() { }
+        });
+        tester.shutDown();
+
+        Assertions.assertEquals(0, failures.get());
+    }
+
+    private int resolveConnector(DSLContext ctx) {
+        int connectorId = randomConnectorId();
+        OcppServerRepositoryImpl.insertIgnoreConnector(ctx, chargeBoxId, connectorId);
+        return ctx.select(CONNECTOR.CONNECTOR_PK)
+                  .from(CONNECTOR)
+                  .where(CONNECTOR.CHARGE_BOX_ID.eq(chargeBoxId))
+                  .and(CONNECTOR.CONNECTOR_ID.eq(connectorId))
+                  .fetchOne()
+                  .value1();
+    }
+
+    private static int randomConnectorId() {
+        return ThreadLocalRandom.current().nextInt(1, CONNECTOR_COUNT_PER_CHARGE_BOX + 1);
+    }
+
+    private void assertRowCount(long expected) {
+        Assertions.assertEquals(expected, (long) ctx.fetchCount(CONNECTOR_METER_VALUE));
+    }
+
+    private static void print(String name, long rows, long nanos) {
+        double rowsPerSecond = rows / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        System.out.printf(Locale.ROOT, "%-45s %12.0f rows/s%n", name, rowsPerSecond);
+    }
+
+    private interface Ingestion {
+        void ingest(List<MeterValue> list) throws Exception;
+    }
+}
@@ -25,6 +25,8 @@ import de.rwth.idsg.steve.repository.dto.Transaction;
 import de.rwth.idsg.steve.repository.dto.UpdateTransactionParams;
 import de.rwth.idsg.steve.repository.impl.AddressRepositoryImpl;
 import de.rwth.idsg.steve.repository.impl.ChargePointRepositoryImpl;
+import de.rwth.idsg.steve.repository.impl.ConnectorPkCache;
+import de.rwth.idsg.steve.repository.impl.HeartbeatRegistry;
 import de.rwth.idsg.steve.repository.impl.OcppServerRepositoryImpl;
 import de.rwth.idsg.steve.repository.impl.OcppTagRepositoryImpl;
 import de.rwth.idsg.steve.repository.impl.ReservationRepositoryImpl;
@@ -43,6 +45,7 @@ import org.jooq.impl.DSL;
 import org.jooq.impl.DataSourceConnectionProvider;
 import org.jooq.impl.DefaultConfiguration;
 import org.jooq.tools.jdbc.SingleConnectionDataSource;
+import org.mockito.Mockito;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -50,6 +53,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -101,7 +105,7 @@ public class Issue1219 {
     }
 
     private List<Integer> insertStopTransactions(List<Integer> insertedTransactionIds) {
-        var ocppServerRepository = new OcppServerRepositoryImpl(ctx, new ReservationRepositoryImpl(ctx));
+        var ocppServerRepository = ocppServerRepository();
         var transactionRepository = new TransactionRepositoryImpl(ctx);
 
         List<Integer> stopped = new ArrayList<>();
@@ -132,7 +136,7 @@ public class Issue1219 {
     }
 
     private List<Integer> insertStartTransactions(int count, List<String> ocppTags, List<String> chargeBoxIds) {
-        var repository = new OcppServerRepositoryImpl(ctx, new ReservationRepositoryImpl(ctx));
+        var repository = ocppServerRepository();
 
         List<Integer> transactionIds = new ArrayList<>();
         for (int i = 0; i < count; i++) {
@@ -152,8 +156,16 @@ public class Issue1219 {
         return transactionIds;
     }
 
+    private OcppServerRepositoryImpl ocppServerRepository() {
+        var connectorPkCache = new ConnectorPkCache(ctx);
+        connectorPkCache.init();
+        return new OcppServerRepositoryImpl(ctx, new ReservationRepositoryImpl(ctx), connectorPkCache);
+    }
+
     private List<String> insertChargeBoxes(int count) {
-        var repository = new ChargePointRepositoryImpl(ctx, new AddressRepositoryImpl());
+        var heartbeatRegistry = new HeartbeatRegistry(ctx, Mockito.mock(ScheduledExecutorService.class));
+        var repository = new ChargePointRepositoryImpl(ctx, new AddressRepositoryImpl(), heartbeatRegistry,
+                                                       new ConnectorPkCache(ctx));
 
         List<String> ids = IntStream.range(0, count).mapToObj(val -> UUID.randomUUID().toString()).collect(Collectors.toList());
         repository.addChargePointList(ids);
@@ -0,0 +1,123 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.myconfig;
+
+import de.rwth.idsg.steve.service.dto.TariffProcessingStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TariffProcessingQueueTest {
+
+    private final TariffProcessingQueue queue = new TariffProcessingQueue(4, 100);
+
+    @AfterEach
+    public void tearDown() {
+        queue.shutDown();
+    }
+
+    @Test
+    public void testRunsOfTransactionAreSerializedAndCoalesced() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        List<String> runs = new CopyOnWriteArrayList<>();
+
+        queue.submit(1, () -> {
+            started.countDown();
+            await(release);
+            runs.add("first");
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // while the first one runs, only the last of these is kept
+        for (int i = 0; i < 3; i++) {
+            String name = "next-" + i;
+            queue.submit(1, () -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                runs.add(name);
+                concurrent.decrementAndGet();
+            });
+        }
+        release.countDown();
+
+        waitUntilIdle();
+        Assertions.assertEquals(List.of("first", "next-2"), runs);
+        Assertions.assertEquals(1, maxConcurrent.get());
+
+        TariffProcessingStats stats = queue.getStats();
+        Assertions.assertEquals(4, stats.getSubmitted());
+        Assertions.assertEquals(2, stats.getCoalesced());
+        Assertions.assertEquals(2, stats.getCompleted());
+    }
+
+    @Test
+    public void testTransactionsRunInParallel() throws Exception {
+        CountDownLatch both = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (int tx = 1; tx <= 2; tx++) {
+            queue.submit(tx, () -> {
+                both.countDown();
+                await(release);
+            });
+        }
+
+        Assertions.assertTrue(both.await(5, TimeUnit.SECONDS), "a slow transaction must not block the others");
+        release.countDown();
+        waitUntilIdle();
+    }
+
+    @Test
+    public void testFailedRunDoesNotStopTheNextOne() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        queue.submit(1, () -> {
+            throw new IllegalStateException("PHP is down");
+        });
+        waitUntilIdle();
+        queue.submit(1, done::countDown);
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        waitUntilIdle();
+        Assertions.assertEquals(1, queue.getStats().getFailed());
+    }
+
+    private void waitUntilIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.getStats().getTransactions() > 0) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "the queue did not become idle");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.myconfig.journal;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import org.joda.time.DateTime;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class AppLogJournalTest {
+
+    private final List<String> inserts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    private AppLogJournal journal;
+
+    @AfterEach
+    public void teardown() {
+        if (journal != null) {
+            journal.shutDown();
+        }
+    }
+
+    @Test
+    public void testEntriesAreWrittenInBatches() throws Exception {
+        journal = journal(5, 3);
+        for (int i = 0; i < 5; i++) {
+            journal.add(entry(i));
+        }
+
+        await(() -> journal.getStats().getWritten() == 5);
+        Assertions.assertEquals(1, inserts.size());
+        Assertions.assertTrue(inserts.get(0).startsWith("insert into `app_log`"));
+        Assertions.assertEquals(0, journal.getStats().getFailedBatches());
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() throws Exception {
+        failuresLeft.set(2);
+        journal = journal(1, 3);
+        journal.add(entry(1));
+
+        await(() -> journal.getStats().getWritten() == 1);
+        JournalStats stats = journal.getStats();
+        Assertions.assertEquals(2, stats.getRetries());
+        Assertions.assertEquals(0, stats.getFailedBatches());
+        Assertions.assertEquals("Database is gone", stats.getLastError());
+    }
+
+    @Test
+    public void testBatchIsDroppedAfterLastAttempt() throws Exception {
+        failuresLeft.set(Integer.MAX_VALUE);
+        journal = journal(1, 2);
+        journal.add(entry(1));
+
+        await(() -> journal.getStats().getFailedBatches() == 1);
+        JournalStats stats = journal.getStats();
+        Assertions.assertEquals(1, stats.getRetries());
+        Assertions.assertEquals(1, stats.getFailedEntries());
+        Assertions.assertEquals(1, stats.getDropped());
+        Assertions.assertEquals(0, stats.getWritten());
+    }
+
+    private AppLogJournal journal(int batchSize, int maxAttempts) {
+        DSLContext ctx = DSL.using(new MockConnection(context -> {
+            if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new SQLException("Database is gone");
+            }
+            inserts.add(context.sql());
+            return new MockResult[] {new MockResult(batchSize)};
+        }), SQLDialect.MYSQL);
+
+        SteveConfiguration.Journal config = SteveConfiguration.Journal.builder()
+                                                                      .queueCapacity(100)
+                                                                      .batchSize(batchSize)
+                                                                      .flushIntervalMillis(1_000)
+                                                                      .overflowPolicy(JournalOverflowPolicy.BLOCK)
+                                                                      .sampleRate(1)
+                                                                      .maxAttempts(maxAttempts)
+                                                                      .build();
+
+        AppLogJournal journal = new AppLogJournal(ctx, config);
+        journal.init();
+        return journal;
+    }
+
+    private static JournalEntry entry(int i) {
+        return JournalEntry.builder()
+                           .timestamp(DateTime.now())
+                           .chargeBoxId("cp-1")
+                           .sessionId("session-1")
+                           .event("RECEIVED")
+                           .payload("[2,\"" + i + "\",\"Heartbeat\",{}]")
+                           .messageId(String.valueOf(i))
+                           .direction("IN")
+                           .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+}
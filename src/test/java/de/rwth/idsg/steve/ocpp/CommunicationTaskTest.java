@@ -0,0 +1,95 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp;
+
+import de.rwth.idsg.steve.ocpp.task.ResetTask;
+import de.rwth.idsg.steve.repository.dto.ChargePointSelect;
+import de.rwth.idsg.steve.web.dto.ocpp.ResetParams;
+import de.rwth.idsg.steve.web.dto.ocpp.ResetType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class CommunicationTaskTest {
+
+    @Test
+    public void testFuturesComplete() throws Exception {
+        ResetTask task = newTask("cp-1", "cp-2");
+
+        CompletableFuture<RequestResult> first = task.getFuture("cp-1");
+        CompletableFuture<Map<String, RequestResult>> all = task.getCompletionFuture();
+
+        task.addNewResponse("cp-1", "Accepted");
+        Assertions.assertEquals("Accepted", first.get().getResponse());
+        Assertions.assertFalse(all.isDone());
+        Assertions.assertFalse(task.isFinished());
+
+        task.addNewError("cp-2", "Connection refused");
+        Assertions.assertTrue(task.getFuture("cp-2").isCompletedExceptionally());
+        Assertions.assertTrue(all.isDone());
+        Assertions.assertTrue(task.isFinished());
+        Assertions.assertEquals("Connection refused", all.get().get("cp-2").getErrorMessage());
+    }
+
+    @Test
+    public void testOnlyFirstOutcomeCounts() {
+        ResetTask task = newTask("cp-1");
+
+        task.addNewError("cp-1", "Timed out");
+        task.addNewResponse("cp-1", "Accepted");
+
+        Assertions.assertEquals(1, task.getErrorCount().get());
+        Assertions.assertEquals(0, task.getResponseCount().get());
+        Assertions.assertEquals("Timed out", task.getResultMap().get("cp-1").getErrorMessage());
+        Assertions.assertNull(task.getResultMap().get("cp-1").getResponse());
+    }
+
+    @Test
+    public void testConcurrentOutcomesFinishTask() throws Exception {
+        String[] ids = new String[500];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "cp-" + i;
+        }
+        ResetTask task = newTask(ids);
+
+        Arrays.stream(ids).parallel().forEach(id -> task.addNewResponse(id, "Accepted"));
+
+        Assertions.assertEquals(ids.length, task.getCompletionFuture().get().size());
+        Assertions.assertEquals(ids.length, task.getResponseCount().get());
+        Assertions.assertTrue(task.isFinished());
+    }
+
+    @Test
+    public void testUnknownChargeBoxId() {
+        ResetTask task = newTask("cp-1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> task.getFuture("cp-2"));
+    }
+
+    private static ResetTask newTask(String... chargeBoxIds) {
+        ResetParams params = new ResetParams();
+        params.setResetType(ResetType.SOFT);
+        params.setChargePointSelectList(Arrays.stream(chargeBoxIds)
+                                              .map(id -> new ChargePointSelect(OcppTransport.JSON, id))
+                                              .toList());
+        return new ResetTask(OcppVersion.V_16, params);
+    }
+}
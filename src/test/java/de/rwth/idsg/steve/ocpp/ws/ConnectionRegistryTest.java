@@ -0,0 +1,96 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.ocpp.OcppVersion;
+import de.rwth.idsg.steve.ocpp.ws.data.ConnectionInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConnectionRegistryTest {
+
+    @Test
+    public void testSessionCountingAndNotifications() {
+        ConnectionRegistry registry = new ConnectionRegistry();
+        List<String> events = new ArrayList<>();
+        registry.subscribe(new ConnectionListener() {
+            @Override
+            public void onConnected(String chargeBoxId, OcppVersion version) {
+                events.add("connected " + chargeBoxId);
+            }
+
+            @Override
+            public void onDisconnected(String chargeBoxId, OcppVersion version) {
+                events.add("disconnected " + chargeBoxId);
+            }
+        });
+
+        registry.sessionOpened("cp-1", OcppVersion.V_16, "s-1");
+        registry.sessionOpened("cp-1", OcppVersion.V_16, "s-2");
+        registry.sessionOpened("cp-2", OcppVersion.V_15, "s-3");
+
+        Assertions.assertTrue(registry.isOnline("cp-1"));
+        Assertions.assertEquals(2, registry.get("cp-1").getSessionCount());
+        Assertions.assertEquals(1, registry.getNumberOfChargeBoxes(OcppVersion.V_16));
+        Assertions.assertEquals(1, registry.getNumberOfChargeBoxes(OcppVersion.V_15));
+        Assertions.assertEquals(2, registry.getConnections().size());
+
+        registry.sessionClosed("cp-1", "s-1");
+        Assertions.assertTrue(registry.isOnline("cp-1"));
+
+        // a session that is not (or no longer) known changes nothing
+        registry.sessionClosed("cp-1", "s-1");
+        Assertions.assertTrue(registry.isOnline("cp-1"));
+
+        registry.sessionClosed("cp-1", "s-2");
+        Assertions.assertFalse(registry.isOnline("cp-1"));
+        Assertions.assertEquals(0, registry.getNumberOfChargeBoxes(OcppVersion.V_16));
+
+        Assertions.assertEquals(List.of("connected cp-1", "connected cp-2", "disconnected cp-1"), events);
+    }
+
+    @Test
+    public void testSessionsOfDifferentVersions() {
+        ConnectionRegistry registry = new ConnectionRegistry();
+
+        registry.sessionOpened("cp-1", OcppVersion.V_15, "s-1");
+        registry.sessionOpened("cp-1", OcppVersion.V_16, "s-2");
+
+        // connected to both endpoints
+        Assertions.assertEquals(1, registry.getNumberOfChargeBoxes(OcppVersion.V_15));
+        Assertions.assertEquals(1, registry.getNumberOfChargeBoxes(OcppVersion.V_16));
+        Assertions.assertEquals(1, registry.getNumberOfChargeBoxes());
+        Assertions.assertEquals(OcppVersion.V_16, registry.get("cp-1").getVersion());
+
+        List<ConnectionInfo.Session> sessions = registry.get("cp-1").getSessions();
+        Assertions.assertEquals(List.of("s-1", "s-2"),
+                                sessions.stream().map(ConnectionInfo.Session::getSessionId).toList());
+        Assertions.assertEquals(List.of(OcppVersion.V_15, OcppVersion.V_16),
+                                sessions.stream().map(ConnectionInfo.Session::getVersion).toList());
+
+        registry.sessionClosed("cp-1", "s-2");
+
+        Assertions.assertEquals(1, registry.getNumberOfChargeBoxes(OcppVersion.V_15));
+        Assertions.assertEquals(0, registry.getNumberOfChargeBoxes(OcppVersion.V_16));
+        Assertions.assertEquals(OcppVersion.V_15, registry.get("cp-1").getVersion());
+    }
+}
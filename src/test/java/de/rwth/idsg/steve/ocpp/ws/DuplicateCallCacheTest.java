@@ -0,0 +1,111 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.ocpp.ws.data.DuplicateCallStats;
+import de.rwth.idsg.steve.ocpp.ws.data.MessageType;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+public class DuplicateCallCacheTest {
+
+    private static final String CALL_1 = "[2,\"1\",\"MeterValues\",{\"connectorId\":1,\"meterValue\":[]}]";
+    private static final String CALL_1_OTHER_PAYLOAD = "[2,\"1\",\"MeterValues\",{\"connectorId\":2,\"meterValue\":[]}]";
+
+    @Test
+    public void testRetransmissionIsAnsweredFromCache() {
+        DuplicateCallCache cache = newCache(4);
+        put(cache, "cp-1", "1", CALL_1);
+
+        DuplicateCallCache.Entry entry = cache.get("cp-1", "1", CALL_1);
+        Assertions.assertNotNull(entry);
+        Assertions.assertEquals("[3,\"1\",{}]", entry.getOutgoingString());
+
+        // other stations have their own ids
+        Assertions.assertNull(cache.get("cp-2", "1", CALL_1));
+
+        DuplicateCallStats stats = cache.getStats();
+        Assertions.assertEquals(2, stats.getLookups());
+        Assertions.assertEquals(1, stats.getHits());
+        Assertions.assertEquals(0.5, stats.getHitRate());
+        Assertions.assertEquals(1L, stats.getHitsPerAction().get("MeterValues"));
+    }
+
+    @Test
+    public void testReusedMessageIdIsNotAHit() {
+        DuplicateCallCache cache = newCache(4);
+        put(cache, "cp-1", "1", CALL_1);
+
+        Assertions.assertNull(cache.get("cp-1", "1", CALL_1_OTHER_PAYLOAD));
+        Assertions.assertEquals(1, cache.getStats().getIdCollisions());
+    }
+
+    @Test
+    public void testCollidingHashIsNotAHit() {
+        // "Aa" and "BB" have the same hashCode, and so do the frames
+        String call = "[2,\"1\",\"DataTransfer\",{\"vendorId\":\"v\",\"data\":\"Aa\"}]";
+        String colliding = "[2,\"1\",\"DataTransfer\",{\"vendorId\":\"v\",\"data\":\"BB\"}]";
+        Assertions.assertEquals(call.hashCode(), colliding.hashCode());
+
+        DuplicateCallCache cache = newCache(4);
+        put(cache, "cp-1", "1", call);
+
+        Assertions.assertNull(cache.get("cp-1", "1", colliding));
+        Assertions.assertNotNull(cache.get("cp-1", "1", call));
+    }
+
+    @Test
+    public void testOldestEntriesAreEvicted() {
+        DuplicateCallCache cache = newCache(2);
+        put(cache, "cp-1", "1", "[2,\"1\",\"Heartbeat\",{}]");
+        put(cache, "cp-1", "2", "[2,\"2\",\"Heartbeat\",{}]");
+        put(cache, "cp-1", "3", "[2,\"3\",\"Heartbeat\",{}]");
+
+        Assertions.assertNull(cache.get("cp-1", "1", "[2,\"1\",\"Heartbeat\",{}]"));
+        Assertions.assertNotNull(cache.get("cp-1", "3", "[2,\"3\",\"Heartbeat\",{}]"));
+        Assertions.assertEquals(2, cache.getStats().getEntries());
+    }
+
+    @Test
+    public void testDisabled() {
+        DuplicateCallCache cache = newCache(0);
+        put(cache, "cp-1", "1", CALL_1);
+
+        Assertions.assertNull(cache.get("cp-1", "1", CALL_1));
+        Assertions.assertEquals(0, cache.getStats().getLookups());
+    }
+
+    private static DuplicateCallCache newCache(int maxSize) {
+        return new DuplicateCallCache(Mockito.mock(ScheduledExecutorService.class), maxSize, 60);
+    }
+
+    private static void put(DuplicateCallCache cache, String chargeBoxId, String messageId, String incomingString) {
+        OcppJsonResult result = new OcppJsonResult();
+        result.setMessageId(messageId);
+
+        OcppJsonEnvelope envelope = new OcppJsonEnvelope(MessageType.CALL_RESULT, messageId);
+        cache.put(chargeBoxId, messageId, "MeterValues", incomingString,
+                  result, "[3,\"" + messageId + "\",{}]", envelope);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.ocpp.OcppCallback;
+import de.rwth.idsg.steve.ocpp.ws.data.CommunicationContext;
+import de.rwth.idsg.steve.ocpp.ws.data.FutureResponseContext;
+import de.rwth.idsg.steve.ocpp.ws.data.PendingCallStats;
+import de.rwth.idsg.steve.ocpp.ws.ocpp16.Ocpp16TypeStore;
+import de.rwth.idsg.steve.ocpp.ws.pipeline.Deserializer;
+import ocpp.cp._2015._10.ResetResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+
+public class FutureResponseContextStoreTest {
+
+    private FutureResponseContextStore store;
+    private WebSocketSession session;
+    private OcppCallback<?> callback;
+    private CommunicationTask<?, ?> task;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() {
+        store = new FutureResponseContextStore(Mockito.mock(ScheduledExecutorService.class));
+        session = Mockito.mock(WebSocketSession.class);
+        Mockito.when(session.getId()).thenReturn("session-1");
+
+        callback = Mockito.mock(OcppCallback.class);
+        task = Mockito.mock(CommunicationTask.class);
+        Mockito.when(task.defaultCallback()).thenReturn((OcppCallback) callback);
+
+        store.addSession("cp-1", session);
+    }
+
+    @Test
+    public void testExpiredCallFailsTask() {
+        FutureResponseContext context = new FutureResponseContext(task, "cp-1", "Reset", ResetResponse.class);
+        store.add(session, "msg-1", context);
+
+        store.expire();
+        Mockito.verify(callback, Mockito.never()).failed(ArgumentMatchers.anyString(), ArgumentMatchers.any());
+
+        context.setDeadlineNanos(System.nanoTime() - 1);
+        store.expire();
+
+        Mockito.verify(callback).failed(ArgumentMatchers.eq("cp-1"), ArgumentMatchers.any(TimeoutException.class));
+        Assertions.assertNull(store.get(session, "msg-1"));
+
+        List<PendingCallStats> stats = store.getStats();
+        Assertions.assertEquals(1, stats.size());
+        Assertions.assertEquals(0, stats.get(0).getPending());
+        Assertions.assertEquals(1, stats.get(0).getTimedOut());
+        Assertions.assertEquals(1.0, stats.get(0).getTimeoutRate());
+    }
+
+    @Test
+    public void testAnsweredCallDoesNotExpire() {
+        FutureResponseContext context = new FutureResponseContext(task, "cp-1", "Reset", ResetResponse.class);
+        store.add(session, "msg-1", context);
+
+        Assertions.assertSame(context, store.get(session, "msg-1"));
+
+        context.setDeadlineNanos(System.nanoTime() - 1);
+        store.expire();
+
+        Mockito.verify(callback, Mockito.never()).failed(ArgumentMatchers.anyString(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testClosedSessionFailsPendingCalls() {
+        store.add(session, "msg-1", new FutureResponseContext(task, "cp-1", "Reset", ResetResponse.class));
+
+        store.removeSession("cp-1", session);
+
+        Mockito.verify(callback).failed(ArgumentMatchers.eq("cp-1"), ArgumentMatchers.any(IllegalStateException.class));
+    }
+
+    @Test
+    public void testCountersAreDroppedWithLastSession() {
+        WebSocketSession reconnected = Mockito.mock(WebSocketSession.class);
+        Mockito.when(reconnected.getId()).thenReturn("session-2");
+        store.addSession("cp-1", reconnected);
+        store.add(session, "msg-1", new FutureResponseContext(task, "cp-1", "Reset", ResetResponse.class));
+
+        store.removeSession("cp-1", session);
+        Assertions.assertEquals(1, store.getStats().size());
+        Assertions.assertEquals(1, store.getStats().get(0).getSent());
+
+        store.removeSession("cp-1", reconnected);
+        Assertions.assertTrue(store.getStats().isEmpty());
+
+        // a call that is still on its way is not counted anymore
+        store.add(reconnected, "msg-2", new FutureResponseContext(task, "cp-1", "Reset", ResetResponse.class));
+        Assertions.assertTrue(store.getStats().isEmpty());
+    }
+
+    @Test
+    public void testLateResponseIsDropped() {
+        FutureResponseContext context = new FutureResponseContext(task, "cp-1", "Reset", ResetResponse.class);
+        store.add(session, "msg-1", context);
+        context.setDeadlineNanos(System.nanoTime() - 1);
+        store.expire();
+
+        Deserializer deserializer = new Deserializer(store, Ocpp16TypeStore.INSTANCE);
+        CommunicationContext late = incoming("[3,\"msg-1\",{\"status\":\"Accepted\"}]");
+        deserializer.accept(late);
+
+        Assertions.assertNull(late.getIncomingMessage());
+        Assertions.assertNull(late.getOutgoingMessage());
+        Assertions.assertEquals(1, store.getStats().get(0).getLateResponses());
+        Mockito.verify(callback, Mockito.times(1)).failed(ArgumentMatchers.anyString(), ArgumentMatchers.any());
+
+        // only once. a second response to the same call is a protocol violation again.
+        CommunicationContext again = incoming("[4,\"msg-1\",\"InternalError\",\"\",{}]");
+        Assertions.assertThrows(SteveException.class, () -> deserializer.accept(again));
+    }
+
+    @Test
+    public void testResponseToUnknownCallFails() {
+        Deserializer deserializer = new Deserializer(store, Ocpp16TypeStore.INSTANCE);
+        CommunicationContext unknown = incoming("[3,\"msg-2\",{\"status\":\"Accepted\"}]");
+
+        Assertions.assertThrows(SteveException.class, () -> deserializer.accept(unknown));
+    }
+
+    private CommunicationContext incoming(String incomingString) {
+        CommunicationContext context = new CommunicationContext(session, "cp-1");
+        context.setIncomingString(incomingString);
+        return context;
+    }
+}
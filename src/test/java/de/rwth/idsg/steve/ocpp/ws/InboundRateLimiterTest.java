@@ -0,0 +1,139 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.ws.data.RateLimitStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import static de.rwth.idsg.steve.ocpp.ws.InboundRateLimiter.Admission.ACCEPT;
+import static de.rwth.idsg.steve.ocpp.ws.InboundRateLimiter.Admission.REJECT;
+import static de.rwth.idsg.steve.ocpp.ws.InboundRateLimiter.Admission.REJECT_AND_CLOSE;
+
+public class InboundRateLimiterTest {
+
+    @Test
+    public void testBurstPerActionClass() {
+        InboundRateLimiter limiter = newLimiter(config(0, 0));
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(ACCEPT, limiter.admit("cp-1", "MeterValues"));
+        }
+        Assertions.assertEquals(REJECT, limiter.admit("cp-1", "MeterValues"));
+
+        // other action classes and other charge points have their own buckets
+        Assertions.assertEquals(ACCEPT, limiter.admit("cp-1", "StartTransaction"));
+        Assertions.assertEquals(ACCEPT, limiter.admit("cp-1", "StatusNotification"));
+        Assertions.assertEquals(ACCEPT, limiter.admit("cp-2", "MeterValues"));
+
+        RateLimitStats stats = limiter.getStats();
+        Assertions.assertEquals(1, stats.getRejected());
+        Assertions.assertEquals(1, stats.getTopOffenders().size());
+        Assertions.assertEquals("cp-1", stats.getTopOffenders().get(0).getChargeBoxId());
+        Assertions.assertEquals(1, stats.getTopOffenders().get(0).getRejectedMeterValues());
+    }
+
+    @Test
+    public void testCloseAfterSustainedBreach() {
+        InboundRateLimiter limiter = newLimiter(config(0, 3));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.admit("cp-1", "Heartbeat");
+        }
+        Assertions.assertEquals(REJECT, limiter.admit("cp-1", "Heartbeat"));
+        Assertions.assertEquals(REJECT, limiter.admit("cp-1", "Heartbeat"));
+        Assertions.assertEquals(REJECT_AND_CLOSE, limiter.admit("cp-1", "Heartbeat"));
+        Assertions.assertEquals(1, limiter.getStats().getClosedSessions());
+    }
+
+    @Test
+    public void testGlobalBudgetDoesNotCountTowardsClosing() {
+        InboundRateLimiter limiter = newLimiter(config(1, 1));
+
+        Assertions.assertEquals(ACCEPT, limiter.admit("cp-1", "Heartbeat"));
+        Assertions.assertEquals(REJECT, limiter.admit("cp-2", "Heartbeat"));
+        Assertions.assertEquals(REJECT, limiter.admit("cp-3", "Heartbeat"));
+
+        RateLimitStats stats = limiter.getStats();
+        Assertions.assertEquals(2, stats.getRejectedGlobal());
+        Assertions.assertEquals(0, stats.getClosedSessions());
+        Assertions.assertTrue(stats.getTopOffenders().isEmpty());
+    }
+
+    @Test
+    public void testGlobalBudgetDoesNotRejectTransactions() {
+        InboundRateLimiter limiter = newLimiter(config(1, 1));
+
+        Assertions.assertEquals(ACCEPT, limiter.admit("cp-1", "Heartbeat"));
+        Assertions.assertEquals(REJECT, limiter.admit("cp-2", "Heartbeat"));
+        Assertions.assertEquals(ACCEPT, limiter.admit("cp-2", "StartTransaction"));
+        Assertions.assertEquals(ACCEPT, limiter.admit("cp-3", "StopTransaction"));
+
+        Assertions.assertEquals(1, limiter.getStats().getRejectedGlobal());
+    }
+
+    @Test
+    public void testIdleStationsAreEvicted() throws Exception {
+        InboundRateLimiter limiter = newLimiter(
+            SteveConfiguration.RateLimit.builder()
+                                        .enabled(true)
+                                        .meterValuesPerMinute(60_000)
+                                        .meterValuesBurst(1)
+                                        .transactionalPerMinute(60_000)
+                                        .transactionalBurst(1)
+                                        .otherPerMinute(60_000)
+                                        .otherBurst(1)
+                                        .closeWindowSeconds(1)
+                                        .build()
+        );
+
+        limiter.admit("cp-1", "Heartbeat");
+        limiter.evictIdle();
+        Assertions.assertEquals(1, limiter.getStationCount());
+
+        Thread.sleep(1_100);
+        limiter.admit("cp-2", "Heartbeat");
+        limiter.evictIdle();
+        Assertions.assertEquals(1, limiter.getStationCount());
+    }
+
+    private static InboundRateLimiter newLimiter(SteveConfiguration.RateLimit config) {
+        return new InboundRateLimiter(Mockito.mock(ScheduledExecutorService.class), config);
+    }
+
+    private static SteveConfiguration.RateLimit config(int globalPerSecond, int closeAfterRejections) {
+        return SteveConfiguration.RateLimit.builder()
+                                           .enabled(true)
+                                           .meterValuesPerMinute(1)
+                                           .meterValuesBurst(3)
+                                           .transactionalPerMinute(1)
+                                           .transactionalBurst(3)
+                                           .otherPerMinute(1)
+                                           .otherBurst(3)
+                                           .globalPerSecond(globalPerSecond)
+                                           .globalBurst(globalPerSecond)
+                                           .closeAfterRejections(closeAfterRejections)
+                                           .closeWindowSeconds(60)
+                                           .build();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class IncomingMessageDispatcherTest {
+
+    private IncomingMessageDispatcher dispatcher;
+    private WebSocketSession session;
+
+    @BeforeEach
+    public void setUp() {
+        dispatcher = new IncomingMessageDispatcher();
+        session = Mockito.mock(WebSocketSession.class);
+        Mockito.when(session.getId()).thenReturn("session-1");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dispatcher.shutDown();
+    }
+
+    @Test
+    public void testMessagesOfOneStationKeepTheirOrder() throws Exception {
+        int count = 500;
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            int value = i;
+            dispatcher.submit("cp-1", session, () -> {
+                seen.add(value);
+                done.countDown();
+            });
+            // interleave another station to make sure that the workers are shared
+            dispatcher.submit("cp-2", session, () -> { });
+        }
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            Assertions.assertEquals(i, seen.get(i));
+        }
+    }
+
+    @Test
+    public void testFullLaneRejects() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        dispatcher.submit("cp-1", session, () -> {
+            started.countDown();
+            awaitQuietly(blocker);
+        });
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        int capacity = dispatcher.getStats().getLaneQueueCapacity();
+        for (int i = 0; i < capacity; i++) {
+            Assertions.assertTrue(dispatcher.submit("cp-1", session, () -> { }));
+        }
+        Assertions.assertFalse(dispatcher.submit("cp-1", session, () -> { }));
+
+        // other stations are not affected
+        Assertions.assertTrue(dispatcher.submit("cp-2", session, () -> { }));
+
+        blocker.countDown();
+        Assertions.assertEquals(1, dispatcher.getStats().getRejected());
+    }
+
+    @Test
+    public void testBusyLaneIsRemovedOnceDrainedAfterDisconnect() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        dispatcher.submit("cp-1", session, () -> {
+            started.countDown();
+            awaitQuietly(blocker);
+        });
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        dispatcher.removeIfIdle("cp-1");
+        Assertions.assertEquals(1, dispatcher.getStats().getLanes());
+
+        blocker.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dispatcher.getStats().getLanes() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, dispatcher.getStats().getLanes());
+    }
+
+    @Test
+    public void testLaneOfReconnectedStationIsKept() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        dispatcher.submit("cp-1", session, () -> {
+            started.countDown();
+            awaitQuietly(blocker);
+        });
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        dispatcher.removeIfIdle("cp-1");
+        // the station is back and sends again, before the lane drained
+        dispatcher.submit("cp-1", session, done::countDown);
+
+        blocker.countDown();
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        Assertions.assertEquals(1, dispatcher.getStats().getLanes());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.rwth.idsg.steve.ocpp.ws.data.CommunicationContext;
+import de.rwth.idsg.steve.ocpp.ws.ocpp16.Ocpp16TypeStore;
+import de.rwth.idsg.steve.ocpp.ws.pipeline.Deserializer;
+import de.rwth.idsg.steve.utils.MicroBenchmark;
+import org.mockito.Mockito;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Compares the ingress parsing before and after the introduction of the parse-once envelope:
+ *
+ * - before: WebSocketLogger and LogService each built their own ObjectMapper and a full tree, then the Deserializer
+ *   parsed the frame again
+ * - after: only the Deserializer reads the frame, and the others use the envelope
+ *
+ * Run the main method. It is not a unit test, since the numbers depend on the machine.
+ */
+public class IngressParseBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private static final Deserializer DESERIALIZER =
+            new Deserializer(new FutureResponseContextStore(Mockito.mock(ScheduledExecutorService.class)),
+                             Ocpp16TypeStore.INSTANCE);
+
+    public static void main(String[] args) throws Exception {
+        bench("StatusNotification", statusNotification());
+        bench("BootNotification", bootNotification());
+        bench("MeterValues (1 sample)", meterValues(1));
+        bench("MeterValues (10 samples)", meterValues(10));
+        bench("MeterValues (100 samples)", meterValues(100));
+    }
+
+    private static void bench(String name, String msg) throws Exception {
+        System.out.println("--- " + name + " (" + msg.length() + " chars)");
+
+        MicroBenchmark.Result before = MicroBenchmark.run("three parses", WARMUP, ITERATIONS, () -> {
+            new ObjectMapper().readTree(msg); // WebSocketLogger.receivedText
+            new ObjectMapper().readTree(msg); // LogService.saveToDatabase
+            deserialize(msg);
+        });
+
+        MicroBenchmark.Result after = MicroBenchmark.run("parse once (envelope)", WARMUP, ITERATIONS, () -> {
+            CommunicationContext context = deserialize(msg);
+            context.getIncomingEnvelope().isEmptyPayload();
+        });
+
+        System.out.printf("speedup: %.2fx, allocation: %.2fx less%n",
+                after.getOpsPerSecond() / before.getOpsPerSecond(),
+                before.getBytesPerOp() / after.getBytesPerOp());
+    }
+
+    private static CommunicationContext deserialize(String msg) {
+        CommunicationContext context = new CommunicationContext(null, "benchmark");
+        context.setIncomingString(msg);
+        DESERIALIZER.accept(context);
+        return context;
+    }
+
+    // -------------------------------------------------------------------------
+    // Sample frames
+    // -------------------------------------------------------------------------
+
+    static String statusNotification() {
+        return "[2,\"19223201\",\"StatusNotification\",{\"connectorId\":1,\"errorCode\":\"NoError\","
+                + "\"status\":\"Charging\",\"timestamp\":\"2024-03-01T10:00:00.000Z\"}]";
+    }
+
+    static String bootNotification() {
+        return "[2,\"19223202\",\"BootNotification\",{\"chargePointVendor\":\"SteVe\",\"chargePointModel\":\"Bench\","
+                + "\"chargePointSerialNumber\":\"SN-0001\",\"chargeBoxSerialNumber\":\"CB-0001\","
+                + "\"firmwareVersion\":\"1.2.3\",\"iccid\":\"89490200001234567890\",\"imsi\":\"262011234567890\","
+                + "\"meterType\":\"AC\",\"meterSerialNumber\":\"M-0001\"}]";
+    }
+
+    static String meterValues(int sampleCount) {
+        StringBuilder sb = new StringBuilder("[2,\"19223203\",\"MeterValues\",{\"connectorId\":1,\"transactionId\":42,"
+                + "\"meterValue\":[{\"timestamp\":\"2024-03-01T10:00:00.000Z\",\"sampledValue\":[");
+        for (int i = 0; i < sampleCount; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"value\":\"").append(1000 + i).append("\",\"context\":\"Sample.Periodic\",")
+              .append("\"measurand\":\"Energy.Active.Import.Register\",\"unit\":\"Wh\"}");
+        }
+        return sb.append("]}]}]").toString();
+    }
+}
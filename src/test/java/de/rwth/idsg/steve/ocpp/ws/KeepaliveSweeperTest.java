@@ -0,0 +1,112 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.ocpp.ws.data.KeepaliveStats;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionHealth;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class KeepaliveSweeperTest {
+
+    @Test
+    public void testSilentSessionIsClosedAfterMissedPongs() throws Exception {
+        KeepaliveSweeper sweeper = new KeepaliveSweeper(1, 2, Runnable::run);
+        WebSocketSession session = session("session-1");
+        sweeper.register("cp-1", session, new SessionHealth());
+
+        sweeper.sweep(); // ping
+        sweeper.sweep(); // 1st miss, ping again
+        Mockito.verify(session, Mockito.never()).close(ArgumentMatchers.any());
+
+        sweeper.sweep(); // 2nd miss
+        Mockito.verify(session).close(ArgumentMatchers.any());
+
+        KeepaliveStats stats = sweeper.getStats();
+        Assertions.assertEquals(0, stats.getSessions());
+        Assertions.assertEquals(2, stats.getPingsSent());
+        Assertions.assertEquals(1, stats.getClosedForMissedPongs());
+    }
+
+    @Test
+    public void testPongResetsMisses() throws Exception {
+        KeepaliveSweeper sweeper = new KeepaliveSweeper(1, 2, Runnable::run);
+        WebSocketSession session = session("session-1");
+        SessionHealth health = new SessionHealth();
+        sweeper.register("cp-1", session, health);
+
+        for (int i = 0; i < 5; i++) {
+            sweeper.sweep();
+            health.pongReceived();
+        }
+
+        Mockito.verify(session, Mockito.never()).close(ArgumentMatchers.any());
+        Mockito.verify(session, Mockito.times(5)).sendMessage(ArgumentMatchers.any(PingMessage.class));
+        Assertions.assertEquals(1, sweeper.getStats().getSlowest().size());
+    }
+
+    @Test
+    public void testPingsAreSpreadOverSlots() throws Exception {
+        KeepaliveSweeper sweeper = new KeepaliveSweeper(2, 3, Runnable::run);
+        WebSocketSession first = session("session-1");
+        WebSocketSession second = session("session-2");
+        sweeper.register("cp-1", first, new SessionHealth());
+        sweeper.register("cp-2", second, new SessionHealth());
+
+        sweeper.sweep();
+        Mockito.verify(first).sendMessage(ArgumentMatchers.any(PingMessage.class));
+        Mockito.verify(second, Mockito.never()).sendMessage(ArgumentMatchers.any(PingMessage.class));
+
+        sweeper.sweep();
+        Mockito.verify(second).sendMessage(ArgumentMatchers.any(PingMessage.class));
+    }
+
+    @Test
+    public void testSlowSocketDoesNotGetAnotherPing() throws Exception {
+        List<Runnable> pending = new ArrayList<>();
+        KeepaliveSweeper sweeper = new KeepaliveSweeper(1, 3, pending::add);
+        WebSocketSession session = session("session-1");
+        sweeper.register("cp-1", session, new SessionHealth());
+
+        // the sweep only hands the ping over
+        sweeper.sweep();
+        sweeper.sweep();
+        Assertions.assertEquals(1, pending.size());
+        Mockito.verify(session, Mockito.never()).sendMessage(ArgumentMatchers.any());
+
+        pending.remove(0).run();
+        sweeper.sweep();
+        Assertions.assertEquals(1, pending.size());
+        Mockito.verify(session).sendMessage(ArgumentMatchers.any(PingMessage.class));
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = Mockito.mock(WebSocketSession.class);
+        Mockito.when(session.getId()).thenReturn(id);
+        Mockito.when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}
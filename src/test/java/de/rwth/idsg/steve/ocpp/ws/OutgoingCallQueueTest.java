@@ -0,0 +1,114 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.ocpp.OcppCallback;
+import de.rwth.idsg.steve.ocpp.ws.data.OutgoingQueueStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OutgoingCallQueueTest {
+
+    private OutgoingCallQueue queue;
+    private OcppCallback<?> callback;
+    private CommunicationTask<?, ?> task;
+
+    private final List<String> sent = new ArrayList<>();
+    private final List<Runnable> completions = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() {
+        queue = new OutgoingCallQueue(2);
+        callback = Mockito.mock(OcppCallback.class);
+        task = Mockito.mock(CommunicationTask.class);
+        Mockito.when(task.defaultCallback()).thenReturn((OcppCallback) callback);
+    }
+
+    @Test
+    public void testOneInFlightAndPriorities() {
+        submit("cp-1", "Reset");
+        submit("cp-1", "GetConfiguration");
+        submit("cp-1", "RemoteStopTransaction");
+
+        // only the first one is sent, the others wait
+        Assertions.assertEquals(List.of("Reset"), sent);
+
+        OutgoingQueueStats stats = queue.getStats();
+        Assertions.assertEquals(2, stats.getQueued());
+        Assertions.assertEquals(1, stats.getInFlight());
+        Assertions.assertEquals("Reset", stats.getStations().get(0).getInFlightAction());
+
+        // the urgent one overtakes the configuration read
+        completions.get(0).run();
+        Assertions.assertEquals(List.of("Reset", "RemoteStopTransaction"), sent);
+
+        // completing twice must not let two calls go
+        completions.get(0).run();
+        Assertions.assertEquals(2, sent.size());
+
+        completions.get(1).run();
+        completions.get(2).run();
+        Assertions.assertEquals(List.of("Reset", "RemoteStopTransaction", "GetConfiguration"), sent);
+        Assertions.assertEquals(0, queue.getStats().getStations().size());
+    }
+
+    @Test
+    public void testStationsAreIndependent() {
+        submit("cp-1", "Reset");
+        submit("cp-2", "Reset");
+
+        Assertions.assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void testFullQueueFailsTask() {
+        submit("cp-1", "Reset");
+        submit("cp-1", "Reset");
+        submit("cp-1", "Reset");
+        submit("cp-1", "Reset");
+
+        Assertions.assertEquals(1, sent.size());
+        Assertions.assertEquals(1, queue.getStats().getRejected());
+        Mockito.verify(callback).failed(ArgumentMatchers.eq("cp-1"), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testCallNotSentDoesNotBlockQueue() {
+        queue.submit("cp-1", task, "Reset", onCompleted -> false);
+        submit("cp-1", "GetConfiguration");
+
+        Assertions.assertEquals(List.of("GetConfiguration"), sent);
+    }
+
+    private void submit(String chargeBoxId, String action) {
+        queue.submit(chargeBoxId, task, action, onCompleted -> {
+            sent.add(action);
+            completions.add(onCompleted);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.rwth.idsg.steve.ocpp.ws.ocpp16.Ocpp16TypeStore;
+import de.rwth.idsg.steve.utils.MicroBenchmark;
+import ocpp.cs._2015._10.BootNotificationRequest;
+import ocpp.cs._2015._10.MeterValuesRequest;
+import ocpp.cs._2015._10.StatusNotificationRequest;
+
+/**
+ * Compares the binding of CALL payloads in Deserializer:
+ *
+ * - tree: parser.readValueAsTree() and then mapper.treeToValue(...)
+ * - streaming: ObjectReader cached in the TypeStore, bound directly from the parser
+ *
+ * Run the main method. It is not a unit test, since the numbers depend on the machine.
+ */
+public class PayloadBindingBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private static final ObjectMapper MAPPER = JsonObjectMapper.INSTANCE.getMapper();
+
+    public static void main(String[] args) throws Exception {
+        bench("StatusNotification", IngressParseBenchmark.statusNotification(), StatusNotificationRequest.class);
+        bench("BootNotification", IngressParseBenchmark.bootNotification(), BootNotificationRequest.class);
+        for (int size : new int[] {1, 10, 100, 1_000}) {
+            bench("MeterValues (" + size + " samples)", IngressParseBenchmark.meterValues(size), MeterValuesRequest.class);
+        }
+    }
+
+    private static void bench(String name, String msg, Class<?> clazz) throws Exception {
+        System.out.println("--- " + name + " (" + msg.length() + " chars)");
+
+        ObjectReader reader = Ocpp16TypeStore.INSTANCE.findReader(clazz);
+
+        MicroBenchmark.Result tree = MicroBenchmark.run("tree", WARMUP, ITERATIONS, () -> {
+            try (JsonParser parser = toPayload(msg)) {
+                JsonNode node = parser.readValueAsTree();
+                MAPPER.treeToValue(node, clazz);
+            }
+        });
+
+        MicroBenchmark.Result streaming = MicroBenchmark.run("streaming", WARMUP, ITERATIONS, () -> {
+            try (JsonParser parser = toPayload(msg)) {
+                reader.readValue(parser);
+            }
+        });
+
+        System.out.printf("speedup: %.2fx, allocation: %.2fx less%n",
+                streaming.getOpsPerSecond() / tree.getOpsPerSecond(),
+                tree.getBytesPerOp() / streaming.getBytesPerOp());
+    }
+
+    /**
+     * Moves the parser to the first token of the payload, like Deserializer does
+     */
+    private static JsonParser toPayload(String msg) throws Exception {
+        JsonParser parser = MAPPER.getFactory().createParser(msg);
+        for (int i = 0; i < 5; i++) {
+            parser.nextToken(); // '[', type, id, action, payload
+        }
+        return parser;
+    }
+}
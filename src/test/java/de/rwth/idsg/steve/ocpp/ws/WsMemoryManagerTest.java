@@ -0,0 +1,129 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.ws.data.WsMemoryStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class WsMemoryManagerTest {
+
+    @Test
+    public void testSessionLimitShrinksAsBudgetFills() {
+        WsMemoryManager manager = manager(1, 64, 8);
+        Assertions.assertEquals(64 * 1024, manager.getSessionLimit());
+
+        Assertions.assertTrue(manager.tryReserve(0, 512 * 1024));
+        Assertions.assertEquals(36 * 1024, manager.getSessionLimit());
+
+        manager.release(512 * 1024);
+        Assertions.assertEquals(64 * 1024, manager.getSessionLimit());
+    }
+
+    @Test
+    public void testEmptySessionMaySendOneLargeMessage() {
+        WsMemoryManager manager = manager(1, 64, 8);
+
+        Assertions.assertTrue(manager.tryReserve(0, 2 * 1024 * 1024));
+        Assertions.assertFalse(manager.tryReserve(1, 1));
+    }
+
+    @Test
+    public void testSlowConsumerIsClosed() throws Exception {
+        WsMemoryManager manager = manager(1, 4, 4);
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        WebSocketSession delegate = Mockito.mock(WebSocketSession.class);
+        Mockito.when(delegate.getId()).thenReturn("session-1");
+        Mockito.when(delegate.getAttributes()).thenReturn(Map.of(AbstractWebSocketEndpoint.CHARGEBOX_ID_KEY, "cp-1"));
+        Mockito.doAnswer(inv -> {
+            sending.countDown();
+            unblock.await();
+            return null;
+        }).when(delegate).sendMessage(ArgumentMatchers.any());
+
+        BudgetedSessionDecorator session = (BudgetedSessionDecorator) manager.decorate(delegate);
+
+        // the socket does not accept the first message
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            session.sendMessage(text(1024));
+            return null;
+        });
+        Assertions.assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        session.sendMessage(text(1024));
+        session.sendMessage(text(1024));
+        Assertions.assertThrows(IOException.class, () -> session.sendMessage(text(2048)));
+
+        Mockito.verify(delegate).close(ArgumentMatchers.argThat(s -> s.getCode() == CloseStatus.SESSION_NOT_RELIABLE.getCode()));
+
+        WsMemoryStats stats = manager.getStats();
+        Assertions.assertEquals(1, stats.getClosedForBufferLimit());
+        Assertions.assertEquals(3 * 1024, stats.getBufferedBytes());
+        Assertions.assertEquals("cp-1", stats.getLargestBuffers().get(0).getChargeBoxId());
+
+        unblock.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        session.release();
+
+        Assertions.assertEquals(0, manager.getStats().getBufferedBytes());
+        Assertions.assertEquals(0, manager.getStats().getSessions());
+    }
+
+    @Test
+    public void testInboundLimitPerAction() {
+        WsMemoryManager manager = manager(1, 64, 8);
+
+        Assertions.assertTrue(manager.isInboundAllowed("Heartbeat", 1024));
+        Assertions.assertFalse(manager.isInboundAllowed("Heartbeat", 1025));
+        Assertions.assertTrue(manager.isInboundAllowed("DataTransfer", 8 * 1024));
+        Assertions.assertEquals(1L, manager.getStats().getInboundRejectedPerAction().get("Heartbeat"));
+    }
+
+    private static WsMemoryManager manager(int budgetMb, int sessionMaxKb, int sessionMinKb) {
+        return new WsMemoryManager(SteveConfiguration.WsMemory.builder()
+                .sendBufferBudgetMb(budgetMb)
+                .sessionMaxBufferKb(sessionMaxKb)
+                .sessionMinBufferKb(sessionMinKb)
+                .sendTimeLimitSeconds(10)
+                .maxTextMessageKb(64)
+                .inboundMaxKbPerAction(Map.of("Heartbeat", 1))
+                .build());
+    }
+
+    private static TextMessage text(int length) {
+        return new TextMessage("x".repeat(length));
+    }
+}
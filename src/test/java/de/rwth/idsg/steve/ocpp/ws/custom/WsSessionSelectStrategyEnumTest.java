@@ -0,0 +1,97 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.custom;
+
+import de.rwth.idsg.steve.ocpp.ws.data.SessionContext;
+import de.rwth.idsg.steve.ocpp.ws.data.SessionHealth;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+public class WsSessionSelectStrategyEnumTest {
+
+    @Test
+    public void testHealthiestAvoidsSessionWithPendingCalls() {
+        WebSocketSession stale = session(true);
+        WebSocketSession fresh = session(true);
+        Deque<SessionContext> deque = deque(stale, fresh);
+
+        Map<WebSocketSession, Integer> pending = Map.of(stale, 0, fresh, 3);
+        WebSocketSession selected = WsSessionSelectStrategyEnum.HEALTHIEST.getSession(deque, pending::get);
+
+        Assertions.assertSame(stale, selected);
+        // the deque is not rotated
+        Assertions.assertSame(stale, deque.getFirst().getSession());
+    }
+
+    @Test
+    public void testHealthiestPrefersNewestOnTie() {
+        WebSocketSession older = session(true);
+        WebSocketSession newer = session(true);
+
+        // same signals, but the newer one is created later, so its "silence" is not longer than the other's
+        WebSocketSession selected = WsSessionSelectStrategyEnum.HEALTHIEST.getSession(deque(older, newer), s -> 0);
+
+        Assertions.assertSame(newer, selected);
+    }
+
+    @Test
+    public void testHealthiestSkipsClosedSessions() {
+        WebSocketSession open = session(true);
+        WebSocketSession closed = session(false);
+
+        WebSocketSession selected = WsSessionSelectStrategyEnum.HEALTHIEST.getSession(deque(open, closed), s -> 0);
+
+        Assertions.assertSame(open, selected);
+    }
+
+    @Test
+    public void testPongRtt() {
+        SessionHealth health = new SessionHealth();
+        Assertions.assertNull(health.getPongRttMillis());
+
+        health.pingSent();
+        health.pongReceived();
+
+        Assertions.assertNotNull(health.getPongRttMillis());
+        Assertions.assertEquals(0, health.getUnansweredPingMillis(System.nanoTime()));
+    }
+
+    private static WebSocketSession session(boolean open) {
+        WebSocketSession session = Mockito.mock(WebSocketSession.class);
+        Mockito.when(session.isOpen()).thenReturn(open);
+        return session;
+    }
+
+    private static Deque<SessionContext> deque(WebSocketSession... sessions) {
+        List<SessionContext> list = new ArrayList<>();
+        for (WebSocketSession session : sessions) {
+            list.add(new SessionContext(session, DateTime.now(), new SessionHealth()));
+        }
+        return new ArrayDeque<>(list);
+    }
+}
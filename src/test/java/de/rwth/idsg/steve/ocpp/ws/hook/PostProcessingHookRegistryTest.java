@@ -0,0 +1,150 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.hook;
+
+import de.rwth.idsg.ocpp.jaxb.RequestType;
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.SteveConfiguration;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+public class PostProcessingHookRegistryTest {
+
+    private PostProcessingHookRegistry registry;
+
+    @AfterEach
+    public void teardown() {
+        if (registry != null) {
+            registry.shutDown();
+        }
+    }
+
+    @Test
+    public void testHooksOfStationRunInOrder() throws Exception {
+        List<String> idTags = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        registry = registry(4, 1000, hook("Authorize", (chargeBoxId, request) -> {
+            idTags.add(((ocpp.cs._2015._10.AuthorizeRequest) request).getIdTag());
+            done.countDown();
+        }));
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("tag-" + i);
+            registry.submit("cp-1", "Authorize", new ocpp.cs._2015._10.AuthorizeRequest().withIdTag("tag-" + i), null);
+        }
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(expected, idTags);
+    }
+
+    @Test
+    public void testOlderVersionsAreMappedToOcpp16() throws Exception {
+        List<RequestType> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        registry = registry(1, 10, hook("Authorize", (chargeBoxId, request) -> {
+            received.add(request);
+            done.countDown();
+        }));
+
+        registry.submit("cp-1", "Authorize", new ocpp.cs._2010._08.AuthorizeRequest().withIdTag("tag-1"), null);
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        ocpp.cs._2015._10.AuthorizeRequest request = (ocpp.cs._2015._10.AuthorizeRequest) received.get(0);
+        Assertions.assertEquals("tag-1", request.getIdTag());
+    }
+
+    @Test
+    public void testFailingHookDoesNotAffectOthers() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        registry = registry(1, 10,
+                hook("Authorize", (chargeBoxId, request) -> {
+                    throw new IllegalStateException("Broken hook");
+                }),
+                hook("Authorize", (chargeBoxId, request) -> done.countDown()));
+
+        registry.submit("cp-1", "Authorize", new ocpp.cs._2015._10.AuthorizeRequest().withIdTag("tag-1"), null);
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        HookStats failing = registry.getStats().get(0);
+        Assertions.assertEquals(1, failing.getFailures());
+        Assertions.assertEquals(1, failing.getInvocations());
+    }
+
+    @Test
+    public void testFullQueueRejects() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        registry = registry(1, 1, hook("Authorize", (chargeBoxId, request) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        RequestType request = new ocpp.cs._2015._10.AuthorizeRequest().withIdTag("tag-1");
+        registry.submit("cp-1", "Authorize", request, null);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        registry.submit("cp-1", "Authorize", request, null); // queued
+        registry.submit("cp-1", "Authorize", request, null); // rejected
+        release.countDown();
+
+        Assertions.assertEquals(1, registry.getStats().get(0).getRejected());
+    }
+
+    private static PostProcessingHookRegistry registry(int threads, int queueCapacity, PostProcessingHook... hooks) {
+        SteveConfiguration.Hooks config = SteveConfiguration.Hooks.builder()
+                                                                  .threads(threads)
+                                                                  .queueCapacity(queueCapacity)
+                                                                  .build();
+        return new PostProcessingHookRegistry(List.of(hooks), config);
+    }
+
+    private static PostProcessingHook hook(String action, BiConsumer<String, RequestType> consumer) {
+        return new PostProcessingHook() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public Set<String> getActions() {
+                return Set.of(action);
+            }
+
+            @Override
+            public void accept(String chargeBoxId, RequestType request, @Nullable ResponseType response) {
+                consumer.accept(chargeBoxId, request);
+            }
+        };
+    }
+}
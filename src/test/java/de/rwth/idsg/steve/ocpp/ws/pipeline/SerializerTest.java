@@ -0,0 +1,97 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.ocpp.ws.pipeline;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.rwth.idsg.ocpp.jaxb.ResponseType;
+import de.rwth.idsg.steve.ocpp.ws.data.CommunicationContext;
+import de.rwth.idsg.steve.ocpp.ws.data.MessageType;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonEnvelope;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonError;
+import de.rwth.idsg.steve.ocpp.ws.data.OcppJsonResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SerializerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testResultIsSerialized() throws Exception {
+        CommunicationContext context = serialize(result("id-1", new GoodResponse()));
+
+        Assertions.assertEquals("[3,\"id-1\",{\"status\":\"Accepted\"}]", context.getOutgoingString());
+        Assertions.assertEquals(MessageType.CALL_RESULT, context.getOutgoingEnvelope().getMessageType());
+        Assertions.assertEquals("{\"status\":\"Accepted\"}", context.getOutgoingEnvelope().getRawPayload());
+        Assertions.assertEquals("Heartbeat", context.getOutgoingEnvelope().getAction());
+    }
+
+    @Test
+    public void testUnserializablePayloadBecomesCallError() throws Exception {
+        CommunicationContext context = serialize(result("id-1", new BrokenResponse()));
+
+        JsonNode frame = mapper.readTree(context.getOutgoingString());
+        Assertions.assertEquals(5, frame.size());
+        Assertions.assertEquals(MessageType.CALL_ERROR.getTypeNr(), frame.get(0).asInt());
+        Assertions.assertEquals("id-1", frame.get(1).asText());
+        Assertions.assertEquals("InternalError", frame.get(2).asText());
+        Assertions.assertEquals("The payload for action could not be serialized", frame.get(3).asText());
+        Assertions.assertTrue(frame.get(4).get("errorMsg").asText().contains("Broken getter"));
+
+        OcppJsonEnvelope envelope = context.getOutgoingEnvelope();
+        Assertions.assertEquals(MessageType.CALL_ERROR, envelope.getMessageType());
+        Assertions.assertEquals("Heartbeat", envelope.getAction());
+        Assertions.assertTrue(envelope.getPayload() instanceof OcppJsonError);
+
+        // nothing of the abandoned frame is left in the buffer of the thread
+        CommunicationContext next = serialize(result("id-2", new GoodResponse()));
+        Assertions.assertEquals("[3,\"id-2\",{\"status\":\"Accepted\"}]", next.getOutgoingString());
+    }
+
+    private static CommunicationContext serialize(OcppJsonResult result) {
+        CommunicationContext context = new CommunicationContext(null, "cp-1");
+        OcppJsonEnvelope incoming = new OcppJsonEnvelope(MessageType.CALL, result.getMessageId());
+        incoming.setAction("Heartbeat");
+        context.setIncomingEnvelope(incoming);
+        context.setOutgoingMessage(result);
+
+        Serializer.INSTANCE.accept(context);
+        return context;
+    }
+
+    private static OcppJsonResult result(String messageId, ResponseType payload) {
+        OcppJsonResult result = new OcppJsonResult();
+        result.setMessageId(messageId);
+        result.setPayload(payload);
+        return result;
+    }
+
+    public static class GoodResponse implements ResponseType {
+        public String getStatus() {
+            return "Accepted";
+        }
+    }
+
+    public static class BrokenResponse implements ResponseType {
+        public String getStatus() {
+            throw new IllegalStateException("Broken getter");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.repository.dto.ConnectorPkCacheStats;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jooq.steve.db.tables.Connector.CONNECTOR;
+
+public class ConnectorPkCacheTest {
+
+    private static final DSLContext CREATE = DSL.using(SQLDialect.MYSQL);
+
+    // the connector table: (connectorPk, chargeBoxId, connectorId)
+    private final List<Object[]> connectors = new ArrayList<>();
+    private final AtomicInteger statements = new AtomicInteger();
+
+    @Test
+    public void testLoadedConnectorsAreServedFromMemory() {
+        connectors.add(new Object[] {10, "cp-1", 1});
+        connectors.add(new Object[] {11, "cp-1", 2});
+        ConnectorPkCache cache = cache();
+
+        int afterInit = statements.get();
+        Assertions.assertEquals(10, cache.getOrInsert("cp-1", 1));
+        Assertions.assertEquals(11, cache.getOrInsert("cp-1", 2));
+        Assertions.assertEquals("cp-1", cache.getChargeBoxId(11));
+        Assertions.assertEquals(afterInit, statements.get());
+
+        ConnectorPkCacheStats stats = cache.getStats();
+        Assertions.assertEquals(2, stats.getSize());
+        Assertions.assertEquals(3, stats.getHits());
+        Assertions.assertEquals(0, stats.getMisses());
+    }
+
+    @Test
+    public void testMissInsertsConnectorOnce() {
+        ConnectorPkCache cache = cache();
+
+        int pk = cache.getOrInsert("cp-1", 3);
+        int afterMiss = statements.get();
+        Assertions.assertEquals(pk, cache.getOrInsert("cp-1", 3));
+        Assertions.assertEquals(afterMiss, statements.get());
+        Assertions.assertEquals(1, connectors.size());
+        Assertions.assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void testFindDoesNotInsertNorCacheUnknownConnector() {
+        ConnectorPkCache cache = cache();
+
+        Assertions.assertNull(cache.find("cp-1", 1));
+        Assertions.assertTrue(connectors.isEmpty());
+
+        connectors.add(new Object[] {20, "cp-1", 1});
+        Assertions.assertEquals(20, cache.find("cp-1", 1));
+    }
+
+    @Test
+    public void testInvalidateForgetsConnectorsOfChargeBox() {
+        connectors.add(new Object[] {10, "cp-1", 1});
+        connectors.add(new Object[] {30, "cp-2", 1});
+        ConnectorPkCache cache = cache();
+
+        // deleted and registered again: new pks
+        connectors.clear();
+        connectors.add(new Object[] {40, "cp-1", 1});
+        cache.invalidate("cp-1");
+
+        Assertions.assertEquals(40, cache.getOrInsert("cp-1", 1));
+        Assertions.assertEquals(30, cache.getOrInsert("cp-2", 1));
+        Assertions.assertEquals("cp-1", cache.getChargeBoxId(40));
+        Assertions.assertEquals(1, cache.getStats().getInvalidations());
+    }
+
+    private ConnectorPkCache cache() {
+        ConnectorPkCache cache = new ConnectorPkCache(DSL.using(new MockConnection(provider()), SQLDialect.MYSQL));
+        cache.init();
+        return cache;
+    }
+
+    /**
+     * Answers the few statements of the cache from the list above
+     */
+    private MockDataProvider provider() {
+        return context -> {
+            statements.incrementAndGet();
+            String sql = context.sql().toLowerCase(Locale.ROOT);
+            Object[] bindings = context.bindings();
+
+            if (sql.startsWith("insert")) {
+                if (findPk(bindings[0], bindings[1]) != null) {
+                    return new MockResult[] {new MockResult(0)};
+                }
+                connectors.add(new Object[] {100 + connectors.size(), bindings[0], bindings[1]});
+                return new MockResult[] {new MockResult(1)};
+            }
+
+            switch (bindings.length) {
+                case 0: {
+                    Result<Record3<Integer, String, Integer>> result =
+                            CREATE.newResult(CONNECTOR.CONNECTOR_PK, CONNECTOR.CHARGE_BOX_ID, CONNECTOR.CONNECTOR_ID);
+                    for (Object[] c : connectors) {
+                        result.add(CREATE.newRecord(
+                                CONNECTOR.CONNECTOR_PK, CONNECTOR.CHARGE_BOX_ID, CONNECTOR.CONNECTOR_ID
+                        ).values((Integer) c[0], (String) c[1], (Integer) c[2]));
+                    }
+                    return new MockResult[] {new MockResult(result.size(), result)};
+                }
+                case 1: {
+                    Result<Record2<String, Integer>> result =
+                            CREATE.newResult(CONNECTOR.CHARGE_BOX_ID, CONNECTOR.CONNECTOR_ID);
+                    for (Object[] c : connectors) {
+                        if (c[0].equals(bindings[0])) {
+                            result.add(CREATE.newRecord(CONNECTOR.CHARGE_BOX_ID, CONNECTOR.CONNECTOR_ID)
+                                             .values((String) c[1], (Integer) c[2]));
+                        }
+                    }
+                    return new MockResult[] {new MockResult(result.size(), result)};
+                }
+                default: {
+                    Integer pk = findPk(bindings[0], bindings[1]);
+                    Result<Record1<Integer>> result = CREATE.newResult(CONNECTOR.CONNECTOR_PK);
+                    if (pk != null) {
+                        result.add(CREATE.newRecord(CONNECTOR.CONNECTOR_PK).values(pk));
+                    }
+                    return new MockResult[] {new MockResult(result.size(), result)};
+                }
+            }
+        };
+    }
+
+    private Integer findPk(Object chargeBoxId, Object connectorId) {
+        for (Object[] c : connectors) {
+            if (c[1].equals(chargeBoxId) && c[2].equals(connectorId)) {
+                return (Integer) c[0];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import org.joda.time.DateTime;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static jooq.steve.db.tables.ChargeBox.CHARGE_BOX;
+
+public class HeartbeatRegistryTest {
+
+    private static final DateTime NOW = new DateTime(2026, 10, 17, 12, 0);
+
+    private final List<String> statements = new ArrayList<>();
+    private boolean failing;
+
+    @Test
+    public void testFlushWritesLatestTimestampsInOneStatement() {
+        HeartbeatRegistry registry = registry();
+        registry.touch("cp-1", NOW);
+        registry.touch("cp-1", NOW.minusMinutes(1));
+        registry.touch("cp-2", NOW);
+
+        Assertions.assertEquals(NOW, registry.getPending().get("cp-1"));
+
+        registry.flush();
+
+        Assertions.assertEquals(1, statements.size());
+        Assertions.assertTrue(statements.get(0).startsWith("update `charge_box`"));
+        Assertions.assertTrue(registry.getPending().isEmpty());
+        Assertions.assertEquals(2, registry.getStats().getRowsWritten());
+        Assertions.assertEquals(0, registry.getStats().getFailedFlushes());
+    }
+
+    @Test
+    public void testFailedFlushKeepsHeartbeatsPending() {
+        HeartbeatRegistry registry = registry();
+        registry.touch("cp-1", NOW);
+        failing = true;
+
+        registry.flush();
+
+        Assertions.assertEquals(NOW, registry.getPending().get("cp-1"));
+        Assertions.assertEquals(1, registry.getStats().getFailedFlushes());
+
+        // the next one succeeds
+        failing = false;
+        registry.flush();
+
+        Assertions.assertTrue(registry.getPending().isEmpty());
+    }
+
+    @Test
+    public void testPendingHeartbeatsAreOverlaid() {
+        HeartbeatRegistry registry = registry();
+        Assertions.assertSame(CHARGE_BOX.LAST_HEARTBEAT_TIMESTAMP, registry.lastHeartbeatWithPending());
+
+        registry.touch("cp-1", NOW);
+        Field<DateTime> overlaid = registry.lastHeartbeatWithPending();
+
+        String sql = DSL.using(SQLDialect.MYSQL).render(overlaid).toLowerCase(Locale.ROOT);
+        Assertions.assertTrue(sql.startsWith("case"));
+        Assertions.assertTrue(sql.contains("greatest("));
+        Assertions.assertTrue(statements.isEmpty());
+
+        Assertions.assertEquals(NOW, registry.overlay("cp-1", NOW.minusHours(1)));
+        Assertions.assertEquals(NOW.plusHours(1), registry.overlay("cp-1", NOW.plusHours(1)));
+        Assertions.assertNull(registry.overlay("cp-2", null));
+    }
+
+    private HeartbeatRegistry registry() {
+        DSLContext ctx = DSL.using(new MockConnection(context -> {
+            if (failing) {
+                throw new SQLException("Connection refused");
+            }
+            statements.add(context.sql().toLowerCase(Locale.ROOT));
+            return new MockResult[] {new MockResult(2)};
+        }), SQLDialect.MYSQL);
+
+        return new HeartbeatRegistry(ctx, Mockito.mock(ScheduledExecutorService.class));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.repository.RollupGranularity;
+import de.rwth.idsg.steve.repository.dto.MeterValueRow;
+import de.rwth.idsg.steve.repository.impl.MeterValueRollup.Bucket;
+import de.rwth.idsg.steve.repository.impl.MeterValueRollup.Key;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MeterValueRollupTest {
+
+    private static final int CONNECTOR_PK = 7;
+    private static final DateTime T0 = new DateTime(2026, 10, 17, 12, 0, DateTimeZone.UTC);
+
+    private final MeterValueRollup rollup = new MeterValueRollup(null);
+    private final Map<Key, Bucket> buckets = new HashMap<>();
+
+    @Test
+    public void testNormalizeKiloUnit() {
+        assertValue("1234.5", MeterValueRollup.normalize(energy(T0, "1.2345", "kWh")));
+        assertValue("1234.5", MeterValueRollup.normalize(energy(T0, "1234.5", "Wh")));
+        assertValue("1234.5", MeterValueRollup.normalize(energy(T0, "1234.5", null)));
+    }
+
+    @Test
+    public void testNormalizeSkipsUnsupportedRows() {
+        Assertions.assertNull(MeterValueRollup.normalize(energy(T0, "abc", "Wh")));
+        Assertions.assertNull(MeterValueRollup.normalize(energy(T0, "12", "varh")));
+        Assertions.assertNull(MeterValueRollup.normalize(row(T0, "12", null, "Current.Import", "A", null)));
+        Assertions.assertNull(MeterValueRollup.normalize(row(T0, "AB12CD", "SignedData", null, "Wh", null)));
+    }
+
+    @Test
+    public void testMissingMeasurandIsEnergy() {
+        Assertions.assertTrue(rollup.accumulate(buckets, row(T0, "10", null, null, null, null)));
+        Assertions.assertNotNull(buckets.get(key(RollupGranularity.MINUTE, MeterValueRollup.ENERGY, "", T0)));
+    }
+
+    @Test
+    public void testRowGoesIntoEveryGranularity() {
+        DateTime ts = T0.plusMinutes(17).plusSeconds(42);
+        rollup.accumulate(buckets, energy(ts, "100", "Wh"));
+
+        Assertions.assertEquals(RollupGranularity.values().length, buckets.size());
+        String energy = MeterValueRollup.ENERGY;
+        Assertions.assertNotNull(buckets.get(key(RollupGranularity.MINUTE, energy, "", T0.plusMinutes(17))));
+        Assertions.assertNotNull(buckets.get(key(RollupGranularity.QUARTER_HOUR, energy, "", T0.plusMinutes(15))));
+        Assertions.assertNotNull(buckets.get(key(RollupGranularity.HOUR, energy, "", T0)));
+    }
+
+    @Test
+    public void testAggregatesOutOfOrderRows() {
+        rollup.accumulate(buckets, energy(T0.plusMinutes(10), "300", "Wh"));
+        rollup.accumulate(buckets, energy(T0.plusMinutes(2), "0.1", "kWh"));
+        rollup.accumulate(buckets, energy(T0.plusMinutes(5), "200", "Wh"));
+        rollup.accumulate(buckets, energy(T0.plusMinutes(20), "400", "Wh"));
+
+        Bucket quarter = buckets.get(key(RollupGranularity.QUARTER_HOUR, MeterValueRollup.ENERGY, "", T0));
+        Assertions.assertEquals(3, quarter.count);
+        Assertions.assertEquals(T0.plusMinutes(2), quarter.firstTimestamp);
+        Assertions.assertEquals(T0.plusMinutes(10), quarter.lastTimestamp);
+        assertValue("100", quarter.first);
+        assertValue("300", quarter.last);
+        assertValue("100", quarter.min);
+        assertValue("300", quarter.max);
+        assertValue("600", quarter.sum);
+
+        Bucket hour = buckets.get(key(RollupGranularity.HOUR, MeterValueRollup.ENERGY, "", T0));
+        Assertions.assertEquals(4, hour.count);
+        assertValue("400", hour.last);
+    }
+
+    @Test
+    public void testPhasesAreSeparate() {
+        rollup.accumulate(buckets, row(T0, "230", null, MeterValueRollup.VOLTAGE, "V", "L1"));
+        rollup.accumulate(buckets, row(T0, "231", null, MeterValueRollup.VOLTAGE, "V", "L2"));
+
+        assertValue("230", buckets.get(key(RollupGranularity.MINUTE, MeterValueRollup.VOLTAGE, "L1", T0)).last);
+        assertValue("231", buckets.get(key(RollupGranularity.MINUTE, MeterValueRollup.VOLTAGE, "L2", T0)).last);
+    }
+
+    @Test
+    public void testSkippedRowsAreCounted() {
+        Assertions.assertFalse(rollup.accumulate(buckets, energy(T0, "n/a", "Wh")));
+        Assertions.assertFalse(rollup.accumulate(buckets, energy(null, "1", "Wh")));
+
+        Assertions.assertTrue(buckets.isEmpty());
+        Assertions.assertEquals(2, rollup.getStats().getSkipped());
+        Assertions.assertEquals(0, rollup.getStats().getSamples());
+    }
+
+    @Test
+    public void testOnlyPeriodicSamplesOfOutletAreRolledUp() {
+        Assertions.assertTrue(rollup.accumulate(buckets, energy(T0, "10", "Wh", "Sample.Periodic", "Outlet")));
+
+        // the stop value of a transaction repeats the last sample, the inlet is a different meter
+        Assertions.assertFalse(rollup.accumulate(buckets, energy(T0, "10", "Wh", "Transaction.End", "Outlet")));
+        Assertions.assertFalse(rollup.accumulate(buckets, energy(T0, "10", "Wh", "ReadingContext", "Outlet")));
+        Assertions.assertFalse(rollup.accumulate(buckets, energy(T0, "10", "Wh", "Sample.Clock", null)));
+        Assertions.assertFalse(rollup.accumulate(buckets, energy(T0, "12", "Wh", null, "Inlet")));
+
+        Bucket minute = buckets.get(key(RollupGranularity.MINUTE, MeterValueRollup.ENERGY, "", T0));
+        Assertions.assertEquals(1, minute.count);
+        assertValue("10", minute.sum);
+    }
+
+    private static Key key(RollupGranularity granularity, String measurand, String phase, DateTime bucketStart) {
+        return new Key(CONNECTOR_PK, granularity, measurand, phase, bucketStart.getMillis());
+    }
+
+    @Test
+    public void testAddDoesNotThrow() {
+        MeterValueRollup failing = Mockito.spy(new MeterValueRollup(null));
+        Mockito.doThrow(new IllegalStateException("test")).when(failing).accumulate(Mockito.any(), Mockito.any());
+
+        Assertions.assertDoesNotThrow(() -> failing.add(List.of(energy(T0, "10", "Wh"))));
+        Assertions.assertEquals(1, failing.getStats().getFailedBatches());
+    }
+
+    private static MeterValueRow energy(DateTime ts, String value, String unit) {
+        return row(ts, value, null, MeterValueRollup.ENERGY, unit, null);
+    }
+
+    private static MeterValueRow energy(DateTime ts, String value, String unit, String context, String location) {
+        return MeterValueRow.builder()
+                            .connectorPk(CONNECTOR_PK)
+                            .valueTimestamp(ts)
+                            .value(value)
+                            .measurand(MeterValueRollup.ENERGY)
+                            .unit(unit)
+                            .readingContext(context)
+                            .location(location)
+                            .build();
+    }
+
+    private static MeterValueRow row(DateTime ts, String value, String format, String measurand, String unit,
+                                     String phase) {
+        return MeterValueRow.builder()
+                            .connectorPk(CONNECTOR_PK)
+                            .valueTimestamp(ts)
+                            .value(value)
+                            .format(format)
+                            .measurand(measurand)
+                            .unit(unit)
+                            .phase(phase)
+                            .build();
+    }
+
+    private static void assertValue(String expected, BigDecimal actual) {
+        Assertions.assertNotNull(actual);
+        Assertions.assertEquals(0, new BigDecimal(expected).compareTo(actual),
+                                "expected " + expected + ", was " + actual);
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.repository.dto.MeterValueRow;
+import de.rwth.idsg.steve.repository.dto.MeterValueWriterStats;
+import org.joda.time.DateTime;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+public class MeterValueWriterTest {
+
+    private static final int COLUMNS = 10;
+    private static final String BAD_VALUE = "1E+999999999";
+
+    @TempDir
+    Path spillDirectory;
+
+    // number of rows of each insert statement
+    private final List<Integer> inserts = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger failuresToCome = new AtomicInteger();
+    // the inserts into connector_meter_value that fail (1-based), and the number of them so far
+    private final Set<Integer> failingInserts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger insertCount = new AtomicInteger();
+    // meter_value_spill_replay
+    private final Map<String, Integer> replayedLines = new ConcurrentHashMap<>();
+
+    @Test
+    public void testRowsOfAllStationsAreWrittenInOneInsert() throws Exception {
+        MeterValueWriter writer = writer(1_000, 100, 200);
+        writer.init();
+        try {
+            writer.add(rows(1, 10), null);
+            writer.add(rows(2, 10), null);
+            writer.add(rows(3, 10), null);
+
+            await(writer, s -> s.getWritten() == 30);
+            Assertions.assertEquals(List.of(30), inserts);
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testFullBatchIsFlushedWithoutWaiting() throws Exception {
+        MeterValueWriter writer = writer(1_000, 10, 2_000);
+        writer.init();
+        try {
+            writer.add(rows(1, 25), null);
+
+            await(writer, s -> s.getWritten() == 20);
+            Assertions.assertEquals(List.of(10, 10), inserts);
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testOverflowIsSpilledByWriterAndWrittenLater() throws Exception {
+        MeterValueWriter writer = writer(5, 100, 50);
+
+        // the writer is not started yet: 5 rows fit into the queue, the rest is handed over to be spilled
+        CountDownLatch afterWrite = new CountDownLatch(1);
+        writer.add(rows(1, 8), afterWrite::countDown);
+
+        MeterValueWriterStats stats = writer.getStats();
+        Assertions.assertEquals(5, stats.getEnqueued());
+        Assertions.assertEquals(0, stats.getSpilled(), "the caller must not write the spill file");
+        Assertions.assertEquals(0, stats.getSpillFileBytes());
+
+        writer.init();
+        try {
+            await(writer, s -> s.getWritten() == 8 && s.getSpillFileBytes() == 0);
+            Assertions.assertTrue(afterWrite.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(3, writer.getStats().getSpilled());
+            Assertions.assertEquals(3, writer.getStats().getReplayed());
+            Assertions.assertEquals(0, writer.getStats().getDropped());
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testCallerSpillsWhenWriterCannotKeepUp() throws Exception {
+        MeterValueWriter writer = writer(2, 100, 50);
+
+        // the writer is not started yet: 2 rows are queued, 2 are handed over, the caller spills the rest
+        CountDownLatch afterWrite = new CountDownLatch(1);
+        writer.add(rows(1, 6), afterWrite::countDown);
+
+        MeterValueWriterStats stats = writer.getStats();
+        Assertions.assertEquals(2, stats.getEnqueued());
+        Assertions.assertEquals(2, stats.getSpilled());
+        Assertions.assertTrue(stats.getSpillFileBytes() > 0);
+        Assertions.assertEquals(1, afterWrite.getCount(), "the last row is spilled, the callback must wait for it");
+
+        writer.init();
+        try {
+            await(writer, s -> s.getWritten() == 6 && s.getSpillFileBytes() == 0);
+            Assertions.assertTrue(afterWrite.await(5, TimeUnit.SECONDS));
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testReplayGoesOnAfterWrittenLines() throws Exception {
+        Path file = spillDirectory.resolve("meter-values.spill.1.replay");
+        Files.write(file, spillLines(5));
+        replayedLines.put("meter-values.spill.1.replay", 2);
+
+        MeterValueWriter writer = writer(1_000, 100, 50);
+        writer.init();
+        try {
+            await(writer, s -> s.getReplayed() == 3 && s.getSpillFileBytes() == 0);
+            Assertions.assertEquals(List.of(3), inserts);
+            Assertions.assertFalse(Files.exists(file));
+            Assertions.assertTrue(replayedLines.isEmpty());
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testFailedReplayDoesNotWriteRowsTwice() throws Exception {
+        Files.write(spillDirectory.resolve("meter-values.spill.1.replay"), spillLines(5));
+        failingInserts.add(2);
+
+        MeterValueWriter writer = writer(1_000, 2, 50);
+        writer.init();
+        try {
+            // the second chunk fails, the retry starts after the first one
+            await(writer, s -> s.getReplayed() == 5 && s.getSpillFileBytes() == 0);
+            Assertions.assertEquals(List.of(2, 2, 1), inserts);
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testFailedBatchIsSpilledAndWrittenAgain() throws Exception {
+        failuresToCome.set(1);
+        MeterValueWriter writer = writer(1_000, 100, 50);
+        writer.init();
+        try {
+            writer.add(rows(1, 10), null);
+
+            await(writer, s -> s.getWritten() == 10 && s.getSpillFileBytes() == 0);
+            MeterValueWriterStats stats = writer.getStats();
+            Assertions.assertEquals(1, stats.getFailedBatches());
+            Assertions.assertEquals(10, stats.getSpilled());
+            Assertions.assertEquals(10, stats.getReplayed());
+            Assertions.assertEquals(List.of(10), inserts);
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testBadRowDoesNotHoldBackTheOthers() throws Exception {
+        MeterValueWriter writer = writer(1_000, 100, 50);
+        writer.init();
+        try {
+            List<MeterValueRow> rows = new ArrayList<>(rows(1, 4));
+            rows.add(2, MeterValueRow.builder().connectorPk(1).valueTimestamp(DateTime.now()).value(BAD_VALUE).build());
+            writer.add(rows, null);
+
+            // the batch fails, the good rows are written one by one. the bad one is tried again with the replays,
+            // until it is moved to the dead-letter file.
+            await(writer, s -> s.getDeadLettered() == 1 && s.getSpillFileBytes() == 0);
+            MeterValueWriterStats stats = writer.getStats();
+            Assertions.assertEquals(4, stats.getWritten());
+            Assertions.assertEquals(MeterValueWriter.MAX_ATTEMPTS - 1, stats.getSpilled());
+            Assertions.assertTrue(Files.size(spillDirectory.resolve("meter-values.dead")) > 0);
+
+            // the writer goes on
+            writer.add(rows(2, 3), null);
+            await(writer, s -> s.getWritten() == 7);
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testRowErrorsAreToldApartFromDatabaseErrors() {
+        Assertions.assertTrue(MeterValueWriter.isRowError(
+                new DataAccessException("insert", new SQLException("Out of range", "22003"))));
+        Assertions.assertTrue(MeterValueWriter.isRowError(
+                new DataAccessException("insert", new SQLException("Cannot add or update a child row", "23000"))));
+        Assertions.assertFalse(MeterValueWriter.isRowError(
+                new DataAccessException("insert", new SQLException("Communications link failure", "08S01"))));
+        Assertions.assertFalse(MeterValueWriter.isRowError(new DataAccessException("insert", new SQLException())));
+    }
+
+    @Test
+    public void testAfterWriteOfFailedBatchWaitsForReplay() throws Exception {
+        failuresToCome.set(1);
+        MeterValueWriter writer = writer(1_000, 100, 50);
+        writer.init();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicInteger insertsBefore = new AtomicInteger(-1);
+            writer.add(rows(1, 4), () -> {
+                insertsBefore.set(inserts.size());
+                latch.countDown();
+            });
+
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, insertsBefore.get(), "the callback ran before the replay wrote the rows");
+            Assertions.assertEquals(4, writer.getStats().getReplayed());
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    @Test
+    public void testAfterWriteRunsWhenRowsAreInDatabase() throws Exception {
+        MeterValueWriter writer = writer(1_000, 100, 50);
+        writer.init();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicBoolean written = new AtomicBoolean();
+            writer.add(rows(1, 3), () -> {
+                written.set(!inserts.isEmpty());
+                latch.countDown();
+            });
+
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(written.get());
+        } finally {
+            writer.shutDown();
+        }
+    }
+
+    private MeterValueWriter writer(int queueCapacity, int batchSize, int flushIntervalMillis) {
+        SteveConfiguration.MeterValues config = SteveConfiguration.MeterValues.builder()
+                .queueCapacity(queueCapacity)
+                .batchSize(batchSize)
+                .flushIntervalMillis(flushIntervalMillis)
+                .spillDirectory(spillDirectory.toString())
+                .spillRetrySeconds(0)
+                .build();
+        return new MeterValueWriter(mockContext(), Mockito.mock(MeterValueRollup.class), config);
+    }
+
+    private DSLContext mockContext() {
+        MockDataProvider provider = context -> {
+            String sql = context.sql();
+            Object[] bindings = context.bindings();
+            if (sql.contains("`meter_value_spill_replay`")) {
+                return replayProgress(sql, bindings);
+            }
+            if (!sql.startsWith("insert")) {
+                // the statements of the transactions
+                return new MockResult[] {new MockResult(0)};
+            }
+
+            if (failuresToCome.getAndDecrement() > 0 || failingInserts.contains(insertCount.incrementAndGet())) {
+                throw new SQLException("The database is gone");
+            }
+            if (Arrays.asList(context.bindings()).contains(BAD_VALUE)) {
+                throw new SQLException("Out of range value for column 'value'", "22003");
+            }
+            int rows = context.bindings().length / COLUMNS;
+            inserts.add(rows);
+            return new MockResult[] {new MockResult(rows)};
+        };
+        return DSL.using(new MockConnection(provider), SQLDialect.MYSQL);
+    }
+
+    private MockResult[] replayProgress(String sql, Object[] bindings) {
+        String fileName = (String) bindings[0];
+        if (sql.startsWith("select")) {
+            Field<Integer> lineCount = DSL.field(DSL.name("line_count"), Integer.class);
+            Result<Record1<Integer>> result = DSL.using(SQLDialect.MYSQL).newResult(lineCount);
+            Integer lines = replayedLines.get(fileName);
+            if (lines != null) {
+                result.add(DSL.using(SQLDialect.MYSQL).newRecord(lineCount).values(lines));
+            }
+            return new MockResult[] {new MockResult(result.size(), result)};
+        }
+        if (sql.startsWith("insert")) {
+            replayedLines.put(fileName, (Integer) bindings[1]);
+        } else {
+            replayedLines.remove(fileName);
+        }
+        return new MockResult[] {new MockResult(1)};
+    }
+
+    /**
+     * The format of the spill file, see MeterValueWriter.toJson()
+     */
+    private static List<String> spillLines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("[1,null," + System.currentTimeMillis() + ",\"" + i + "\",null,null,null,null,\"Wh\",null,0]");
+        }
+        return lines;
+    }
+
+    private static List<MeterValueRow> rows(int connectorPk, int count) {
+        List<MeterValueRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(MeterValueRow.builder()
+                                  .connectorPk(connectorPk)
+                                  .transactionPk(i % 2 == 0 ? null : 7)
+                                  .valueTimestamp(DateTime.now())
+                                  .value(Integer.toString(i))
+                                  .unit(i % 2 == 0 ? "Wh" : null)
+                                  .build());
+        }
+        return rows;
+    }
+
+    private static void await(MeterValueWriter writer, Predicate<MeterValueWriterStats> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.test(writer.getStats())) {
+            if (System.nanoTime() - deadline > 0) {
+                Assertions.fail("Condition not reached within 5 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.repository.dto.InsertConnectorStatusParams;
+import de.rwth.idsg.steve.repository.dto.UpdateTransactionParams;
+import jooq.steve.db.enums.TransactionStopEventActor;
+import org.joda.time.DateTime;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class OcppServerRepositoryImplTest {
+
+    private static final Pattern ASSIGNMENT = Pattern.compile("`(\\w+)` = case when");
+
+    private final List<String> statements = new ArrayList<>();
+    private final List<Object> stopValueBindings = new ArrayList<>();
+
+    /**
+     * The upsert must not overwrite a stored status with an older one (e.g. a status of a late transaction push):
+     * every column is only taken from the incoming row, if its timestamp is not older than the stored one. Since
+     * MySQL evaluates the assignments from left to right, and the later ones would otherwise compare with the new
+     * timestamp, status_timestamp must be assigned last.
+     */
+    @Test
+    public void testOlderStatusDoesNotOverwriteNewerOne() {
+        repository().insertConnectorStatus(params(DateTime.now().minusHours(1)));
+
+        Assertions.assertEquals(2, statements.size());
+        Assertions.assertTrue(statements.get(0).startsWith("insert into `connector_status`"));
+
+        String upsert = statements.get(1);
+        Assertions.assertTrue(upsert.startsWith("insert into `connector_status_latest`"));
+
+        int update = upsert.indexOf("on duplicate key update");
+        Assertions.assertTrue(update > 0);
+        String assignments = upsert.substring(update);
+
+        List<String> columns = new ArrayList<>();
+        Matcher m = ASSIGNMENT.matcher(assignments);
+        while (m.find()) {
+            columns.add(m.group(1));
+        }
+        Assertions.assertEquals(
+                List.of("status", "error_code", "error_info", "vendor_id", "vendor_error_code", "status_timestamp"),
+                columns);
+
+        // each of them is guarded by the comparison of the timestamps
+        String[] cases = assignments.split("case when", -1);
+        for (int i = 1; i < cases.length; i++) {
+            Assertions.assertTrue(cases[i].contains("`status_timestamp` is null"), cases[i]);
+            Assertions.assertTrue(cases[i].matches("(?s).*`status_timestamp`\\)? >= .*`status_timestamp`.*"), cases[i]);
+        }
+    }
+
+    @Test
+    public void testStatusWithoutTimestampIsOnlyLogged() {
+        repository().insertConnectorStatus(params(null));
+
+        Assertions.assertEquals(1, statements.size());
+        Assertions.assertTrue(statements.get(0).startsWith("insert into `connector_status`"));
+    }
+
+    /**
+     * The stop value is stored with the same columns as before the meter values were written in batches: reports and
+     * the tariff processing look for exactly these.
+     */
+    @Test
+    public void testStopValueKeepsItsColumns() {
+        repository().updateTransaction(UpdateTransactionParams.builder()
+                                                              .chargeBoxId("cp-1")
+                                                              .transactionId(3)
+                                                              .stopTimestamp(DateTime.now())
+                                                              .stopMeterValue("1234")
+                                                              .eventActor(TransactionStopEventActor.station)
+                                                              .eventTimestamp(DateTime.now())
+                                                              .build());
+
+        String insert = statements.stream()
+                                  .filter(s -> s.startsWith("insert into `connector_meter_value`"))
+                                  .findFirst()
+                                  .orElseThrow();
+        List<String> columns = List.of("`value`", "`value_timestamp`", "`connector_pk`", "`transaction_pk`", "`unit`",
+                "`format`", "`location`", "`phase`", "`reading_context`", "`measurand`");
+        for (String column : columns) {
+            Assertions.assertTrue(insert.contains(column), column);
+        }
+        Assertions.assertEquals(List.of("1234", 3, "Wh", "format", "Outlet", "L1", "ReadingContext",
+                "Energy.Active.Import.Register"), stopValueBindings);
+    }
+
+    private OcppServerRepositoryImpl repository() {
+        MockConnection connection = new MockConnection(context -> {
+            String sql = context.sql().toLowerCase(Locale.ROOT);
+            statements.add(sql);
+            if (sql.startsWith("select")) {
+                // nothing found: the transaction is not stopped yet, the charge box wants no status after it
+                return new MockResult[] {new MockResult(0, DSL.using(SQLDialect.MYSQL).newResult())};
+            }
+            if (sql.startsWith("insert into `connector_meter_value`")) {
+                for (Object binding : context.bindings()) {
+                    // the timestamp and the connector_pk (null, read from the mocked transaction_start) aside
+                    if (binding instanceof String || binding instanceof Integer) {
+                        stopValueBindings.add(binding);
+                    }
+                }
+            }
+            return new MockResult[] {new MockResult(1)};
+        });
+
+        ConnectorPkCache connectorPkCache = Mockito.mock(ConnectorPkCache.class);
+        Mockito.when(connectorPkCache.getOrInsert("cp-1", 1)).thenReturn(7);
+
+        return new OcppServerRepositoryImpl(DSL.using(connection, SQLDialect.MYSQL), null, connectorPkCache);
+    }
+
+    private static InsertConnectorStatusParams params(DateTime timestamp) {
+        return InsertConnectorStatusParams.builder()
+                                          .chargeBoxId("cp-1")
+                                          .connectorId(1)
+                                          .timestamp(timestamp)
+                                          .status("Charging")
+                                          .errorCode("NoError")
+                                          .build();
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.repository.dto.PartitionTableStats;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Record5;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class PartitionRetentionManagerTest {
+
+    private static final DSLContext CREATE = DSL.using(SQLDialect.MYSQL);
+
+    private static final Field<String> NAME = DSL.field(DSL.name("PARTITION_NAME"), String.class);
+    private static final Field<String> DESCRIPTION = DSL.field(DSL.name("PARTITION_DESCRIPTION"), String.class);
+    private static final Field<Long> ROWS = DSL.field(DSL.name("TABLE_ROWS"), Long.class);
+    private static final Field<Long> DATA_LENGTH = DSL.field(DSL.name("DATA_LENGTH"), Long.class);
+    private static final Field<Long> INDEX_LENGTH = DSL.field(DSL.name("INDEX_LENGTH"), Long.class);
+
+    private static final Pattern EMPTINESS = Pattern.compile("from `([^`]+)`(?: partition \\(`([^`]+)`\\))?");
+
+    private static final DateTime NOW = new DateTime(2026, 10, 17, 12, 0, DateTimeZone.UTC);
+
+    // (table, [(name, bound)]) as in information_schema.PARTITIONS
+    private final Map<String, List<String[]>> partitions = new HashMap<>();
+    private final Set<String> existingTables = new HashSet<>();
+    // tables and partitions (table.partition) that have rows
+    private final Set<String> withRows = new HashSet<>();
+    private final List<String> ddl = new ArrayList<>();
+    private final List<String> explained = new ArrayList<>();
+    // the partitions column of EXPLAIN
+    private String scanned;
+    // connector_pk of connector_meter_value, and of connector
+    private final List<Integer> referencedConnectors = new ArrayList<>();
+    private final Set<Integer> connectors = new HashSet<>();
+    private final List<Object[]> deletes = new ArrayList<>();
+
+    @Test
+    public void testFuturePartitionsAreSplitOffCatchAll() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p_history", month(2026, 11)),
+                partition("p_future", "MAXVALUE")));
+
+        manager(retention(2, 0, false)).maintain(NOW);
+
+        Assertions.assertEquals(1, ddl.size());
+        String sql = ddl.get(0);
+        Assertions.assertTrue(sql.startsWith(
+                "alter table `connector_meter_value` reorganize partition `p_future` into ("));
+        Assertions.assertTrue(sql.contains("partition p202611 values less than (" + month(2026, 12) + ")"));
+        Assertions.assertTrue(sql.contains("partition p202612 values less than (" + month(2027, 1) + ")"));
+        Assertions.assertTrue(sql.endsWith("partition `p_future` values less than maxvalue)"));
+    }
+
+    @Test
+    public void testNothingIsCreatedIfPartitionsExist() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p_history", month(2026, 11)),
+                partition("p202611", month(2026, 12)),
+                partition("p202612", month(2027, 1)),
+                partition("p_future", "MAXVALUE")));
+
+        manager(retention(2, 0, false)).maintain(NOW);
+
+        Assertions.assertTrue(ddl.isEmpty());
+    }
+
+    @Test
+    public void testExpiredPartitionsAreDropped() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p_history", month(2026, 7)),
+                partition("p202607", month(2026, 8)),
+                partition("p202608", month(2026, 9)),
+                partition("p202609", month(2026, 10)),
+                partition("p202610", month(2026, 11)),
+                partition("p_future", "MAXVALUE")));
+
+        // keep August and later
+        PartitionRetentionManager manager = manager(retention(0, 2, false));
+        manager.maintain(NOW);
+
+        Assertions.assertEquals(List.of(
+                "alter table `connector_meter_value` drop partition `p_history`",
+                "alter table `connector_meter_value` drop partition `p202607`"), ddl);
+
+        PartitionTableStats stats = manager.getStats().get(0);
+        Assertions.assertEquals(2, stats.getDropped());
+        Assertions.assertNull(stats.getLastError());
+    }
+
+    @Test
+    public void testArchivedPartitionIsExchangedBeforeDrop() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p202607", month(2026, 8)),
+                partition("p202608", month(2026, 9)),
+                partition("p202609", month(2026, 10)),
+                partition("p202610", month(2026, 11)),
+                partition("p_future", "MAXVALUE")));
+
+        manager(retention(0, 2, true)).maintain(NOW);
+
+        Assertions.assertEquals(List.of(
+                "create table `connector_meter_value_p202607` like `connector_meter_value`",
+                "alter table `connector_meter_value_p202607` remove partitioning",
+                "alter table `connector_meter_value` exchange partition `p202607` "
+                        + "with table `connector_meter_value_p202607`",
+                "alter table `connector_meter_value` drop partition `p202607`"), ddl);
+    }
+
+    @Test
+    public void testExistingArchiveIsNotExchangedAgain() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p202607", month(2026, 8)),
+                partition("p202610", month(2026, 11)),
+                partition("p_future", "MAXVALUE")));
+        existingTables.add("connector_meter_value_p202607");
+        withRows.add("connector_meter_value_p202607");
+
+        manager(retention(0, 2, true)).maintain(NOW);
+
+        // the previous run exchanged it, but did not get to drop the (now empty) partition
+        Assertions.assertEquals(List.of("alter table `connector_meter_value` drop partition `p202607`"), ddl);
+    }
+
+    @Test
+    public void testEmptyArchiveIsExchanged() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p202607", month(2026, 8)),
+                partition("p202610", month(2026, 11)),
+                partition("p_future", "MAXVALUE")));
+        existingTables.add("connector_meter_value_p202607");
+        withRows.add("connector_meter_value.p202607");
+
+        manager(retention(0, 2, true)).maintain(NOW);
+
+        // the previous run created the archive, but failed before the exchange
+        Assertions.assertEquals(List.of(
+                "alter table `connector_meter_value` exchange partition `p202607` "
+                        + "with table `connector_meter_value_p202607`",
+                "alter table `connector_meter_value` drop partition `p202607`"), ddl);
+    }
+
+    @Test
+    public void testArchiveAndPartitionWithRowsAreLeftAlone() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p202607", month(2026, 8)),
+                partition("p202610", month(2026, 11)),
+                partition("p_future", "MAXVALUE")));
+        existingTables.add("connector_meter_value_p202607");
+        withRows.add("connector_meter_value_p202607");
+        withRows.add("connector_meter_value.p202607");
+
+        PartitionRetentionManager manager = manager(retention(0, 2, true));
+        manager.maintain(NOW);
+
+        Assertions.assertTrue(ddl.isEmpty());
+        Assertions.assertNotNull(manager.getStats().get(0).getLastError());
+    }
+
+    @Test
+    public void testTableWithoutPartitionsIsSkipped() {
+        PartitionRetentionManager manager = manager(retention(2, 2, false));
+        manager.maintain(NOW);
+
+        Assertions.assertTrue(ddl.isEmpty());
+        for (PartitionTableStats stats : manager.getStats()) {
+            Assertions.assertFalse(stats.isPartitioned());
+        }
+    }
+
+    @Test
+    public void testBoundsAreToSecondsOfMySql() {
+        // SELECT TO_SECONDS('2009-11-29'), TO_SECONDS('1970-01-01'), TO_SECONDS('2026-11-01')
+        Assertions.assertEquals(63426672000L, PartitionRetentionManager.toSeconds(new LocalDate(2009, 11, 29)));
+        Assertions.assertEquals(62167219200L, PartitionRetentionManager.toSeconds(new LocalDate(1970, 1, 1)));
+        Assertions.assertEquals(63960710400L, PartitionRetentionManager.toSeconds(new LocalDate(2026, 11, 1)));
+    }
+
+    @Test
+    public void testPruningIsCheckedWithRangeQuery() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p_history", month(2026, 9)),
+                partition("p202609", month(2026, 10)),
+                partition("p202610", month(2026, 11)),
+                partition("p202611", month(2026, 12)),
+                partition("p_future", "MAXVALUE")));
+        scanned = "p_history,p202610";
+
+        PartitionRetentionManager manager = manager(retention(1, 0, false));
+        manager.maintain(NOW);
+        manager.maintain(NOW);
+
+        // once per table, prunable by a range on the partitioning column
+        Assertions.assertEquals(1, explained.size());
+        Assertions.assertTrue(explained.get(0).startsWith("explain partitions select 1 from `connector_meter_value`"));
+        Assertions.assertTrue(explained.get(0).contains("`connector_meter_value`.`value_timestamp` between"));
+
+        PartitionTableStats stats = manager.getStats().get(0);
+        Assertions.assertEquals(2, stats.getPruningScanned());
+        Assertions.assertEquals(5, stats.getPruningTotal());
+    }
+
+    @Test
+    public void testOrphansAreDeleted() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p202610", month(2026, 11)),
+                partition("p202611", month(2026, 12)),
+                partition("p_future", "MAXVALUE")));
+        referencedConnectors.addAll(List.of(1, 2, 3));
+        connectors.addAll(List.of(1, 3));
+
+        PartitionRetentionManager manager = manager(retention(1, 0, false));
+        manager.maintain(NOW);
+
+        Assertions.assertTrue(ddl.isEmpty());
+        Assertions.assertEquals(1, deletes.size());
+        Assertions.assertArrayEquals(new Object[] {2}, deletes.get(0));
+        Assertions.assertEquals(4, manager.getStats().get(0).getDeletedOrphans());
+    }
+
+    @Test
+    public void testNothingIsDeletedWithoutOrphans() {
+        partitions.put("connector_meter_value", List.of(
+                partition("p202610", month(2026, 11)),
+                partition("p202611", month(2026, 12)),
+                partition("p_future", "MAXVALUE")));
+        referencedConnectors.addAll(List.of(1, 3));
+        connectors.addAll(List.of(1, 3));
+
+        manager(retention(1, 0, false)).maintain(NOW);
+
+        Assertions.assertTrue(deletes.isEmpty());
+    }
+
+    private PartitionRetentionManager manager(SteveConfiguration.Retention retention) {
+        DSLContext ctx = DSL.using(new MockConnection(provider()), SQLDialect.MYSQL);
+        return new PartitionRetentionManager(ctx, null, retention);
+    }
+
+    private static SteveConfiguration.Retention retention(int precreateMonths, int meterValueMonths, boolean archive) {
+        return SteveConfiguration.Retention.builder()
+                                           .maintenanceIntervalMinutes(60)
+                                           .precreateMonths(precreateMonths)
+                                           .meterValueMonths(meterValueMonths)
+                                           .meterValueArchive(archive)
+                                           .build();
+    }
+
+    private static String[] partition(String name, Object bound) {
+        return new String[] {name, String.valueOf(bound)};
+    }
+
+    private static long month(int year, int month) {
+        return PartitionRetentionManager.toSeconds(new LocalDate(year, month, 1));
+    }
+
+    /**
+     * Answers the reads from information_schema, records the DDL statements
+     */
+    private MockDataProvider provider() {
+        return context -> {
+            String sql = context.sql().toLowerCase(Locale.ROOT);
+            Object[] bindings = context.bindings();
+
+            if (sql.contains("`information_schema`.`partitions`")) {
+                Result<Record5<String, String, Long, Long, Long>> result =
+                        CREATE.newResult(NAME, DESCRIPTION, ROWS, DATA_LENGTH, INDEX_LENGTH);
+                for (String[] p : partitions.getOrDefault((String) bindings[0], List.of())) {
+                    result.add(CREATE.newRecord(NAME, DESCRIPTION, ROWS, DATA_LENGTH, INDEX_LENGTH)
+                                     .values(p[0], p[1], 10L, 1024L, 512L));
+                }
+                return new MockResult[] {new MockResult(result.size(), result)};
+            }
+
+            if (sql.contains("`information_schema`.`tables`")) {
+                return exists(existingTables.contains((String) bindings[0]));
+            }
+
+            if (sql.startsWith("select distinct `connector_meter_value`.`connector_pk`")) {
+                return connectorPks(referencedConnectors);
+            }
+
+            if (sql.startsWith("select `connector`.`connector_pk`")) {
+                List<Integer> found = new ArrayList<>();
+                for (Object pk : bindings) {
+                    if (connectors.contains(((Number) pk).intValue())) {
+                        found.add(((Number) pk).intValue());
+                    }
+                }
+                return connectorPks(found);
+            }
+
+            if (sql.startsWith("delete")) {
+                deletes.add(bindings);
+                return new MockResult[] {new MockResult(4)};
+            }
+
+            Matcher emptiness = EMPTINESS.matcher(sql);
+            if (sql.startsWith("select") && emptiness.find()) {
+                String name = emptiness.group(2) == null
+                        ? emptiness.group(1)
+                        : emptiness.group(1) + "." + emptiness.group(2);
+                return exists(withRows.contains(name));
+            }
+
+            if (sql.startsWith("explain")) {
+                explained.add(sql);
+                Field<String> column = DSL.field(DSL.name("partitions"), String.class);
+                Result<Record1<String>> result = CREATE.newResult(column);
+                if (scanned != null) {
+                    result.add(CREATE.newRecord(column).values(scanned));
+                }
+                return new MockResult[] {new MockResult(result.size(), result)};
+            }
+
+            ddl.add(sql);
+            if (sql.startsWith("create table")) {
+                existingTables.add(sql.split("`")[1]);
+            }
+            return new MockResult[] {new MockResult(0)};
+        };
+    }
+
+    private static MockResult[] connectorPks(List<Integer> pks) {
+        Field<Integer> pk = DSL.field(DSL.name("connector_pk"), Integer.class);
+        Result<Record1<Integer>> result = CREATE.newResult(pk);
+        for (Integer i : pks) {
+            result.add(CREATE.newRecord(pk).values(i));
+        }
+        return new MockResult[] {new MockResult(result.size(), result)};
+    }
+
+    private static MockResult[] exists(boolean exists) {
+        Field<Integer> one = DSL.field(DSL.name("one"), Integer.class);
+        Result<Record1<Integer>> result = CREATE.newResult(one);
+        if (exists) {
+            result.add(CREATE.newRecord(one).values(1));
+        }
+        return new MockResult[] {new MockResult(result.size(), result)};
+    }
+}
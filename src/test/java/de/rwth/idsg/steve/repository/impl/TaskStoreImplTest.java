@@ -0,0 +1,100 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.repository.impl;
+
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.repository.dto.TaskOverview;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.rwth.idsg.steve.SteveConfiguration.CONFIG;
+
+public class TaskStoreImplTest {
+
+    @Test
+    public void testOverviewIsPagedNewestFirst() {
+        TaskStoreImpl store = new TaskStoreImpl(null, null);
+        for (int i = 0; i < 5; i++) {
+            store.add(task(DateTime.now(), null));
+        }
+
+        List<TaskOverview> first = store.getOverview(null, 2);
+        Assertions.assertEquals(2, first.size());
+        Assertions.assertEquals(5, first.get(0).getTaskId());
+        Assertions.assertEquals(4, first.get(1).getTaskId());
+
+        List<TaskOverview> second = store.getOverview(first.get(1).getTaskId(), 2);
+        Assertions.assertEquals(2, second.size());
+        Assertions.assertEquals(3, second.get(0).getTaskId());
+        Assertions.assertEquals(2, second.get(1).getTaskId());
+
+        List<TaskOverview> last = store.getOverview(second.get(1).getTaskId(), 2);
+        Assertions.assertEquals(1, last.size());
+        Assertions.assertEquals(1, last.get(0).getTaskId());
+    }
+
+    @Test
+    public void testFinishedTasksAreEvictedFirstWhenFull() {
+        TaskStoreImpl store = new TaskStoreImpl(null, null);
+        int maxSize = CONFIG.getTasks().getMaxSize();
+
+        Integer unfinished = store.add(task(DateTime.now(), null));
+        Integer finished = store.add(task(DateTime.now(), DateTime.now()));
+        for (int i = 2; i < maxSize + 1; i++) {
+            store.add(task(DateTime.now(), null));
+        }
+
+        Assertions.assertEquals(maxSize, store.size());
+        Assertions.assertNotNull(store.get(unfinished));
+        Assertions.assertThrows(Exception.class, () -> store.get(finished));
+    }
+
+    @Test
+    public void testSweepEvictsExpiredTasks() {
+        TaskStoreImpl store = new TaskStoreImpl(null, null);
+        DateTime now = DateTime.now();
+
+        Integer finishedLongAgo = store.add(task(now.minusDays(2), now.minusDays(2)));
+        Integer running = store.add(task(now, null));
+
+        store.sweep(now);
+
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertNotNull(store.get(running));
+        Assertions.assertThrows(Exception.class, () -> store.get(finishedLongAgo));
+        Assertions.assertEquals(1, store.getStats().getEvicted());
+    }
+
+    private static CommunicationTask task(DateTime start, DateTime end) {
+        CommunicationTask task = Mockito.mock(CommunicationTask.class);
+        Mockito.when(task.getStartTimestamp()).thenReturn(start);
+        Mockito.when(task.getEndTimestamp()).thenReturn(end);
+        Mockito.when(task.isFinished()).thenReturn(end != null);
+        Mockito.when(task.getResponseCount()).thenReturn(new AtomicInteger());
+        Mockito.when(task.getDispatchedCount()).thenReturn(new AtomicInteger());
+        Mockito.when(task.getResultMap()).thenReturn(Collections.emptyMap());
+        return task;
+    }
+}
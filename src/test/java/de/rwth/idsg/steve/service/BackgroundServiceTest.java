@@ -0,0 +1,122 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.service;
+
+import de.rwth.idsg.steve.SteveConfiguration;
+import de.rwth.idsg.steve.ocpp.OcppTransport;
+import de.rwth.idsg.steve.ocpp.OcppVersion;
+import de.rwth.idsg.steve.ocpp.task.ResetTask;
+import de.rwth.idsg.steve.repository.dto.ChargePointSelect;
+import de.rwth.idsg.steve.web.dto.ocpp.ResetParams;
+import de.rwth.idsg.steve.web.dto.ocpp.ResetType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class BackgroundServiceTest {
+
+    private ScheduledExecutorService scheduler;
+    private BackgroundService service;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        service = new BackgroundService(scheduler, SteveConfiguration.FanOut.builder()
+                                                                        .parallelism(4)
+                                                                        .coordinators(1)
+                                                                        .soapConcurrency(1)
+                                                                        .jsonConcurrency(1)
+                                                                        .stationTimeoutSeconds(30)
+                                                                        .build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutDown();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testJsonPermitIsHeldUntilTheOutcome() throws Exception {
+        ResetTask task = newTask(OcppTransport.JSON, "cp-1", "cp-2");
+        BlockingQueue<String> handedOver = new LinkedBlockingQueue<>();
+
+        service.forEach(task).execute(cps -> handedOver.add(cps.getChargeBoxId()));
+
+        Assertions.assertEquals("cp-1", handedOver.poll(10, TimeUnit.SECONDS));
+        // the hand-over is done, but cp-1 did not respond yet
+        Assertions.assertNull(handedOver.poll(200, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(0, service.getStats().getAvailableJsonPermits());
+
+        task.addNewResponse("cp-1", "Accepted");
+        Assertions.assertEquals("cp-2", handedOver.poll(10, TimeUnit.SECONDS));
+
+        task.addNewError("cp-2", "Timed out");
+        // the release of cp-2 might be registered just now, by the coordinator
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.getStats().getAvailableJsonPermits() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(1, service.getStats().getAvailableJsonPermits());
+    }
+
+    @Test
+    public void testSoapPermitIsReleasedAfterTheCall() throws Exception {
+        ResetTask task = newTask(OcppTransport.SOAP, "cp-1", "cp-2");
+        BlockingQueue<String> handedOver = new LinkedBlockingQueue<>();
+
+        service.forEach(task).execute(cps -> handedOver.add(cps.getChargeBoxId()));
+
+        Assertions.assertEquals("cp-1", handedOver.poll(10, TimeUnit.SECONDS));
+        Assertions.assertEquals("cp-2", handedOver.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedHandOverReleasesThePermit() throws Exception {
+        ResetTask task = newTask(OcppTransport.JSON, "cp-1", "cp-2");
+        BlockingQueue<String> handedOver = new LinkedBlockingQueue<>();
+
+        service.forEach(task).execute(cps -> {
+            handedOver.add(cps.getChargeBoxId());
+            throw new IllegalStateException("Session is closed");
+        });
+
+        Assertions.assertEquals("cp-1", handedOver.poll(10, TimeUnit.SECONDS));
+        Assertions.assertEquals("cp-2", handedOver.poll(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, task.getCompletionFuture().get(10, TimeUnit.SECONDS).size());
+        Assertions.assertEquals(2, service.getStats().getFailed());
+    }
+
+    private static ResetTask newTask(OcppTransport transport, String... chargeBoxIds) {
+        ResetParams params = new ResetParams();
+        params.setResetType(ResetType.SOFT);
+        params.setChargePointSelectList(Arrays.stream(chargeBoxIds)
+                                              .map(id -> new ChargePointSelect(transport, id))
+                                              .toList());
+        return new ResetTask(OcppVersion.V_16, params);
+    }
+}
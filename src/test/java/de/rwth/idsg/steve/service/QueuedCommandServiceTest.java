@@ -0,0 +1,229 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.rwth.idsg.steve.SteveException;
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.ocpp.OcppVersion;
+import de.rwth.idsg.steve.ocpp.RequestResult;
+import de.rwth.idsg.steve.ocpp.ws.ConnectionRegistry;
+import de.rwth.idsg.steve.repository.ChargePointRepository;
+import de.rwth.idsg.steve.repository.QueuedCommandRepository;
+import de.rwth.idsg.steve.repository.QueuedCommandStatus;
+import de.rwth.idsg.steve.repository.TaskStore;
+import de.rwth.idsg.steve.repository.dto.QueuedCommand;
+import de.rwth.idsg.steve.web.api.exception.BadRequestException;
+import de.rwth.idsg.steve.web.dto.CommandForm;
+import de.rwth.idsg.steve.web.dto.CommandType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import javax.validation.Validation;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+
+public class QueuedCommandServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private QueuedCommandRepository repository;
+    private ChargePointRepository chargePointRepository;
+    private CommandService commandService;
+    private TaskStore taskStore;
+    private ConnectionRegistry connectionRegistry;
+    private QueuedCommandService service;
+
+    @BeforeEach
+    public void setup() {
+        repository = Mockito.mock(QueuedCommandRepository.class);
+        chargePointRepository = Mockito.mock(ChargePointRepository.class);
+        commandService = Mockito.mock(CommandService.class);
+        taskStore = Mockito.mock(TaskStore.class);
+        connectionRegistry = new ConnectionRegistry();
+
+        // run everything in the calling thread
+        ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+        Mockito.doAnswer(inv -> {
+            inv.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(ArgumentMatchers.any());
+
+        service = new QueuedCommandService(repository, chargePointRepository, commandService, taskStore,
+                connectionRegistry, objectMapper, Validation.buildDefaultValidatorFactory().getValidator(), executor,
+                executor);
+
+        Mockito.when(repository.claim(ArgumentMatchers.anyInt())).thenReturn(true);
+    }
+
+    @Test
+    public void testCommandsAreSentInOrderOneAtATime() throws Exception {
+        QueuedCommand first = remoteStop(1, 101);
+        QueuedCommand second = remoteStop(2, 102);
+        Mockito.when(repository.getNext("cp-1")).thenReturn(first, second, null);
+
+        CompletableFuture<RequestResult> firstFuture = new CompletableFuture<>();
+        CompletableFuture<RequestResult> secondFuture = new CompletableFuture<>();
+        Mockito.when(commandService.execute(ArgumentMatchers.eq(CommandType.REMOTE_STOP), ArgumentMatchers.any()))
+               .thenReturn(11, 12);
+        mockTask(11, firstFuture);
+        mockTask(12, secondFuture);
+
+        connectionRegistry.sessionOpened("cp-1", OcppVersion.V_16, "session-1");
+        service.drain("cp-1");
+
+        // the second one waits for the outcome of the first one
+        Mockito.verify(commandService, Mockito.times(1)).execute(ArgumentMatchers.any(), ArgumentMatchers.any());
+
+        firstFuture.complete(result("Accepted"));
+        secondFuture.complete(result("Rejected"));
+
+        InOrder inOrder = Mockito.inOrder(repository, commandService);
+        inOrder.verify(commandService).execute(ArgumentMatchers.eq(CommandType.REMOTE_STOP),
+                ArgumentMatchers.argThat(f -> ((CommandForm.RemoteStop) f).getTransactionId() == 101));
+        inOrder.verify(repository).finish(1, QueuedCommandStatus.DELIVERED, "Accepted", null);
+        inOrder.verify(commandService).execute(ArgumentMatchers.eq(CommandType.REMOTE_STOP),
+                ArgumentMatchers.argThat(f -> ((CommandForm.RemoteStop) f).getTransactionId() == 102));
+        inOrder.verify(repository).finish(2, QueuedCommandStatus.DELIVERED, "Rejected", null);
+    }
+
+    @Test
+    public void testUndeliveredCommandIsQueuedAgain() throws Exception {
+        Mockito.when(repository.getNext("cp-1")).thenReturn(remoteStop(1, 101));
+        Mockito.when(commandService.execute(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(11);
+        CompletableFuture<RequestResult> future = new CompletableFuture<>();
+        mockTask(11, future);
+
+        connectionRegistry.sessionOpened("cp-1", OcppVersion.V_16, "session-1");
+        service.drain("cp-1");
+
+        // the station goes away before it responds
+        connectionRegistry.sessionClosed("cp-1", "session-1");
+        future.completeExceptionally(new TimeoutException("No response"));
+
+        Mockito.verify(repository).requeue(1, "No response");
+        Mockito.verify(repository, Mockito.times(1)).getNext("cp-1");
+    }
+
+    @Test
+    public void testSentCommandWithUnknownOutcomeIsNotSentAgain() throws Exception {
+        Mockito.when(repository.getNext("cp-1")).thenReturn(remoteStart(1));
+        Mockito.when(commandService.execute(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(11);
+        CompletableFuture<RequestResult> future = new CompletableFuture<>();
+        mockTask(11, future);
+
+        connectionRegistry.sessionOpened("cp-1", OcppVersion.V_16, "session-1");
+        service.drain("cp-1");
+
+        // the station might have started the transaction already
+        future.completeExceptionally(new TimeoutException("No response"));
+
+        Mockito.verify(repository, Mockito.never()).requeue(ArgumentMatchers.anyInt(), ArgumentMatchers.any());
+        Mockito.verify(repository).finish(ArgumentMatchers.eq(1), ArgumentMatchers.eq(QueuedCommandStatus.FAILED),
+                ArgumentMatchers.isNull(), ArgumentMatchers.startsWith("Outcome unknown"));
+    }
+
+    @Test
+    public void testUnsentCommandIsQueuedAgain() throws Exception {
+        Mockito.when(repository.getNext("cp-1")).thenReturn(remoteStart(1), (QueuedCommand) null);
+        Mockito.when(commandService.execute(ArgumentMatchers.any(), ArgumentMatchers.any()))
+               .thenThrow(new SteveException.NotFound("Not online"));
+
+        connectionRegistry.sessionOpened("cp-1", OcppVersion.V_16, "session-1");
+        service.drain("cp-1");
+
+        Mockito.verify(repository).requeue(1, "Not online");
+    }
+
+    @Test
+    public void testOnlyIdempotentCommandsAreQueuedAgainAtStartup() {
+        service.init();
+
+        Mockito.verify(repository).requeueDispatched(ArgumentMatchers.argThat(commands ->
+                commands.contains(CommandType.REMOTE_STOP.name())
+                        && !commands.contains(CommandType.REMOTE_START.name())
+                        && !commands.contains(CommandType.RESET.name())));
+        Mockito.verify(repository).failDispatched(ArgumentMatchers.startsWith("Outcome unknown"));
+    }
+
+    @Test
+    public void testNothingIsSentWhileOffline() {
+        service.drain("cp-1");
+
+        Mockito.verifyNoInteractions(commandService);
+        Mockito.verify(repository, Mockito.never()).getNext(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testEnqueueValidatesParams() {
+        Mockito.when(chargePointRepository.getRegistrationStatus("cp-1")).thenReturn(Optional.of("Accepted"));
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> service.enqueue("cp-1", CommandType.REMOTE_STOP, objectMapper.createObjectNode(), null));
+
+        Mockito.verify(repository, Mockito.never())
+               .insert(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    private void mockTask(int taskId, CompletableFuture<RequestResult> future) {
+        CommunicationTask<?, ?> task = Mockito.mock(CommunicationTask.class);
+        Mockito.when(task.getFuture("cp-1")).thenReturn(future);
+        Mockito.when(taskStore.get(taskId)).thenReturn(task);
+    }
+
+    private QueuedCommand remoteStop(int id, int transactionId) throws Exception {
+        CommandForm.RemoteStop form = new CommandForm.RemoteStop();
+        form.setChargeBoxId("cp-1");
+        form.setTransactionId(transactionId);
+
+        return QueuedCommand.builder()
+                            .id(id)
+                            .chargeBoxId("cp-1")
+                            .command(CommandType.REMOTE_STOP.name())
+                            .payload(objectMapper.writeValueAsString(form))
+                            .status(QueuedCommandStatus.QUEUED)
+                            .build();
+    }
+
+    private QueuedCommand remoteStart(int id) throws Exception {
+        CommandForm.RemoteStart form = new CommandForm.RemoteStart();
+        form.setChargeBoxId("cp-1");
+        form.setIdTag("tag-1");
+
+        return QueuedCommand.builder()
+                            .id(id)
+                            .chargeBoxId("cp-1")
+                            .command(CommandType.REMOTE_START.name())
+                            .payload(objectMapper.writeValueAsString(form))
+                            .status(QueuedCommandStatus.QUEUED)
+                            .build();
+    }
+
+    private static RequestResult result(String response) {
+        RequestResult result = new RequestResult();
+        result.setResponse(response);
+        return result;
+    }
+}
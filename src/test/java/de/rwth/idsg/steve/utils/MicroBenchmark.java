@@ -0,0 +1,86 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minimal, single-threaded harness to compare the throughput and allocation of code paths. Not as rigorous as JMH,
+ * but it runs without any additional tooling: warm up, then measure wall time and the bytes allocated by the current
+ * thread.
+ */
+public final class MicroBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private MicroBenchmark() { }
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public static Result run(String name, int warmupIterations, int iterations, Task task) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            task.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long bytes = THREAD_BEAN.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        Result result = new Result(name, iterations, elapsedNanos, bytes);
+        System.out.println(result);
+        return result;
+    }
+
+    public static final class Result {
+        private final String name;
+        private final double opsPerSecond;
+        private final double bytesPerOp;
+
+        private Result(String name, int iterations, long elapsedNanos, long bytes) {
+            this.name = name;
+            this.opsPerSecond = iterations / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+            this.bytesPerOp = bytes / (double) iterations;
+        }
+
+        public double getOpsPerSecond() {
+            return opsPerSecond;
+        }
+
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-45s %12.0f ops/s %12.0f bytes/op", name, opsPerSecond, bytesPerOp);
+        }
+    }
+}
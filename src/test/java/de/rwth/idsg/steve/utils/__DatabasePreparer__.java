@@ -28,6 +28,8 @@ import de.rwth.idsg.steve.repository.dto.Transaction;
 import de.rwth.idsg.steve.repository.dto.TransactionDetails;
 import de.rwth.idsg.steve.repository.impl.AddressRepositoryImpl;
 import de.rwth.idsg.steve.repository.impl.ChargePointRepositoryImpl;
+import de.rwth.idsg.steve.repository.impl.ConnectorPkCache;
+import de.rwth.idsg.steve.repository.impl.HeartbeatRegistry;
 import de.rwth.idsg.steve.repository.impl.OcppTagRepositoryImpl;
 import de.rwth.idsg.steve.repository.impl.ReservationRepositoryImpl;
 import de.rwth.idsg.steve.repository.impl.TransactionRepositoryImpl;
@@ -44,11 +46,13 @@ import org.jooq.DSLContext;
 import org.jooq.Schema;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
+import org.mockito.Mockito;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -125,7 +129,7 @@ public class __DatabasePreparer__ {
     }
 
     public static List<ConnectorStatus> getChargePointConnectorStatus() {
-        ChargePointRepositoryImpl impl = new ChargePointRepositoryImpl(dslContext, new AddressRepositoryImpl());
+        ChargePointRepositoryImpl impl = chargePointRepository();
         return impl.getChargePointConnectorStatus();
     }
 
@@ -140,12 +144,18 @@ public class __DatabasePreparer__ {
     }
 
     public static ChargePoint.Details getCBDetails(String chargeboxID) {
-        ChargePointRepositoryImpl impl = new ChargePointRepositoryImpl(dslContext, new AddressRepositoryImpl());
+        ChargePointRepositoryImpl impl = chargePointRepository();
         Map<String, Integer> pkMap = impl.getChargeBoxIdPkPair(Arrays.asList(chargeboxID));
         int pk = pkMap.get(chargeboxID);
         return impl.getDetails(pk);
     }
 
+    private static ChargePointRepositoryImpl chargePointRepository() {
+        var heartbeatRegistry = new HeartbeatRegistry(dslContext, Mockito.mock(ScheduledExecutorService.class));
+        return new ChargePointRepositoryImpl(dslContext, new AddressRepositoryImpl(), heartbeatRegistry,
+                                             new ConnectorPkCache(dslContext));
+    }
+
     private static void runOperation(Consumer<DSLContext> consumer) {
         consumer.accept(dslContext);
     }
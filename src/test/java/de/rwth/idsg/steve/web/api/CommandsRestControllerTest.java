@@ -0,0 +1,184 @@
+/*
+ * SteVe - SteckdosenVerwaltung - https://github.com/steve-community/steve
+ * Copyright (C) 2013-2025 SteVe Community Team
+ * All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package de.rwth.idsg.steve.web.api;
+
+import de.rwth.idsg.steve.ocpp.CommunicationTask;
+import de.rwth.idsg.steve.ocpp.OcppTransport;
+import de.rwth.idsg.steve.ocpp.OcppVersion;
+import de.rwth.idsg.steve.ocpp.RequestResult;
+import de.rwth.idsg.steve.repository.TaskStore;
+import de.rwth.idsg.steve.repository.dto.ChargePointSelect;
+import de.rwth.idsg.steve.service.ChargePointHelperService;
+import de.rwth.idsg.steve.service.ChargePointService12_Client;
+import de.rwth.idsg.steve.service.ChargePointService15_Client;
+import de.rwth.idsg.steve.service.ChargePointService16_Client;
+import de.rwth.idsg.steve.service.CommandService;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class CommandsRestControllerTest extends AbstractControllerTest {
+
+    @Mock private ChargePointService12_Client client12;
+    @Mock private ChargePointService15_Client client15;
+    @Mock private ChargePointService16_Client client16;
+    @Mock private ChargePointHelperService chargePointHelperService;
+    @Mock private TaskStore taskStore;
+    @Mock private CommunicationTask<?, ?> task;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        CommandService commandService = new CommandService(client12, client15, client16, chargePointHelperService);
+        CommandsRestController controller = new CommandsRestController(commandService, taskStore);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .setControllerAdvice(new ApiControllerAdvice())
+            .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+            .build();
+    }
+
+    @Test
+    @DisplayName("POST remoteStop: Known station, expected 202 with task id")
+    public void testRemoteStopAccepted() throws Exception {
+        online("cp-1", OcppVersion.V_16);
+        when(client16.remoteStopTransaction(any())).thenReturn(7);
+        mockTask(false);
+
+        mockMvc.perform(post("/api/v1/commands/remoteStop")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"chargeBoxId\": \"cp-1\", \"transactionId\": 42}"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.taskId").value(7))
+            .andExpect(jsonPath("$.finished").value(false))
+            .andExpect(jsonPath("$.results[0].chargeBoxId").value("cp-1"))
+            .andExpect(jsonPath("$.results[0].completed").value(false));
+    }
+
+    @Test
+    @DisplayName("POST remoteStop: Unknown or offline station, expected 404")
+    public void testUnknownStation() throws Exception {
+        mockMvc.perform(post("/api/v1/commands/remoteStop")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"chargeBoxId\": \"cp-1\", \"transactionId\": 42}"))
+            .andExpect(status().isNotFound());
+
+        verifyNoInteractions(client12, client15, client16, taskStore);
+    }
+
+    @Test
+    @DisplayName("POST reset: Stations with different OCPP versions, expected 400")
+    public void testMixedVersions() throws Exception {
+        online(Map.of(OcppVersion.V_16, "cp-1", OcppVersion.V_15, "cp-2"));
+
+        mockMvc.perform(post("/api/v1/commands/reset")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"chargeBoxIds\": [\"cp-1\", \"cp-2\"], \"resetType\": \"SOFT\"}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST triggerMessage: OCPP 1.5 station, expected 400")
+    public void testTriggerMessageNeeds16() throws Exception {
+        online("cp-1", OcppVersion.V_15);
+
+        mockMvc.perform(post("/api/v1/commands/triggerMessage")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"chargeBoxIds\": [\"cp-1\"], \"triggerMessage\": \"Heartbeat\"}"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(client16);
+    }
+
+    @Test
+    @DisplayName("POST unlockConnector: Missing connector id, expected 400")
+    public void testValidation() throws Exception {
+        mockMvc.perform(post("/api/v1/commands/unlockConnector")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"chargeBoxId\": \"cp-1\"}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET status: Finished task is returned without waiting")
+    public void testLongPollFinished() throws Exception {
+        mockTask(true);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/commands/7").param("waitSeconds", "30"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.taskId").value(7))
+            .andExpect(jsonPath("$.finished").value(true))
+            .andExpect(jsonPath("$.results[0].response").value("Accepted"));
+    }
+
+    private void online(String chargeBoxId, OcppVersion version) {
+        online(Map.of(version, chargeBoxId));
+    }
+
+    private void online(Map<OcppVersion, String> stations) {
+        when(chargePointHelperService.getChargePointsWithIds(any(), any())).thenAnswer(invocation -> {
+            String chargeBoxId = stations.get(invocation.<OcppVersion>getArgument(0));
+            return chargeBoxId == null
+                ? List.of()
+                : List.of(new ChargePointSelect(OcppTransport.JSON, chargeBoxId));
+        });
+    }
+
+    private void mockTask(boolean finished) {
+        RequestResult result = new RequestResult();
+        if (finished) {
+            result.setResponse("Accepted");
+        }
+
+        when(taskStore.get(7)).thenReturn(task);
+        when(task.getResultMap()).thenReturn(Map.of("cp-1", result));
+        when(task.getOperationName()).thenReturn("Remote Stop Transaction");
+        when(task.getOcppVersion()).thenReturn(OcppVersion.V_16);
+        when(task.isFinished()).thenReturn(finished);
+        when(task.getStartTimestamp()).thenReturn(DateTime.now());
+    }
+}